@@ -0,0 +1,279 @@
+package com.pharmacy.inventory.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.inventory.dto.response.MessageResponse;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Makes create requests safe to retry. A POST to one of the guarded paths that
+ * carries an Idempotency-Key header runs once per user and key; a retry with the
+ * same key and body gets the stored response back (marked Idempotent-Replayed),
+ * and a retry that arrives while the first attempt is still running waits for it.
+ * Only successful responses are kept, so a request that failed may be retried for
+ * real. Reusing a key for a different body is rejected with 422.
+ */
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    // Returned by await when the original request is still running after the wait
+    private static final IdempotencyStore.StoredResponse IN_PROGRESS =
+            new IdempotencyStore.StoredResponse(0, null, null, new byte[0]);
+
+    private final IdempotencyStore store;
+    private final Set<String> paths;
+    private final long waitSeconds;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public IdempotencyFilter(IdempotencyStore store, Set<String> paths, long waitSeconds) {
+        this.store = store;
+        this.paths = paths;
+        this.waitSeconds = waitSeconds;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !"POST".equals(request.getMethod()) || request.getHeader(HEADER) == null
+                || !paths.contains(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String idempotencyKey = request.getHeader(HEADER).trim();
+        if (idempotencyKey.isEmpty() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            sendError(response, HttpStatus.BAD_REQUEST,
+                    HEADER + " must be between 1 and " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        byte[] body = request.getInputStream().readAllBytes();
+        String fingerprint = sha256(body);
+        String key = currentUser() + " " + request.getRequestURI() + " " + idempotencyKey;
+
+        // A duplicate whose original failed tries to take the key over; a few rounds
+        // cover the rare case of several duplicates racing for it
+        for (int attempt = 0; attempt < 3; attempt++) {
+            IdempotencyStore.Entry entry = new IdempotencyStore.Entry();
+            IdempotencyStore.Entry existing = store.reserve(key, fingerprint, entry);
+            if (existing == null) {
+                execute(new CachedBodyRequest(request, body), response, filterChain, key, entry);
+                return;
+            }
+
+            if (!existing.getFingerprint().equals(fingerprint)) {
+                sendError(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                        HEADER + " was already used for a different request");
+                return;
+            }
+
+            IdempotencyStore.StoredResponse stored = await(existing);
+            if (stored == IN_PROGRESS) {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                sendError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still in progress");
+                return;
+            }
+            if (stored != null) {
+                replay(stored, response);
+                return;
+            }
+        }
+        sendError(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " could not be completed, please retry");
+    }
+
+    private void execute(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String key, IdempotencyStore.Entry entry) throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        boolean stored = false;
+        try {
+            filterChain.doFilter(request, wrapper);
+            int status = wrapper.getStatus();
+            if (status >= 200 && status < 300) {
+                store.complete(entry, new IdempotencyStore.StoredResponse(status, wrapper.getContentType(),
+                        wrapper.getHeader(HttpHeaders.LOCATION), wrapper.getContentAsByteArray()));
+                stored = true;
+            }
+        } finally {
+            if (!stored) {
+                store.release(key, entry);
+            }
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private IdempotencyStore.StoredResponse await(IdempotencyStore.Entry entry) throws ServletException {
+        try {
+            return entry.getResult().get(waitSeconds, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            return IN_PROGRESS;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException("Interrupted while waiting for a duplicate request", e);
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+
+    private void replay(IdempotencyStore.StoredResponse stored, HttpServletResponse response) throws IOException {
+        response.setStatus(stored.getStatus());
+        if (stored.getContentType() != null) {
+            response.setContentType(stored.getContentType());
+        }
+        if (stored.getLocation() != null) {
+            response.setHeader(HttpHeaders.LOCATION, stored.getLocation());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        response.setContentLength(stored.getBody().length);
+        response.getOutputStream().write(stored.getBody());
+    }
+
+    private void sendError(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new MessageResponse(message));
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "";
+    }
+
+    private static String sha256(byte[] body) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(body));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Request whose body, already read to fingerprint it, can be read again
+     */
+    private static final class CachedBodyRequest extends HttpServletRequestWrapper {
+        private final byte[] body;
+
+        CachedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return new CachedBodyInputStream(body, this::isAsyncStarted);
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            String encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Stream over a body that is already in memory. For async reads the whole body
+     * is available at once: a read listener gets onDataAvailable straight away and
+     * onAllDataRead once the last byte has been read, after onDataAvailable returns.
+     */
+    private static final class CachedBodyInputStream extends ServletInputStream {
+        private final ByteArrayInputStream in;
+        private final BooleanSupplier asyncStarted;
+        private ReadListener listener;
+        private boolean inOnDataAvailable;
+        private boolean allDataReadSent;
+
+        CachedBodyInputStream(byte[] body, BooleanSupplier asyncStarted) {
+            this.in = new ByteArrayInputStream(body);
+            this.asyncStarted = asyncStarted;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            notifyIfFinished();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            notifyIfFinished();
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return in.available() == 0;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            if (readListener == null) {
+                throw new NullPointerException("readListener");
+            }
+            if (listener != null) {
+                throw new IllegalStateException("A read listener is already set");
+            }
+            if (!asyncStarted.getAsBoolean()) {
+                throw new IllegalStateException("Read listeners need an async request");
+            }
+            listener = readListener;
+            try {
+                if (!isFinished()) {
+                    inOnDataAvailable = true;
+                    try {
+                        readListener.onDataAvailable();
+                    } finally {
+                        inOnDataAvailable = false;
+                    }
+                }
+                notifyIfFinished();
+            } catch (IOException | RuntimeException e) {
+                readListener.onError(e);
+            }
+        }
+
+        private void notifyIfFinished() throws IOException {
+            if (listener != null && !inOnDataAvailable && !allDataReadSent && isFinished()) {
+                allDataReadSent = true;
+                listener.onAllDataRead();
+            }
+        }
+    }
+}
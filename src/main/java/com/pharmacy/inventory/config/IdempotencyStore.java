@@ -0,0 +1,134 @@
+package com.pharmacy.inventory.config;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Recently seen idempotency keys and the responses they produced.
+ *
+ * The first request with a key reserves it with an in-flight entry; duplicates
+ * that arrive while it runs get that entry back and wait on its result instead of
+ * executing. Entries expire after the TTL, and once the store is full the oldest
+ * entry is dropped to make room.
+ */
+public class IdempotencyStore {
+
+    private final int maxEntries;
+    private final Duration ttl;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>();
+
+    public IdempotencyStore(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttl = ttl;
+    }
+
+    /**
+     * Reserve a key for the calling request
+     *
+     * @param key Scoped idempotency key
+     * @param fingerprint Hash of the request, to detect a key reused for a different request
+     * @param entry Entry to store if the key is free
+     * @return The entry already holding the key, or null if the caller now owns it
+     */
+    public synchronized Entry reserve(String key, String fingerprint, Entry entry) {
+        Instant now = Instant.now();
+        removeExpired(now);
+
+        Entry existing = entries.get(key);
+        if (existing != null) {
+            return existing;
+        }
+        entry.fingerprint = fingerprint;
+        entry.expiresAt = now.plus(ttl);
+        entries.put(key, entry);
+        if (entries.size() > maxEntries) {
+            Iterator<Entry> oldest = entries.values().iterator();
+            oldest.next();
+            oldest.remove();
+        }
+        return null;
+    }
+
+    /**
+     * Store the response of an owned key; later duplicates replay it until it expires
+     */
+    public void complete(Entry entry, StoredResponse response) {
+        entry.result.complete(response);
+    }
+
+    /**
+     * Give up an owned key, e.g. after a failed request, so a retry runs again
+     */
+    public void release(String key, Entry entry) {
+        synchronized (this) {
+            entries.remove(key, entry);
+        }
+        entry.result.complete(null);
+    }
+
+    private void removeExpired(Instant now) {
+        // Insertion order is expiry order, so stop at the first live entry
+        Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (!iterator.next().getValue().expiresAt.isBefore(now)) {
+                break;
+            }
+            iterator.remove();
+        }
+    }
+
+    /**
+     * A reserved key; its result completes with the response, or with null if the
+     * request that owned it did not succeed
+     */
+    public static final class Entry {
+        private final CompletableFuture<StoredResponse> result = new CompletableFuture<>();
+        private String fingerprint;
+        private Instant expiresAt;
+
+        public CompletableFuture<StoredResponse> getResult() {
+            return result;
+        }
+
+        public String getFingerprint() {
+            return fingerprint;
+        }
+    }
+
+    /**
+     * What is needed to send a response again
+     */
+    public static final class StoredResponse {
+        private final int status;
+        private final String contentType;
+        private final String location;
+        private final byte[] body;
+
+        public StoredResponse(int status, String contentType, String location, byte[] body) {
+            this.status = status;
+            this.contentType = contentType;
+            this.location = location;
+            this.body = body;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getLocation() {
+            return location;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
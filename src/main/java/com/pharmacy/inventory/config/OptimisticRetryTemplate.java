@@ -0,0 +1,132 @@
+package com.pharmacy.inventory.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.OptimisticLockException;
+import jakarta.persistence.PessimisticLockException;
+import org.hibernate.StaleStateException;
+import org.hibernate.exception.LockAcquisitionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Runs a write in its own transaction and starts it again when it loses a race:
+ * an optimistic version check, a deadlock or a lock timeout. Attempts are spaced
+ * with full-jitter exponential backoff so colliding callers spread out rather
+ * than collide again.
+ *
+ * Called inside an existing transaction the action runs once and any conflict
+ * propagates, since only the outermost transaction can be restarted.
+ *
+ * Counters, tagged with the operation name:
+ * stock.concurrency.conflicts (every lost race), stock.concurrency.retries
+ * (attempts started again) and stock.concurrency.exhausted (gave up).
+ */
+@Component
+public class OptimisticRetryTemplate {
+
+    private static final Logger logger = LoggerFactory.getLogger(OptimisticRetryTemplate.class);
+
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Value("${app.concurrency.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.concurrency.retry.base-delay-ms:10}")
+    private long baseDelayMs;
+
+    @Value("${app.concurrency.retry.max-delay-ms:500}")
+    private long maxDelayMs;
+
+    @Autowired
+    public OptimisticRetryTemplate(PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * @param operation Name used in metrics and logs
+     * @param action Write to run; must be safe to run again from the start, i.e. relative
+     *               (add or take a quantity) or idempotent. Writes that set values a client
+     *               read earlier must check the client's version and report a conflict instead.
+     * @return Result of the first attempt that commits
+     */
+    public <T> T execute(String operation, Supplier<T> action) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return action.get();
+        }
+
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return transactionTemplate.execute(status -> action.get());
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                counter("stock.concurrency.conflicts", operation).increment();
+                if (attempt >= maxAttempts) {
+                    counter("stock.concurrency.exhausted", operation).increment();
+                    logger.warn("{} still conflicting after {} attempts: {}", operation, attempt, e.getMessage());
+                    throw e instanceof ConcurrencyFailureException
+                            ? e
+                            : new ConcurrencyFailureException(operation + " conflicted with a concurrent write", e);
+                }
+                counter("stock.concurrency.retries", operation).increment();
+                backOff(attempt);
+            }
+        }
+    }
+
+    public void executeWithoutResult(String operation, Runnable action) {
+        execute(operation, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    private void backOff(int attempt) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        long delay = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConcurrencyFailureException("Interrupted while waiting to retry", e);
+        }
+    }
+
+    private static boolean isConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConcurrencyFailureException
+                    || cause instanceof OptimisticLockException
+                    || cause instanceof PessimisticLockException
+                    || cause instanceof StaleStateException
+                    || cause instanceof LockAcquisitionException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private Counter counter(String name, String operation) {
+        return counters.computeIfAbsent(name + ':' + operation,
+                key -> Counter.builder(name).tag("operation", operation).register(meterRegistry));
+    }
+}
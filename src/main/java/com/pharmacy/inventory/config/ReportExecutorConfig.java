@@ -0,0 +1,54 @@
+package com.pharmacy.inventory.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors for report generation, sized separately from the servlet container
+ * so long exports cannot take request threads away from the tills
+ */
+@Configuration
+public class ReportExecutorConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportExecutorConfig.class);
+
+    @Bean(name = "reportExecutor")
+    public ThreadPoolTaskExecutor reportExecutor(@Value("${app.reports.jobs.threads:2}") int threads,
+                                                 @Value("${app.reports.jobs.queue-capacity:20}") int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        // Bounded queue: once full, submissions are rejected instead of piling up
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("report-job-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+
+    /**
+     * Runs the independent queries of one report side by side. Fetch tasks spend
+     * nearly all their time waiting on the database, so virtual threads are used
+     * when the runtime has them (Java 21+); otherwise a fixed pool. Concurrency
+     * against the database is capped by the caller, not by this executor.
+     */
+    @Bean(name = "reportFetchExecutor", destroyMethod = "shutdown")
+    public ExecutorService reportFetchExecutor(@Value("${app.reports.fetch.max-concurrent:4}") int threads) {
+        try {
+            // Looked up reflectively so the code still compiles and runs on Java 17
+            ExecutorService executor = (ExecutorService) Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            logger.info("Report fetches run on virtual threads");
+            return executor;
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("report-fetch-"));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.pharmacy.inventory.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Expression indexes for case-insensitive name search, which JPA index annotations
+ * cannot describe. The LOWER(name) B-tree serves equality lookups on known names;
+ * the trigram GIN indexes serve LIKE '%term%' and need the pg_trgm extension. Each
+ * statement is tried on its own, so a database without pg_trgm (or a role that may
+ * not create extensions) still gets everything else.
+ */
+@Component
+public class SearchIndexInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchIndexInitializer.class);
+
+    private static final String[] STATEMENTS = {
+        "CREATE INDEX IF NOT EXISTS idx_sales_customer_name_lower ON sales (LOWER(customer_name))",
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_patient_name_lower ON prescriptions (LOWER(patient_name))",
+        "CREATE EXTENSION IF NOT EXISTS pg_trgm",
+        "CREATE INDEX IF NOT EXISTS idx_sales_customer_name_trgm ON sales USING gin (LOWER(customer_name) gin_trgm_ops)",
+        "CREATE INDEX IF NOT EXISTS idx_prescriptions_patient_name_trgm ON prescriptions USING gin (LOWER(patient_name) gin_trgm_ops)"
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public SearchIndexInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Order(0)
+    @EventListener(ApplicationReadyEvent.class)
+    public void createIndexes() {
+        for (String statement : STATEMENTS) {
+            try {
+                jdbcTemplate.execute(statement);
+            } catch (DataAccessException e) {
+                logger.warn("Search index statement skipped ({}): {}", statement, e.getMostSpecificCause().getMessage());
+            }
+        }
+    }
+}
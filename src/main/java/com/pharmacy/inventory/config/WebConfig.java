@@ -1,7 +1,11 @@
 package com.pharmacy.inventory.config;
 
+import java.time.Duration;
 import java.util.List;
+import java.util.Set;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -15,7 +19,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 /**
  * Configuration class for web-related settings
- * Handles CORS, Content Negotiation, and Swagger UI resources
+ * Handles CORS, Content Negotiation, Swagger UI resources and idempotent create requests
  */
 @Configuration
 @EnableWebMvc
@@ -60,4 +64,22 @@ public class WebConfig implements WebMvcConfigurer {
         converter.setSupportedMediaTypes(List.of(MediaType.APPLICATION_JSON));
         return converter;
     }
+    
+    /**
+     * Idempotency-Key handling for the create endpoints POS clients retry. Registered
+     * after the security filter chain so keys are scoped to the authenticated user.
+     */
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(
+            @Value("${app.idempotency.max-entries:10000}") int maxEntries,
+            @Value("${app.idempotency.ttl-minutes:60}") long ttlMinutes,
+            @Value("${app.idempotency.wait-seconds:30}") long waitSeconds) {
+        Set<String> paths = Set.of("/api/sales", "/api/stock-transfers", "/api/purchase-orders");
+        IdempotencyStore store = new IdempotencyStore(maxEntries, Duration.ofMinutes(ttlMinutes));
+        
+        FilterRegistrationBean<IdempotencyFilter> registration =
+                new FilterRegistrationBean<>(new IdempotencyFilter(store, paths, waitSeconds));
+        registration.addUrlPatterns(paths.toArray(new String[0]));
+        return registration;
+    }
 }
@@ -1,6 +1,7 @@
 package com.pharmacy.inventory.controller;
 
 import com.pharmacy.inventory.dto.response.MessageResponse;
+import com.pharmacy.inventory.exception.VersionConflictException;
 import com.pharmacy.inventory.model.Batch;
 import com.pharmacy.inventory.service.BatchService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -8,6 +9,7 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -43,7 +45,7 @@ public class BatchController {
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<Batch> getBatchById(@PathVariable UUID id) {
         return batchService.getBatchById(id)
-                .map(ResponseEntity::ok)
+                .map(batch -> ResponseEntity.ok().eTag(VersionTags.of(batch.getVersion())).body(batch))
                 .orElse(ResponseEntity.notFound().build());
     }
 
@@ -97,16 +99,23 @@ public class BatchController {
     }
 
     @PutMapping("/{id}")
-    @Operation(summary = "Update batch", description = "Updates details of an existing batch")
+    @Operation(summary = "Update batch", description = "Updates details of an existing batch. With If-Match set to the ETag the batch was read with, a stale ETag is answered with 409 Conflict; without it (or with *) the update overwrites whatever is current")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasRole('PHARMACIST') or hasRole('ADMIN')")
-    public ResponseEntity<?> updateBatch(@PathVariable UUID id, @Valid @RequestBody Batch batch) {
-        Batch updatedBatch = batchService.updateBatch(id, batch);
-        if (updatedBatch != null) {
-            return ResponseEntity.ok(updatedBatch);
+    public ResponseEntity<?> updateBatch(@PathVariable UUID id, @Valid @RequestBody Batch batch,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Batch updatedBatch = batchService.updateBatch(id, batch, VersionTags.expectedVersion(ifMatch));
+            if (updatedBatch != null) {
+                return ResponseEntity.ok().eTag(VersionTags.of(updatedBatch.getVersion())).body(updatedBatch);
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new MessageResponse("Batch not found with ID: " + id));
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(new MessageResponse("Batch not found with ID: " + id));
     }
 
     @DeleteMapping("/{id}")
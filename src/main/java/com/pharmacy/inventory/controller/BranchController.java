@@ -3,14 +3,18 @@ package com.pharmacy.inventory.controller;
 import com.pharmacy.inventory.dto.response.MessageResponse;
 import com.pharmacy.inventory.model.Branch;
 import com.pharmacy.inventory.service.BranchService;
+import com.pharmacy.inventory.service.DataVersionService;
+import com.pharmacy.inventory.service.DataVersionService.DataSet;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -23,17 +27,23 @@ import java.util.UUID;
 public class BranchController {
 
     private final BranchService branchService;
+    private final DataVersionService dataVersionService;
     
     @Autowired
-    public BranchController(BranchService branchService) {
+    public BranchController(BranchService branchService, DataVersionService dataVersionService) {
         this.branchService = branchService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping
-    @Operation(summary = "Get all branches", description = "Retrieves a list of all pharmacy branches")
+    @Operation(summary = "Get all branches", description = "Retrieves a list of all pharmacy branches; answers 304 Not Modified while the ETag or Last-Modified the client sends is still current")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<Branch>> getAllBranches() {
-        return ResponseEntity.ok(branchService.getAllBranches());
+    public ResponseEntity<List<Branch>> getAllBranches(WebRequest request) {
+        if (request.checkNotModified(dataVersionService.getETag(DataSet.BRANCHES),
+                dataVersionService.getLastModified(DataSet.BRANCHES).toEpochMilli())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(branchService.getAllBranches());
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,31 @@
+package com.pharmacy.inventory.controller;
+
+import com.pharmacy.inventory.dto.response.CatalogueChanges;
+import com.pharmacy.inventory.service.CatalogueChangeService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/catalogue")
+@Tag(name = "Catalogue Sync", description = "APIs for keeping a local copy of medicines, branches and suppliers up to date")
+public class CatalogueController {
+
+    private final CatalogueChangeService catalogueChangeService;
+
+    @Autowired
+    public CatalogueController(CatalogueChangeService catalogueChangeService) {
+        this.catalogueChangeService = catalogueChangeService;
+    }
+
+    @GetMapping("/changes")
+    @Operation(summary = "Get catalogue changes", description = "Returns medicines, branches and suppliers changed or deleted since the version from the previous call; without a usable version the whole catalogue is returned with reset set")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<CatalogueChanges> getChanges(@RequestParam(required = false) String since) {
+        return ResponseEntity.ok(catalogueChangeService.getChangesSince(since));
+    }
+}
@@ -2,15 +2,19 @@ package com.pharmacy.inventory.controller;
 
 import com.pharmacy.inventory.dto.response.MessageResponse;
 import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.service.DataVersionService;
+import com.pharmacy.inventory.service.DataVersionService.DataSet;
 import com.pharmacy.inventory.service.MedicineService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import java.util.List;
@@ -23,17 +27,23 @@ import java.util.UUID;
 public class MedicineController {
 
     private final MedicineService medicineService;
+    private final DataVersionService dataVersionService;
     
     @Autowired
-    public MedicineController(MedicineService medicineService) {
+    public MedicineController(MedicineService medicineService, DataVersionService dataVersionService) {
         this.medicineService = medicineService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping
-    @Operation(summary = "Get all medicines", description = "Retrieves a list of all medicines in the inventory")
+    @Operation(summary = "Get all medicines", description = "Retrieves a list of all medicines in the inventory; answers 304 Not Modified while the ETag or Last-Modified the client sends is still current")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<Medicine>> getAllMedicines() {
-        return ResponseEntity.ok(medicineService.getAllMedicines());
+    public ResponseEntity<List<Medicine>> getAllMedicines(WebRequest request) {
+        if (request.checkNotModified(dataVersionService.getETag(DataSet.MEDICINES),
+                dataVersionService.getLastModified(DataSet.MEDICINES).toEpochMilli())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(medicineService.getAllMedicines());
     }
 
     @GetMapping("/{id}")
@@ -46,10 +56,11 @@ public class MedicineController {
     }
 
     @GetMapping("/search")
-    @Operation(summary = "Search medicines by name", description = "Searches for medicines whose names contain the provided search term")
+    @Operation(summary = "Search medicines", description = "Typeahead search over medicine name, category and manufacturer; each word matches as a prefix, tolerates small typos, and results are ranked best first")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<Medicine>> searchMedicinesByName(@RequestParam String name) {
-        return ResponseEntity.ok(medicineService.findMedicinesByName(name));
+    public ResponseEntity<List<Medicine>> searchMedicinesByName(@RequestParam String name,
+                                                                @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(medicineService.searchMedicines(name, limit));
     }
 
     @GetMapping("/category/{category}")
@@ -43,6 +43,20 @@ public class NotificationController {
         return ResponseEntity.ok(notificationService.getAllNotifications());
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get notifications page", description = "Retrieves notifications newest first, one page at a time; pass next_cursor from the previous page to continue")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> getNotificationsPage(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(notificationService.getNotificationsPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get notification by ID", description = "Retrieves notification details by its unique identifier")
     @SecurityRequirement(name = "bearerAuth")
@@ -45,6 +45,20 @@ public class PrescriptionController {
         return ResponseEntity.ok(prescriptionService.getAllPrescriptions());
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get prescriptions page", description = "Retrieves prescriptions newest first, one page at a time; pass next_cursor from the previous page to continue")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('PHARMACIST', 'ADMIN')")
+    public ResponseEntity<?> getPrescriptionsPage(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(prescriptionService.getPrescriptionsPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get prescription by ID", description = "Retrieves prescription details by its unique identifier")
     @SecurityRequirement(name = "bearerAuth")
@@ -66,6 +80,21 @@ public class PrescriptionController {
         return ResponseEntity.ok(prescriptionService.getPrescriptionsByPatientName(name));
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Search prescriptions by patient name", description = "Finds prescriptions whose patient name contains the given text, exact and prefix matches first, one page at a time")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('PHARMACIST', 'ADMIN')")
+    public ResponseEntity<?> searchPrescriptions(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(prescriptionService.searchPrescriptionsByPatientName(q, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/search/date-range")
     @Operation(summary = "Search prescriptions by date range", description = "Retrieves prescriptions issued between two dates")
     @SecurityRequirement(name = "bearerAuth")
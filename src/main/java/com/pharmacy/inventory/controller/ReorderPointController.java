@@ -0,0 +1,72 @@
+package com.pharmacy.inventory.controller;
+
+import com.pharmacy.inventory.dto.ReorderPointDTO;
+import com.pharmacy.inventory.dto.request.ReorderPointRequest;
+import com.pharmacy.inventory.dto.response.MessageResponse;
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
+import com.pharmacy.inventory.service.LowStockService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import jakarta.validation.Valid;
+import java.util.List;
+import java.util.UUID;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/reorder-points")
+@Tag(name = "Reorder Points", description = "APIs for managing per-medicine and per-branch low stock levels")
+public class ReorderPointController {
+
+    private final LowStockService lowStockService;
+
+    @Autowired
+    public ReorderPointController(LowStockService lowStockService) {
+        this.lowStockService = lowStockService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Get all reorder points", description = "Lists configured reorder points; a point without a branch is the medicine's default")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('PHARMACIST') or hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<List<ReorderPointDTO>> getReorderPoints() {
+        return ResponseEntity.ok(lowStockService.getReorderPoints());
+    }
+
+    @PutMapping
+    @Operation(summary = "Set reorder point", description = "Creates or replaces the reorder level of a medicine, at one branch or as its default for all branches")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<?> setReorderPoint(@Valid @RequestBody ReorderPointRequest request) {
+        try {
+            return ResponseEntity.ok(lowStockService.setReorderPoint(request));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new MessageResponse("Failed to set reorder point: " + e.getMessage()));
+        }
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "Delete reorder point", description = "Removes a reorder point; the medicine falls back to its default or the configured level")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<?> deleteReorderPoint(@PathVariable UUID id) {
+        try {
+            lowStockService.deleteReorderPoint(id);
+            return ResponseEntity.ok(new MessageResponse("Reorder point deleted successfully"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new MessageResponse("Failed to delete reorder point: " + e.getMessage()));
+        }
+    }
+}
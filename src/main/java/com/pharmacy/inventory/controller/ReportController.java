@@ -1,19 +1,32 @@
 package com.pharmacy.inventory.controller;
 
-import com.pharmacy.inventory.service.ReportService;
+import com.pharmacy.inventory.dto.ReportSpec;
+import com.pharmacy.inventory.dto.request.ReportJobRequest;
+import com.pharmacy.inventory.dto.response.MessageResponse;
+import com.pharmacy.inventory.dto.response.ReportJobResponse;
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
+import com.pharmacy.inventory.exception.ServiceBusyException;
+import com.pharmacy.inventory.service.ReportCacheService;
+import com.pharmacy.inventory.service.ReportJobService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.validation.Valid;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.UUID;
@@ -24,11 +37,13 @@ import java.util.UUID;
 @Tag(name = "Reporting", description = "APIs for generating various reports")
 public class ReportController {
 
-    private final ReportService reportService;
+    private final ReportCacheService reportCacheService;
+    private final ReportJobService reportJobService;
     
     @Autowired
-    public ReportController(ReportService reportService) {
-        this.reportService = reportService;
+    public ReportController(ReportCacheService reportCacheService, ReportJobService reportJobService) {
+        this.reportCacheService = reportCacheService;
+        this.reportJobService = reportJobService;
     }
 
     @GetMapping("/sales")
@@ -44,7 +59,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_PDF_VALUE);
         setReportFilename(response, "sales_report", startDate, endDate);
         
-        reportService.generateSalesReport(startDate, endDate, branchId, response.getOutputStream());
+        render(ReportSpec.Type.SALES, ReportSpec.Format.PDF, startDate, endDate, branchId, false, 0, response);
     }
 
     @GetMapping("/sales/excel")
@@ -60,7 +75,7 @@ public class ReportController {
         response.setContentType("application/vnd.ms-excel");
         setReportFilename(response, "sales_report", startDate, endDate, ".xlsx");
         
-        reportService.generateSalesReportExcel(startDate, endDate, branchId, response.getOutputStream());
+        render(ReportSpec.Type.SALES, ReportSpec.Format.EXCEL, startDate, endDate, branchId, false, 0, response);
     }
 
     @GetMapping("/inventory")
@@ -75,7 +90,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_PDF_VALUE);
         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=inventory_report.pdf");
         
-        reportService.generateInventoryReport(includeZeroStock, branchId, response.getOutputStream());
+        render(ReportSpec.Type.INVENTORY, ReportSpec.Format.PDF, null, null, branchId, includeZeroStock, 0, response);
     }
 
     @GetMapping("/inventory/excel")
@@ -90,7 +105,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=inventory_report.xlsx");
         
-        reportService.generateInventoryReportExcel(includeZeroStock, branchId, response.getOutputStream());
+        render(ReportSpec.Type.INVENTORY, ReportSpec.Format.EXCEL, null, null, branchId, includeZeroStock, 0, response);
     }
 
     @GetMapping("/expiry")
@@ -105,7 +120,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_PDF_VALUE);
         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=expiry_report.pdf");
         
-        reportService.generateExpiryReport(days, branchId, response.getOutputStream());
+        render(ReportSpec.Type.EXPIRY, ReportSpec.Format.PDF, null, null, branchId, false, days, response);
     }
 
     @GetMapping("/expiry/excel")
@@ -120,7 +135,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
         response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=expiry_report.xlsx");
         
-        reportService.generateExpiryReportExcel(days, branchId, response.getOutputStream());
+        render(ReportSpec.Type.EXPIRY, ReportSpec.Format.EXCEL, null, null, branchId, false, days, response);
     }
 
     @GetMapping("/supplier-performance")
@@ -135,7 +150,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_PDF_VALUE);
         setReportFilename(response, "supplier_performance", startDate, endDate);
         
-        reportService.generateSupplierPerformanceReport(startDate, endDate, response.getOutputStream());
+        render(ReportSpec.Type.SUPPLIER_PERFORMANCE, ReportSpec.Format.PDF, startDate, endDate, null, false, 0, response);
     }
 
     @GetMapping("/supplier-performance/excel")
@@ -150,7 +165,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
         setReportFilename(response, "supplier_performance", startDate, endDate, ".xlsx");
         
-        reportService.generateSupplierPerformanceReportExcel(startDate, endDate, response.getOutputStream());
+        render(ReportSpec.Type.SUPPLIER_PERFORMANCE, ReportSpec.Format.EXCEL, startDate, endDate, null, false, 0, response);
     }
 
     @GetMapping("/purchase-orders")
@@ -166,7 +181,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_PDF_VALUE);
         setReportFilename(response, "purchase_orders", startDate, endDate);
         
-        reportService.generatePurchaseOrderReport(startDate, endDate, branchId, response.getOutputStream());
+        render(ReportSpec.Type.PURCHASE_ORDERS, ReportSpec.Format.PDF, startDate, endDate, branchId, false, 0, response);
     }
 
     @GetMapping("/purchase-orders/excel")
@@ -182,7 +197,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
         setReportFilename(response, "purchase_orders", startDate, endDate, ".xlsx");
         
-        reportService.generatePurchaseOrderReportExcel(startDate, endDate, branchId, response.getOutputStream());
+        render(ReportSpec.Type.PURCHASE_ORDERS, ReportSpec.Format.EXCEL, startDate, endDate, branchId, false, 0, response);
     }
 
     @GetMapping("/profit-loss")
@@ -198,7 +213,7 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_PDF_VALUE);
         setReportFilename(response, "profit_loss", startDate, endDate);
         
-        reportService.generateProfitLossReport(startDate, endDate, branchId, response.getOutputStream());
+        render(ReportSpec.Type.PROFIT_LOSS, ReportSpec.Format.PDF, startDate, endDate, branchId, false, 0, response);
     }
 
     @GetMapping("/profit-loss/excel")
@@ -214,9 +229,86 @@ public class ReportController {
         response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
         setReportFilename(response, "profit_loss", startDate, endDate, ".xlsx");
         
-        reportService.generateProfitLossReportExcel(startDate, endDate, branchId, response.getOutputStream());
+        render(ReportSpec.Type.PROFIT_LOSS, ReportSpec.Format.EXCEL, startDate, endDate, branchId, false, 0, response);
     }
 
+    @PostMapping("/jobs")
+    @Operation(summary = "Submit report job", description = "Queues a report for background generation and returns a job to poll")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'PHARMACIST')")
+    public ResponseEntity<?> submitReportJob(@Valid @RequestBody ReportJobRequest request) {
+        try {
+            ReportJobResponse job = reportJobService.submit(request.toSpec());
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/reports/jobs/" + job.getJob_id()))
+                    .body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (AccessDeniedException e) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).body(new MessageResponse(e.getMessage()));
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    @Operation(summary = "Get report job", description = "Returns the status and progress (bytes written) of a report job")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'PHARMACIST')")
+    public ResponseEntity<?> getReportJob(@PathVariable UUID id) {
+        try {
+            return ResponseEntity.ok(reportJobService.getJob(id));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    @GetMapping("/jobs/{id}/download")
+    @Operation(summary = "Download report job result", description = "Downloads the file of a completed report job")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'PHARMACIST')")
+    public void downloadReportJob(@PathVariable UUID id, HttpServletResponse response) throws IOException {
+        Path file;
+        ReportSpec spec;
+        try {
+            spec = reportJobService.getSpec(id);
+            file = reportJobService.getResultFile(id);
+        } catch (ResourceNotFoundException e) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), e.getMessage());
+            return;
+        } catch (IllegalStateException e) {
+            response.sendError(HttpStatus.CONFLICT.value(), e.getMessage());
+            return;
+        }
+        
+        response.setContentType(spec.getFormat().getContentType());
+        response.setContentLengthLong(Files.size(file));
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + spec.getFileName());
+        Files.copy(file, response.getOutputStream());
+    }
+
+    @DeleteMapping("/jobs/{id}")
+    @Operation(summary = "Delete report job", description = "Cancels a report job if it is still running and deletes its file")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER', 'PHARMACIST')")
+    public ResponseEntity<?> deleteReportJob(@PathVariable UUID id) {
+        try {
+            reportJobService.deleteJob(id);
+            return ResponseEntity.ok(new MessageResponse("Report job deleted"));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+        }
+    }
+
+    // Synchronous reports go through the report cache
+    private void render(ReportSpec.Type type, ReportSpec.Format format, LocalDate startDate, LocalDate endDate,
+                        UUID branchId, boolean includeZeroStock, int days, HttpServletResponse response) throws IOException {
+        ReportSpec spec = new ReportSpec(type, format, startDate, endDate, branchId, includeZeroStock, days);
+        reportCacheService.render(spec, response.getOutputStream());
+    }
+    
     // Helper methods for setting filenames with date ranges
     
     private void setReportFilename(HttpServletResponse response, String reportName, LocalDate startDate, LocalDate endDate) {
@@ -1,32 +1,45 @@
 package com.pharmacy.inventory.controller;
 
+import com.pharmacy.inventory.dto.SaleDTO;
+import com.pharmacy.inventory.dto.report.ReportTotals;
+import com.pharmacy.inventory.dto.request.BulkSaleRequest;
 import com.pharmacy.inventory.dto.request.SaleRequest;
+import com.pharmacy.inventory.dto.response.BulkSaleResponse;
 import com.pharmacy.inventory.dto.response.MessageResponse;
+import com.pharmacy.inventory.exception.InsufficientStockException;
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
+import com.pharmacy.inventory.exception.ServiceBusyException;
 import com.pharmacy.inventory.model.Branch;
 import com.pharmacy.inventory.model.Medicine;
 import com.pharmacy.inventory.model.Sale;
 import com.pharmacy.inventory.model.SaleItem;
 import com.pharmacy.inventory.model.User;
 import com.pharmacy.inventory.repository.BranchRepository;
-import com.pharmacy.inventory.repository.MedicineRepository;
 import com.pharmacy.inventory.repository.UserRepository;
+import com.pharmacy.inventory.service.BulkSaleService;
+import com.pharmacy.inventory.service.MedicineCacheService;
 import com.pharmacy.inventory.service.SaleService;
+import com.pharmacy.inventory.service.SalesRollupService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import jakarta.validation.Valid;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -36,26 +49,45 @@ public class SaleController {
 
     private final SaleService saleService;
     private final UserRepository userRepository;
-    private final MedicineRepository medicineRepository;
+    private final MedicineCacheService medicineCacheService;
     private final BranchRepository branchRepository;
+    private final BulkSaleService bulkSaleService;
+    private final SalesRollupService salesRollupService;
     
     @Autowired
     public SaleController(SaleService saleService, UserRepository userRepository, 
-                         MedicineRepository medicineRepository, BranchRepository branchRepository) {
+                         MedicineCacheService medicineCacheService, BranchRepository branchRepository,
+                         BulkSaleService bulkSaleService, SalesRollupService salesRollupService) {
         this.saleService = saleService;
         this.userRepository = userRepository;
-        this.medicineRepository = medicineRepository;
+        this.medicineCacheService = medicineCacheService;
         this.branchRepository = branchRepository;
+        this.bulkSaleService = bulkSaleService;
+        this.salesRollupService = salesRollupService;
     }
 
     @GetMapping
     @Operation(summary = "Get all sales", description = "Retrieves a list of all sales transactions")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAnyRole('SALESPERSON', 'PHARMACIST', 'ADMIN', 'MANAGER')")
-    public ResponseEntity<List<Sale>> getAllSales() {
+    public ResponseEntity<List<SaleDTO>> getAllSales() {
         return ResponseEntity.ok(saleService.getAllSales());
     }
 
+    @GetMapping("/page")
+    @Operation(summary = "Get sales page", description = "Retrieves sales newest first, one page at a time; pass next_cursor from the previous page to continue")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('SALESPERSON', 'PHARMACIST', 'ADMIN', 'MANAGER')")
+    public ResponseEntity<?> getSalesPage(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(saleService.getSalesPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/{id}")
     @Operation(summary = "Get sale by ID", description = "Retrieves sale details by its unique identifier")
     @SecurityRequirement(name = "bearerAuth")
@@ -70,7 +102,7 @@ public class SaleController {
     @Operation(summary = "Get sales by user ID", description = "Retrieves all sales made by a specific user")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
-    public ResponseEntity<List<Sale>> getSalesByUserId(@PathVariable UUID userId) {
+    public ResponseEntity<List<SaleDTO>> getSalesByUserId(@PathVariable UUID userId) {
         return ResponseEntity.ok(saleService.getSalesByUserId(userId));
     }
 
@@ -78,7 +110,7 @@ public class SaleController {
     @Operation(summary = "Get sales in date range", description = "Retrieves all sales within a specified date range")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAnyRole('PHARMACIST', 'ADMIN', 'MANAGER')")
-    public ResponseEntity<List<Sale>> getSalesInDateRange(
+    public ResponseEntity<List<SaleDTO>> getSalesInDateRange(
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate) {
         return ResponseEntity.ok(saleService.getSalesInDateRange(startDate, endDate));
@@ -88,10 +120,25 @@ public class SaleController {
     @Operation(summary = "Get sales by customer name", description = "Retrieves all sales for a specific customer")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAnyRole('SALESPERSON', 'PHARMACIST', 'ADMIN', 'MANAGER')")
-    public ResponseEntity<List<Sale>> getSalesByCustomerName(@RequestParam String customerName) {
+    public ResponseEntity<List<SaleDTO>> getSalesByCustomerName(@RequestParam String customerName) {
         return ResponseEntity.ok(saleService.getSalesByCustomerName(customerName));
     }
 
+    @GetMapping("/search")
+    @Operation(summary = "Search sales by customer name", description = "Finds sales whose customer name contains the given text, exact and prefix matches first, one page at a time")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('SALESPERSON', 'PHARMACIST', 'ADMIN', 'MANAGER')")
+    public ResponseEntity<?> searchSalesByCustomerName(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
+        try {
+            return ResponseEntity.ok(saleService.searchSalesByCustomerName(q, page, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
+    }
+
     @GetMapping("/total")
     @Operation(summary = "Get sales total in date range", description = "Calculates the total sales amount within a specified date range")
     @SecurityRequirement(name = "bearerAuth")
@@ -102,6 +149,35 @@ public class SaleController {
         return ResponseEntity.ok(saleService.getSalesTotalInDateRange(startDate, endDate));
     }
 
+    @GetMapping("/summary")
+    @Operation(summary = "Get sales summary in date range", description = "Returns the number of sales, units sold and total amount within a date range, optionally for one branch")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('PHARMACIST', 'ADMIN', 'MANAGER')")
+    public ResponseEntity<ReportTotals> getSalesSummary(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endDate,
+            @RequestParam(required = false) UUID branchId) {
+        return ResponseEntity.ok(saleService.getSalesSummary(startDate, endDate, branchId));
+    }
+
+    @PostMapping("/rollup/rebuild")
+    @Operation(summary = "Rebuild daily sales rollups", description = "Recomputes the daily sales rollups for a range of days from the recorded sales")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> rebuildSalesRollup(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate) {
+        try {
+            int days = salesRollupService.rebuild(startDate, endDate);
+            return ResponseEntity.ok(new MessageResponse("Rebuilt sales rollups for " + days + " day(s)"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new MessageResponse("Error rebuilding sales rollups: " + e.getMessage()));
+        }
+    }
+
     @PostMapping
     @Operation(summary = "Create a new sale", description = "Records a new sale transaction in the system")
     @SecurityRequirement(name = "bearerAuth")
@@ -142,9 +218,11 @@ public class SaleController {
                 return ResponseEntity.badRequest().body(new MessageResponse("Sale must have at least one item"));
             }
             
+            Map<UUID, Medicine> medicines = medicineCacheService.getAll(saleRequest.getSale_items().stream()
+                    .map(SaleRequest.SaleItemRequest::getMedicine_id).collect(Collectors.toList()));
             for (SaleRequest.SaleItemRequest itemRequest : saleRequest.getSale_items()) {
                 // Validate medicine exists
-                Optional<Medicine> medicineOpt = medicineRepository.findById(itemRequest.getMedicine_id());
+                Optional<Medicine> medicineOpt = Optional.ofNullable(medicines.get(itemRequest.getMedicine_id()));
                 if (medicineOpt.isEmpty()) {
                     return ResponseEntity.badRequest().body(
                         new MessageResponse("Medicine not found with ID: " + itemRequest.getMedicine_id()));
@@ -177,12 +255,34 @@ public class SaleController {
             // Save sale with items
             Sale savedSale = saleService.createSale(sale);
             return ResponseEntity.status(HttpStatus.CREATED).body(savedSale);
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new MessageResponse("Failed to create sale: " + e.getMessage()));
         }
     }
 
+    @PostMapping("/bulk")
+    @Operation(summary = "Create sales in bulk", description = "Records a batch of sales queued by a POS terminal while offline and reports the outcome of each sale")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('SALESPERSON', 'PHARMACIST', 'ADMIN')")
+    public ResponseEntity<?> createSalesInBulk(@Valid @RequestBody BulkSaleRequest bulkSaleRequest) {
+        try {
+            BulkSaleResponse response = bulkSaleService.createSales(bulkSaleRequest);
+            return ResponseEntity.ok(response);
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new MessageResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new MessageResponse("Failed to create sales: " + e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
     @Operation(summary = "Update sale", description = "Updates details of an existing sale")
     @SecurityRequirement(name = "bearerAuth")
@@ -190,14 +290,11 @@ public class SaleController {
     public ResponseEntity<?> updateSale(@PathVariable UUID id, @Valid @RequestBody SaleRequest saleRequest) {
         try {
             // Check if sale exists
-            Optional<Sale> existingSaleOpt = saleService.getSaleById(id);
-            if (existingSaleOpt.isEmpty()) {
+            if (saleService.getSaleById(id).isEmpty()) {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND)
                         .body(new MessageResponse("Sale not found with ID: " + id));
             }
             
-            Sale existingSale = existingSaleOpt.get();
-            
             // Validate user exists
             Optional<User> userOpt = userRepository.findById(saleRequest.getUser_id());
             if (userOpt.isEmpty()) {
@@ -210,36 +307,38 @@ public class SaleController {
                 return ResponseEntity.badRequest().body(new MessageResponse("Branch not found"));
             }
             
-            // Update sale
-            existingSale.setUser(userOpt.get());
+            // Collect the changes on a detached copy; the service diffs them against the
+            // stored sale to move the stock the edit adds or frees
+            Sale changes = new Sale();
+            changes.setId(id);
+            changes.setUser(userOpt.get());
             
             // Safely handle BigDecimal to Double conversion
             if (saleRequest.getTotal_amount() != null) {
-                existingSale.setTotalAmount(saleRequest.getTotal_amount().doubleValue());
+                changes.setTotalAmount(saleRequest.getTotal_amount().doubleValue());
             } else {
                 return ResponseEntity.badRequest().body(new MessageResponse("Total amount cannot be null"));
             }
             
-            existingSale.setCustomerName(saleRequest.getCustomer_name());
-            existingSale.setBranch(branchOpt.get());
-            
-            // Clear existing items and add new ones
-            existingSale.getSaleItems().clear();
+            changes.setCustomerName(saleRequest.getCustomer_name());
+            changes.setBranch(branchOpt.get());
             
             if (saleRequest.getSale_items() == null || saleRequest.getSale_items().isEmpty()) {
                 return ResponseEntity.badRequest().body(new MessageResponse("Sale must have at least one item"));
             }
             
+            Map<UUID, Medicine> medicines = medicineCacheService.getAll(saleRequest.getSale_items().stream()
+                    .map(SaleRequest.SaleItemRequest::getMedicine_id).collect(Collectors.toList()));
             for (SaleRequest.SaleItemRequest itemRequest : saleRequest.getSale_items()) {
                 // Validate medicine exists
-                Optional<Medicine> medicineOpt = medicineRepository.findById(itemRequest.getMedicine_id());
+                Optional<Medicine> medicineOpt = Optional.ofNullable(medicines.get(itemRequest.getMedicine_id()));
                 if (medicineOpt.isEmpty()) {
                     return ResponseEntity.badRequest().body(
                         new MessageResponse("Medicine not found with ID: " + itemRequest.getMedicine_id()));
                 }
                 
                 SaleItem saleItem = new SaleItem();
-                saleItem.setSale(existingSale);
+                saleItem.setSale(changes);
                 saleItem.setMedicine(medicineOpt.get());
                 
                 // Validate quantity
@@ -257,12 +356,16 @@ public class SaleController {
                         new MessageResponse("Total price cannot be null for medicine: " + medicineOpt.get().getName()));
                 }
                 
-                existingSale.getSaleItems().add(saleItem);
+                changes.getSaleItems().add(saleItem);
             }
             
             // Save updated sale
-            Sale updatedSale = saleService.updateSale(existingSale);
+            Sale updatedSale = saleService.updateSale(changes);
             return ResponseEntity.ok(updatedSale);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+        } catch (InsufficientStockException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
                     .body(new MessageResponse("Failed to update sale: " + e.getMessage()));
@@ -0,0 +1,43 @@
+package com.pharmacy.inventory.controller;
+
+import com.pharmacy.inventory.dto.response.MessageResponse;
+import com.pharmacy.inventory.service.ScanService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.UUID;
+
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/scan")
+@Tag(name = "Barcode Scanning", description = "APIs for resolving scanned barcodes at the till")
+public class ScanController {
+
+    private final ScanService scanService;
+
+    @Autowired
+    public ScanController(ScanService scanService) {
+        this.scanService = scanService;
+    }
+
+    @GetMapping("/{payload}")
+    @Operation(summary = "Resolve a scanned barcode", description = "Resolves a MED-/BATCH- label, batch number, GTIN or GS1 string to the medicine and batch, with price, expiry and the on-hand quantity at the given branch")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('SALESPERSON', 'PHARMACIST', 'ADMIN', 'MANAGER')")
+    public ResponseEntity<?> resolve(@PathVariable String payload, @RequestParam(required = false) UUID branchId) {
+        if (!scanService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new MessageResponse("Barcode index is still loading"));
+        }
+        return scanService.resolve(payload, branchId)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.NOT_FOUND)
+                        .body(new MessageResponse("No medicine or batch matches barcode: " + payload)));
+    }
+}
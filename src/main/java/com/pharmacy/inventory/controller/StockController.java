@@ -1,21 +1,41 @@
 package com.pharmacy.inventory.controller;
 
+import com.pharmacy.inventory.dto.LowStockItem;
+import com.pharmacy.inventory.dto.StockDTO;
 import com.pharmacy.inventory.dto.request.StockTransferRequest;
 import com.pharmacy.inventory.dto.response.MessageResponse;
+import com.pharmacy.inventory.dto.response.StockAsOfReport;
+import com.pharmacy.inventory.dto.response.StockAvailability;
+import com.pharmacy.inventory.dto.response.StockChanges;
+import com.pharmacy.inventory.dto.response.StockLedgerReport;
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
+import com.pharmacy.inventory.exception.ServiceBusyException;
+import com.pharmacy.inventory.exception.VersionConflictException;
 import com.pharmacy.inventory.model.Stock;
+import com.pharmacy.inventory.model.StockSnapshot;
+import com.pharmacy.inventory.service.LowStockService;
+import com.pharmacy.inventory.service.StockChangeFeedService;
+import com.pharmacy.inventory.service.StockImportService;
+import com.pharmacy.inventory.service.StockJournalService;
+import com.pharmacy.inventory.service.StockLedgerService;
 import com.pharmacy.inventory.service.StockService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import jakarta.validation.Valid;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
@@ -24,17 +44,42 @@ import java.util.UUID;
 public class StockController {
 
     private final StockService stockService;
+    private final StockLedgerService stockLedgerService;
+    private final LowStockService lowStockService;
+    private final StockJournalService stockJournalService;
+    private final StockImportService stockImportService;
+    private final StockChangeFeedService stockChangeFeedService;
 
     @Autowired
-    public StockController(StockService stockService) {
+    public StockController(StockService stockService, StockLedgerService stockLedgerService,
+                           LowStockService lowStockService, StockJournalService stockJournalService,
+                           StockImportService stockImportService, StockChangeFeedService stockChangeFeedService) {
         this.stockService = stockService;
+        this.stockLedgerService = stockLedgerService;
+        this.lowStockService = lowStockService;
+        this.stockJournalService = stockJournalService;
+        this.stockImportService = stockImportService;
+        this.stockChangeFeedService = stockChangeFeedService;
     }
 
     @GetMapping
     @Operation(summary = "Get all stock", description = "Retrieves a list of all stock in the inventory")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<Stock>> getAllStock() {
-        return ResponseEntity.ok(stockService.getAllStock());
+    public ResponseEntity<List<StockDTO>> getAllStock() {
+        return ResponseEntity.ok(toDTOs(stockService.getAllStock()));
+    }
+
+    @GetMapping("/page")
+    @Operation(summary = "Get stock page", description = "Retrieves stock rows newest first, one page at a time; pass next_cursor from the previous page to continue")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<?> getStockPage(
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(required = false) String cursor) {
+        try {
+            return ResponseEntity.ok(stockService.getStockPage(cursor, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        }
     }
 
     @GetMapping("/{id}")
@@ -42,15 +87,15 @@ public class StockController {
     @SecurityRequirement(name = "bearerAuth")
     public ResponseEntity<Stock> getStockById(@PathVariable UUID id) {
         return stockService.getStockById(id)
-                .map(ResponseEntity::ok)
+                .map(stock -> ResponseEntity.ok().eTag(VersionTags.of(stock.getVersion())).body(stock))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/medicine/{medicineId}")
     @Operation(summary = "Get stock by medicine ID", description = "Retrieves all stock for a specific medicine")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<Stock>> getStockByMedicineId(@PathVariable UUID medicineId) {
-        return ResponseEntity.ok(stockService.getStockByMedicineId(medicineId));
+    public ResponseEntity<List<StockDTO>> getStockByMedicineId(@PathVariable UUID medicineId) {
+        return ResponseEntity.ok(toDTOs(stockService.getStockByMedicineId(medicineId)));
     }
 
     @GetMapping("/batch/{batchId}")
@@ -65,31 +110,93 @@ public class StockController {
     @GetMapping("/branch/{branchId}")
     @Operation(summary = "Get stock by branch ID", description = "Retrieves stock for a specific branch")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<Stock>> getStockByBranchId(@PathVariable UUID branchId) {
-        return ResponseEntity.ok(stockService.getStockByBranchId(branchId));
+    public ResponseEntity<List<StockDTO>> getStockByBranchId(@PathVariable UUID branchId) {
+        return ResponseEntity.ok(toDTOs(stockService.getStockByBranchId(branchId)));
+    }
+
+    @GetMapping("/branch/{branchId}/changes")
+    @Operation(summary = "Get stock changes for a branch", description = "Returns the branch's stock rows changed and the IDs of rows removed since the version from the previous call; without a usable version every row of the branch is returned with reset set")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StockChanges> getStockChangesByBranchId(@PathVariable UUID branchId,
+                                                                  @RequestParam(required = false) String since) {
+        return ResponseEntity.ok(stockChangeFeedService.getChangesSince(branchId, since));
     }
 
     @GetMapping("/low-stock")
-    @Operation(summary = "Get low stock items", description = "Retrieves all items with low stock levels")
+    @Operation(summary = "Get low stock items", description = "Retrieves medicines at or below their reorder level, per branch, optionally for one branch")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasRole('PHARMACIST') or hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<List<Stock>> getLowStockItems() {
-        return ResponseEntity.ok(stockService.getLowStockItems());
+    public ResponseEntity<List<LowStockItem>> getLowStockItems(@RequestParam(required = false) UUID branchId) {
+        return ResponseEntity.ok(lowStockService.getLowStockItems(branchId));
+    }
+
+    @GetMapping("/availability")
+    @Operation(summary = "Check stock availability", description = "Answers from the in-memory stock ledger whether a branch holds a quantity of a medicine, optionally of one batch")
+    @SecurityRequirement(name = "bearerAuth")
+    public ResponseEntity<StockAvailability> getAvailability(
+            @RequestParam UUID branchId,
+            @RequestParam UUID medicineId,
+            @RequestParam(required = false) UUID batchId,
+            @RequestParam(defaultValue = "1") int quantity) {
+        long available = batchId != null
+                ? stockLedgerService.getAvailable(branchId, medicineId, batchId)
+                : stockLedgerService.getAvailable(branchId, medicineId);
+        return ResponseEntity.ok(new StockAvailability(branchId, medicineId, batchId, available, quantity));
+    }
+
+    @GetMapping("/ledger/reconcile")
+    @Operation(summary = "Check stock ledger", description = "Compares the in-memory stock ledger with the database and reports any drift")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> checkLedger() {
+        return reconcileLedger(false);
+    }
+
+    @PostMapping("/ledger/reconcile")
+    @Operation(summary = "Repair stock ledger", description = "Compares the in-memory stock ledger with the database and reloads the rows that differ")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> repairLedger() {
+        return reconcileLedger(true);
+    }
+
+    @GetMapping("/as-of")
+    @Operation(summary = "Get stock as of a point in time", description = "Rebuilds what a branch held at a past date and time from the latest snapshot before it and the stock movements since")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('MANAGER')")
+    public ResponseEntity<StockAsOfReport> getStockAsOf(
+            @RequestParam UUID branchId,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return ResponseEntity.ok(stockJournalService.getStockAsOf(branchId, at));
+    }
+
+    @PostMapping("/snapshots")
+    @Operation(summary = "Take stock snapshot", description = "Folds the stock movements since the latest snapshot into a new one, ahead of the scheduled run")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> takeSnapshot() {
+        try {
+            StockSnapshot snapshot = stockJournalService.takeSnapshot();
+            return ResponseEntity.ok(snapshot);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new MessageResponse("Failed to take stock snapshot: " + e.getMessage()));
+        }
     }
 
     @GetMapping("/category/{category}")
     @Operation(summary = "Get stock by medicine category", description = "Retrieves all stock for medicines in a specific category")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<Stock>> getStockByMedicineCategory(@PathVariable String category) {
-        return ResponseEntity.ok(stockService.getStockByMedicineCategory(category));
+    public ResponseEntity<List<StockDTO>> getStockByMedicineCategory(@PathVariable String category) {
+        return ResponseEntity.ok(toDTOs(stockService.getStockByMedicineCategory(category)));
     }
 
     @GetMapping("/expiring-soon")
     @Operation(summary = "Get stock expiring soon", description = "Retrieves all stock that will expire within three months")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasRole('PHARMACIST') or hasRole('ADMIN') or hasRole('MANAGER')")
-    public ResponseEntity<List<Stock>> getStockExpiringInThreeMonths() {
-        return ResponseEntity.ok(stockService.getStockExpiringInThreeMonths());
+    public ResponseEntity<List<StockDTO>> getStockExpiringInThreeMonths() {
+        return ResponseEntity.ok(toDTOs(stockService.getStockExpiringInThreeMonths()));
     }
 
     @PostMapping
@@ -112,30 +219,66 @@ public class StockController {
         return ResponseEntity.badRequest().body(new MessageResponse("Failed to transfer stock. Check if source has enough stock or if branches and medicine exist."));
     }
 
+    @PostMapping("/import")
+    @Operation(summary = "Import stock", description = "Streams a CSV or XLSX file of received batches into a branch, creating missing medicines and batches; invalid rows are reported rather than failing the file")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasRole('PHARMACIST') or hasRole('ADMIN')")
+    public ResponseEntity<?> importStock(@RequestParam UUID branchId, @RequestParam("file") MultipartFile file) {
+        try {
+            return ResponseEntity.ok(stockImportService.importStock(branchId, file));
+        } catch (ServiceBusyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                    .body(new MessageResponse(e.getMessage()));
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(new MessageResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new MessageResponse("Failed to import stock: " + e.getMessage()));
+        }
+    }
+
     @PutMapping("/{id}")
-    @Operation(summary = "Update stock", description = "Updates details of an existing stock entry")
+    @Operation(summary = "Update stock", description = "Updates details of an existing stock entry. With If-Match set to the ETag the entry was read with, a stale ETag is answered with 409 Conflict; without it (or with *) the update overwrites whatever is current")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasRole('PHARMACIST') or hasRole('ADMIN')")
-    public ResponseEntity<?> updateStock(@PathVariable UUID id, @Valid @RequestBody Stock stock) {
-        Stock updatedStock = stockService.updateStock(id, stock);
-        if (updatedStock != null) {
-            return ResponseEntity.ok(updatedStock);
+    public ResponseEntity<?> updateStock(@PathVariable UUID id, @Valid @RequestBody Stock stock,
+                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Stock updatedStock = stockService.updateStock(id, stock, VersionTags.expectedVersion(ifMatch));
+            if (updatedStock != null) {
+                return ResponseEntity.ok().eTag(VersionTags.of(updatedStock.getVersion())).body(updatedStock);
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new MessageResponse("Stock not found with ID: " + id));
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(new MessageResponse("Stock not found with ID: " + id));
     }
 
     @PatchMapping("/{id}/quantity/{quantity}")
-    @Operation(summary = "Update stock quantity", description = "Updates only the quantity of an existing stock entry")
+    @Operation(summary = "Update stock quantity", description = "Sets the quantity of an existing stock entry. With If-Match set to the ETag the entry was read with, a stale ETag is answered with 409 Conflict; without it (or with *) the quantity overwrites whatever is current")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasRole('PHARMACIST') or hasRole('ADMIN')")
-    public ResponseEntity<?> updateStockQuantity(@PathVariable UUID id, @PathVariable int quantity) {
-        boolean updated = stockService.updateStockQuantity(id, quantity);
-        if (updated) {
-            return ResponseEntity.ok(new MessageResponse("Stock quantity updated successfully"));
+    public ResponseEntity<?> updateStockQuantity(@PathVariable UUID id, @PathVariable int quantity,
+                                                 @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            Stock updatedStock = stockService.updateStockQuantity(id, quantity, VersionTags.expectedVersion(ifMatch));
+            if (updatedStock != null) {
+                return ResponseEntity.ok().eTag(VersionTags.of(updatedStock.getVersion()))
+                        .body(new MessageResponse("Stock quantity updated successfully"));
+            }
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new MessageResponse("Stock not found with ID: " + id));
+        } catch (VersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(new MessageResponse(e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
         }
-        return ResponseEntity.status(HttpStatus.NOT_FOUND)
-                .body(new MessageResponse("Stock not found with ID: " + id));
     }
 
     @DeleteMapping("/{id}")
@@ -151,4 +294,17 @@ public class StockController {
                     .body(new MessageResponse("Failed to delete stock: " + e.getMessage()));
         }
     }
+
+    private ResponseEntity<?> reconcileLedger(boolean repair) {
+        if (!stockLedgerService.isReady()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(new MessageResponse("Stock ledger is still loading"));
+        }
+        StockLedgerReport report = stockLedgerService.reconcile(repair);
+        return ResponseEntity.ok(report);
+    }
+
+    private List<StockDTO> toDTOs(List<Stock> stock) {
+        return stock.stream().map(StockDTO::from).collect(Collectors.toList());
+    }
 }
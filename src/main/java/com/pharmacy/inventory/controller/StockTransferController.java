@@ -1,7 +1,9 @@
 package com.pharmacy.inventory.controller;
 
+import com.pharmacy.inventory.dto.StockTransferDTO;
 import com.pharmacy.inventory.dto.request.StockTransferRequest;
 import com.pharmacy.inventory.dto.response.MessageResponse;
+import com.pharmacy.inventory.dto.response.TransferBatchResponse;
 import com.pharmacy.inventory.model.StockTransfer;
 import com.pharmacy.inventory.service.StockTransferService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -37,7 +39,7 @@ public class StockTransferController {
     @Operation(summary = "Get all stock transfers", description = "Retrieves a list of all stock transfers")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAnyRole('MANAGER', 'ADMIN')")
-    public ResponseEntity<List<StockTransfer>> getAllStockTransfers() {
+    public ResponseEntity<List<StockTransferDTO>> getAllStockTransfers() {
         return ResponseEntity.ok(stockTransferService.getAllStockTransfers());
     }
 
@@ -69,8 +71,8 @@ public class StockTransferController {
     @Operation(summary = "Get stock transfers by source branch", description = "Retrieves all stock transfers from a specific branch")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAnyRole('PHARMACIST', 'MANAGER', 'ADMIN')")
-    public ResponseEntity<List<StockTransfer>> getStockTransfersBySourceBranch(@PathVariable UUID branchId) {
-        List<StockTransfer> transfers = stockTransferService.getStockTransfersBySourceBranchId(branchId);
+    public ResponseEntity<List<StockTransferDTO>> getStockTransfersBySourceBranch(@PathVariable UUID branchId) {
+        List<StockTransferDTO> transfers = stockTransferService.getStockTransfersBySourceBranchId(branchId);
         return ResponseEntity.ok(transfers);
     }
 
@@ -78,8 +80,8 @@ public class StockTransferController {
     @Operation(summary = "Get stock transfers by destination branch", description = "Retrieves all stock transfers to a specific branch")
     @SecurityRequirement(name = "bearerAuth")
     @PreAuthorize("hasAnyRole('PHARMACIST', 'MANAGER', 'ADMIN')")
-    public ResponseEntity<List<StockTransfer>> getStockTransfersByDestinationBranch(@PathVariable UUID branchId) {
-        List<StockTransfer> transfers = stockTransferService.getStockTransfersByDestinationBranchId(branchId);
+    public ResponseEntity<List<StockTransferDTO>> getStockTransfersByDestinationBranch(@PathVariable UUID branchId) {
+        List<StockTransferDTO> transfers = stockTransferService.getStockTransfersByDestinationBranchId(branchId);
         return ResponseEntity.ok(transfers);
     }
 
@@ -124,4 +126,20 @@ public class StockTransferController {
                     .body(new MessageResponse("Failed to process stock transfer: " + e.getMessage()));
         }
     }
+
+    @PostMapping("/process-batch")
+    @Operation(summary = "Complete pending stock transfers", description = "Completes the listed pending transfers, or the oldest pending ones when no IDs are given, in one transaction; transfers the source cannot cover stay pending")
+    @SecurityRequirement(name = "bearerAuth")
+    @PreAuthorize("hasAnyRole('MANAGER', 'ADMIN')")
+    public ResponseEntity<?> processPendingTransfers(@RequestBody(required = false) List<UUID> ids) {
+        try {
+            TransferBatchResponse response = stockTransferService.processPendingTransfers(ids);
+            return ResponseEntity.ok(response);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new MessageResponse(e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new MessageResponse("Failed to process stock transfers: " + e.getMessage()));
+        }
+    }
 }
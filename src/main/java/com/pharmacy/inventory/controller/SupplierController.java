@@ -2,15 +2,19 @@ package com.pharmacy.inventory.controller;
 
 import com.pharmacy.inventory.dto.response.MessageResponse;
 import com.pharmacy.inventory.model.Supplier;
+import com.pharmacy.inventory.service.DataVersionService;
+import com.pharmacy.inventory.service.DataVersionService.DataSet;
 import com.pharmacy.inventory.service.SupplierService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 
 import jakarta.validation.Valid;
 import java.math.BigDecimal;
@@ -24,17 +28,23 @@ import java.util.UUID;
 public class SupplierController {
 
     private final SupplierService supplierService;
+    private final DataVersionService dataVersionService;
     
     @Autowired
-    public SupplierController(SupplierService supplierService) {
+    public SupplierController(SupplierService supplierService, DataVersionService dataVersionService) {
         this.supplierService = supplierService;
+        this.dataVersionService = dataVersionService;
     }
 
     @GetMapping
-    @Operation(summary = "Get all suppliers", description = "Retrieves a list of all suppliers")
+    @Operation(summary = "Get all suppliers", description = "Retrieves a list of all suppliers; answers 304 Not Modified while the ETag or Last-Modified the client sends is still current")
     @SecurityRequirement(name = "bearerAuth")
-    public ResponseEntity<List<Supplier>> getAllSuppliers() {
-        return ResponseEntity.ok(supplierService.getAllSuppliers());
+    public ResponseEntity<List<Supplier>> getAllSuppliers(WebRequest request) {
+        if (request.checkNotModified(dataVersionService.getETag(DataSet.SUPPLIERS),
+                dataVersionService.getLastModified(DataSet.SUPPLIERS).toEpochMilli())) {
+            return null;
+        }
+        return ResponseEntity.ok().cacheControl(CacheControl.noCache()).body(supplierService.getAllSuppliers());
     }
 
     @GetMapping("/{id}")
@@ -0,0 +1,38 @@
+package com.pharmacy.inventory.controller;
+
+/**
+ * ETags of versioned entities. The ETag is the quoted entity version, and the
+ * If-Match a client sends back names the version its write was based on.
+ */
+final class VersionTags {
+
+    private VersionTags() {
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * @param ifMatch If-Match header as sent, or null if there was none
+     * @return Expected version, or null for "*" or no header, which accept whatever version is current
+     * @throws IllegalArgumentException If the header is not a single strong version tag
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.equals("*")) {
+            return null;
+        }
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        try {
+            return Long.parseLong(tag);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("If-Match must be the ETag returned with the record, e.g. \"3\"");
+        }
+    }
+}
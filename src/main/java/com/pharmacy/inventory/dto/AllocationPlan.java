@@ -0,0 +1,134 @@
+package com.pharmacy.inventory.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * First-expiry-first-out plan describing which batches a quantity should be drawn from
+ */
+public class AllocationPlan {
+    private UUID branchId;
+    private UUID medicineId;
+    private Integer requestedQuantity;
+    private Integer allocatedQuantity;
+    private List<Line> lines;
+    
+    public AllocationPlan() {
+    }
+    
+    public AllocationPlan(UUID branchId, UUID medicineId, Integer requestedQuantity,
+                          Integer allocatedQuantity, List<Line> lines) {
+        this.branchId = branchId;
+        this.medicineId = medicineId;
+        this.requestedQuantity = requestedQuantity;
+        this.allocatedQuantity = allocatedQuantity;
+        this.lines = lines;
+    }
+    
+    public boolean isFullyAllocated() {
+        return allocatedQuantity != null && allocatedQuantity.equals(requestedQuantity);
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public void setBranchId(UUID branchId) {
+        this.branchId = branchId;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public Integer getRequestedQuantity() {
+        return requestedQuantity;
+    }
+    
+    public void setRequestedQuantity(Integer requestedQuantity) {
+        this.requestedQuantity = requestedQuantity;
+    }
+    
+    public Integer getAllocatedQuantity() {
+        return allocatedQuantity;
+    }
+    
+    public void setAllocatedQuantity(Integer allocatedQuantity) {
+        this.allocatedQuantity = allocatedQuantity;
+    }
+    
+    public List<Line> getLines() {
+        return lines;
+    }
+    
+    public void setLines(List<Line> lines) {
+        this.lines = lines;
+    }
+    
+    /**
+     * Quantity to draw from a single stock row
+     */
+    public static class Line {
+        private UUID stockId;
+        private UUID batchId;
+        private String batchNumber;
+        private LocalDate expiryDate;
+        private Integer quantity;
+        
+        public Line() {
+        }
+        
+        public Line(UUID stockId, UUID batchId, String batchNumber, LocalDate expiryDate, Integer quantity) {
+            this.stockId = stockId;
+            this.batchId = batchId;
+            this.batchNumber = batchNumber;
+            this.expiryDate = expiryDate;
+            this.quantity = quantity;
+        }
+        
+        public UUID getStockId() {
+            return stockId;
+        }
+        
+        public void setStockId(UUID stockId) {
+            this.stockId = stockId;
+        }
+        
+        public UUID getBatchId() {
+            return batchId;
+        }
+        
+        public void setBatchId(UUID batchId) {
+            this.batchId = batchId;
+        }
+        
+        public String getBatchNumber() {
+            return batchNumber;
+        }
+        
+        public void setBatchNumber(String batchNumber) {
+            this.batchNumber = batchNumber;
+        }
+        
+        public LocalDate getExpiryDate() {
+            return expiryDate;
+        }
+        
+        public void setExpiryDate(LocalDate expiryDate) {
+            this.expiryDate = expiryDate;
+        }
+        
+        public Integer getQuantity() {
+            return quantity;
+        }
+        
+        public void setQuantity(Integer quantity) {
+            this.quantity = quantity;
+        }
+    }
+}
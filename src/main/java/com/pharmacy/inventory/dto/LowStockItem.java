@@ -0,0 +1,76 @@
+package com.pharmacy.inventory.dto;
+
+import java.util.UUID;
+
+/**
+ * A medicine whose total on hand at a branch is at or below its reorder level
+ */
+public class LowStockItem {
+    private UUID branchId;
+    private String branchName;
+    private UUID medicineId;
+    private String medicineName;
+    private long quantity;
+    private int reorderLevel;
+    
+    public LowStockItem() {
+    }
+    
+    public LowStockItem(UUID branchId, String branchName, UUID medicineId, String medicineName,
+                        long quantity, int reorderLevel) {
+        this.branchId = branchId;
+        this.branchName = branchName;
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.quantity = quantity;
+        this.reorderLevel = reorderLevel;
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public void setBranchId(UUID branchId) {
+        this.branchId = branchId;
+    }
+    
+    public String getBranchName() {
+        return branchName;
+    }
+    
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public String getMedicineName() {
+        return medicineName;
+    }
+    
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+    
+    public long getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+    
+    public int getReorderLevel() {
+        return reorderLevel;
+    }
+    
+    public void setReorderLevel(int reorderLevel) {
+        this.reorderLevel = reorderLevel;
+    }
+}
@@ -0,0 +1,87 @@
+package com.pharmacy.inventory.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read model of a reorder point; branchId is null for a medicine's default
+ */
+public class ReorderPointDTO {
+    private UUID id;
+    private UUID medicineId;
+    private String medicineName;
+    private UUID branchId;
+    private String branchName;
+    private Integer reorderLevel;
+    private LocalDateTime updatedAt;
+    
+    public ReorderPointDTO() {
+    }
+    
+    public ReorderPointDTO(UUID id, UUID medicineId, String medicineName, UUID branchId, String branchName,
+                           Integer reorderLevel, LocalDateTime updatedAt) {
+        this.id = id;
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.branchId = branchId;
+        this.branchName = branchName;
+        this.reorderLevel = reorderLevel;
+        this.updatedAt = updatedAt;
+    }
+    
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public String getMedicineName() {
+        return medicineName;
+    }
+    
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public void setBranchId(UUID branchId) {
+        this.branchId = branchId;
+    }
+    
+    public String getBranchName() {
+        return branchName;
+    }
+    
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+    
+    public Integer getReorderLevel() {
+        return reorderLevel;
+    }
+    
+    public void setReorderLevel(Integer reorderLevel) {
+        this.reorderLevel = reorderLevel;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
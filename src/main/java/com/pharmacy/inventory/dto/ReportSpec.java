@@ -0,0 +1,141 @@
+package com.pharmacy.inventory.dto;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.UUID;
+
+/**
+ * Everything needed to render one report: what it is, in which format, and its parameters
+ */
+public class ReportSpec {
+    
+    public enum Type {
+        SALES("sales_report", true),
+        INVENTORY("inventory_report", false),
+        EXPIRY("expiry_report", false),
+        SUPPLIER_PERFORMANCE("supplier_performance", true),
+        PURCHASE_ORDERS("purchase_orders", true),
+        PROFIT_LOSS("profit_loss", true);
+        
+        private final String fileName;
+        private final boolean dateRange;
+        
+        Type(String fileName, boolean dateRange) {
+            this.fileName = fileName;
+            this.dateRange = dateRange;
+        }
+        
+        public String getFileName() {
+            return fileName;
+        }
+        
+        public boolean hasDateRange() {
+            return dateRange;
+        }
+    }
+    
+    public enum Format {
+        PDF(".pdf", "application/pdf"),
+        EXCEL(".xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        
+        private final String extension;
+        private final String contentType;
+        
+        Format(String extension, String contentType) {
+            this.extension = extension;
+            this.contentType = contentType;
+        }
+        
+        public String getExtension() {
+            return extension;
+        }
+        
+        public String getContentType() {
+            return contentType;
+        }
+    }
+    
+    private final Type type;
+    private final Format format;
+    private final LocalDate startDate;
+    private final LocalDate endDate;
+    private final UUID branchId;
+    private final boolean includeZeroStock;
+    private final int days;
+    
+    public ReportSpec(Type type, Format format, LocalDate startDate, LocalDate endDate, UUID branchId,
+                      boolean includeZeroStock, int days) {
+        this.type = type;
+        this.format = format;
+        this.startDate = startDate;
+        this.endDate = endDate;
+        this.branchId = branchId;
+        this.includeZeroStock = includeZeroStock;
+        this.days = days;
+    }
+    
+    /**
+     * Check that the parameters the report type needs are present and consistent
+     * 
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    public void validate() {
+        if (type == null) {
+            throw new IllegalArgumentException("Report type is required");
+        }
+        if (format == null) {
+            throw new IllegalArgumentException("Report format is required");
+        }
+        if (type.hasDateRange()) {
+            if (startDate == null || endDate == null) {
+                throw new IllegalArgumentException("Start date and end date are required for " + type + " reports");
+            }
+            if (endDate.isBefore(startDate)) {
+                throw new IllegalArgumentException("End date must not be before start date");
+            }
+        }
+        if (type == Type.EXPIRY && days <= 0) {
+            throw new IllegalArgumentException("Days must be positive for expiry reports");
+        }
+    }
+    
+    /**
+     * Download file name, following the naming of the synchronous report endpoints
+     */
+    public String getFileName() {
+        if (!type.hasDateRange()) {
+            return type.getFileName() + format.getExtension();
+        }
+        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+        return type.getFileName() + "_" + startDate.format(formatter) + "_to_" + endDate.format(formatter)
+                + format.getExtension();
+    }
+    
+    public Type getType() {
+        return type;
+    }
+    
+    public Format getFormat() {
+        return format;
+    }
+    
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+    
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public boolean isIncludeZeroStock() {
+        return includeZeroStock;
+    }
+    
+    public int getDays() {
+        return days;
+    }
+}
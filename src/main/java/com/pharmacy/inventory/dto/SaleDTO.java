@@ -0,0 +1,119 @@
+package com.pharmacy.inventory.dto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Read model of a sale with its lines, built from projection queries so that
+ * listing sales runs a fixed number of queries
+ */
+public class SaleDTO {
+    private UUID id;
+    private UUID userId;
+    private String userName;
+    private UUID branchId;
+    private String branchName;
+    private LocalDateTime saleDate;
+    private Double totalAmount;
+    private String customerName;
+    private LocalDateTime createdAt;
+    private List<SaleItemDTO> items = new ArrayList<>();
+    
+    public SaleDTO() {
+    }
+    
+    public SaleDTO(UUID id, UUID userId, String userName, UUID branchId, String branchName,
+                   LocalDateTime saleDate, Double totalAmount, String customerName, LocalDateTime createdAt) {
+        this.id = id;
+        this.userId = userId;
+        this.userName = userName;
+        this.branchId = branchId;
+        this.branchName = branchName;
+        this.saleDate = saleDate;
+        this.totalAmount = totalAmount;
+        this.customerName = customerName;
+        this.createdAt = createdAt;
+    }
+    
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public UUID getUserId() {
+        return userId;
+    }
+    
+    public void setUserId(UUID userId) {
+        this.userId = userId;
+    }
+    
+    public String getUserName() {
+        return userName;
+    }
+    
+    public void setUserName(String userName) {
+        this.userName = userName;
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public void setBranchId(UUID branchId) {
+        this.branchId = branchId;
+    }
+    
+    public String getBranchName() {
+        return branchName;
+    }
+    
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+    
+    public LocalDateTime getSaleDate() {
+        return saleDate;
+    }
+    
+    public void setSaleDate(LocalDateTime saleDate) {
+        this.saleDate = saleDate;
+    }
+    
+    public Double getTotalAmount() {
+        return totalAmount;
+    }
+    
+    public void setTotalAmount(Double totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+    
+    public String getCustomerName() {
+        return customerName;
+    }
+    
+    public void setCustomerName(String customerName) {
+        this.customerName = customerName;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
+    public List<SaleItemDTO> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<SaleItemDTO> items) {
+        this.items = items;
+    }
+}
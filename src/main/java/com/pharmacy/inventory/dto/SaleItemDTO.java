@@ -0,0 +1,76 @@
+package com.pharmacy.inventory.dto;
+
+import java.util.UUID;
+
+/**
+ * Read model of a sale line
+ */
+public class SaleItemDTO {
+    private UUID id;
+    private UUID saleId;
+    private UUID medicineId;
+    private String medicineName;
+    private Integer quantity;
+    private Double totalPrice;
+    
+    public SaleItemDTO() {
+    }
+    
+    public SaleItemDTO(UUID id, UUID saleId, UUID medicineId, String medicineName, Integer quantity,
+                       Double totalPrice) {
+        this.id = id;
+        this.saleId = saleId;
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.quantity = quantity;
+        this.totalPrice = totalPrice;
+    }
+    
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public UUID getSaleId() {
+        return saleId;
+    }
+    
+    public void setSaleId(UUID saleId) {
+        this.saleId = saleId;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public String getMedicineName() {
+        return medicineName;
+    }
+    
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+    
+    public Double getTotalPrice() {
+        return totalPrice;
+    }
+    
+    public void setTotalPrice(Double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+}
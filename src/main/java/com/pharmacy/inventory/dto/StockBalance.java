@@ -0,0 +1,75 @@
+package com.pharmacy.inventory.dto;
+
+import java.util.UUID;
+
+/**
+ * Identity, on-hand quantity and version of one stock row, without the entity graph
+ */
+public class StockBalance {
+    private UUID stockId;
+    private UUID branchId;
+    private UUID medicineId;
+    private UUID batchId;
+    private Integer quantity;
+    private Long version;
+    
+    public StockBalance() {
+    }
+    
+    public StockBalance(UUID stockId, UUID branchId, UUID medicineId, UUID batchId, Integer quantity, Long version) {
+        this.stockId = stockId;
+        this.branchId = branchId;
+        this.medicineId = medicineId;
+        this.batchId = batchId;
+        this.quantity = quantity;
+        this.version = version;
+    }
+    
+    public UUID getStockId() {
+        return stockId;
+    }
+    
+    public void setStockId(UUID stockId) {
+        this.stockId = stockId;
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public void setBranchId(UUID branchId) {
+        this.branchId = branchId;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public UUID getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(UUID batchId) {
+        this.batchId = batchId;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+}
@@ -0,0 +1,155 @@
+package com.pharmacy.inventory.dto;
+
+import com.pharmacy.inventory.model.Batch;
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.Stock;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read model of a stock row with the names of its medicine, batch and branch
+ */
+public class StockDTO {
+    private UUID id;
+    private UUID medicineId;
+    private String medicineName;
+    private UUID batchId;
+    private String batchNumber;
+    private LocalDate expiryDate;
+    private UUID branchId;
+    private String branchName;
+    private Integer currentQuantity;
+    private LocalDateTime lastUpdated;
+    private LocalDateTime createdAt;
+    
+    public StockDTO() {
+    }
+    
+    public StockDTO(UUID id, UUID medicineId, String medicineName, UUID batchId, String batchNumber,
+                    LocalDate expiryDate, UUID branchId, String branchName, Integer currentQuantity,
+                    LocalDateTime lastUpdated, LocalDateTime createdAt) {
+        this.id = id;
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.batchId = batchId;
+        this.batchNumber = batchNumber;
+        this.expiryDate = expiryDate;
+        this.branchId = branchId;
+        this.branchName = branchName;
+        this.currentQuantity = currentQuantity;
+        this.lastUpdated = lastUpdated;
+        this.createdAt = createdAt;
+    }
+    
+    /**
+     * Map a stock row whose medicine, batch and branch were fetched with it
+     */
+    public static StockDTO from(Stock stock) {
+        Medicine medicine = stock.getMedicine();
+        Batch batch = stock.getBatch();
+        Branch branch = stock.getBranch();
+        return new StockDTO(
+                stock.getId(),
+                medicine != null ? medicine.getId() : null,
+                medicine != null ? medicine.getName() : null,
+                batch != null ? batch.getId() : null,
+                batch != null ? batch.getBatchNumber() : null,
+                batch != null ? batch.getExpiryDate() : null,
+                branch != null ? branch.getId() : null,
+                branch != null ? branch.getName() : null,
+                stock.getCurrentQuantity(),
+                stock.getLastUpdated(),
+                stock.getCreatedAt());
+    }
+    
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public String getMedicineName() {
+        return medicineName;
+    }
+    
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+    
+    public UUID getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(UUID batchId) {
+        this.batchId = batchId;
+    }
+    
+    public String getBatchNumber() {
+        return batchNumber;
+    }
+    
+    public void setBatchNumber(String batchNumber) {
+        this.batchNumber = batchNumber;
+    }
+    
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+    
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public void setBranchId(UUID branchId) {
+        this.branchId = branchId;
+    }
+    
+    public String getBranchName() {
+        return branchName;
+    }
+    
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+    
+    public Integer getCurrentQuantity() {
+        return currentQuantity;
+    }
+    
+    public void setCurrentQuantity(Integer currentQuantity) {
+        this.currentQuantity = currentQuantity;
+    }
+    
+    public LocalDateTime getLastUpdated() {
+        return lastUpdated;
+    }
+    
+    public void setLastUpdated(LocalDateTime lastUpdated) {
+        this.lastUpdated = lastUpdated;
+    }
+    
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,55 @@
+package com.pharmacy.inventory.dto;
+
+import java.util.UUID;
+
+/**
+ * Records a quantity taken off a single stock row
+ */
+public class StockDeduction {
+    private UUID stockId;
+    private UUID batchId;
+    private UUID medicineId;
+    private Integer quantity;
+    
+    public StockDeduction() {
+    }
+    
+    public StockDeduction(UUID stockId, UUID batchId, UUID medicineId, Integer quantity) {
+        this.stockId = stockId;
+        this.batchId = batchId;
+        this.medicineId = medicineId;
+        this.quantity = quantity;
+    }
+    
+    public UUID getStockId() {
+        return stockId;
+    }
+    
+    public void setStockId(UUID stockId) {
+        this.stockId = stockId;
+    }
+    
+    public UUID getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(UUID batchId) {
+        this.batchId = batchId;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,66 @@
+package com.pharmacy.inventory.dto;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Lightweight read model of a single stock row used when planning stock deductions
+ */
+public class StockLevel {
+    private UUID stockId;
+    private UUID batchId;
+    private String batchNumber;
+    private LocalDate expiryDate;
+    private Integer quantity;
+    
+    public StockLevel() {
+    }
+    
+    public StockLevel(UUID stockId, UUID batchId, String batchNumber, LocalDate expiryDate, Integer quantity) {
+        this.stockId = stockId;
+        this.batchId = batchId;
+        this.batchNumber = batchNumber;
+        this.expiryDate = expiryDate;
+        this.quantity = quantity;
+    }
+    
+    public UUID getStockId() {
+        return stockId;
+    }
+    
+    public void setStockId(UUID stockId) {
+        this.stockId = stockId;
+    }
+    
+    public UUID getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(UUID batchId) {
+        this.batchId = batchId;
+    }
+    
+    public String getBatchNumber() {
+        return batchNumber;
+    }
+    
+    public void setBatchNumber(String batchNumber) {
+        this.batchNumber = batchNumber;
+    }
+    
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+    
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
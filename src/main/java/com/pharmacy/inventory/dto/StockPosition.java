@@ -0,0 +1,77 @@
+package com.pharmacy.inventory.dto;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Quantity of one batch a branch held at some point in time
+ */
+public class StockPosition {
+    private UUID medicineId;
+    private String medicineName;
+    private UUID batchId;
+    private String batchNumber;
+    private LocalDate expiryDate;
+    private long quantity;
+
+    public StockPosition() {
+    }
+
+    public StockPosition(UUID medicineId, String medicineName, UUID batchId, String batchNumber,
+                         LocalDate expiryDate, long quantity) {
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.batchId = batchId;
+        this.batchNumber = batchNumber;
+        this.expiryDate = expiryDate;
+        this.quantity = quantity;
+    }
+
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+
+    public String getMedicineName() {
+        return medicineName;
+    }
+
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+
+    public UUID getBatchId() {
+        return batchId;
+    }
+
+    public void setBatchId(UUID batchId) {
+        this.batchId = batchId;
+    }
+
+    public String getBatchNumber() {
+        return batchNumber;
+    }
+
+    public void setBatchNumber(String batchNumber) {
+        this.batchNumber = batchNumber;
+    }
+
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+}
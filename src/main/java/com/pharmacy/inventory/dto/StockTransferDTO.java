@@ -0,0 +1,182 @@
+package com.pharmacy.inventory.dto;
+
+import com.pharmacy.inventory.model.StockTransfer;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Read model of a stock transfer, loaded with a single projection query
+ */
+public class StockTransferDTO {
+    private UUID id;
+    private UUID fromBranchId;
+    private String fromBranchName;
+    private UUID toBranchId;
+    private String toBranchName;
+    private UUID medicineId;
+    private String medicineName;
+    private Integer quantity;
+    private LocalDateTime requestDate;
+    private LocalDateTime completionDate;
+    private StockTransfer.TransferStatus status;
+    private UUID requestedById;
+    private String requestedByName;
+    private UUID processedById;
+    private String processedByName;
+    private String notes;
+    
+    public StockTransferDTO() {
+    }
+    
+    public StockTransferDTO(UUID id, UUID fromBranchId, String fromBranchName, UUID toBranchId,
+                            String toBranchName, UUID medicineId, String medicineName, Integer quantity,
+                            LocalDateTime requestDate, LocalDateTime completionDate,
+                            StockTransfer.TransferStatus status, UUID requestedById, String requestedByName,
+                            UUID processedById, String processedByName, String notes) {
+        this.id = id;
+        this.fromBranchId = fromBranchId;
+        this.fromBranchName = fromBranchName;
+        this.toBranchId = toBranchId;
+        this.toBranchName = toBranchName;
+        this.medicineId = medicineId;
+        this.medicineName = medicineName;
+        this.quantity = quantity;
+        this.requestDate = requestDate;
+        this.completionDate = completionDate;
+        this.status = status;
+        this.requestedById = requestedById;
+        this.requestedByName = requestedByName;
+        this.processedById = processedById;
+        this.processedByName = processedByName;
+        this.notes = notes;
+    }
+    
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public UUID getFromBranchId() {
+        return fromBranchId;
+    }
+    
+    public void setFromBranchId(UUID fromBranchId) {
+        this.fromBranchId = fromBranchId;
+    }
+    
+    public String getFromBranchName() {
+        return fromBranchName;
+    }
+    
+    public void setFromBranchName(String fromBranchName) {
+        this.fromBranchName = fromBranchName;
+    }
+    
+    public UUID getToBranchId() {
+        return toBranchId;
+    }
+    
+    public void setToBranchId(UUID toBranchId) {
+        this.toBranchId = toBranchId;
+    }
+    
+    public String getToBranchName() {
+        return toBranchName;
+    }
+    
+    public void setToBranchName(String toBranchName) {
+        this.toBranchName = toBranchName;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+    
+    public String getMedicineName() {
+        return medicineName;
+    }
+    
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+    
+    public LocalDateTime getRequestDate() {
+        return requestDate;
+    }
+    
+    public void setRequestDate(LocalDateTime requestDate) {
+        this.requestDate = requestDate;
+    }
+    
+    public LocalDateTime getCompletionDate() {
+        return completionDate;
+    }
+    
+    public void setCompletionDate(LocalDateTime completionDate) {
+        this.completionDate = completionDate;
+    }
+    
+    public StockTransfer.TransferStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(StockTransfer.TransferStatus status) {
+        this.status = status;
+    }
+    
+    public UUID getRequestedById() {
+        return requestedById;
+    }
+    
+    public void setRequestedById(UUID requestedById) {
+        this.requestedById = requestedById;
+    }
+    
+    public String getRequestedByName() {
+        return requestedByName;
+    }
+    
+    public void setRequestedByName(String requestedByName) {
+        this.requestedByName = requestedByName;
+    }
+    
+    public UUID getProcessedById() {
+        return processedById;
+    }
+    
+    public void setProcessedById(UUID processedById) {
+        this.processedById = processedById;
+    }
+    
+    public String getProcessedByName() {
+        return processedByName;
+    }
+    
+    public void setProcessedByName(String processedByName) {
+        this.processedByName = processedByName;
+    }
+    
+    public String getNotes() {
+        return notes;
+    }
+    
+    public void setNotes(String notes) {
+        this.notes = notes;
+    }
+}
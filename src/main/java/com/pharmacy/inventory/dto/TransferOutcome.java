@@ -0,0 +1,79 @@
+package com.pharmacy.inventory.dto;
+
+import java.util.List;
+
+/**
+ * Result of moving the stock of one transfer: the rows it was taken from, or why it was not moved
+ */
+public class TransferOutcome {
+    
+    /**
+     * Why a transfer was not moved
+     */
+    public enum Failure {
+        INVALID,
+        INSUFFICIENT_STOCK
+    }
+    
+    private boolean moved;
+    private Failure failure;
+    private String message;
+    private List<StockDeduction> deductions;
+    
+    public TransferOutcome() {
+    }
+    
+    public TransferOutcome(boolean moved, Failure failure, String message, List<StockDeduction> deductions) {
+        this.moved = moved;
+        this.failure = failure;
+        this.message = message;
+        this.deductions = deductions;
+    }
+    
+    public static TransferOutcome moved(List<StockDeduction> deductions) {
+        return new TransferOutcome(true, null, null, deductions);
+    }
+    
+    public static TransferOutcome invalid(String message) {
+        return new TransferOutcome(false, Failure.INVALID, message, List.of());
+    }
+    
+    public static TransferOutcome insufficientStock(String message) {
+        return new TransferOutcome(false, Failure.INSUFFICIENT_STOCK, message, List.of());
+    }
+    
+    public boolean isMoved() {
+        return moved;
+    }
+    
+    public void setMoved(boolean moved) {
+        this.moved = moved;
+    }
+    
+    /**
+     * @return Why the transfer was not moved, or null if it was
+     */
+    public Failure getFailure() {
+        return failure;
+    }
+    
+    public void setFailure(Failure failure) {
+        this.failure = failure;
+    }
+    
+    public String getMessage() {
+        return message;
+    }
+    
+    public void setMessage(String message) {
+        this.message = message;
+    }
+    
+    public List<StockDeduction> getDeductions() {
+        return deductions;
+    }
+    
+    public void setDeductions(List<StockDeduction> deductions) {
+        this.deductions = deductions;
+    }
+}
@@ -0,0 +1,74 @@
+package com.pharmacy.inventory.dto.report;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * One batch line of the expiry report
+ */
+public class ExpiryReportRow {
+    private UUID batchId;
+    private String batchNumber;
+    private String medicineName;
+    private String manufacturer;
+    private LocalDate expiryDate;
+    private Integer quantity;
+    
+    public ExpiryReportRow(UUID batchId, String batchNumber, String medicineName, String manufacturer,
+                           LocalDate expiryDate, Integer quantity) {
+        this.batchId = batchId;
+        this.batchNumber = batchNumber;
+        this.medicineName = medicineName;
+        this.manufacturer = manufacturer;
+        this.expiryDate = expiryDate;
+        this.quantity = quantity;
+    }
+    
+    public UUID getBatchId() {
+        return batchId;
+    }
+    
+    public void setBatchId(UUID batchId) {
+        this.batchId = batchId;
+    }
+    
+    public String getBatchNumber() {
+        return batchNumber;
+    }
+    
+    public void setBatchNumber(String batchNumber) {
+        this.batchNumber = batchNumber;
+    }
+    
+    public String getMedicineName() {
+        return medicineName;
+    }
+    
+    public void setMedicineName(String medicineName) {
+        this.medicineName = medicineName;
+    }
+    
+    public String getManufacturer() {
+        return manufacturer;
+    }
+    
+    public void setManufacturer(String manufacturer) {
+        this.manufacturer = manufacturer;
+    }
+    
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+    
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+    
+    public Integer getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+}
@@ -0,0 +1,99 @@
+package com.pharmacy.inventory.dto.report;
+
+import com.pharmacy.inventory.model.PurchaseOrder;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One purchase order of the purchase order and supplier reports, with its
+ * lines already summed
+ */
+public class PurchaseOrderReportRow {
+    private UUID id;
+    private LocalDateTime orderDate;
+    private UUID supplierId;
+    private String supplierName;
+    private String branchName;
+    private PurchaseOrder.PurchaseStatus status;
+    private long itemCount;
+    private BigDecimal totalValue;
+    
+    public PurchaseOrderReportRow(UUID id, LocalDateTime orderDate, UUID supplierId, String supplierName,
+                                  String branchName, PurchaseOrder.PurchaseStatus status,
+                                  Number itemCount, Number totalValue) {
+        this.id = id;
+        this.orderDate = orderDate;
+        this.supplierId = supplierId;
+        this.supplierName = supplierName;
+        this.branchName = branchName;
+        this.status = status;
+        this.itemCount = itemCount != null ? itemCount.longValue() : 0L;
+        this.totalValue = totalValue != null ? new BigDecimal(totalValue.toString()) : BigDecimal.ZERO;
+    }
+    
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+    
+    public void setOrderDate(LocalDateTime orderDate) {
+        this.orderDate = orderDate;
+    }
+    
+    public UUID getSupplierId() {
+        return supplierId;
+    }
+    
+    public void setSupplierId(UUID supplierId) {
+        this.supplierId = supplierId;
+    }
+    
+    public String getSupplierName() {
+        return supplierName;
+    }
+    
+    public void setSupplierName(String supplierName) {
+        this.supplierName = supplierName;
+    }
+    
+    public String getBranchName() {
+        return branchName;
+    }
+    
+    public void setBranchName(String branchName) {
+        this.branchName = branchName;
+    }
+    
+    public PurchaseOrder.PurchaseStatus getStatus() {
+        return status;
+    }
+    
+    public void setStatus(PurchaseOrder.PurchaseStatus status) {
+        this.status = status;
+    }
+    
+    public long getItemCount() {
+        return itemCount;
+    }
+    
+    public void setItemCount(long itemCount) {
+        this.itemCount = itemCount;
+    }
+    
+    public BigDecimal getTotalValue() {
+        return totalValue;
+    }
+    
+    public void setTotalValue(BigDecimal totalValue) {
+        this.totalValue = totalValue;
+    }
+}
@@ -0,0 +1,60 @@
+package com.pharmacy.inventory.dto.report;
+
+import java.math.BigDecimal;
+
+/**
+ * Aggregate figures for a report summary, computed by the database rather than
+ * by walking the detail rows
+ */
+public class ReportTotals {
+    private long count;
+    private long quantity;
+    private BigDecimal amount;
+    
+    public ReportTotals(Number count, Number amount) {
+        this(count, 0L, amount);
+    }
+    
+    public ReportTotals(Number count, Number quantity, Number amount) {
+        this.count = count != null ? count.longValue() : 0L;
+        this.quantity = quantity != null ? quantity.longValue() : 0L;
+        this.amount = amount != null ? new BigDecimal(amount.toString()) : BigDecimal.ZERO;
+    }
+    
+    public long getCount() {
+        return count;
+    }
+    
+    public void setCount(long count) {
+        this.count = count;
+    }
+    
+    public long getQuantity() {
+        return quantity;
+    }
+    
+    public void setQuantity(long quantity) {
+        this.quantity = quantity;
+    }
+    
+    public BigDecimal getAmount() {
+        return amount;
+    }
+    
+    public void setAmount(BigDecimal amount) {
+        this.amount = amount;
+    }
+    
+    /**
+     * Fold another set of totals into this one
+     * 
+     * @param other Totals to add
+     * @return This instance
+     */
+    public ReportTotals add(ReportTotals other) {
+        count += other.count;
+        quantity += other.quantity;
+        amount = amount.add(other.amount);
+        return this;
+    }
+}
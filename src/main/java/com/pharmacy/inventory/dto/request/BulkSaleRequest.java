@@ -0,0 +1,48 @@
+package com.pharmacy.inventory.dto.request;
+
+import jakarta.validation.constraints.NotEmpty;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Batch of sales replayed by a POS terminal after working offline.
+ * Individual sales are validated one by one so a bad entry only rejects itself.
+ */
+public class BulkSaleRequest {
+    
+    @NotEmpty(message = "At least one sale is required")
+    private List<BulkSaleEntry> sales;
+    
+    public List<BulkSaleEntry> getSales() {
+        return sales;
+    }
+    
+    public void setSales(List<BulkSaleEntry> sales) {
+        this.sales = sales;
+    }
+    
+    public static class BulkSaleEntry extends SaleRequest {
+        // Terminal-side reference echoed back in the result so the POS can match it up
+        private String client_reference;
+        
+        // Time the sale was rung up on the terminal; defaults to the time it is received
+        private LocalDateTime sale_date;
+        
+        public String getClient_reference() {
+            return client_reference;
+        }
+        
+        public void setClient_reference(String client_reference) {
+            this.client_reference = client_reference;
+        }
+        
+        public LocalDateTime getSale_date() {
+            return sale_date;
+        }
+        
+        public void setSale_date(LocalDateTime sale_date) {
+            this.sale_date = sale_date;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.pharmacy.inventory.dto.request;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import java.util.UUID;
+
+/**
+ * Reorder level for a medicine at one branch, or for every branch when branchId is left out
+ */
+public class ReorderPointRequest {
+    
+    @NotNull(message = "Medicine ID cannot be null")
+    private UUID medicineId;
+    
+    private UUID branchId;
+    
+    @NotNull(message = "Reorder level cannot be null")
+    @Min(value = 0, message = "Reorder level cannot be negative")
+    private Integer reorderLevel;
+
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+
+    public void setMedicineId(UUID medicineId) {
+        this.medicineId = medicineId;
+    }
+
+    public UUID getBranchId() {
+        return branchId;
+    }
+
+    public void setBranchId(UUID branchId) {
+        this.branchId = branchId;
+    }
+
+    public Integer getReorderLevel() {
+        return reorderLevel;
+    }
+
+    public void setReorderLevel(Integer reorderLevel) {
+        this.reorderLevel = reorderLevel;
+    }
+}
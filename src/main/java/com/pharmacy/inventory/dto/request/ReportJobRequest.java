@@ -0,0 +1,85 @@
+package com.pharmacy.inventory.dto.request;
+
+import com.pharmacy.inventory.dto.ReportSpec;
+import jakarta.validation.constraints.NotNull;
+
+import java.time.LocalDate;
+import java.util.UUID;
+
+public class ReportJobRequest {
+    
+    @NotNull(message = "Report type is required")
+    private ReportSpec.Type type;
+    
+    private ReportSpec.Format format = ReportSpec.Format.PDF;
+    
+    private LocalDate start_date;
+    
+    private LocalDate end_date;
+    
+    private UUID branch_id;
+    
+    private boolean include_zero_stock;
+    
+    private int days = 30;
+    
+    public ReportSpec toSpec() {
+        return new ReportSpec(type, format, start_date, end_date, branch_id, include_zero_stock, days);
+    }
+    
+    public ReportSpec.Type getType() {
+        return type;
+    }
+    
+    public void setType(ReportSpec.Type type) {
+        this.type = type;
+    }
+    
+    public ReportSpec.Format getFormat() {
+        return format;
+    }
+    
+    public void setFormat(ReportSpec.Format format) {
+        this.format = format;
+    }
+    
+    public LocalDate getStart_date() {
+        return start_date;
+    }
+    
+    public void setStart_date(LocalDate start_date) {
+        this.start_date = start_date;
+    }
+    
+    public LocalDate getEnd_date() {
+        return end_date;
+    }
+    
+    public void setEnd_date(LocalDate end_date) {
+        this.end_date = end_date;
+    }
+    
+    public UUID getBranch_id() {
+        return branch_id;
+    }
+    
+    public void setBranch_id(UUID branch_id) {
+        this.branch_id = branch_id;
+    }
+    
+    public boolean isInclude_zero_stock() {
+        return include_zero_stock;
+    }
+    
+    public void setInclude_zero_stock(boolean include_zero_stock) {
+        this.include_zero_stock = include_zero_stock;
+    }
+    
+    public int getDays() {
+        return days;
+    }
+    
+    public void setDays(int days) {
+        this.days = days;
+    }
+}
@@ -0,0 +1,128 @@
+package com.pharmacy.inventory.dto.response;
+
+import java.util.List;
+import java.util.UUID;
+
+public class BulkSaleResponse {
+    
+    private int received;
+    private int created;
+    private int rejected;
+    private List<SaleResult> results;
+    
+    public BulkSaleResponse() {
+    }
+    
+    public BulkSaleResponse(List<SaleResult> results) {
+        this.results = results;
+        this.received = results.size();
+        for (SaleResult result : results) {
+            if (result.getStatus() == Status.CREATED) {
+                created++;
+            } else {
+                rejected++;
+            }
+        }
+    }
+    
+    public int getReceived() {
+        return received;
+    }
+    
+    public void setReceived(int received) {
+        this.received = received;
+    }
+    
+    public int getCreated() {
+        return created;
+    }
+    
+    public void setCreated(int created) {
+        this.created = created;
+    }
+    
+    public int getRejected() {
+        return rejected;
+    }
+    
+    public void setRejected(int rejected) {
+        this.rejected = rejected;
+    }
+    
+    public List<SaleResult> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<SaleResult> results) {
+        this.results = results;
+    }
+    
+    public enum Status {
+        CREATED,
+        INVALID,
+        INSUFFICIENT_STOCK,
+        FAILED
+    }
+    
+    /**
+     * Outcome of one sale, identified by its position in the request
+     */
+    public static class SaleResult {
+        private int index;
+        private String client_reference;
+        private Status status;
+        private UUID sale_id;
+        private String message;
+        
+        public SaleResult() {
+        }
+        
+        public SaleResult(int index, String client_reference, Status status, UUID sale_id, String message) {
+            this.index = index;
+            this.client_reference = client_reference;
+            this.status = status;
+            this.sale_id = sale_id;
+            this.message = message;
+        }
+        
+        public int getIndex() {
+            return index;
+        }
+        
+        public void setIndex(int index) {
+            this.index = index;
+        }
+        
+        public String getClient_reference() {
+            return client_reference;
+        }
+        
+        public void setClient_reference(String client_reference) {
+            this.client_reference = client_reference;
+        }
+        
+        public Status getStatus() {
+            return status;
+        }
+        
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+        
+        public UUID getSale_id() {
+            return sale_id;
+        }
+        
+        public void setSale_id(UUID sale_id) {
+            this.sale_id = sale_id;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.pharmacy.inventory.dto.response;
+
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.Supplier;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Catalogue rows changed since a client's version. Pass version back as since on
+ * the next poll. When reset is set the lists hold the whole catalogue and the
+ * client should replace what it has rather than merge.
+ */
+public class CatalogueChanges {
+    private String version;
+    private boolean reset;
+    private List<Medicine> medicines;
+    private List<Branch> branches;
+    private List<Supplier> suppliers;
+    private List<UUID> deleted_medicines;
+    private List<UUID> deleted_branches;
+    private List<UUID> deleted_suppliers;
+    
+    public CatalogueChanges() {
+    }
+    
+    public String getVersion() {
+        return version;
+    }
+    
+    public void setVersion(String version) {
+        this.version = version;
+    }
+    
+    public boolean isReset() {
+        return reset;
+    }
+    
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+    
+    public List<Medicine> getMedicines() {
+        return medicines;
+    }
+    
+    public void setMedicines(List<Medicine> medicines) {
+        this.medicines = medicines;
+    }
+    
+    public List<Branch> getBranches() {
+        return branches;
+    }
+    
+    public void setBranches(List<Branch> branches) {
+        this.branches = branches;
+    }
+    
+    public List<Supplier> getSuppliers() {
+        return suppliers;
+    }
+    
+    public void setSuppliers(List<Supplier> suppliers) {
+        this.suppliers = suppliers;
+    }
+    
+    public List<UUID> getDeleted_medicines() {
+        return deleted_medicines;
+    }
+    
+    public void setDeleted_medicines(List<UUID> deleted_medicines) {
+        this.deleted_medicines = deleted_medicines;
+    }
+    
+    public List<UUID> getDeleted_branches() {
+        return deleted_branches;
+    }
+    
+    public void setDeleted_branches(List<UUID> deleted_branches) {
+        this.deleted_branches = deleted_branches;
+    }
+    
+    public List<UUID> getDeleted_suppliers() {
+        return deleted_suppliers;
+    }
+    
+    public void setDeleted_suppliers(List<UUID> deleted_suppliers) {
+        this.deleted_suppliers = deleted_suppliers;
+    }
+}
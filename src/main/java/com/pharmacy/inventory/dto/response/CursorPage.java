@@ -0,0 +1,129 @@
+package com.pharmacy.inventory.dto.response;
+
+import com.pharmacy.inventory.dto.PageCursor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset-paginated listing. Pass next_cursor back to fetch the following page.
+ */
+public class CursorPage<T> {
+    
+    public static final int MAX_PAGE_SIZE = 500;
+    
+    /**
+     * Query for the rows after a position, newest first
+     */
+    @FunctionalInterface
+    public interface PageAfter<T> {
+        List<T> find(LocalDateTime createdAt, UUID id, Pageable limit);
+    }
+    
+    private List<T> items;
+    private int size;
+    private boolean has_more;
+    private String next_cursor;
+    
+    public CursorPage() {
+    }
+    
+    public CursorPage(List<T> items, boolean has_more, String next_cursor) {
+        this.items = items;
+        this.size = items.size();
+        this.has_more = has_more;
+        this.next_cursor = next_cursor;
+    }
+    
+    /**
+     * Build a page from a query that fetched one row more than the page size
+     * 
+     * @param rows Rows fetched, at most pageSize + 1
+     * @param pageSize Requested page size
+     * @param cursorOf Cursor pointing at a given row
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, PageCursor> cursorOf) {
+        boolean hasMore = rows.size() > pageSize;
+        List<T> items = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? cursorOf.apply(items.get(items.size() - 1)).encode() : null;
+        return new CursorPage<>(items, hasMore, nextCursor);
+    }
+    
+    /**
+     * Fetch one page of a listing sorted by creation time and id, both descending
+     * 
+     * @param cursor Token from the previous page, or null/blank for the first page
+     * @param size Requested page size, clamped to 1..MAX_PAGE_SIZE
+     * @param firstPage Query for the newest rows
+     * @param pageAfter Query for the rows after a position
+     * @param cursorOf Cursor pointing at a given row
+     * @throws IllegalArgumentException if the cursor is malformed
+     */
+    public static <T> CursorPage<T> fetch(String cursor, int size, Function<Pageable, List<T>> firstPage,
+                                          PageAfter<T> pageAfter, Function<T, PageCursor> cursorOf) {
+        int pageSize = clampSize(size);
+        // One row more than the page tells whether there is another page
+        Pageable limit = PageRequest.of(0, pageSize + 1);
+        List<T> rows;
+        if (cursor == null || cursor.isBlank()) {
+            rows = firstPage.apply(limit);
+        } else {
+            PageCursor position = PageCursor.decode(cursor);
+            rows = pageAfter.find(position.getCreatedAt(), position.getId(), limit);
+        }
+        return of(rows, pageSize, cursorOf);
+    }
+    
+    /**
+     * Same page with every item converted, e.g. from entity to DTO
+     */
+    public <R> CursorPage<R> map(Function<T, R> mapper) {
+        List<R> mapped = new ArrayList<>(items.size());
+        items.forEach(item -> mapped.add(mapper.apply(item)));
+        return new CursorPage<>(mapped, has_more, next_cursor);
+    }
+    
+    /**
+     * Keep a requested page size within 1..MAX_PAGE_SIZE
+     */
+    public static int clampSize(int requestedSize) {
+        return Math.max(1, Math.min(requestedSize, MAX_PAGE_SIZE));
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public void setSize(int size) {
+        this.size = size;
+    }
+    
+    public boolean isHas_more() {
+        return has_more;
+    }
+    
+    public void setHas_more(boolean has_more) {
+        this.has_more = has_more;
+    }
+    
+    public String getNext_cursor() {
+        return next_cursor;
+    }
+    
+    public void setNext_cursor(String next_cursor) {
+        this.next_cursor = next_cursor;
+    }
+}
@@ -0,0 +1,135 @@
+package com.pharmacy.inventory.dto.response;
+
+import com.pharmacy.inventory.dto.ReportSpec;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public class ReportJobResponse {
+    
+    private UUID job_id;
+    private ReportSpec.Type type;
+    private ReportSpec.Format format;
+    private Status status;
+    private long bytes_written;
+    private String file_name;
+    private String error;
+    private LocalDateTime created_at;
+    private LocalDateTime started_at;
+    private LocalDateTime finished_at;
+    private LocalDateTime expires_at;
+    
+    public ReportJobResponse() {
+    }
+    
+    public ReportJobResponse(UUID job_id, ReportSpec.Type type, ReportSpec.Format format, Status status,
+                             long bytes_written, String file_name, String error, LocalDateTime created_at,
+                             LocalDateTime started_at, LocalDateTime finished_at, LocalDateTime expires_at) {
+        this.job_id = job_id;
+        this.type = type;
+        this.format = format;
+        this.status = status;
+        this.bytes_written = bytes_written;
+        this.file_name = file_name;
+        this.error = error;
+        this.created_at = created_at;
+        this.started_at = started_at;
+        this.finished_at = finished_at;
+        this.expires_at = expires_at;
+    }
+    
+    public UUID getJob_id() {
+        return job_id;
+    }
+    
+    public void setJob_id(UUID job_id) {
+        this.job_id = job_id;
+    }
+    
+    public ReportSpec.Type getType() {
+        return type;
+    }
+    
+    public void setType(ReportSpec.Type type) {
+        this.type = type;
+    }
+    
+    public ReportSpec.Format getFormat() {
+        return format;
+    }
+    
+    public void setFormat(ReportSpec.Format format) {
+        this.format = format;
+    }
+    
+    public Status getStatus() {
+        return status;
+    }
+    
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+    
+    public long getBytes_written() {
+        return bytes_written;
+    }
+    
+    public void setBytes_written(long bytes_written) {
+        this.bytes_written = bytes_written;
+    }
+    
+    public String getFile_name() {
+        return file_name;
+    }
+    
+    public void setFile_name(String file_name) {
+        this.file_name = file_name;
+    }
+    
+    public String getError() {
+        return error;
+    }
+    
+    public void setError(String error) {
+        this.error = error;
+    }
+    
+    public LocalDateTime getCreated_at() {
+        return created_at;
+    }
+    
+    public void setCreated_at(LocalDateTime created_at) {
+        this.created_at = created_at;
+    }
+    
+    public LocalDateTime getStarted_at() {
+        return started_at;
+    }
+    
+    public void setStarted_at(LocalDateTime started_at) {
+        this.started_at = started_at;
+    }
+    
+    public LocalDateTime getFinished_at() {
+        return finished_at;
+    }
+    
+    public void setFinished_at(LocalDateTime finished_at) {
+        this.finished_at = finished_at;
+    }
+    
+    public LocalDateTime getExpires_at() {
+        return expires_at;
+    }
+    
+    public void setExpires_at(LocalDateTime expires_at) {
+        this.expires_at = expires_at;
+    }
+    
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+}
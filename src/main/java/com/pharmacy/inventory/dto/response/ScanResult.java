@@ -0,0 +1,152 @@
+package com.pharmacy.inventory.dto.response;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * What a scanned barcode refers to, with everything a till shows for it. The batch
+ * fields are empty when the code only identifies the medicine; on_hand is the
+ * batch's quantity at the branch when the batch is known, otherwise the medicine's,
+ * and is empty when no branch was given.
+ */
+public class ScanResult {
+    private String payload;
+    private String matched_by;
+    private UUID medicine_id;
+    private String medicine_name;
+    private String category;
+    private String manufacturer;
+    private String gtin;
+    private BigDecimal unit_price;
+    private Boolean prescription_required;
+    private UUID batch_id;
+    private String batch_number;
+    private LocalDate expiry_date;
+    private boolean expired;
+    private UUID branch_id;
+    private Long on_hand;
+    
+    public ScanResult() {
+    }
+    
+    public String getPayload() {
+        return payload;
+    }
+    
+    public void setPayload(String payload) {
+        this.payload = payload;
+    }
+    
+    public String getMatched_by() {
+        return matched_by;
+    }
+    
+    public void setMatched_by(String matched_by) {
+        this.matched_by = matched_by;
+    }
+    
+    public UUID getMedicine_id() {
+        return medicine_id;
+    }
+    
+    public void setMedicine_id(UUID medicine_id) {
+        this.medicine_id = medicine_id;
+    }
+    
+    public String getMedicine_name() {
+        return medicine_name;
+    }
+    
+    public void setMedicine_name(String medicine_name) {
+        this.medicine_name = medicine_name;
+    }
+    
+    public String getCategory() {
+        return category;
+    }
+    
+    public void setCategory(String category) {
+        this.category = category;
+    }
+    
+    public String getManufacturer() {
+        return manufacturer;
+    }
+    
+    public void setManufacturer(String manufacturer) {
+        this.manufacturer = manufacturer;
+    }
+    
+    public String getGtin() {
+        return gtin;
+    }
+    
+    public void setGtin(String gtin) {
+        this.gtin = gtin;
+    }
+    
+    public BigDecimal getUnit_price() {
+        return unit_price;
+    }
+    
+    public void setUnit_price(BigDecimal unit_price) {
+        this.unit_price = unit_price;
+    }
+    
+    public Boolean getPrescription_required() {
+        return prescription_required;
+    }
+    
+    public void setPrescription_required(Boolean prescription_required) {
+        this.prescription_required = prescription_required;
+    }
+    
+    public UUID getBatch_id() {
+        return batch_id;
+    }
+    
+    public void setBatch_id(UUID batch_id) {
+        this.batch_id = batch_id;
+    }
+    
+    public String getBatch_number() {
+        return batch_number;
+    }
+    
+    public void setBatch_number(String batch_number) {
+        this.batch_number = batch_number;
+    }
+    
+    public LocalDate getExpiry_date() {
+        return expiry_date;
+    }
+    
+    public void setExpiry_date(LocalDate expiry_date) {
+        this.expiry_date = expiry_date;
+    }
+    
+    public boolean isExpired() {
+        return expired;
+    }
+    
+    public void setExpired(boolean expired) {
+        this.expired = expired;
+    }
+    
+    public UUID getBranch_id() {
+        return branch_id;
+    }
+    
+    public void setBranch_id(UUID branch_id) {
+        this.branch_id = branch_id;
+    }
+    
+    public Long getOn_hand() {
+        return on_hand;
+    }
+    
+    public void setOn_hand(Long on_hand) {
+        this.on_hand = on_hand;
+    }
+}
@@ -0,0 +1,76 @@
+package com.pharmacy.inventory.dto.response;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+/**
+ * One page of ranked search results. Ranking does not follow a stable key, so
+ * pages are addressed by number rather than by cursor.
+ */
+public class SearchPage<T> {
+    
+    public static final int MAX_PAGE_SIZE = 100;
+    
+    private List<T> items;
+    private int page;
+    private int size;
+    private boolean has_more;
+    
+    public SearchPage() {
+    }
+    
+    public SearchPage(List<T> items, int page, boolean has_more) {
+        this.items = items;
+        this.page = page;
+        this.size = items.size();
+        this.has_more = has_more;
+    }
+    
+    public static <T> SearchPage<T> of(Slice<T> slice) {
+        return new SearchPage<>(slice.getContent(), slice.getNumber(), slice.hasNext());
+    }
+    
+    public static <T> SearchPage<T> empty(int page) {
+        return new SearchPage<>(List.of(), page, false);
+    }
+    
+    /**
+     * Keep a requested page size within 1..MAX_PAGE_SIZE
+     */
+    public static int clampSize(int requestedSize) {
+        return Math.max(1, Math.min(requestedSize, MAX_PAGE_SIZE));
+    }
+    
+    public List<T> getItems() {
+        return items;
+    }
+    
+    public void setItems(List<T> items) {
+        this.items = items;
+    }
+    
+    public int getPage() {
+        return page;
+    }
+    
+    public void setPage(int page) {
+        this.page = page;
+    }
+    
+    public int getSize() {
+        return size;
+    }
+    
+    public void setSize(int size) {
+        this.size = size;
+    }
+    
+    public boolean isHas_more() {
+        return has_more;
+    }
+    
+    public void setHas_more(boolean has_more) {
+        this.has_more = has_more;
+    }
+}
@@ -0,0 +1,76 @@
+package com.pharmacy.inventory.dto.response;
+
+import com.pharmacy.inventory.dto.StockPosition;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stock a branch held at a point in time, rebuilt from the snapshot taken at or
+ * before it and the journal movements recorded since
+ */
+public class StockAsOfReport {
+    private UUID branch_id;
+    private LocalDateTime as_of;
+    private LocalDateTime snapshot_taken_at;
+    private long total_quantity;
+    private List<StockPosition> positions;
+
+    public StockAsOfReport() {
+    }
+
+    public StockAsOfReport(UUID branch_id, LocalDateTime as_of, LocalDateTime snapshot_taken_at,
+                           List<StockPosition> positions) {
+        this.branch_id = branch_id;
+        this.as_of = as_of;
+        this.snapshot_taken_at = snapshot_taken_at;
+        this.positions = positions;
+        for (StockPosition position : positions) {
+            this.total_quantity += position.getQuantity();
+        }
+    }
+
+    public UUID getBranch_id() {
+        return branch_id;
+    }
+
+    public void setBranch_id(UUID branch_id) {
+        this.branch_id = branch_id;
+    }
+
+    public LocalDateTime getAs_of() {
+        return as_of;
+    }
+
+    public void setAs_of(LocalDateTime as_of) {
+        this.as_of = as_of;
+    }
+
+    /**
+     * Snapshot the movements were replayed from; null when none was old enough
+     */
+    public LocalDateTime getSnapshot_taken_at() {
+        return snapshot_taken_at;
+    }
+
+    public void setSnapshot_taken_at(LocalDateTime snapshot_taken_at) {
+        this.snapshot_taken_at = snapshot_taken_at;
+    }
+
+    public long getTotal_quantity() {
+        return total_quantity;
+    }
+
+    public void setTotal_quantity(long total_quantity) {
+        this.total_quantity = total_quantity;
+    }
+
+    public List<StockPosition> getPositions() {
+        return positions;
+    }
+
+    public void setPositions(List<StockPosition> positions) {
+        this.positions = positions;
+    }
+}
@@ -0,0 +1,75 @@
+package com.pharmacy.inventory.dto.response;
+
+import java.util.UUID;
+
+/**
+ * Answer to "is it in stock?" for one medicine, or one batch of it, at one branch
+ */
+public class StockAvailability {
+    private UUID branch_id;
+    private UUID medicine_id;
+    private UUID batch_id;
+    private long available;
+    private int requested;
+    private boolean in_stock;
+    
+    public StockAvailability() {
+    }
+    
+    public StockAvailability(UUID branch_id, UUID medicine_id, UUID batch_id, long available, int requested) {
+        this.branch_id = branch_id;
+        this.medicine_id = medicine_id;
+        this.batch_id = batch_id;
+        this.available = available;
+        this.requested = requested;
+        this.in_stock = available >= requested;
+    }
+    
+    public UUID getBranch_id() {
+        return branch_id;
+    }
+    
+    public void setBranch_id(UUID branch_id) {
+        this.branch_id = branch_id;
+    }
+    
+    public UUID getMedicine_id() {
+        return medicine_id;
+    }
+    
+    public void setMedicine_id(UUID medicine_id) {
+        this.medicine_id = medicine_id;
+    }
+    
+    public UUID getBatch_id() {
+        return batch_id;
+    }
+    
+    public void setBatch_id(UUID batch_id) {
+        this.batch_id = batch_id;
+    }
+    
+    public long getAvailable() {
+        return available;
+    }
+    
+    public void setAvailable(long available) {
+        this.available = available;
+    }
+    
+    public int getRequested() {
+        return requested;
+    }
+    
+    public void setRequested(int requested) {
+        this.requested = requested;
+    }
+    
+    public boolean isIn_stock() {
+        return in_stock;
+    }
+    
+    public void setIn_stock(boolean in_stock) {
+        this.in_stock = in_stock;
+    }
+}
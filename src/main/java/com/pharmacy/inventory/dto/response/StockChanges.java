@@ -0,0 +1,53 @@
+package com.pharmacy.inventory.dto.response;
+
+import com.pharmacy.inventory.dto.StockDTO;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Stock rows of one branch changed since a client's version, and the IDs of rows
+ * removed. Pass version back as since on the next poll. When reset is set, stock
+ * holds every row of the branch and the client should replace what it has.
+ */
+public class StockChanges {
+    private String version;
+    private boolean reset;
+    private List<StockDTO> stock;
+    private List<UUID> deleted;
+    
+    public StockChanges() {
+    }
+    
+    public String getVersion() {
+        return version;
+    }
+    
+    public void setVersion(String version) {
+        this.version = version;
+    }
+    
+    public boolean isReset() {
+        return reset;
+    }
+    
+    public void setReset(boolean reset) {
+        this.reset = reset;
+    }
+    
+    public List<StockDTO> getStock() {
+        return stock;
+    }
+    
+    public void setStock(List<StockDTO> stock) {
+        this.stock = stock;
+    }
+    
+    public List<UUID> getDeleted() {
+        return deleted;
+    }
+    
+    public void setDeleted(List<UUID> deleted) {
+        this.deleted = deleted;
+    }
+}
@@ -0,0 +1,152 @@
+package com.pharmacy.inventory.dto.response;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Outcome of a stock and catalogue import. Row numbers are as a spreadsheet shows
+ * them, with the header on row 1. Only the first errors are listed in full.
+ */
+public class StockImportResponse {
+
+    private int rows_read;
+    private int rows_imported;
+    private int rows_rejected;
+    private int medicines_created;
+    private int medicines_updated;
+    private int batches_created;
+    private int stock_rows_created;
+    private int stock_rows_updated;
+    private boolean errors_truncated;
+    private List<RowError> errors = new ArrayList<>();
+
+    private int maxErrors;
+
+    public StockImportResponse() {
+    }
+
+    public StockImportResponse(int maxErrors) {
+        this.maxErrors = maxErrors;
+    }
+
+    /**
+     * Record a rejected row; past the error limit the row is only counted
+     */
+    public void reject(int row, String message) {
+        rows_rejected++;
+        if (errors.size() < maxErrors) {
+            errors.add(new RowError(row, message));
+        } else {
+            errors_truncated = true;
+        }
+    }
+
+    public int getRows_read() {
+        return rows_read;
+    }
+
+    public void setRows_read(int rows_read) {
+        this.rows_read = rows_read;
+    }
+
+    public int getRows_imported() {
+        return rows_imported;
+    }
+
+    public void setRows_imported(int rows_imported) {
+        this.rows_imported = rows_imported;
+    }
+
+    public int getRows_rejected() {
+        return rows_rejected;
+    }
+
+    public void setRows_rejected(int rows_rejected) {
+        this.rows_rejected = rows_rejected;
+    }
+
+    public int getMedicines_created() {
+        return medicines_created;
+    }
+
+    public void setMedicines_created(int medicines_created) {
+        this.medicines_created = medicines_created;
+    }
+
+    public int getMedicines_updated() {
+        return medicines_updated;
+    }
+
+    public void setMedicines_updated(int medicines_updated) {
+        this.medicines_updated = medicines_updated;
+    }
+
+    public int getBatches_created() {
+        return batches_created;
+    }
+
+    public void setBatches_created(int batches_created) {
+        this.batches_created = batches_created;
+    }
+
+    public int getStock_rows_created() {
+        return stock_rows_created;
+    }
+
+    public void setStock_rows_created(int stock_rows_created) {
+        this.stock_rows_created = stock_rows_created;
+    }
+
+    public int getStock_rows_updated() {
+        return stock_rows_updated;
+    }
+
+    public void setStock_rows_updated(int stock_rows_updated) {
+        this.stock_rows_updated = stock_rows_updated;
+    }
+
+    public boolean isErrors_truncated() {
+        return errors_truncated;
+    }
+
+    public void setErrors_truncated(boolean errors_truncated) {
+        this.errors_truncated = errors_truncated;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    public static class RowError {
+        private int row;
+        private String message;
+
+        public RowError() {
+        }
+
+        public RowError(int row, String message) {
+            this.row = row;
+            this.message = message;
+        }
+
+        public int getRow() {
+            return row;
+        }
+
+        public void setRow(int row) {
+            this.row = row;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.pharmacy.inventory.dto.response;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Outcome of comparing the in-memory stock ledger with the stock table.
+ * Only the first MAX_DRIFT_ROWS differences are listed; the counters cover all of them.
+ */
+public class StockLedgerReport {
+    
+    public static final int MAX_DRIFT_ROWS = 100;
+    
+    private LocalDateTime checked_at;
+    private long rows_checked;
+    private long mismatched_rows;
+    private long missing_rows;
+    private long extra_rows;
+    private boolean repaired;
+    private List<Drift> drift = new ArrayList<>();
+    
+    public StockLedgerReport() {
+    }
+    
+    public StockLedgerReport(LocalDateTime checked_at, boolean repaired) {
+        this.checked_at = checked_at;
+        this.repaired = repaired;
+    }
+    
+    public boolean hasDrift() {
+        return mismatched_rows + missing_rows + extra_rows > 0;
+    }
+    
+    /**
+     * Record one difference
+     * 
+     * @param stockId Stock row
+     * @param ledgerQuantity Quantity held in memory, null when the ledger lacks the row
+     * @param databaseQuantity Quantity in the database, null when the row no longer exists
+     */
+    public void addDrift(UUID stockId, Integer ledgerQuantity, Integer databaseQuantity) {
+        if (ledgerQuantity == null) {
+            missing_rows++;
+        } else if (databaseQuantity == null) {
+            extra_rows++;
+        } else {
+            mismatched_rows++;
+        }
+        if (drift.size() < MAX_DRIFT_ROWS) {
+            drift.add(new Drift(stockId, ledgerQuantity, databaseQuantity));
+        }
+    }
+    
+    public void incrementRowsChecked() {
+        rows_checked++;
+    }
+    
+    public LocalDateTime getChecked_at() {
+        return checked_at;
+    }
+    
+    public void setChecked_at(LocalDateTime checked_at) {
+        this.checked_at = checked_at;
+    }
+    
+    public long getRows_checked() {
+        return rows_checked;
+    }
+    
+    public void setRows_checked(long rows_checked) {
+        this.rows_checked = rows_checked;
+    }
+    
+    public long getMismatched_rows() {
+        return mismatched_rows;
+    }
+    
+    public void setMismatched_rows(long mismatched_rows) {
+        this.mismatched_rows = mismatched_rows;
+    }
+    
+    public long getMissing_rows() {
+        return missing_rows;
+    }
+    
+    public void setMissing_rows(long missing_rows) {
+        this.missing_rows = missing_rows;
+    }
+    
+    public long getExtra_rows() {
+        return extra_rows;
+    }
+    
+    public void setExtra_rows(long extra_rows) {
+        this.extra_rows = extra_rows;
+    }
+    
+    public boolean isRepaired() {
+        return repaired;
+    }
+    
+    public void setRepaired(boolean repaired) {
+        this.repaired = repaired;
+    }
+    
+    public List<Drift> getDrift() {
+        return drift;
+    }
+    
+    public void setDrift(List<Drift> drift) {
+        this.drift = drift;
+    }
+    
+    /**
+     * One stock row whose ledger quantity differs from the database
+     */
+    public static class Drift {
+        private UUID stock_id;
+        private Integer ledger_quantity;
+        private Integer database_quantity;
+        
+        public Drift() {
+        }
+        
+        public Drift(UUID stock_id, Integer ledger_quantity, Integer database_quantity) {
+            this.stock_id = stock_id;
+            this.ledger_quantity = ledger_quantity;
+            this.database_quantity = database_quantity;
+        }
+        
+        public UUID getStock_id() {
+            return stock_id;
+        }
+        
+        public void setStock_id(UUID stock_id) {
+            this.stock_id = stock_id;
+        }
+        
+        public Integer getLedger_quantity() {
+            return ledger_quantity;
+        }
+        
+        public void setLedger_quantity(Integer ledger_quantity) {
+            this.ledger_quantity = ledger_quantity;
+        }
+        
+        public Integer getDatabase_quantity() {
+            return database_quantity;
+        }
+        
+        public void setDatabase_quantity(Integer database_quantity) {
+            this.database_quantity = database_quantity;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.pharmacy.inventory.dto.response;
+
+import java.util.List;
+import java.util.UUID;
+
+public class TransferBatchResponse {
+    
+    private int received;
+    private int completed;
+    private int skipped;
+    private List<TransferResult> results;
+    
+    public TransferBatchResponse() {
+    }
+    
+    public TransferBatchResponse(List<TransferResult> results) {
+        this.results = results;
+        this.received = results.size();
+        for (TransferResult result : results) {
+            if (result.getStatus() == Status.COMPLETED) {
+                completed++;
+            } else {
+                skipped++;
+            }
+        }
+    }
+    
+    public int getReceived() {
+        return received;
+    }
+    
+    public void setReceived(int received) {
+        this.received = received;
+    }
+    
+    public int getCompleted() {
+        return completed;
+    }
+    
+    public void setCompleted(int completed) {
+        this.completed = completed;
+    }
+    
+    public int getSkipped() {
+        return skipped;
+    }
+    
+    public void setSkipped(int skipped) {
+        this.skipped = skipped;
+    }
+    
+    public List<TransferResult> getResults() {
+        return results;
+    }
+    
+    public void setResults(List<TransferResult> results) {
+        this.results = results;
+    }
+    
+    public enum Status {
+        COMPLETED,
+        NOT_PENDING,
+        INVALID,
+        INSUFFICIENT_STOCK
+    }
+    
+    /**
+     * Outcome of one transfer; anything not completed is left pending
+     */
+    public static class TransferResult {
+        private UUID transfer_id;
+        private Status status;
+        private String message;
+        
+        public TransferResult() {
+        }
+        
+        public TransferResult(UUID transfer_id, Status status, String message) {
+            this.transfer_id = transfer_id;
+            this.status = status;
+            this.message = message;
+        }
+        
+        public UUID getTransfer_id() {
+            return transfer_id;
+        }
+        
+        public void setTransfer_id(UUID transfer_id) {
+            this.transfer_id = transfer_id;
+        }
+        
+        public Status getStatus() {
+            return status;
+        }
+        
+        public void setStatus(Status status) {
+            this.status = status;
+        }
+        
+        public String getMessage() {
+            return message;
+        }
+        
+        public void setMessage(String message) {
+            this.message = message;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.pharmacy.inventory.event;
+
+import com.pharmacy.inventory.model.*;
+import com.pharmacy.inventory.service.DataVersionService;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.UUID;
+
+/**
+ * JPA entity listener that moves the data version of an entity's table whenever
+ * an entity is inserted, updated or deleted, passing on the row ID for the
+ * catalogue tables. Hibernate obtains it from the Spring
+ * bean container, so it can be constructor-injected.
+ */
+public class DataChangeListener {
+
+    private final DataVersionService dataVersionService;
+
+    @Autowired
+    public DataChangeListener(DataVersionService dataVersionService) {
+        this.dataVersionService = dataVersionService;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onChange(Object entity) {
+        record(entity, false);
+    }
+
+    @PostRemove
+    public void onRemove(Object entity) {
+        record(entity, true);
+    }
+
+    private void record(Object entity, boolean deleted) {
+        DataVersionService.DataSet dataSet = dataSetOf(entity);
+        if (dataSet == null) {
+            return;
+        }
+        UUID id = catalogueIdOf(entity);
+        if (id != null) {
+            dataVersionService.markChanged(dataSet, id, deleted);
+        } else {
+            dataVersionService.markChanged(dataSet);
+        }
+    }
+
+    /**
+     * IDs are only passed on for the catalogue tables, which keep a change history
+     */
+    private static UUID catalogueIdOf(Object entity) {
+        if (entity instanceof Medicine medicine) {
+            return medicine.getId();
+        } else if (entity instanceof Branch branch) {
+            return branch.getId();
+        } else if (entity instanceof Supplier supplier) {
+            return supplier.getId();
+        }
+        return null;
+    }
+
+    private static DataVersionService.DataSet dataSetOf(Object entity) {
+        if (entity instanceof Sale || entity instanceof SaleItem) {
+            return DataVersionService.DataSet.SALES;
+        } else if (entity instanceof Stock) {
+            return DataVersionService.DataSet.STOCK;
+        } else if (entity instanceof Batch) {
+            return DataVersionService.DataSet.BATCHES;
+        } else if (entity instanceof Medicine) {
+            return DataVersionService.DataSet.MEDICINES;
+        } else if (entity instanceof Branch) {
+            return DataVersionService.DataSet.BRANCHES;
+        } else if (entity instanceof PurchaseOrder || entity instanceof PurchaseItem) {
+            return DataVersionService.DataSet.PURCHASE_ORDERS;
+        } else if (entity instanceof Supplier) {
+            return DataVersionService.DataSet.SUPPLIERS;
+        } else if (entity instanceof User) {
+            return DataVersionService.DataSet.USERS;
+        }
+        return null;
+    }
+}
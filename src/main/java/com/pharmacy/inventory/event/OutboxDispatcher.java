@@ -0,0 +1,181 @@
+package com.pharmacy.inventory.event;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.inventory.model.OutboxEvent;
+import com.pharmacy.inventory.repository.OutboxEventRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Drains the outbox in the background.
+ *
+ * Each batch is claimed with FOR UPDATE SKIP LOCKED inside one transaction, so
+ * several application instances can dispatch side by side without delivering the
+ * same event twice. Every delivery runs in a transaction of its own: a handler that
+ * fails rolls back only its own work, and the event is retried with exponential
+ * backoff until it runs out of attempts and is marked FAILED. Later events of the
+ * same aggregate wait while an earlier one is pending.
+ */
+@Component
+public class OutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxDispatcher.class);
+
+    private static final TypeReference<Map<String, Object>> PAYLOAD_TYPE = new TypeReference<>() {};
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final Map<String, List<OutboxEventHandler>> handlers = new HashMap<>();
+    private final TransactionTemplate batchTransaction;
+    private final TransactionTemplate deliveryTransaction;
+
+    @Value("${app.outbox.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.outbox.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.outbox.max-attempts:10}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.retry-base-ms:1000}")
+    private long retryBaseMillis;
+
+    @Value("${app.outbox.retry-max-ms:300000}")
+    private long retryMaxMillis;
+
+    @Value("${app.outbox.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${app.outbox.failed-retention-days:30}")
+    private int failedRetentionDays;
+
+    @Value("${app.outbox.purge-batch-size:10000}")
+    private int purgeBatchSize;
+
+    @Autowired
+    public OutboxDispatcher(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper,
+                            List<OutboxEventHandler> eventHandlers, PlatformTransactionManager transactionManager) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        for (OutboxEventHandler handler : eventHandlers) {
+            handlers.computeIfAbsent(handler.getEventType(), type -> new ArrayList<>()).add(handler);
+        }
+        this.batchTransaction = new TransactionTemplate(transactionManager);
+        this.deliveryTransaction = new TransactionTemplate(transactionManager);
+        this.deliveryTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        for (int run = 0; run < maxBatchesPerRun; run++) {
+            Integer dispatched = batchTransaction.execute(status -> dispatchBatch());
+            if (dispatched == null || dispatched < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Whether any handler consumes an event type; events nobody consumes are not stored
+     */
+    public boolean hasHandlers(String eventType) {
+        return handlers.containsKey(eventType);
+    }
+
+    /**
+     * Drop delivered events past the retention period, and failed ones past the longer
+     * period they are kept for inspection. Deletes go in bounded batches, each in its own
+     * transaction, so a large backlog never holds locks for long.
+     */
+    @Scheduled(cron = "${app.outbox.purge-cron:0 15 3 * * *}")
+    public void purgeProcessed() {
+        int processed = purge(OutboxEvent.Status.PROCESSED, LocalDateTime.now().minusDays(retentionDays));
+        int failed = purge(OutboxEvent.Status.FAILED, LocalDateTime.now().minusDays(failedRetentionDays));
+        logger.info("Purged {} delivered and {} failed outbox event(s)", processed, failed);
+    }
+
+    private int purge(OutboxEvent.Status status, LocalDateTime before) {
+        int total = 0;
+        while (true) {
+            Integer removed = batchTransaction.execute(tx -> outboxEventRepository.deleteFinishedBefore(
+                    status.name(), before, purgeBatchSize));
+            if (removed == null || removed == 0) {
+                return total;
+            }
+            total += removed;
+            if (removed < purgeBatchSize) {
+                return total;
+            }
+        }
+    }
+
+    private int dispatchBatch() {
+        List<OutboxEvent> batch = outboxEventRepository.lockNextBatch(LocalDateTime.now(), batchSize);
+        for (OutboxEvent event : batch) {
+            try {
+                deliveryTransaction.executeWithoutResult(status -> deliver(event));
+                event.setStatus(OutboxEvent.Status.PROCESSED);
+                event.setProcessedAt(LocalDateTime.now());
+                event.setLastError(null);
+            } catch (RuntimeException e) {
+                recordFailure(event, e);
+            }
+        }
+        // Status changes are flushed when the batch transaction commits
+        return batch.size();
+    }
+
+    private void deliver(OutboxEvent event) {
+        List<OutboxEventHandler> eventHandlers = handlers.get(event.getEventType());
+        if (eventHandlers == null) {
+            return;
+        }
+        Map<String, Object> payload;
+        try {
+            payload = objectMapper.readValue(event.getPayload(), PAYLOAD_TYPE);
+        } catch (Exception e) {
+            throw new IllegalStateException("Unreadable payload: " + e.getMessage(), e);
+        }
+        for (OutboxEventHandler handler : eventHandlers) {
+            handler.handle(event, payload);
+        }
+    }
+
+    private void recordFailure(OutboxEvent event, RuntimeException e) {
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        String message = e.getMessage() != null ? e.getMessage() : e.getClass().getName();
+        event.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+
+        if (attempts >= maxAttempts) {
+            // Give up so later events of the same aggregate are not held back for good
+            event.setStatus(OutboxEvent.Status.FAILED);
+            event.setProcessedAt(LocalDateTime.now());
+            logger.error("Outbox event {} ({} for {} {}) failed {} times, giving up",
+                    event.getId(), event.getEventType(), event.getAggregateType(), event.getAggregateId(), attempts, e);
+            return;
+        }
+
+        long backoff = Math.min(retryMaxMillis, retryBaseMillis << Math.min(attempts - 1, 20));
+        long delay = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        event.setNextAttemptAt(LocalDateTime.now().plusNanos(delay * 1_000_000L));
+        logger.warn("Outbox event {} ({}) failed on attempt {}, retrying in {} ms: {}",
+                event.getId(), event.getEventType(), attempts, delay, message);
+    }
+}
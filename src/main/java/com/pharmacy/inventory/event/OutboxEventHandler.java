@@ -0,0 +1,26 @@
+package com.pharmacy.inventory.event;
+
+import com.pharmacy.inventory.model.OutboxEvent;
+
+import java.util.Map;
+
+/**
+ * In-process consumer of outbox events. Each delivery runs in its own transaction;
+ * throwing rolls that back and the event is retried later, so handlers must cope
+ * with seeing an event more than once.
+ */
+public interface OutboxEventHandler {
+    
+    /**
+     * @return Event type this handler consumes
+     */
+    String getEventType();
+    
+    /**
+     * Handle one event
+     * 
+     * @param event Stored event
+     * @param payload Its payload, parsed from JSON
+     */
+    void handle(OutboxEvent event, Map<String, Object> payload);
+}
@@ -0,0 +1,88 @@
+package com.pharmacy.inventory.event;
+
+import com.pharmacy.inventory.model.StockMovement;
+
+import java.util.UUID;
+
+/**
+ * Published whenever a stock row is created, changed or removed.
+ * Listeners that keep derived in-memory state react after the change commits;
+ * the movement journal records it while the transaction is still open.
+ */
+public class StockChangedEvent {
+    
+    /**
+     * Kind of change applied to the stock row
+     */
+    public enum ChangeType {
+        CREATED,
+        ADJUSTED,
+        UPDATED,
+        DELETED
+    }
+    
+    private final UUID stockId;
+    private final UUID branchId;
+    private final UUID medicineId;
+    private final UUID batchId;
+    private final Integer quantityDelta;
+    private final ChangeType changeType;
+    private final StockMovement.MovementType movementType;
+    private final Long version;
+    
+    public StockChangedEvent(UUID stockId, UUID branchId, UUID medicineId, UUID batchId,
+                             Integer quantityDelta, ChangeType changeType, StockMovement.MovementType movementType,
+                             Long version) {
+        this.stockId = stockId;
+        this.branchId = branchId;
+        this.medicineId = medicineId;
+        this.batchId = batchId;
+        this.quantityDelta = quantityDelta;
+        this.changeType = changeType;
+        this.movementType = movementType;
+        this.version = version;
+    }
+    
+    public UUID getStockId() {
+        return stockId;
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public UUID getBatchId() {
+        return batchId;
+    }
+    
+    /**
+     * Signed quantity the row gained or lost. Only ADJUSTED deltas apply on top of a
+     * quantity a listener already holds; after any other change the row should be re-read.
+     */
+    public Integer getQuantityDelta() {
+        return quantityDelta;
+    }
+    
+    public ChangeType getChangeType() {
+        return changeType;
+    }
+    
+    /**
+     * Why the quantity changed, as recorded in the movement journal
+     */
+    public StockMovement.MovementType getMovementType() {
+        return movementType;
+    }
+    
+    /**
+     * Version of the row once the change was applied, or null when it is not known.
+     * Lets a listener holding a copy of the row tell a change it has already seen from a new one.
+     */
+    public Long getVersion() {
+        return version;
+    }
+}
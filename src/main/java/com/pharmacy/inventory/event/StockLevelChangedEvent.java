@@ -0,0 +1,27 @@
+package com.pharmacy.inventory.event;
+
+import java.util.UUID;
+
+/**
+ * Published by the stock ledger after the on-hand total of a medicine at a branch
+ * has changed. Carries no quantity: listeners read the current total from the
+ * ledger, so events handled out of order still settle on the latest value.
+ */
+public class StockLevelChangedEvent {
+    
+    private final UUID branchId;
+    private final UUID medicineId;
+    
+    public StockLevelChangedEvent(UUID branchId, UUID medicineId) {
+        this.branchId = branchId;
+        this.medicineId = medicineId;
+    }
+    
+    public UUID getBranchId() {
+        return branchId;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+}
@@ -2,6 +2,7 @@ package com.pharmacy.inventory.exception;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -33,4 +34,16 @@ public class GlobalExceptionHandler {
         
         return new ResponseEntity<>(body, new HttpHeaders(), HttpStatus.NOT_ACCEPTABLE);
     }
+    
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Object> handleConcurrencyFailureException(ConcurrencyFailureException ex) {
+        logger.warn("Write lost to a concurrent update: {}", ex.getMessage());
+        
+        Map<String, Object> body = new HashMap<>();
+        body.put("message", "The record was changed by another request at the same time, please retry");
+        body.put("error", "Conflict");
+        body.put("status", HttpStatus.CONFLICT.value());
+        
+        return new ResponseEntity<>(body, new HttpHeaders(), HttpStatus.CONFLICT);
+    }
 }
@@ -0,0 +1,36 @@
+package com.pharmacy.inventory.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.UUID;
+
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class InsufficientStockException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final UUID medicineId;
+    private final int requestedQuantity;
+    private final int availableQuantity;
+    
+    public InsufficientStockException(UUID medicineId, int requestedQuantity, int availableQuantity) {
+        super("Insufficient stock for medicine " + medicineId + ": requested " + requestedQuantity
+                + ", available " + availableQuantity);
+        this.medicineId = medicineId;
+        this.requestedQuantity = requestedQuantity;
+        this.availableQuantity = availableQuantity;
+    }
+    
+    public UUID getMedicineId() {
+        return medicineId;
+    }
+    
+    public int getRequestedQuantity() {
+        return requestedQuantity;
+    }
+    
+    public int getAvailableQuantity() {
+        return availableQuantity;
+    }
+}
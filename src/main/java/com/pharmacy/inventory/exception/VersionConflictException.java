@@ -0,0 +1,25 @@
+package com.pharmacy.inventory.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The version a client based its write on is no longer the current one
+ */
+@ResponseStatus(value = HttpStatus.CONFLICT)
+public class VersionConflictException extends RuntimeException {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final Long currentVersion;
+    
+    public VersionConflictException(String resource, Object id, long expectedVersion, Long currentVersion) {
+        super(resource + " " + id + " is at version " + currentVersion + ", not " + expectedVersion
+                + "; reload it and apply the change again");
+        this.currentVersion = currentVersion;
+    }
+    
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
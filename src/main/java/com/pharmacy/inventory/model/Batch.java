@@ -1,5 +1,7 @@
 package com.pharmacy.inventory.model;
 
+import com.pharmacy.inventory.event.DataChangeListener;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -11,12 +13,13 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@EntityListeners(DataChangeListener.class)
 @Table(name = "batches")
 public class Batch {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
@@ -36,6 +39,12 @@ public class Batch {
     @Column(name = "quantity", nullable = false)
     private Integer quantity;
     
+    // Optimistic lock: a write based on a stale read fails instead of overwriting
+    @Version
+    @Column(name = "version")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+    
     // Explicit getter and setter methods
     public UUID getId() {
         return id;
@@ -84,4 +93,12 @@ public class Batch {
     public void setQuantity(Integer quantity) {
         this.quantity = quantity;
     }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -1,5 +1,6 @@
 package com.pharmacy.inventory.model;
 
+import com.pharmacy.inventory.event.DataChangeListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -10,12 +11,13 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@EntityListeners(DataChangeListener.class)
 @Table(name = "branches")
 public class Branch {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
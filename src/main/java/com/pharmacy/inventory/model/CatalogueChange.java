@@ -0,0 +1,52 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Latest change to one catalogue row (medicine, branch or supplier), stamped with
+ * the data set version it was committed under. Each row keeps only its last
+ * change, so the table is as large as the catalogue plus the tombstones of
+ * deleted rows, which are purged after a retention period.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "catalogue_changes", indexes = {
+    @Index(name = "idx_catalogue_changes_data_set_version", columnList = "data_set, version")
+})
+public class CatalogueChange {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @Column(name = "deleted", nullable = false)
+    private boolean deleted;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Embeddable
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "data_set", length = 30, nullable = false)
+        private String dataSet;
+
+        @Column(name = "row_id", nullable = false)
+        private UUID rowId;
+    }
+}
@@ -0,0 +1,54 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Units and revenue of one medicine at one branch on one day, maintained alongside
+ * {@link DailySalesSummary}
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(DailyMedicineSales.Key.class)
+@Table(name = "daily_medicine_sales", indexes = {
+    @Index(name = "idx_daily_medicine_sales_medicine", columnList = "medicine_id, sale_day")
+})
+public class DailyMedicineSales {
+    
+    @Id
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+    
+    @Id
+    @Column(name = "branch_id", nullable = false)
+    private UUID branchId;
+    
+    @Id
+    @Column(name = "medicine_id", nullable = false)
+    private UUID medicineId;
+    
+    @Column(name = "quantity", nullable = false)
+    private Long quantity;
+    
+    @Column(name = "revenue", nullable = false)
+    private Double revenue;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private LocalDate saleDay;
+        private UUID branchId;
+        private UUID medicineId;
+    }
+}
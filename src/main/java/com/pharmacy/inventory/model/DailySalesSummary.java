@@ -0,0 +1,50 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Sales of one branch on one day, kept up to date as sales are written so range
+ * totals are summed over days instead of over sales. Sales without a branch are
+ * rolled up under {@link #NO_BRANCH}, since key columns cannot be null.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@IdClass(DailySalesSummary.Key.class)
+@Table(name = "daily_sales_summary")
+public class DailySalesSummary {
+    
+    public static final UUID NO_BRANCH = new UUID(0L, 0L);
+    
+    @Id
+    @Column(name = "sale_day", nullable = false)
+    private LocalDate saleDay;
+    
+    @Id
+    @Column(name = "branch_id", nullable = false)
+    private UUID branchId;
+    
+    @Column(name = "sale_count", nullable = false)
+    private Long saleCount;
+    
+    @Column(name = "total_amount", nullable = false)
+    private Double totalAmount;
+    
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private LocalDate saleDay;
+        private UUID branchId;
+    }
+}
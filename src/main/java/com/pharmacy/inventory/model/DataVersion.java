@@ -0,0 +1,36 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Change counter of one data set, shared by every instance of the application.
+ * Rows are seeded by data.sql; the epoch is fixed when they are, so versions
+ * handed out before the database was recreated are recognised as foreign.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "data_versions")
+public class DataVersion {
+
+    @Id
+    @Column(name = "data_set", length = 30, nullable = false)
+    private String dataSet;
+
+    @Column(name = "version", nullable = false)
+    private long version;
+
+    @Column(name = "epoch", length = 20, nullable = false)
+    private String epoch;
+
+    // Versions below this may have lost deletions to tombstone purging
+    @Column(name = "purged_through", nullable = false)
+    private long purgedThrough;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+}
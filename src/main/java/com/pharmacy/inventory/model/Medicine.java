@@ -1,6 +1,8 @@
 package com.pharmacy.inventory.model;
 
+import com.pharmacy.inventory.event.DataChangeListener;
 import jakarta.persistence.*;
+import jakarta.validation.constraints.Pattern;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -13,12 +15,13 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@EntityListeners(DataChangeListener.class)
 @Table(name = "medicines")
 public class Medicine {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
@@ -37,6 +40,11 @@ public class Medicine {
     @Column(name = "prescription_required")
     private Boolean prescriptionRequired = false;
     
+    // Manufacturer's GTIN as printed under the pack barcode (EAN-8, UPC-A, EAN-13 or GTIN-14)
+    @Pattern(regexp = "\\d{8}|\\d{12,14}", message = "GTIN must be 8, 12, 13 or 14 digits")
+    @Column(name = "gtin", length = 14, unique = true)
+    private String gtin;
+    
     // Explicit getter and setter methods to ensure they're available during compilation
     
     public UUID getId() {
@@ -86,4 +94,12 @@ public class Medicine {
     public void setPrescriptionRequired(Boolean prescriptionRequired) {
         this.prescriptionRequired = prescriptionRequired;
     }
+    
+    public String getGtin() {
+        return gtin;
+    }
+    
+    public void setGtin(String gtin) {
+        this.gtin = gtin;
+    }
 }
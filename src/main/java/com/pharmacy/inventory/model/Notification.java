@@ -7,12 +7,14 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications", indexes = {
+    @Index(name = "idx_notifications_created_at_id", columnList = "created_at, id")
+})
 public class Notification {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
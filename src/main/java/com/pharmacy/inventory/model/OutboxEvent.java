@@ -0,0 +1,76 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Domain event written in the same transaction as the change it describes and
+ * delivered to in-process handlers afterwards by the outbox dispatcher. Ids are
+ * time-ordered, so id order is the order events were raised in.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "outbox_events", indexes = {
+    @Index(name = "idx_outbox_events_status_next_attempt", columnList = "status, next_attempt_at"),
+    @Index(name = "idx_outbox_events_aggregate_id", columnList = "aggregate_id, id"),
+    @Index(name = "idx_outbox_events_status_processed_at", columnList = "status, processed_at")
+})
+public class OutboxEvent {
+    
+    public enum Status {
+        PENDING,
+        PROCESSED,
+        FAILED
+    }
+    
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+    
+    @Column(name = "aggregate_type", nullable = false, length = 50)
+    private String aggregateType;
+    
+    @Column(name = "aggregate_id", nullable = false)
+    private UUID aggregateId;
+    
+    @Column(name = "event_type", nullable = false, length = 100)
+    private String eventType;
+    
+    @Column(name = "payload", nullable = false, columnDefinition = "TEXT")
+    private String payload;
+    
+    @Column(name = "status", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.PENDING;
+    
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+    
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+}
@@ -9,12 +9,14 @@ import java.util.List;
 import java.util.UUID;
 
 @Entity
-@Table(name = "prescriptions")
+@Table(name = "prescriptions", indexes = {
+    @Index(name = "idx_prescriptions_created_at_id", columnList = "created_at, id")
+})
 public class Prescription {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
@@ -0,0 +1,84 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Stock level at or below which a medicine counts as low. A row without a branch
+ * is the default for every branch that has no row of its own.
+ */
+@Entity
+@Table(name = "reorder_points", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_reorder_points_medicine_branch", columnNames = {"medicine_id", "branch_id"})
+})
+public class ReorderPoint {
+    
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "medicine_id", nullable = false)
+    private Medicine medicine;
+    
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "branch_id")
+    private Branch branch;
+    
+    @Column(name = "reorder_level", nullable = false)
+    private Integer reorderLevel;
+    
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+    
+    @PrePersist
+    @PreUpdate
+    protected void onWrite() {
+        updatedAt = LocalDateTime.now();
+    }
+    
+    public UUID getId() {
+        return id;
+    }
+    
+    public void setId(UUID id) {
+        this.id = id;
+    }
+    
+    public Medicine getMedicine() {
+        return medicine;
+    }
+    
+    public void setMedicine(Medicine medicine) {
+        this.medicine = medicine;
+    }
+    
+    public Branch getBranch() {
+        return branch;
+    }
+    
+    public void setBranch(Branch branch) {
+        this.branch = branch;
+    }
+    
+    public Integer getReorderLevel() {
+        return reorderLevel;
+    }
+    
+    public void setReorderLevel(Integer reorderLevel) {
+        this.reorderLevel = reorderLevel;
+    }
+    
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+    
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -1,5 +1,6 @@
 package com.pharmacy.inventory.model;
 
+import com.pharmacy.inventory.event.DataChangeListener;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
@@ -14,12 +15,16 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "sales")
+@EntityListeners(DataChangeListener.class)
+@Table(name = "sales", indexes = {
+    @Index(name = "idx_sales_created_at_id", columnList = "created_at, id"),
+    @Index(name = "idx_sales_sale_date", columnList = "sale_date")
+})
 public class Sale {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
@@ -48,8 +53,11 @@ public class Sale {
     
     @PrePersist
     protected void onCreate() {
-        saleDate = LocalDateTime.now();
         createdAt = LocalDateTime.now();
+        // Sales replayed from offline terminals keep the time they were rung up
+        if (saleDate == null) {
+            saleDate = createdAt;
+        }
     }
     
     // Explicit getter and setter methods
@@ -1,5 +1,6 @@
 package com.pharmacy.inventory.model;
 
+import com.pharmacy.inventory.event.DataChangeListener;
 import jakarta.persistence.*;
 import org.hibernate.annotations.GenericGenerator;
 
@@ -9,6 +10,7 @@ import java.util.UUID;
  * Entity representing an item in a sale transaction
  */
 @Entity
+@EntityListeners(DataChangeListener.class)
 @Table(name = "sale_items")
 public class SaleItem {
     
@@ -17,7 +19,7 @@ public class SaleItem {
      */
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
@@ -1,5 +1,7 @@
 package com.pharmacy.inventory.model;
 
+import com.pharmacy.inventory.event.DataChangeListener;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -13,12 +15,18 @@ import java.util.UUID;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "stock")
+@EntityListeners(DataChangeListener.class)
+@Table(name = "stock", indexes = {
+    @Index(name = "idx_stock_created_at_id", columnList = "created_at, id")
+}, uniqueConstraints = {
+    // One row per batch at a branch; transfers upsert destination rows on this key
+    @UniqueConstraint(name = "uk_stock_branch_batch", columnNames = {"branch_id", "batch_id"})
+})
 public class Stock {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
@@ -36,11 +44,25 @@ public class Stock {
     @Column(name = "last_updated")
     private LocalDateTime lastUpdated;
     
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "branch_id")
     private Branch branch;
     
+    // Optimistic lock: a write based on a stale read fails instead of overwriting
+    @Version
+    @Column(name = "version")
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+    
     @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        lastUpdated = createdAt;
+    }
+    
     @PreUpdate
     protected void onUpdate() {
         lastUpdated = LocalDateTime.now();
@@ -88,6 +110,14 @@ public class Stock {
         this.lastUpdated = lastUpdated;
     }
     
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+    
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+    
     public Branch getBranch() {
         return branch;
     }
@@ -95,4 +125,12 @@ public class Stock {
     public void setBranch(Branch branch) {
         this.branch = branch;
     }
+    
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
@@ -0,0 +1,37 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Latest change to one stock row, written by the transaction that made it just
+ * before it commits. Each row keeps only its last change, so the table is as
+ * large as the stock table plus the tombstones of removed rows; entries older
+ * than the retention period are purged.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_changes", indexes = {
+    @Index(name = "idx_stock_changes_branch_changed_at", columnList = "branch_id, changed_at"),
+    @Index(name = "idx_stock_changes_changed_at", columnList = "changed_at")
+})
+public class StockChange {
+
+    @Id
+    @Column(name = "stock_id", nullable = false)
+    private UUID stockId;
+
+    @Column(name = "branch_id", nullable = false)
+    private UUID branchId;
+
+    @Column(name = "deleted", nullable = false)
+    private boolean deleted;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -0,0 +1,63 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Append-only journal entry: the signed quantity one stock row gained or lost,
+ * and why. Entries are written in the transaction that changed the row and
+ * stamped with the time it committed, so summing a branch's entries up to a
+ * point in time gives what it held then. Ids and columns are plain values
+ * rather than foreign keys so entries outlive the rows they describe.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "stock_movements", indexes = {
+    @Index(name = "idx_stock_movements_branch_occurred_at", columnList = "branch_id, occurred_at"),
+    @Index(name = "idx_stock_movements_occurred_at", columnList = "occurred_at")
+})
+public class StockMovement {
+
+    public enum MovementType {
+        OPENING,
+        RECEIPT,
+        SALE,
+        DISPENSE,
+        TRANSFER_IN,
+        TRANSFER_OUT,
+        ADJUSTMENT
+    }
+
+    @Id
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    @Column(name = "stock_id", nullable = false)
+    private UUID stockId;
+
+    @Column(name = "branch_id", nullable = false)
+    private UUID branchId;
+
+    @Column(name = "medicine_id", nullable = false)
+    private UUID medicineId;
+
+    @Column(name = "batch_id", nullable = false)
+    private UUID batchId;
+
+    @Column(name = "movement_type", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    private MovementType movementType;
+
+    @Column(name = "quantity", nullable = false)
+    private int quantity;
+
+    @Column(name = "occurred_at", nullable = false)
+    private LocalDateTime occurredAt;
+}
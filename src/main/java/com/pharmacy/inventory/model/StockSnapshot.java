@@ -0,0 +1,44 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Stock held per branch and batch as of {@code takenAt}, folded from the movement
+ * journal. Point-in-time queries start from the latest snapshot at or before the
+ * requested time and replay only the movements after it.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Table(name = "stock_snapshots", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_stock_snapshots_taken_at", columnNames = "taken_at")
+})
+public class StockSnapshot {
+
+    @Id
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
+    @Column(name = "id", updatable = false, nullable = false)
+    private UUID id;
+
+    // Movements that occurred at or before this time are included
+    @Column(name = "taken_at", nullable = false, updatable = false)
+    private LocalDateTime takenAt;
+
+    @Column(name = "line_count", nullable = false)
+    private int lineCount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+}
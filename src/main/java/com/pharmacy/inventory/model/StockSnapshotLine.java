@@ -0,0 +1,49 @@
+package com.pharmacy.inventory.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+/**
+ * Quantity of one batch at one branch in a {@link StockSnapshot}. Lines are
+ * written set-based from the journal; batches a branch held none of are left out.
+ */
+@Data
+@NoArgsConstructor
+@Entity
+@Immutable
+@Table(name = "stock_snapshot_lines")
+public class StockSnapshotLine {
+
+    @EmbeddedId
+    private Key key;
+
+    @Column(name = "quantity", nullable = false)
+    private long quantity;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Embeddable
+    public static class Key implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @Column(name = "snapshot_id", nullable = false)
+        private UUID snapshotId;
+
+        @Column(name = "branch_id", nullable = false)
+        private UUID branchId;
+
+        @Column(name = "medicine_id", nullable = false)
+        private UUID medicineId;
+
+        @Column(name = "batch_id", nullable = false)
+        private UUID batchId;
+    }
+}
@@ -1,6 +1,8 @@
 package com.pharmacy.inventory.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.GenericGenerator;
+
 import java.time.LocalDateTime;
 import java.util.UUID;
 
@@ -12,7 +14,8 @@ import java.util.UUID;
 public class StockTransfer {
     
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "UUID")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     private UUID id;
     
     @ManyToOne
@@ -1,5 +1,6 @@
 package com.pharmacy.inventory.model;
 
+import com.pharmacy.inventory.event.DataChangeListener;
 import jakarta.persistence.*;
 import org.hibernate.annotations.GenericGenerator;
 
@@ -7,12 +8,13 @@ import java.math.BigDecimal;
 import java.util.UUID;
 
 @Entity
+@EntityListeners(DataChangeListener.class)
 @Table(name = "suppliers")
 public class Supplier {
     
     @Id
     @GeneratedValue(generator = "UUID")
-    @GenericGenerator(name = "UUID", strategy = "org.hibernate.id.UUIDGenerator")
+    @GenericGenerator(name = "UUID", type = TimeOrderedUuidGenerator.class)
     @Column(name = "id", updatable = false, nullable = false)
     private UUID id;
     
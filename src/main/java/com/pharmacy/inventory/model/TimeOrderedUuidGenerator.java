@@ -0,0 +1,54 @@
+package com.pharmacy.inventory.model;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.security.SecureRandom;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time-ordered (version 7) UUIDs in-process.
+ * 
+ * The first 48 bits hold the Unix time in milliseconds and the next 12 bits a
+ * counter that keeps ids issued within the same millisecond increasing, so new
+ * rows always land at the right-hand edge of primary key indexes instead of on
+ * random pages. The remaining 62 bits are random.
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+    
+    private static final SecureRandom RANDOM = new SecureRandom();
+    
+    // Last issued (millis << 12 | counter); never moves backwards even if the clock does
+    private static final AtomicLong LAST_TIMESTAMP = new AtomicLong();
+    
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object object) {
+        return generate();
+    }
+    
+    /**
+     * Create a new time-ordered UUID
+     */
+    public static UUID generate() {
+        long timestamp = nextTimestamp();
+        long mostSigBits = ((timestamp >>> 12) << 16) | 0x7000L | (timestamp & 0xFFFL);
+        long leastSigBits = (RANDOM.nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+    
+    private static long nextTimestamp() {
+        while (true) {
+            long last = LAST_TIMESTAMP.get();
+            long candidate = System.currentTimeMillis() << 12;
+            if (candidate <= last) {
+                // Same millisecond (or the clock stepped back): bump the counter,
+                // borrowing into the next millisecond if it overflows
+                candidate = last + 1;
+            }
+            if (LAST_TIMESTAMP.compareAndSet(last, candidate)) {
+                return candidate;
+            }
+        }
+    }
+}
@@ -1,21 +1,34 @@
 package com.pharmacy.inventory.repository;
 
+import com.pharmacy.inventory.dto.report.ExpiryReportRow;
 import com.pharmacy.inventory.model.Batch;
 import com.pharmacy.inventory.model.Medicine;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.pharmacy.inventory.repository.SaleRepository.REPORT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface BatchRepository extends JpaRepository<Batch, UUID> {
     List<Batch> findByMedicine(Medicine medicine);
     Optional<Batch> findByBatchNumber(String batchNumber);
+    
+    @EntityGraph(attributePaths = {"medicine"})
+    List<Batch> findByBatchNumberIn(Collection<String> batchNumbers);
     List<Batch> findByExpiryDateBefore(LocalDate date);
     
     @Query("SELECT b FROM Batch b WHERE b.expiryDate <= CURRENT_DATE + 30")
@@ -31,4 +44,18 @@ public interface BatchRepository extends JpaRepository<Batch, UUID> {
     
     @Query("SELECT b FROM Batch b WHERE b.expiryDate BETWEEN :startDate AND :endDate")
     List<Batch> findByExpiryDateBetween(@Param("startDate") LocalDate startDate, @Param("endDate") LocalDate endDate);
+    
+    // Expiry report: whole batches, or the stock a branch holds of each batch
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query("SELECT new com.pharmacy.inventory.dto.report.ExpiryReportRow(b.id, b.batchNumber, m.name, m.manufacturer, " +
+           "b.expiryDate, b.quantity) FROM Batch b JOIN b.medicine m " +
+           "WHERE b.expiryDate <= :expiryDate ORDER BY b.expiryDate, m.name, b.id")
+    Stream<ExpiryReportRow> streamExpiryRowsForReport(@Param("expiryDate") LocalDate expiryDate);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query("SELECT new com.pharmacy.inventory.dto.report.ExpiryReportRow(b.id, b.batchNumber, m.name, m.manufacturer, " +
+           "b.expiryDate, s.currentQuantity) FROM Stock s JOIN s.batch b JOIN s.medicine m " +
+           "WHERE b.expiryDate <= :expiryDate AND s.branch.id = :branchId ORDER BY b.expiryDate, m.name, b.id")
+    Stream<ExpiryReportRow> streamExpiryRowsForReportByBranch(@Param("expiryDate") LocalDate expiryDate,
+                                                              @Param("branchId") UUID branchId);
 }
@@ -0,0 +1,49 @@
+package com.pharmacy.inventory.repository;
+
+import com.pharmacy.inventory.model.DailyMedicineSales;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface DailyMedicineSalesRepository extends JpaRepository<DailyMedicineSales, DailyMedicineSales.Key> {
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_medicine_sales (sale_day, branch_id, medicine_id, quantity, revenue) " +
+           "VALUES (:saleDay, :branchId, :medicineId, :quantity, :revenue) " +
+           "ON CONFLICT (sale_day, branch_id, medicine_id) DO UPDATE SET " +
+           "quantity = daily_medicine_sales.quantity + EXCLUDED.quantity, " +
+           "revenue = daily_medicine_sales.revenue + EXCLUDED.revenue", nativeQuery = true)
+    int addToDay(@Param("saleDay") LocalDate saleDay, @Param("branchId") UUID branchId,
+                 @Param("medicineId") UUID medicineId, @Param("quantity") long quantity,
+                 @Param("revenue") double revenue);
+    
+    @Modifying
+    @Query(value = "DELETE FROM daily_medicine_sales WHERE sale_day >= :fromDay AND sale_day < :toDay", nativeQuery = true)
+    int deleteDays(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_medicine_sales (sale_day, branch_id, medicine_id, quantity, revenue) " +
+           "SELECT CAST(s.sale_date AS date), COALESCE(s.branch_id, :noBranch), si.medicine_id, " +
+           "SUM(si.quantity), SUM(si.total_price) " +
+           "FROM sale_items si JOIN sales s ON s.id = si.sale_id " +
+           "WHERE s.sale_date >= :startDate AND s.sale_date < :endDate " +
+           "GROUP BY CAST(s.sale_date AS date), COALESCE(s.branch_id, :noBranch), si.medicine_id", nativeQuery = true)
+    int insertFromSales(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                        @Param("noBranch") UUID noBranch);
+    
+    @Query("SELECT COALESCE(SUM(m.quantity), 0) FROM DailyMedicineSales m " +
+           "WHERE m.saleDay >= :fromDay AND m.saleDay < :toDay")
+    Long sumQuantity(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+    
+    @Query("SELECT COALESCE(SUM(m.quantity), 0) FROM DailyMedicineSales m " +
+           "WHERE m.branchId = :branchId AND m.saleDay >= :fromDay AND m.saleDay < :toDay")
+    Long sumQuantityByBranch(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay,
+                             @Param("branchId") UUID branchId);
+}
@@ -0,0 +1,50 @@
+package com.pharmacy.inventory.repository;
+
+import com.pharmacy.inventory.dto.report.ReportTotals;
+import com.pharmacy.inventory.model.DailySalesSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface DailySalesSummaryRepository extends JpaRepository<DailySalesSummary, DailySalesSummary.Key> {
+    
+    // Applies a delta in one statement; concurrent sales on the same branch and day
+    // serialize on the row instead of losing updates
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_summary (sale_day, branch_id, sale_count, total_amount) " +
+           "VALUES (:saleDay, :branchId, :saleCount, :totalAmount) " +
+           "ON CONFLICT (sale_day, branch_id) DO UPDATE SET " +
+           "sale_count = daily_sales_summary.sale_count + EXCLUDED.sale_count, " +
+           "total_amount = daily_sales_summary.total_amount + EXCLUDED.total_amount", nativeQuery = true)
+    int addToDay(@Param("saleDay") LocalDate saleDay, @Param("branchId") UUID branchId,
+                 @Param("saleCount") long saleCount, @Param("totalAmount") double totalAmount);
+    
+    @Modifying
+    @Query(value = "DELETE FROM daily_sales_summary WHERE sale_day >= :fromDay AND sale_day < :toDay", nativeQuery = true)
+    int deleteDays(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+    
+    @Modifying
+    @Query(value = "INSERT INTO daily_sales_summary (sale_day, branch_id, sale_count, total_amount) " +
+           "SELECT CAST(s.sale_date AS date), COALESCE(s.branch_id, :noBranch), COUNT(*), SUM(s.total_amount) " +
+           "FROM sales s WHERE s.sale_date >= :startDate AND s.sale_date < :endDate " +
+           "GROUP BY CAST(s.sale_date AS date), COALESCE(s.branch_id, :noBranch)", nativeQuery = true)
+    int insertFromSales(@Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                        @Param("noBranch") UUID noBranch);
+    
+    @Query("SELECT new com.pharmacy.inventory.dto.report.ReportTotals(COALESCE(SUM(d.saleCount), 0), " +
+           "COALESCE(SUM(d.totalAmount), 0)) FROM DailySalesSummary d WHERE d.saleDay >= :fromDay AND d.saleDay < :toDay")
+    ReportTotals summarizeDays(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay);
+    
+    @Query("SELECT new com.pharmacy.inventory.dto.report.ReportTotals(COALESCE(SUM(d.saleCount), 0), " +
+           "COALESCE(SUM(d.totalAmount), 0)) FROM DailySalesSummary d " +
+           "WHERE d.branchId = :branchId AND d.saleDay >= :fromDay AND d.saleDay < :toDay")
+    ReportTotals summarizeDaysByBranch(@Param("fromDay") LocalDate fromDay, @Param("toDay") LocalDate toDay,
+                                       @Param("branchId") UUID branchId);
+}
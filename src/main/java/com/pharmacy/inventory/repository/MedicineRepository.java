@@ -3,8 +3,10 @@ package com.pharmacy.inventory.repository;
 import com.pharmacy.inventory.model.Medicine;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -17,4 +19,8 @@ public interface MedicineRepository extends JpaRepository<Medicine, UUID> {
     @Query("SELECT m FROM Medicine m JOIN Batch b ON m.id = b.medicine.id " +
            "WHERE b.expiryDate <= CURRENT_DATE + 90")
     List<Medicine> findMedicinesExpiringInThreeMonths();
+    
+    // Names must already be lower-cased
+    @Query("SELECT m FROM Medicine m WHERE LOWER(m.name) IN :names")
+    List<Medicine> findByLowerNameIn(@Param("names") Collection<String> names);
 }
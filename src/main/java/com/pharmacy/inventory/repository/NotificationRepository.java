@@ -2,9 +2,13 @@ package com.pharmacy.inventory.repository;
 
 import com.pharmacy.inventory.model.Notification;
 import com.pharmacy.inventory.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
 
@@ -14,4 +18,12 @@ public interface NotificationRepository extends JpaRepository<Notification, UUID
     List<Notification> findByUserAndIsRead(User user, Boolean isRead);
     List<Notification> findByType(Notification.NotificationType type);
     List<Notification> findTop10ByUserOrderByCreatedAtDesc(User user);
+    
+    // Keyset pagination, newest first; the row-value comparison is one range scan of the (created_at, id) index
+    @Query("SELECT n FROM Notification n ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findFirstPage(Pageable pageable);
+    
+    @Query("SELECT n FROM Notification n WHERE (n.createdAt, n.id) < (:createdAt, :id) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id, Pageable pageable);
 }
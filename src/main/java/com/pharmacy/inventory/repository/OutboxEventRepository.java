@@ -0,0 +1,33 @@
+package com.pharmacy.inventory.repository;
+
+import com.pharmacy.inventory.model.OutboxEvent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEvent, UUID> {
+    
+    // Claims due events for this dispatcher until its transaction ends; rows claimed by
+    // another instance are skipped rather than waited on. An event is only due once
+    // every earlier event of its aggregate is done, so each aggregate is delivered in
+    // order and a batch holds at most one event per aggregate.
+    @Query(value = "SELECT * FROM outbox_events e WHERE e.status = 'PENDING' AND e.next_attempt_at <= :now " +
+           "AND NOT EXISTS (SELECT 1 FROM outbox_events p WHERE p.aggregate_id = e.aggregate_id " +
+           "AND p.status = 'PENDING' AND p.id < e.id) " +
+           "ORDER BY e.id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<OutboxEvent> lockNextBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+    
+    // Retention: removes at most limit finished events per call
+    @Modifying
+    @Query(value = "DELETE FROM outbox_events WHERE id IN (SELECT id FROM outbox_events " +
+           "WHERE status = :status AND processed_at < :before LIMIT :limit)", nativeQuery = true)
+    int deleteFinishedBefore(@Param("status") String status, @Param("before") LocalDateTime before,
+                             @Param("limit") int limit);
+}
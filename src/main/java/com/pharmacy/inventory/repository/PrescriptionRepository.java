@@ -1,12 +1,15 @@
 package com.pharmacy.inventory.repository;
 
 import com.pharmacy.inventory.model.Prescription;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -15,7 +18,27 @@ import java.util.UUID;
 public interface PrescriptionRepository extends JpaRepository<Prescription, UUID> {
     Optional<Prescription> findByPrescriptionNumber(String prescriptionNumber);
     
-    List<Prescription> findByPatientNameContainingIgnoreCase(String patientName);
+    @Query("SELECT p FROM Prescription p WHERE LOWER(p.patientName) LIKE LOWER(CONCAT('%', :patientName, '%'))")
+    List<Prescription> findByPatientNameContainingIgnoreCase(@Param("patientName") String patientName);
+    
+    // Ranked patient search, same ordering as SaleRepository.CUSTOMER_RANK
+    String PATIENT_RANK = "ORDER BY CASE WHEN LOWER(p.patientName) = :term THEN 0 " +
+            "WHEN LOWER(p.patientName) LIKE :prefix ESCAPE '!' THEN 1 " +
+            "WHEN LOWER(p.patientName) LIKE :wordPrefix ESCAPE '!' THEN 2 ELSE 3 END, " +
+            "p.createdAt DESC, p.id DESC";
+    
+    @Query("SELECT p FROM Prescription p WHERE LOWER(p.patientName) IN :names " + PATIENT_RANK)
+    Slice<Prescription> searchByPatientNames(@Param("names") Collection<String> names, @Param("term") String term,
+                                             @Param("prefix") String prefix, @Param("wordPrefix") String wordPrefix,
+                                             Pageable pageable);
+    
+    @Query("SELECT p FROM Prescription p WHERE LOWER(p.patientName) LIKE :contains ESCAPE '!' " + PATIENT_RANK)
+    Slice<Prescription> searchByPatientNameLike(@Param("contains") String contains, @Param("term") String term,
+                                                @Param("prefix") String prefix, @Param("wordPrefix") String wordPrefix,
+                                                Pageable pageable);
+    
+    @Query("SELECT LOWER(p.patientName), COUNT(p) FROM Prescription p GROUP BY LOWER(p.patientName)")
+    List<Object[]> countRowsByLowerPatientName();
     
     @Query("SELECT p FROM Prescription p WHERE p.doctor.id = :doctorId")
     List<Prescription> findByDoctorId(@Param("doctorId") UUID doctorId);
@@ -33,4 +56,12 @@ public interface PrescriptionRepository extends JpaRepository<Prescription, UUID
             @Param("startDate") LocalDateTime startDate, 
             @Param("endDate") LocalDateTime endDate,
             @Param("branchId") UUID branchId);
+    
+    // Keyset pagination, newest first; the row-value comparison is one range scan of the (created_at, id) index
+    @Query("SELECT p FROM Prescription p ORDER BY p.createdAt DESC, p.id DESC")
+    List<Prescription> findFirstPage(Pageable pageable);
+    
+    @Query("SELECT p FROM Prescription p WHERE (p.createdAt, p.id) < (:createdAt, :id) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<Prescription> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id, Pageable pageable);
 }
@@ -1,15 +1,23 @@
 package com.pharmacy.inventory.repository;
 
+import com.pharmacy.inventory.dto.report.PurchaseOrderReportRow;
 import com.pharmacy.inventory.model.PurchaseOrder;
 import com.pharmacy.inventory.model.Supplier;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.pharmacy.inventory.repository.SaleRepository.REPORT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, UUID> {
@@ -47,4 +55,42 @@ public interface PurchaseOrderRepository extends JpaRepository<PurchaseOrder, UU
     Long countByBranchIdAndStatus(
             @Param("branchId") UUID branchId,
             @Param("status") PurchaseOrder.PurchaseStatus status);
+    
+    // Report streams: one row per order with its lines summed in the database
+    String ORDER_ROW_SELECT = "SELECT new com.pharmacy.inventory.dto.report.PurchaseOrderReportRow(po.id, po.orderDate, " +
+            "sup.id, sup.name, br.name, po.status, COUNT(pi), COALESCE(SUM(pi.quantity * pi.unitPrice), 0)) " +
+            "FROM PurchaseOrder po LEFT JOIN po.supplier sup LEFT JOIN po.branch br LEFT JOIN po.purchaseItems pi ";
+    String ORDER_ROW_GROUP = "GROUP BY po.id, po.orderDate, sup.id, sup.name, br.name, po.status ";
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query(ORDER_ROW_SELECT + "WHERE po.orderDate >= :startDate AND po.orderDate < :endDate " +
+           ORDER_ROW_GROUP + "ORDER BY po.orderDate, po.id")
+    Stream<PurchaseOrderReportRow> streamRowsForReport(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query(ORDER_ROW_SELECT + "WHERE br.id = :branchId AND po.orderDate >= :startDate AND po.orderDate < :endDate " +
+           ORDER_ROW_GROUP + "ORDER BY po.orderDate, po.id")
+    Stream<PurchaseOrderReportRow> streamRowsForReportByBranch(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("branchId") UUID branchId);
+    
+    // Per-status order count and value: [status, orders, value]
+    @Query("SELECT po.status, COUNT(DISTINCT po.id), COALESCE(SUM(pi.quantity * pi.unitPrice), 0) " +
+           "FROM PurchaseOrder po LEFT JOIN po.purchaseItems pi " +
+           "WHERE po.orderDate >= :startDate AND po.orderDate < :endDate GROUP BY po.status")
+    List<Object[]> summarizeByStatusForReport(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
+    @Query("SELECT po.status, COUNT(DISTINCT po.id), COALESCE(SUM(pi.quantity * pi.unitPrice), 0) " +
+           "FROM PurchaseOrder po LEFT JOIN po.purchaseItems pi " +
+           "WHERE po.branch.id = :branchId AND po.orderDate >= :startDate AND po.orderDate < :endDate " +
+           "GROUP BY po.status")
+    List<Object[]> summarizeByStatusForReportByBranch(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("branchId") UUID branchId);
 }
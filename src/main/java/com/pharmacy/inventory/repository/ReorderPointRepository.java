@@ -0,0 +1,29 @@
+package com.pharmacy.inventory.repository;
+
+import com.pharmacy.inventory.dto.ReorderPointDTO;
+import com.pharmacy.inventory.model.ReorderPoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface ReorderPointRepository extends JpaRepository<ReorderPoint, UUID> {
+    
+    Optional<ReorderPoint> findByMedicineIdAndBranchId(UUID medicineId, UUID branchId);
+    
+    Optional<ReorderPoint> findByMedicineIdAndBranchIsNull(UUID medicineId);
+    
+    String REORDER_POINT_DTO_SELECT = "SELECT new com.pharmacy.inventory.dto.ReorderPointDTO(r.id, m.id, m.name, " +
+            "b.id, b.name, r.reorderLevel, r.updatedAt) FROM ReorderPoint r JOIN r.medicine m LEFT JOIN r.branch b ";
+    
+    @Query(REORDER_POINT_DTO_SELECT + "ORDER BY m.name, b.name NULLS FIRST")
+    List<ReorderPointDTO> findAllDTOs();
+    
+    @Query(REORDER_POINT_DTO_SELECT + "WHERE r.id = :id")
+    Optional<ReorderPointDTO> findDTOById(@Param("id") UUID id);
+}
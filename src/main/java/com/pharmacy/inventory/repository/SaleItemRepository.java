@@ -1,13 +1,16 @@
 package com.pharmacy.inventory.repository;
 
+import com.pharmacy.inventory.dto.SaleItemDTO;
 import com.pharmacy.inventory.model.Medicine;
 import com.pharmacy.inventory.model.Sale;
 import com.pharmacy.inventory.model.SaleItem;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -25,4 +28,21 @@ public interface SaleItemRepository extends JpaRepository<SaleItem, UUID> {
     List<Object[]> findTopSellingMedicines(
             LocalDateTime startDate, 
             LocalDateTime endDate);
+    
+    @Query("SELECT new com.pharmacy.inventory.dto.SaleItemDTO(si.id, si.sale.id, m.id, m.name, si.quantity, si.totalPrice) " +
+           "FROM SaleItem si JOIN si.medicine m WHERE si.sale.id IN :saleIds")
+    List<SaleItemDTO> findDTOsBySaleIds(@Param("saleIds") Collection<UUID> saleIds);
+    
+    @Query("SELECT COALESCE(SUM(si.quantity), 0) FROM SaleItem si JOIN si.sale s " +
+           "WHERE s.saleDate >= :startDate AND s.saleDate < :endDate")
+    Long sumQuantityForReport(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
+    @Query("SELECT COALESCE(SUM(si.quantity), 0) FROM SaleItem si JOIN si.sale s " +
+           "WHERE s.branch.id = :branchId AND s.saleDate >= :startDate AND s.saleDate < :endDate")
+    Long sumQuantityForReportByBranch(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("branchId") UUID branchId);
 }
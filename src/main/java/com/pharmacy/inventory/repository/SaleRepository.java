@@ -1,16 +1,27 @@
 package com.pharmacy.inventory.repository;
 
+import com.pharmacy.inventory.dto.SaleDTO;
+import com.pharmacy.inventory.dto.report.ReportTotals;
 import com.pharmacy.inventory.model.Branch;
 import com.pharmacy.inventory.model.Sale;
 import com.pharmacy.inventory.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface SaleRepository extends JpaRepository<Sale, UUID> {
@@ -21,43 +32,100 @@ public interface SaleRepository extends JpaRepository<Sale, UUID> {
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     
-    // Alias for findSalesInDateRange to match method call in ReportServiceImpl
-    default List<Sale> findByCreatedAtBetween(LocalDateTime startDate, LocalDateTime endDate) {
-        return findSalesInDateRange(startDate, endDate);
-    }
-            
     @Query("SELECT s FROM Sale s WHERE s.branch.id = :branchId")
     List<Sale> findByBranchId(@Param("branchId") UUID branchId);
     
     @Query("SELECT s FROM Sale s WHERE s.user.id = :userId")
     List<Sale> findByUserId(@Param("userId") UUID userId);
     
-    @Query("SELECT SUM(s.totalAmount) FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate")
-    Double calculateTotalSalesAmount(
+    @Query("SELECT s FROM Sale s WHERE s.branch.id = :branchId AND s.saleDate BETWEEN :startDate AND :endDate")
+    List<Sale> findByBranchAndDateRange(
+            @Param("branchId") UUID branchId,
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     
-    // Method needed by SaleServiceImpl
-    default Double getSalesTotalInDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return calculateTotalSalesAmount(startDate, endDate);
-    }
+    @Query("SELECT s FROM Sale s WHERE LOWER(s.customerName) LIKE LOWER(CONCAT('%', :customerName, '%'))")
+    List<Sale> findByCustomerNameContainingIgnoreCase(@Param("customerName") String customerName);
+    
+    // Read-model projections: sale headers come from one query, their lines from one more
+    // (see SaleItemRepository.findDTOsBySaleIds), whatever the number of sales
+    String SALE_DTO_SELECT = "SELECT new com.pharmacy.inventory.dto.SaleDTO(s.id, u.id, u.name, b.id, b.name, " +
+            "s.saleDate, s.totalAmount, s.customerName, s.createdAt) FROM Sale s JOIN s.user u LEFT JOIN s.branch b ";
     
-    @Query("SELECT COUNT(s) FROM Sale s WHERE s.saleDate BETWEEN :startDate AND :endDate")
-    Long countSalesInDateRange(
+    @Query(SALE_DTO_SELECT + "ORDER BY s.createdAt DESC, s.id DESC")
+    List<SaleDTO> findAllSaleDTOs();
+    
+    @Query(SALE_DTO_SELECT + "WHERE u.id = :userId ORDER BY s.createdAt DESC, s.id DESC")
+    List<SaleDTO> findSaleDTOsByUserId(@Param("userId") UUID userId);
+    
+    @Query(SALE_DTO_SELECT + "WHERE s.saleDate BETWEEN :startDate AND :endDate ORDER BY s.createdAt DESC, s.id DESC")
+    List<SaleDTO> findSaleDTOsInDateRange(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     
-    @Query("SELECT s FROM Sale s WHERE s.branch.id = :branchId AND s.saleDate BETWEEN :startDate AND :endDate")
-    List<Sale> findByBranchAndDateRange(
-            @Param("branchId") UUID branchId,
+    @Query(SALE_DTO_SELECT + "WHERE LOWER(s.customerName) LIKE LOWER(CONCAT('%', :customerName, '%')) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<SaleDTO> findSaleDTOsByCustomerName(@Param("customerName") String customerName);
+    
+    // Ranked customer search: exact name first, then names starting with the term, then
+    // names with a word starting with it, then any other match; newest first within each.
+    // LOWER(customer_name) is covered by a B-tree and, with pg_trgm, a trigram index
+    // (see SearchIndexInitializer)
+    String CUSTOMER_RANK = "ORDER BY CASE WHEN LOWER(s.customerName) = :term THEN 0 " +
+            "WHEN LOWER(s.customerName) LIKE :prefix ESCAPE '!' THEN 1 " +
+            "WHEN LOWER(s.customerName) LIKE :wordPrefix ESCAPE '!' THEN 2 ELSE 3 END, " +
+            "s.createdAt DESC, s.id DESC";
+    
+    @Query(SALE_DTO_SELECT + "WHERE LOWER(s.customerName) IN :names " + CUSTOMER_RANK)
+    Slice<SaleDTO> searchByCustomerNames(@Param("names") Collection<String> names, @Param("term") String term,
+                                         @Param("prefix") String prefix, @Param("wordPrefix") String wordPrefix,
+                                         Pageable pageable);
+    
+    @Query(SALE_DTO_SELECT + "WHERE LOWER(s.customerName) LIKE :contains ESCAPE '!' " + CUSTOMER_RANK)
+    Slice<SaleDTO> searchByCustomerNameLike(@Param("contains") String contains, @Param("term") String term,
+                                            @Param("prefix") String prefix, @Param("wordPrefix") String wordPrefix,
+                                            Pageable pageable);
+    
+    @Query("SELECT LOWER(s.customerName), COUNT(s) FROM Sale s WHERE s.customerName IS NOT NULL " +
+           "GROUP BY LOWER(s.customerName)")
+    List<Object[]> countRowsByLowerCustomerName();
+    
+    // Keyset pagination, newest first; the row-value comparison is one range scan of the (created_at, id) index
+    @Query(SALE_DTO_SELECT + "ORDER BY s.createdAt DESC, s.id DESC")
+    List<SaleDTO> findFirstPage(Pageable pageable);
+    
+    @Query(SALE_DTO_SELECT + "WHERE (s.createdAt, s.id) < (:createdAt, :id) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<SaleDTO> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id, Pageable pageable);
+    
+    // Report streams: rows are pulled from an open cursor in fetch-size chunks and never
+    // attached to the persistence context, so callers must consume them inside a transaction
+    String REPORT_FETCH_SIZE = "500";
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query(SALE_DTO_SELECT + "WHERE s.saleDate >= :startDate AND s.saleDate < :endDate ORDER BY s.saleDate, s.id")
+    Stream<SaleDTO> streamSaleDTOsForReport(
             @Param("startDate") LocalDateTime startDate,
             @Param("endDate") LocalDateTime endDate);
     
-    // Alias for findByBranchAndDateRange to match method call in ReportServiceImpl
-    default List<Sale> findByCreatedAtBetweenAndBranchId(LocalDateTime startDate, LocalDateTime endDate, UUID branchId) {
-        return findByBranchAndDateRange(branchId, startDate, endDate);
-    }
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query(SALE_DTO_SELECT + "WHERE b.id = :branchId AND s.saleDate >= :startDate AND s.saleDate < :endDate " +
+           "ORDER BY s.saleDate, s.id")
+    Stream<SaleDTO> streamSaleDTOsForReportByBranch(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("branchId") UUID branchId);
     
-    @Query("SELECT s FROM Sale s WHERE UPPER(s.customerName) LIKE UPPER(CONCAT('%', :customerName, '%'))")
-    List<Sale> findByCustomerNameContainingIgnoreCase(@Param("customerName") String customerName);
+    @Query("SELECT new com.pharmacy.inventory.dto.report.ReportTotals(COUNT(s), COALESCE(SUM(s.totalAmount), 0)) " +
+           "FROM Sale s WHERE s.saleDate >= :startDate AND s.saleDate < :endDate")
+    ReportTotals summarizeForReport(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate);
+    
+    @Query("SELECT new com.pharmacy.inventory.dto.report.ReportTotals(COUNT(s), COALESCE(SUM(s.totalAmount), 0)) " +
+           "FROM Sale s WHERE s.branch.id = :branchId AND s.saleDate >= :startDate AND s.saleDate < :endDate")
+    ReportTotals summarizeForReportByBranch(
+            @Param("startDate") LocalDateTime startDate,
+            @Param("endDate") LocalDateTime endDate,
+            @Param("branchId") UUID branchId);
 }
@@ -1,42 +1,162 @@
 package com.pharmacy.inventory.repository;
 
+import com.pharmacy.inventory.dto.StockBalance;
+import com.pharmacy.inventory.dto.StockDTO;
+import com.pharmacy.inventory.dto.StockLevel;
+import com.pharmacy.inventory.dto.report.ReportTotals;
 import com.pharmacy.inventory.model.Batch;
 import com.pharmacy.inventory.model.Medicine;
 import com.pharmacy.inventory.model.Stock;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.QueryHint;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static com.pharmacy.inventory.repository.SaleRepository.REPORT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface StockRepository extends JpaRepository<Stock, UUID> {
+    // Listing queries fetch medicine, batch and branch in the same statement
+    // so mapping rows to StockDTO does not trigger a query per row
+    @EntityGraph(attributePaths = {"medicine", "batch", "branch"})
+    @Query("SELECT s FROM Stock s")
+    List<Stock> findAllWithDetails();
+    
+    @EntityGraph(attributePaths = {"medicine", "batch", "branch"})
     List<Stock> findByMedicine(Medicine medicine);
     Optional<Stock> findByBatch(Batch batch);
     
-    @Query("SELECT s FROM Stock s WHERE s.currentQuantity <= 10")
-    List<Stock> findLowStockItems();
-    
+    @EntityGraph(attributePaths = {"medicine", "batch", "branch"})
     @Query("SELECT s FROM Stock s JOIN s.medicine m WHERE m.category = :category")
     List<Stock> findStockByMedicineCategory(String category);
     
+    @EntityGraph(attributePaths = {"medicine", "batch", "branch"})
     @Query("SELECT s FROM Stock s JOIN s.batch b JOIN s.medicine m " +
            "WHERE b.expiryDate <= CURRENT_DATE + 90 ORDER BY b.expiryDate ASC")
     List<Stock> findStockExpiringInThreeMonths();
     
     // Branch-specific queries
+    @EntityGraph(attributePaths = {"medicine", "batch", "branch"})
     List<Stock> findByBranchId(UUID branchId);
     
+    @EntityGraph(attributePaths = {"medicine", "batch", "branch"})
+    List<Stock> findByBranchIdAndIdIn(UUID branchId, Collection<UUID> ids);
+    
     List<Stock> findByBranchIdAndCurrentQuantityGreaterThan(UUID branchId, Integer quantity);
     
     List<Stock> findByCurrentQuantityGreaterThan(Integer quantity);
     
-    @Query("SELECT s FROM Stock s WHERE s.currentQuantity <= 10 AND s.branch.id = :branchId")
-    List<Stock> findLowStockItemsByBranch(@Param("branchId") UUID branchId);
-    
     @Query("SELECT s FROM Stock s JOIN s.medicine m WHERE UPPER(m.name) LIKE UPPER(CONCAT('%', :keyword, '%')) AND s.branch.id = :branchId")
     List<Stock> findByMedicineNameContainingAndBranch(@Param("keyword") String keyword, @Param("branchId") UUID branchId);
+    
+    // Allocation support: every sellable row of a medicine at a branch with its batch expiry,
+    // expired batches excluded; callers order the rows first-expiry-first-out
+    @Query("SELECT new com.pharmacy.inventory.dto.StockLevel(s.id, b.id, b.batchNumber, b.expiryDate, s.currentQuantity) " +
+           "FROM Stock s JOIN s.batch b " +
+           "WHERE s.branch.id = :branchId AND s.medicine.id = :medicineId AND s.currentQuantity > 0 " +
+           "AND (b.expiryDate IS NULL OR b.expiryDate >= :today)")
+    List<StockLevel> findAvailableStockLevels(@Param("branchId") UUID branchId, @Param("medicineId") UUID medicineId,
+                                              @Param("today") LocalDate today);
+    
+    // Sale returns: every row of a medicine at a branch, empty and expired ones included,
+    // first-expiry-first-out
+    @Query("SELECT new com.pharmacy.inventory.dto.StockLevel(s.id, b.id, b.batchNumber, b.expiryDate, s.currentQuantity) " +
+           "FROM Stock s LEFT JOIN s.batch b " +
+           "WHERE s.branch.id = :branchId AND s.medicine.id = :medicineId " +
+           "ORDER BY b.expiryDate ASC NULLS LAST, s.id")
+    List<StockLevel> findStockLevels(@Param("branchId") UUID branchId, @Param("medicineId") UUID medicineId);
+    
+    Optional<Stock> findFirstByBranchIdAndBatchId(UUID branchId, UUID batchId);
+    
+    @Query("SELECT s.currentQuantity FROM Stock s WHERE s.id = :stockId")
+    Integer findCurrentQuantityById(@Param("stockId") UUID stockId);
+    
+    // Row locks in id order, the order transfers lock in as well. Every writer that changes
+    // several stock rows in one transaction locks them this way first, so writers wanting
+    // overlapping rows queue behind each other instead of deadlocking
+    @Query(value = "SELECT s.id FROM stock s WHERE s.branch_id = :branchId AND s.medicine_id IN (:medicineIds) " +
+                   "ORDER BY s.id FOR UPDATE", nativeQuery = true)
+    List<UUID> lockByBranchAndMedicines(@Param("branchId") UUID branchId,
+                                        @Param("medicineIds") Collection<UUID> medicineIds);
+    
+    @Query(value = "SELECT s.id FROM stock s WHERE s.branch_id = :branchId AND s.batch_id IN (:batchIds) " +
+                   "ORDER BY s.id FOR UPDATE", nativeQuery = true)
+    List<UUID> lockByBranchAndBatches(@Param("branchId") UUID branchId, @Param("batchIds") Collection<UUID> batchIds);
+    
+    // Conditional decrement: only succeeds while enough quantity is left, so concurrent
+    // tills can never drive a row negative or overwrite each other's deductions. Both
+    // updates bump the version so entity writes based on an older read are rejected, and
+    // return the new version, or null when no row was updated, for the change events.
+    @Query(value = "UPDATE stock SET current_quantity = current_quantity - :quantity, last_updated = :now, " +
+                   "version = version + 1 WHERE id = :stockId AND current_quantity >= :quantity RETURNING version",
+           nativeQuery = true)
+    Long decrementQuantity(@Param("stockId") UUID stockId, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+    
+    @Query(value = "UPDATE stock SET current_quantity = current_quantity + :quantity, last_updated = :now, " +
+                   "version = version + 1 WHERE id = :stockId RETURNING version", nativeQuery = true)
+    Long incrementQuantity(@Param("stockId") UUID stockId, @Param("quantity") int quantity, @Param("now") LocalDateTime now);
+    
+    // Stock ledger support: identity, quantity and version only, no entity graph
+    String STOCK_BALANCE_SELECT = "SELECT new com.pharmacy.inventory.dto.StockBalance(s.id, br.id, m.id, b.id, s.currentQuantity, s.version) " +
+            "FROM Stock s LEFT JOIN s.branch br LEFT JOIN s.medicine m LEFT JOIN s.batch b ";
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query(STOCK_BALANCE_SELECT)
+    Stream<StockBalance> streamStockBalances();
+    
+    @Query(STOCK_BALANCE_SELECT + "WHERE s.id = :stockId")
+    Optional<StockBalance> findStockBalance(@Param("stockId") UUID stockId);
+    
+    @Query("SELECT COALESCE(SUM(s.currentQuantity), 0) FROM Stock s " +
+           "WHERE s.branch.id = :branchId AND s.medicine.id = :medicineId")
+    long sumQuantity(@Param("branchId") UUID branchId, @Param("medicineId") UUID medicineId);
+    
+    // Keyset pagination, newest first; the row-value comparison is one range scan of the (created_at, id) index
+    @EntityGraph(attributePaths = {"medicine", "batch", "branch"})
+    @Query("SELECT s FROM Stock s ORDER BY s.createdAt DESC, s.id DESC")
+    List<Stock> findFirstPage(Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"medicine", "batch", "branch"})
+    @Query("SELECT s FROM Stock s WHERE (s.createdAt, s.id) < (:createdAt, :id) " +
+           "ORDER BY s.createdAt DESC, s.id DESC")
+    List<Stock> findPageAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") UUID id, Pageable pageable);
+    
+    // Inventory report: rows at or above minQuantity (0 keeps empty rows, 1 drops them)
+    String STOCK_DTO_SELECT = "SELECT new com.pharmacy.inventory.dto.StockDTO(s.id, m.id, m.name, b.id, b.batchNumber, " +
+            "b.expiryDate, br.id, br.name, s.currentQuantity, s.lastUpdated, s.createdAt) " +
+            "FROM Stock s JOIN s.medicine m LEFT JOIN s.batch b LEFT JOIN s.branch br ";
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query(STOCK_DTO_SELECT + "WHERE s.currentQuantity >= :minQuantity ORDER BY m.name, b.expiryDate, s.id")
+    Stream<StockDTO> streamStockDTOsForReport(@Param("minQuantity") int minQuantity);
+    
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = REPORT_FETCH_SIZE))
+    @Query(STOCK_DTO_SELECT + "WHERE br.id = :branchId AND s.currentQuantity >= :minQuantity " +
+           "ORDER BY m.name, b.expiryDate, s.id")
+    Stream<StockDTO> streamStockDTOsForReportByBranch(@Param("minQuantity") int minQuantity,
+                                                      @Param("branchId") UUID branchId);
+    
+    @Query("SELECT new com.pharmacy.inventory.dto.report.ReportTotals(COUNT(s), COALESCE(SUM(s.currentQuantity), 0), " +
+           "COALESCE(SUM(s.currentQuantity * m.unitPrice), 0)) " +
+           "FROM Stock s JOIN s.medicine m WHERE s.currentQuantity >= :minQuantity")
+    ReportTotals summarizeForReport(@Param("minQuantity") int minQuantity);
+    
+    @Query("SELECT new com.pharmacy.inventory.dto.report.ReportTotals(COUNT(s), COALESCE(SUM(s.currentQuantity), 0), " +
+           "COALESCE(SUM(s.currentQuantity * m.unitPrice), 0)) " +
+           "FROM Stock s JOIN s.medicine m WHERE s.branch.id = :branchId AND s.currentQuantity >= :minQuantity")
+    ReportTotals summarizeForReportByBranch(@Param("minQuantity") int minQuantity, @Param("branchId") UUID branchId);
 }
@@ -0,0 +1,18 @@
+package com.pharmacy.inventory.repository;
+
+import com.pharmacy.inventory.model.StockSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StockSnapshotRepository extends JpaRepository<StockSnapshot, UUID> {
+
+    Optional<StockSnapshot> findFirstByOrderByTakenAtDesc();
+
+    // Latest snapshot a point-in-time query can start from
+    Optional<StockSnapshot> findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(LocalDateTime at);
+}
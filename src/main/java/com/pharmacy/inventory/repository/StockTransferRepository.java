@@ -1,9 +1,17 @@
 package com.pharmacy.inventory.repository;
 
+import com.pharmacy.inventory.dto.StockTransferDTO;
 import com.pharmacy.inventory.model.StockTransfer;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import jakarta.persistence.LockModeType;
+
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -43,4 +51,62 @@ public interface StockTransferRepository extends JpaRepository<StockTransfer, UU
      * @return List of stock transfers
      */
     List<StockTransfer> findByStatus(StockTransfer.TransferStatus status);
+    
+    /**
+     * Projection shared by the read-model queries below; branches, medicine and users
+     * are joined in so a listing is a single query
+     */
+    String TRANSFER_DTO_SELECT = "SELECT new com.pharmacy.inventory.dto.StockTransferDTO(t.id, fb.id, fb.name, " +
+            "tb.id, tb.name, m.id, m.name, t.quantity, t.requestDate, t.completionDate, t.status, " +
+            "rb.id, rb.name, pb.id, pb.name, t.notes) FROM StockTransfer t JOIN t.fromBranch fb JOIN t.toBranch tb " +
+            "JOIN t.medicine m LEFT JOIN t.requestedBy rb LEFT JOIN t.processedBy pb ";
+    
+    /**
+     * Find all stock transfers as read models, newest request first
+     * 
+     * @return List of stock transfer DTOs
+     */
+    @Query(TRANSFER_DTO_SELECT + "ORDER BY t.requestDate DESC")
+    List<StockTransferDTO> findAllDTOs();
+    
+    /**
+     * Find stock transfers from a specific branch as read models
+     * 
+     * @param branchId Source branch ID
+     * @return List of stock transfer DTOs
+     */
+    @Query(TRANSFER_DTO_SELECT + "WHERE fb.id = :branchId ORDER BY t.requestDate DESC")
+    List<StockTransferDTO> findDTOsByFromBranchId(@Param("branchId") UUID branchId);
+    
+    /**
+     * Find stock transfers to a specific branch as read models
+     * 
+     * @param branchId Destination branch ID
+     * @return List of stock transfer DTOs
+     */
+    @Query(TRANSFER_DTO_SELECT + "WHERE tb.id = :branchId ORDER BY t.requestDate DESC")
+    List<StockTransferDTO> findDTOsByToBranchId(@Param("branchId") UUID branchId);
+    
+    /**
+     * Lock the given transfers that are still pending, in id order so concurrent batches
+     * acquire them in the same sequence
+     * 
+     * @param ids Transfer IDs
+     * @return Locked pending transfers
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM StockTransfer t WHERE t.id IN :ids " +
+           "AND t.status = com.pharmacy.inventory.model.StockTransfer.TransferStatus.PENDING ORDER BY t.id")
+    List<StockTransfer> lockPendingByIds(@Param("ids") Collection<UUID> ids);
+    
+    /**
+     * Lock the oldest pending transfers, up to the page size
+     * 
+     * @param pageable Page holding the batch size
+     * @return Locked pending transfers
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT t FROM StockTransfer t " +
+           "WHERE t.status = com.pharmacy.inventory.model.StockTransfer.TransferStatus.PENDING ORDER BY t.id")
+    List<StockTransfer> lockPending(Pageable pageable);
 }
@@ -1,9 +1,14 @@
 package com.pharmacy.inventory.repository;
 
+import com.pharmacy.inventory.model.ERole;
 import com.pharmacy.inventory.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -12,4 +17,7 @@ public interface UserRepository extends JpaRepository<User, UUID> {
     Optional<User> findByEmail(String email);
     Boolean existsByEmail(String email);
     Optional<User> findByUsername(String username);
+    
+    @Query("SELECT DISTINCT u FROM User u JOIN u.roles r WHERE r.name IN :roles")
+    List<User> findByRoleNames(@Param("roles") Collection<ERole> roles);
 }
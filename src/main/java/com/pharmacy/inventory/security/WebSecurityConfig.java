@@ -80,6 +80,8 @@ public class WebSecurityConfig {
                     .requestMatchers("/swagger-ui/**", "/swagger-ui.html").permitAll()
                     .requestMatchers("/api/test/users").permitAll() // Allow access to test users endpoint
                     .requestMatchers("/error").permitAll()
+                    .requestMatchers("/actuator/health").permitAll()
+                    .requestMatchers("/actuator/**").hasRole("ADMIN")
                     // All other endpoints require authentication
                     .anyRequest().authenticated()
             );
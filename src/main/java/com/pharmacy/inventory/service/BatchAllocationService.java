@@ -0,0 +1,43 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.AllocationPlan;
+
+import java.util.UUID;
+
+/**
+ * Chooses which batches a quantity of medicine should be drawn from, earliest expiry first.
+ * Plans are advisory: callers apply them with conditional updates and fall back to
+ * {@link #allocateFromDatabase} when the in-memory view turns out to be stale.
+ */
+public interface BatchAllocationService {
+    
+    /**
+     * Plan a quantity against the cached per-(branch, medicine) batch queue, loading it on first use
+     * 
+     * @param branchId Branch to draw from
+     * @param medicineId Medicine to draw
+     * @param quantity Quantity wanted
+     * @return Plan covering as much of the quantity as is available, expired batches skipped
+     */
+    AllocationPlan allocate(UUID branchId, UUID medicineId, int quantity);
+    
+    /**
+     * Plan a quantity against the current database state without touching the cache
+     * 
+     * @param branchId Branch to draw from
+     * @param medicineId Medicine to draw
+     * @param quantity Quantity wanted
+     * @return Plan covering as much of the quantity as is available, expired batches skipped
+     */
+    AllocationPlan allocateFromDatabase(UUID branchId, UUID medicineId, int quantity);
+    
+    /**
+     * Drop the cached queue of one medicine at one branch
+     */
+    void invalidate(UUID branchId, UUID medicineId);
+    
+    /**
+     * Drop the cached queues of a medicine at every branch, after the current transaction commits
+     */
+    void invalidateMedicine(UUID medicineId);
+}
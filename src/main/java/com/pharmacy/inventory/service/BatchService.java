@@ -16,6 +16,11 @@ public interface BatchService {
     List<Batch> findBatchesExpiringInOneMonth();
     List<Batch> findBatchesExpiringInThreeMonths();
     Batch addBatch(Batch batch);
-    Batch updateBatch(UUID id, Batch batch);
+    
+    /**
+     * @param expectedVersion Version the update was based on, or null to accept the current one
+     * @throws com.pharmacy.inventory.exception.VersionConflictException If the batch has moved past expectedVersion
+     */
+    Batch updateBatch(UUID id, Batch batch, Long expectedVersion);
     void deleteBatch(UUID id);
 }
@@ -0,0 +1,20 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.request.BulkSaleRequest;
+import com.pharmacy.inventory.dto.response.BulkSaleResponse;
+
+/**
+ * Service for ingesting large batches of sales, e.g. from POS terminals coming back online
+ */
+public interface BulkSaleService {
+    
+    /**
+     * Record every valid sale in the request and report the outcome of each one
+     * 
+     * @param request Sales to record
+     * @return Per-sale results in request order
+     * @throws com.pharmacy.inventory.exception.ServiceBusyException if too many bulk uploads are already running
+     * @throws IllegalArgumentException if the request holds more sales than allowed
+     */
+    BulkSaleResponse createSales(BulkSaleRequest request);
+}
@@ -0,0 +1,20 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.response.CatalogueChanges;
+
+/**
+ * Delta feed over the catalogue (medicines, branches and suppliers) for clients
+ * that keep a local copy and poll for updates.
+ */
+public interface CatalogueChangeService {
+
+    /**
+     * Get what changed since a version returned by an earlier call
+     *
+     * @param since Version from the last response, or null on first use
+     * @return Changed and deleted rows, or the whole catalogue with reset set when
+     *         since is missing, malformed, from before the database was recreated or too
+     *         old to replay
+     */
+    CatalogueChanges getChangesSince(String since);
+}
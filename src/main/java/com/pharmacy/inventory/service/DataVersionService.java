@@ -0,0 +1,103 @@
+package com.pharmacy.inventory.service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Per-table change counters, kept in the database so every instance of the
+ * application sees the same ones. Each counter moves forward once for every
+ * committed transaction that wrote to its table, so anything derived from a table
+ * (a cached report, an ETag) is current for as long as the counter has not moved.
+ */
+public interface DataVersionService {
+    
+    enum DataSet {
+        SALES,
+        STOCK,
+        BATCHES,
+        MEDICINES,
+        BRANCHES,
+        PURCHASE_ORDERS,
+        SUPPLIERS,
+        USERS
+    }
+    
+    /**
+     * Rows changed in a data set since a given version
+     *
+     * @param version Version the changes bring the caller up to
+     * @param changed IDs inserted or updated, and not deleted since
+     * @param deleted IDs deleted
+     */
+    record Changes(long version, Set<UUID> changed, Set<UUID> deleted) {}
+
+    /**
+     * @return Identifier of this database; versions from before it was recreated mean nothing
+     */
+    String getEpoch();
+
+    /**
+     * Get the current version of a data set
+     * 
+     * @param dataSet Data set
+     * @return Its version; only ever increases for the lifetime of the database
+     */
+    long getVersion(DataSet dataSet);
+
+    /**
+     * Get the current versions of all data sets with one read
+     *
+     * @return Version per data set
+     */
+    Map<DataSet, Long> getVersions();
+
+    /**
+     * Get a strong ETag for everything derived from a data set
+     *
+     * @param dataSet Data set
+     * @return Quoted ETag made of the epoch and the current version
+     */
+    String getETag(DataSet dataSet);
+
+    /**
+     * Get when a data set last changed
+     *
+     * @param dataSet Data set
+     * @return Time of the last write, or when the database was set up if none since
+     */
+    Instant getLastModified(DataSet dataSet);
+    
+    /**
+     * Record that a data set was written. Inside a transaction the version moves
+     * when the transaction commits, and not at all if it rolls back.
+     * 
+     * @param dataSet Data set that was written
+     */
+    void markChanged(DataSet dataSet);
+
+    /**
+     * Record that a row of a data set was written. For the catalogue data sets
+     * (medicines, branches and suppliers) the row ID is kept as well, so that
+     * {@link #getChangesSince} can list it; other data sets only move their version.
+     * A catalogue version is taken inside the writing transaction, so it is held
+     * until that transaction ends and versions become visible in order.
+     *
+     * @param dataSet Data set that was written
+     * @param id ID of the row
+     * @param deleted Whether the row was deleted
+     */
+    void markChanged(DataSet dataSet, UUID id, boolean deleted);
+
+    /**
+     * List the rows of a catalogue data set changed after a version
+     *
+     * @param dataSet Medicines, branches or suppliers
+     * @param version Version the caller is up to
+     * @return Changes since, or empty if the version is from the future or older
+     *         than the retained deletions and the caller must reload in full
+     */
+    Optional<Changes> getChangesSince(DataSet dataSet, long version);
+}
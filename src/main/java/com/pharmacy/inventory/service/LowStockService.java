@@ -0,0 +1,45 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.LowStockItem;
+import com.pharmacy.inventory.dto.ReorderPointDTO;
+import com.pharmacy.inventory.dto.request.ReorderPointRequest;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reorder points and the set of (branch, medicine) pairs currently at or below them.
+ * The set is kept in memory and only changes when a stock total or a reorder level
+ * moves a pair across its threshold.
+ */
+public interface LowStockService {
+    
+    /**
+     * Items currently low, optionally limited to one branch
+     * 
+     * @param branchId Branch to list, or null for all branches
+     */
+    List<LowStockItem> getLowStockItems(UUID branchId);
+    
+    /**
+     * Items that became low since the previous call. Each crossing is handed out once;
+     * an item has to recover above its level before it can be reported again. Called
+     * inside a transaction, the items are handed out again if it does not commit.
+     */
+    List<LowStockItem> drainNewlyLow();
+    
+    /**
+     * Reorder level in effect for a medicine at a branch: the branch's own, else the
+     * medicine default, else the configured default
+     */
+    int getReorderLevel(UUID branchId, UUID medicineId);
+    
+    List<ReorderPointDTO> getReorderPoints();
+    
+    /**
+     * Create or replace the reorder point for a medicine at one branch, or its default
+     */
+    ReorderPointDTO setReorderPoint(ReorderPointRequest request);
+    
+    void deleteReorderPoint(UUID id);
+}
@@ -0,0 +1,42 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.model.Medicine;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Read-through cache of the medicine catalogue for lookups by ID on hot paths.
+ *
+ * Returned medicines are detached and shared between callers, so they may be
+ * referenced from new entities but must not be modified. Hit, miss and eviction
+ * counts are published as the "medicines" cache metrics.
+ */
+public interface MedicineCacheService {
+
+    /**
+     * Get a medicine, loading it on a miss
+     *
+     * @param id Medicine ID
+     * @return Medicine, or empty if it does not exist
+     */
+    Optional<Medicine> get(UUID id);
+
+    /**
+     * Get several medicines, loading all misses with one query
+     *
+     * @param ids Medicine IDs; nulls are ignored
+     * @return Medicines found, keyed by ID
+     */
+    Map<UUID, Medicine> getAll(Collection<UUID> ids);
+
+    /**
+     * Drop a medicine now and again once the current transaction commits, so a
+     * concurrent read of the old row cannot outlive the change
+     *
+     * @param id Medicine ID
+     */
+    void invalidate(UUID id);
+}
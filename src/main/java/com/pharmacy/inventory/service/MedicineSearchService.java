@@ -0,0 +1,40 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.model.Medicine;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory typeahead index over medicine name, category and manufacturer.
+ *
+ * Every word of a query is matched as a prefix of a word in one of the three
+ * fields, allowing one or two typing mistakes in longer words. Results are ranked
+ * with name matches ahead of category and manufacturer matches, exact words ahead
+ * of prefixes and prefixes ahead of corrected spellings.
+ */
+public interface MedicineSearchService {
+
+    /**
+     * Find the best matching medicines
+     *
+     * @param query Words as typed
+     * @param limit Maximum number of results
+     * @return Medicines, best match first, or null while the index is still loading
+     */
+    List<Medicine> search(String query, int limit);
+
+    /**
+     * Index a medicine as saved; applied once the current transaction commits
+     *
+     * @param medicine Medicine as saved, with its ID
+     */
+    void medicineSaved(Medicine medicine);
+
+    /**
+     * Drop a medicine from the index; applied once the current transaction commits
+     *
+     * @param id Medicine ID
+     */
+    void medicineDeleted(UUID id);
+}
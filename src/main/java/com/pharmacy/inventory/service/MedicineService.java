@@ -9,7 +9,7 @@ import java.util.UUID;
 public interface MedicineService {
     List<Medicine> getAllMedicines();
     Optional<Medicine> getMedicineById(UUID id);
-    List<Medicine> findMedicinesByName(String name);
+    List<Medicine> searchMedicines(String query, int limit);
     List<Medicine> findMedicinesByCategory(String category);
     List<Medicine> findMedicinesByManufacturer(String manufacturer);
     List<Medicine> findMedicinesExpiringInThreeMonths();
@@ -0,0 +1,59 @@
+package com.pharmacy.inventory.service;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * In-memory trigram index over the distinct customer and patient names on record,
+ * used to turn a substring search into an equality lookup on the matching names
+ */
+public interface NameSearchService {
+    
+    enum Field {
+        CUSTOMER_NAME,
+        PATIENT_NAME
+    }
+    
+    /**
+     * Find the distinct names containing a search term, ignoring case
+     * 
+     * @param field Name field to search
+     * @param term Search term, already trimmed and lower-cased
+     * @return Matching names in lower case, or null if the index is still loading or
+     *         the term matches too many names to be worth listing
+     */
+    List<String> findMatchingNames(Field field, String term);
+    
+    /**
+     * Record that a row's name changed. Inside a transaction the index is updated
+     * once the transaction commits.
+     * 
+     * @param field Name field written
+     * @param oldName Name before the write, or null for an insert
+     * @param newName Name after the write, or null for a delete
+     */
+    void nameChanged(Field field, String oldName, String newName);
+    
+    /**
+     * Lower-case a name the way the index, and LOWER() in the database, store it
+     * 
+     * @param name Name as stored
+     * @return Lower-cased name, or null if blank
+     */
+    static String normalize(String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        return name.toLowerCase(Locale.ROOT);
+    }
+    
+    /**
+     * Escape LIKE wildcards in a search term, for use with ESCAPE '!'
+     * 
+     * @param term Search term
+     * @return Term matching only itself inside a LIKE pattern
+     */
+    static String escapeLike(String term) {
+        return term.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+}
@@ -1,5 +1,6 @@
 package com.pharmacy.inventory.service;
 
+import com.pharmacy.inventory.dto.response.CursorPage;
 import com.pharmacy.inventory.model.Notification;
 import com.pharmacy.inventory.model.User;
 
@@ -9,6 +10,7 @@ import java.util.UUID;
 
 public interface NotificationService {
     List<Notification> getAllNotifications();
+    CursorPage<Notification> getNotificationsPage(String cursor, int size);
     Optional<Notification> getNotificationById(UUID id);
     List<Notification> getNotificationsByUser(UUID userId);
     List<Notification> getUnreadNotificationsByUser(UUID userId);
@@ -0,0 +1,41 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.model.Sale;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Domain event outbox. Events are stored with the change that raised them and
+ * delivered to {@link com.pharmacy.inventory.event.OutboxEventHandler}s in the
+ * background, at least once and in order per aggregate. Events of a type that no
+ * handler consumes are not stored at all.
+ */
+public interface OutboxService {
+    
+    String SALE = "Sale";
+    String STOCK = "Stock";
+    
+    String SALE_CREATED = "SaleCreated";
+    String SALE_UPDATED = "SaleUpdated";
+    String SALE_DELETED = "SaleDeleted";
+    String STOCK_CHANGED = "StockChanged";
+    
+    /**
+     * Record an event; must be called inside the transaction making the change
+     * 
+     * @param aggregateType Kind of entity the event is about, e.g. {@link #SALE}
+     * @param aggregateId Id of that entity; events with the same id are delivered in order
+     * @param eventType Event name handlers subscribe to
+     * @param payload Event data, stored as JSON
+     */
+    void publish(String aggregateType, UUID aggregateId, String eventType, Map<String, Object> payload);
+    
+    /**
+     * Record a sale event carrying the sale header and its lines
+     * 
+     * @param eventType {@link #SALE_CREATED}, {@link #SALE_UPDATED} or {@link #SALE_DELETED}
+     * @param sale Sale as written
+     */
+    void publishSale(String eventType, Sale sale);
+}
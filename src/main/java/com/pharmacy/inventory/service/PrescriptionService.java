@@ -2,6 +2,8 @@ package com.pharmacy.inventory.service;
 
 import com.pharmacy.inventory.dto.PrescriptionDTO;
 import com.pharmacy.inventory.dto.PrescriptionItemDTO;
+import com.pharmacy.inventory.dto.response.CursorPage;
+import com.pharmacy.inventory.dto.response.SearchPage;
 import com.pharmacy.inventory.model.Prescription;
 import com.pharmacy.inventory.model.PrescriptionItem;
 import org.springframework.web.multipart.MultipartFile;
@@ -45,6 +47,8 @@ public interface PrescriptionService {
      */
     List<Prescription> getAllPrescriptions();
     
+    CursorPage<Prescription> getPrescriptionsPage(String cursor, int size);
+    
     /**
      * Add a prescription item to a prescription
      * 
@@ -115,6 +119,16 @@ public interface PrescriptionService {
      */
     List<Prescription> getPrescriptionsByPatientName(String patientName);
     
+    /**
+     * Search prescriptions by any part of the patient name, best matches first
+     * 
+     * @param query The text to look for in patient names
+     * @param page Zero-based page number
+     * @param size Page size
+     * @return One page of matching prescriptions
+     */
+    SearchPage<Prescription> searchPrescriptionsByPatientName(String query, int page, int size);
+    
     /**
      * Get prescriptions within a date range
      * 
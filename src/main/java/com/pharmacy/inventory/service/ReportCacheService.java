@@ -0,0 +1,22 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.ReportSpec;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Serves rendered reports from memory while the data behind them is unchanged
+ */
+public interface ReportCacheService {
+    
+    /**
+     * Write a report, from the cache if an identical one was rendered since the
+     * tables it reads last changed, otherwise by generating it (and caching the result)
+     * 
+     * @param spec Report type, format and parameters
+     * @param outputStream The output stream to write the report to
+     * @throws IOException if writing a cached report fails
+     */
+    void render(ReportSpec spec, OutputStream outputStream) throws IOException;
+}
@@ -0,0 +1,60 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.ReportSpec;
+import com.pharmacy.inventory.dto.response.ReportJobResponse;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+/**
+ * Service for generating reports in the background and handing out the finished files.
+ * Jobs are visible only to the user who submitted them and to administrators.
+ */
+public interface ReportJobService {
+    
+    /**
+     * Queue a report for generation
+     * 
+     * @param spec Report type, format and parameters
+     * @return The queued job
+     * @throws IllegalArgumentException if the spec is incomplete
+     * @throws com.pharmacy.inventory.exception.ServiceBusyException if the job queue is full
+     */
+    ReportJobResponse submit(ReportSpec spec);
+    
+    /**
+     * Get the status and progress of a job
+     * 
+     * @param jobId Job ID
+     * @return The job
+     * @throws com.pharmacy.inventory.exception.ResourceNotFoundException if no such job is visible to the caller
+     */
+    ReportJobResponse getJob(UUID jobId);
+    
+    /**
+     * Get the finished file of a completed job
+     * 
+     * @param jobId Job ID
+     * @return Path of the report file
+     * @throws com.pharmacy.inventory.exception.ResourceNotFoundException if no such job is visible to the caller
+     * @throws IllegalStateException if the job has not completed
+     */
+    Path getResultFile(UUID jobId);
+    
+    /**
+     * Get the spec a job was submitted with
+     * 
+     * @param jobId Job ID
+     * @return The spec
+     * @throws com.pharmacy.inventory.exception.ResourceNotFoundException if no such job is visible to the caller
+     */
+    ReportSpec getSpec(UUID jobId);
+    
+    /**
+     * Cancel a job if it is still running and delete its file
+     * 
+     * @param jobId Job ID
+     * @throws com.pharmacy.inventory.exception.ResourceNotFoundException if no such job is visible to the caller
+     */
+    void deleteJob(UUID jobId);
+}
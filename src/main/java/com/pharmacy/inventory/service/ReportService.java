@@ -1,5 +1,7 @@
 package com.pharmacy.inventory.service;
 
+import com.pharmacy.inventory.dto.ReportSpec;
+
 import java.io.OutputStream;
 import java.time.LocalDate;
 import java.util.UUID;
@@ -122,4 +124,12 @@ public interface ReportService {
      * @param outputStream The output stream to write the Excel report to
      */
     void generateProfitLossReportExcel(LocalDate startDate, LocalDate endDate, UUID branchId, OutputStream outputStream);
+    
+    /**
+     * Generate whichever report the spec describes, in its format
+     * 
+     * @param spec Report type, format and parameters
+     * @param outputStream The output stream to write the report to
+     */
+    void generateReport(ReportSpec spec, OutputStream outputStream);
 }
@@ -1,5 +1,9 @@
 package com.pharmacy.inventory.service;
 
+import com.pharmacy.inventory.dto.SaleDTO;
+import com.pharmacy.inventory.dto.report.ReportTotals;
+import com.pharmacy.inventory.dto.response.CursorPage;
+import com.pharmacy.inventory.dto.response.SearchPage;
 import com.pharmacy.inventory.model.Sale;
 
 import java.time.LocalDateTime;
@@ -8,12 +12,15 @@ import java.util.Optional;
 import java.util.UUID;
 
 public interface SaleService {
-    List<Sale> getAllSales();
+    List<SaleDTO> getAllSales();
+    CursorPage<SaleDTO> getSalesPage(String cursor, int size);
     Optional<Sale> getSaleById(UUID id);
-    List<Sale> getSalesByUserId(UUID userId);
-    List<Sale> getSalesInDateRange(LocalDateTime startDate, LocalDateTime endDate);
-    List<Sale> getSalesByCustomerName(String customerName);
+    List<SaleDTO> getSalesByUserId(UUID userId);
+    List<SaleDTO> getSalesInDateRange(LocalDateTime startDate, LocalDateTime endDate);
+    List<SaleDTO> getSalesByCustomerName(String customerName);
+    SearchPage<SaleDTO> searchSalesByCustomerName(String query, int page, int size);
     Double getSalesTotalInDateRange(LocalDateTime startDate, LocalDateTime endDate);
+    ReportTotals getSalesSummary(LocalDateTime startDate, LocalDateTime endDate, UUID branchId);
     Sale createSale(Sale sale);
     Sale updateSale(Sale sale);
     void deleteSale(UUID id);
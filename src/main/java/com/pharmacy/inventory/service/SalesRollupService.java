@@ -0,0 +1,51 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.report.ReportTotals;
+import com.pharmacy.inventory.model.Sale;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * Daily sales rollups per branch and per branch and medicine. Sale writes update
+ * them in the same transaction; a rebuild recomputes whole days from the sales
+ * table, for backfills and for sales replayed with an older sale date.
+ */
+public interface SalesRollupService {
+    
+    /**
+     * Add sales to the rollups of their sale day
+     * 
+     * @param sales Sales just written, with their items
+     */
+    void recordSales(Collection<Sale> sales);
+    
+    /**
+     * Take a sale back out of the rollups, before it is changed or deleted
+     * 
+     * @param sale Sale as currently stored
+     */
+    void reverseSale(Sale sale);
+    
+    /**
+     * Sales count, units and amount for sales dated in [start, end). Whole days come
+     * from the rollups; only the partial days at either end are read from sales.
+     * 
+     * @param start Start of the range, inclusive
+     * @param end End of the range, exclusive
+     * @param branchId Branch to restrict to, or null for all branches
+     * @return Totals for the range
+     */
+    ReportTotals summarize(LocalDateTime start, LocalDateTime end, UUID branchId);
+    
+    /**
+     * Recompute the rollups of a range of days from the sales table
+     * 
+     * @param startDate First day to rebuild
+     * @param endDate Last day to rebuild, inclusive
+     * @return Number of days rebuilt
+     */
+    int rebuild(LocalDate startDate, LocalDate endDate);
+}
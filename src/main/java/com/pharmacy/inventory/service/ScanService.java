@@ -0,0 +1,53 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.response.ScanResult;
+import com.pharmacy.inventory.model.Batch;
+import com.pharmacy.inventory.model.Medicine;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Resolves scanned barcodes to the medicine and batch they identify.
+ *
+ * Understood payloads are the MED-&lt;id&gt; and BATCH-&lt;id&gt; labels printed by
+ * {@link BarcodeService}, batch numbers, manufacturer GTINs (EAN-8, UPC-A, EAN-13,
+ * GTIN-14) and GS1 element strings carrying a GTIN (01) with an optional batch (10)
+ * and expiry date (17), either raw with FNC1 separators or in the bracketed form.
+ */
+public interface ScanService {
+
+    /**
+     * @return Whether the index has been loaded; until then nothing resolves
+     */
+    boolean isReady();
+
+    /**
+     * Resolve a scanned payload
+     *
+     * @param payload Payload as the scanner sent it
+     * @param branchId Branch whose on-hand quantity to report, or null for none
+     * @return What the payload identifies, or empty if nothing known matches
+     */
+    Optional<ScanResult> resolve(String payload, UUID branchId);
+
+    /**
+     * Index a medicine as saved; applied once the current transaction commits
+     */
+    void medicineSaved(Medicine medicine);
+
+    /**
+     * Drop a medicine and its codes; applied once the current transaction commits
+     */
+    void medicineDeleted(UUID id);
+
+    /**
+     * Index a batch as saved; applied once the current transaction commits
+     */
+    void batchSaved(Batch batch);
+
+    /**
+     * Drop a batch and its batch number; applied once the current transaction commits
+     */
+    void batchDeleted(UUID id);
+}
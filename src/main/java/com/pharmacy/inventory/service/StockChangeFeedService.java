@@ -0,0 +1,28 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.response.StockChanges;
+
+import java.util.UUID;
+
+/**
+ * Per-branch delta feed over the stock table for terminals that keep a local
+ * copy of their branch's stock and poll for updates.
+ *
+ * The feed is fed by {@link com.pharmacy.inventory.event.StockChangedEvent}s and
+ * kept in the database with the writes it describes. It is compacted: only the
+ * latest change of each stock row is kept, and removed rows leave a tombstone
+ * until the retention period has passed.
+ */
+public interface StockChangeFeedService {
+
+    /**
+     * Get what changed at a branch since a version returned by an earlier call
+     *
+     * @param branchId Branch
+     * @param since Version from the last response for this branch, or null on first use
+     * @return Changed rows and removed row IDs, or every row of the branch with
+     *         reset set when since is missing, malformed, from before the database
+     *         was recreated or older than the retention period
+     */
+    StockChanges getChangesSince(UUID branchId, String since);
+}
@@ -0,0 +1,69 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.StockDeduction;
+import com.pharmacy.inventory.model.Sale;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Service that takes sold or dispensed quantities off branch stock.
+ * Must be called inside the transaction that records the sale so that
+ * a rejected line rolls back the whole checkout.
+ */
+public interface StockCheckoutService {
+    
+    /**
+     * Deduct every line of a sale from the stock of the sale's branch
+     * 
+     * @param sale Sale whose branch and items describe what to deduct
+     * @return Deductions applied, one per stock row touched
+     * @throws com.pharmacy.inventory.exception.InsufficientStockException if any line cannot be covered
+     */
+    List<StockDeduction> checkout(Sale sale);
+    
+    /**
+     * Same as {@link #checkout(Sale)} but reports a shortfall instead of throwing, after putting
+     * back anything already deducted for the sale. Lets a caller batch several sales in one
+     * transaction without one short sale rolling back the others.
+     * 
+     * @param sale Sale whose branch and items describe what to deduct
+     * @return Deductions applied, or empty if the sale could not be covered
+     */
+    Optional<List<StockDeduction>> tryCheckout(Sale sale);
+    
+    /**
+     * Lock, in one statement and in id order, every stock row the given sales may draw from.
+     * A caller checking out several sales in one transaction takes this lock first, so the
+     * transaction holds its rows in the same global order as every other stock writer.
+     * 
+     * @param sales Sales whose branches and items describe the rows to lock
+     */
+    void lockForCheckout(Collection<Sale> sales);
+    
+    /**
+     * Apply a change to what a sale draws from the stock of a branch, as when a sale is
+     * edited or deleted. Increases are deducted like a checkout; decreases are put back
+     * on the earliest batch of the medicine that can still be sold, the one checkout
+     * would have drawn them from.
+     * 
+     * @param branchId Branch the sale draws from
+     * @param deltas Change in sold quantity per medicine, negative to put stock back
+     * @throws com.pharmacy.inventory.exception.InsufficientStockException if an increase cannot be covered
+     */
+    void adjust(UUID branchId, Map<UUID, Integer> deltas);
+    
+    /**
+     * Deduct a quantity of one medicine from the stock of a branch, journaled as dispensed
+     * 
+     * @param branchId Branch to take stock from
+     * @param medicineId Medicine to take
+     * @param quantity Quantity to take
+     * @return Deductions applied, one per stock row touched
+     * @throws com.pharmacy.inventory.exception.InsufficientStockException if the quantity cannot be covered
+     */
+    List<StockDeduction> deduct(UUID branchId, UUID medicineId, int quantity);
+}
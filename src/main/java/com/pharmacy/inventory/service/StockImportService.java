@@ -0,0 +1,33 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.response.StockImportResponse;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * Service for loading goods receipts and initial branch stock from a CSV or XLSX file.
+ *
+ * The first row names the columns: medicine_name, batch_number, expiry_date and
+ * quantity are required; category, manufacturer, unit_price, prescription_required
+ * and manufacture_date are optional. Medicines are matched by name ignoring case and
+ * batches by batch number, and either is created when missing (a new medicine needs a
+ * unit_price). Catalogue columns that are filled in update an existing medicine. The
+ * quantity is added to the branch's stock of the batch.
+ */
+public interface StockImportService {
+
+    /**
+     * Import every valid row of a file into a branch and report the rows that were rejected
+     *
+     * @param branchId Branch receiving the stock
+     * @param file CSV (UTF-8, comma separated) or XLSX file; only the first sheet is read
+     * @return Totals and per-row errors
+     * @throws com.pharmacy.inventory.exception.ServiceBusyException if an import is already running
+     * @throws com.pharmacy.inventory.exception.ResourceNotFoundException if the branch does not exist
+     * @throws IllegalArgumentException if the file type or header row is not usable
+     * @throws IOException if the upload cannot be read
+     */
+    StockImportResponse importStock(UUID branchId, MultipartFile file) throws IOException;
+}
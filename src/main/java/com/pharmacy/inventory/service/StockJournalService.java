@@ -0,0 +1,35 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.response.StockAsOfReport;
+import com.pharmacy.inventory.model.StockSnapshot;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Append-only journal of stock movements, with periodic snapshots for
+ * point-in-time inventory queries.
+ *
+ * Every stock change is journaled in the transaction that makes it, from the
+ * {@link com.pharmacy.inventory.event.StockChangedEvent} the change publishes.
+ */
+public interface StockJournalService {
+
+    /**
+     * Rebuild what a branch held at a point in time
+     *
+     * @param branchId Branch to report on
+     * @param at Point in time; movements at or before it are included
+     * @return Quantity per batch with stock on hand, by medicine name and expiry
+     */
+    StockAsOfReport getStockAsOf(UUID branchId, LocalDateTime at);
+
+    /**
+     * Fold the movements since the latest snapshot into a new one. The snapshot stops
+     * short of the present by the configured settle time, so transactions still
+     * committing cannot land behind it.
+     *
+     * @return The new snapshot, or the latest one if it is already recent enough
+     */
+    StockSnapshot takeSnapshot();
+}
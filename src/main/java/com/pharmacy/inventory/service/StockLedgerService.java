@@ -0,0 +1,56 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.response.StockLedgerReport;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * In-memory on-hand quantities per (branch, medicine, batch), warmed from the stock
+ * table at startup and kept in step with committed stock writes, so availability
+ * checks at the till do not need a database round trip.
+ * 
+ * Quantities include expired batches; use {@link BatchAllocationService} to find
+ * what can actually be sold.
+ */
+public interface StockLedgerService {
+    
+    /**
+     * On-hand total of one medicine at one branch
+     */
+    record MedicineTotal(UUID branchId, UUID medicineId, long quantity) {
+    }
+    
+    /**
+     * @return Whether the ledger has finished its initial load; until then lookups go to the database
+     */
+    boolean isReady();
+    
+    /**
+     * Total quantity of a medicine on hand at a branch, across all batches
+     */
+    long getAvailable(UUID branchId, UUID medicineId);
+    
+    /**
+     * Quantity of one batch of a medicine on hand at a branch
+     */
+    long getAvailable(UUID branchId, UUID medicineId, UUID batchId);
+    
+    /**
+     * Whether a branch holds at least the given quantity of a medicine
+     */
+    boolean isInStock(UUID branchId, UUID medicineId, int quantity);
+    
+    /**
+     * Snapshot of every (branch, medicine) total the ledger holds; empty until the ledger is ready
+     */
+    List<MedicineTotal> getMedicineTotals();
+    
+    /**
+     * Compare every ledger row with the stock table
+     * 
+     * @param repair Whether rows found to differ are reloaded from the database
+     * @return Counts and a sample of the rows that differ
+     */
+    StockLedgerReport reconcile(boolean repair);
+}
@@ -0,0 +1,27 @@
+package com.pharmacy.inventory.service;
+
+import com.pharmacy.inventory.dto.TransferOutcome;
+import com.pharmacy.inventory.dto.request.StockTransferRequest;
+
+import java.util.List;
+
+/**
+ * Moves stock between branches for a set of transfers at once.
+ * 
+ * The stock rows of every (branch, medicine) involved are locked up front in one
+ * statement ordered by id, so concurrent callers always acquire them in the same
+ * order and cannot deadlock. Quantities are then worked out in memory and written
+ * back with one set-based update for existing rows and one upsert for new
+ * destination rows.
+ */
+public interface StockMovementService {
+    
+    /**
+     * Move stock for each request, earliest expiring batches first, in the caller's transaction.
+     * Requests are applied in order, so a later request can draw on stock an earlier one delivered.
+     * 
+     * @param requests Transfers to carry out
+     * @return One outcome per request, in the same order; a request the source cannot cover is not moved
+     */
+    List<TransferOutcome> transfer(List<StockTransferRequest> requests);
+}
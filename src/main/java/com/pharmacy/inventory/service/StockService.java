@@ -1,6 +1,8 @@
 package com.pharmacy.inventory.service;
 
+import com.pharmacy.inventory.dto.StockDTO;
 import com.pharmacy.inventory.dto.request.StockTransferRequest;
+import com.pharmacy.inventory.dto.response.CursorPage;
 import com.pharmacy.inventory.model.Stock;
 
 import java.util.List;
@@ -9,16 +11,26 @@ import java.util.UUID;
 
 public interface StockService {
     List<Stock> getAllStock();
+    CursorPage<StockDTO> getStockPage(String cursor, int size);
     Optional<Stock> getStockById(UUID id);
     List<Stock> getStockByMedicineId(UUID medicineId);
     Optional<Stock> getStockByBatchId(UUID batchId);
-    List<Stock> getLowStockItems();
     List<Stock> getStockByMedicineCategory(String category);
     List<Stock> getStockExpiringInThreeMonths();
     Stock addStock(Stock stock);
-    Stock updateStock(UUID id, Stock stock);
+    
+    /**
+     * @param expectedVersion Version the update was based on, or null to accept the current one
+     * @throws com.pharmacy.inventory.exception.VersionConflictException If the row has moved past expectedVersion
+     */
+    Stock updateStock(UUID id, Stock stock, Long expectedVersion);
     void deleteStock(UUID id);
-    boolean updateStockQuantity(UUID stockId, int quantity);
+    
+    /**
+     * @param expectedVersion Version the new quantity was based on, or null to accept the current one
+     * @throws com.pharmacy.inventory.exception.VersionConflictException If the row has moved past expectedVersion
+     */
+    Stock updateStockQuantity(UUID stockId, int quantity, Long expectedVersion);
     
     // New methods for stock transfer and branch-specific stock operations
     List<Stock> getStockByBranchId(UUID branchId);
@@ -1,6 +1,8 @@
 package com.pharmacy.inventory.service;
 
+import com.pharmacy.inventory.dto.StockTransferDTO;
 import com.pharmacy.inventory.dto.request.StockTransferRequest;
+import com.pharmacy.inventory.dto.response.TransferBatchResponse;
 import com.pharmacy.inventory.model.StockTransfer;
 
 import java.util.List;
@@ -16,7 +18,7 @@ public interface StockTransferService {
      * 
      * @return List of all stock transfers
      */
-    List<StockTransfer> getAllStockTransfers();
+    List<StockTransferDTO> getAllStockTransfers();
     
     /**
      * Get stock transfer by ID
@@ -32,7 +34,7 @@ public interface StockTransferService {
      * @param branchId Source branch ID
      * @return List of stock transfers from the specified branch
      */
-    List<StockTransfer> getStockTransfersBySourceBranchId(UUID branchId);
+    List<StockTransferDTO> getStockTransfersBySourceBranchId(UUID branchId);
     
     /**
      * Get stock transfers by destination branch ID
@@ -40,7 +42,7 @@ public interface StockTransferService {
      * @param branchId Destination branch ID
      * @return List of stock transfers to the specified branch
      */
-    List<StockTransfer> getStockTransfersByDestinationBranchId(UUID branchId);
+    List<StockTransferDTO> getStockTransfersByDestinationBranchId(UUID branchId);
     
     /**
      * Create a new stock transfer
@@ -74,4 +76,13 @@ public interface StockTransferService {
      * @return Updated StockTransfer entity
      */
     StockTransfer processStockTransfer(UUID id, String status);
+    
+    /**
+     * Complete a set of pending transfers in one transaction, moving their stock.
+     * Transfers the source branch cannot cover are left pending.
+     * 
+     * @param ids Transfers to complete, or empty for the oldest pending transfers up to the batch limit
+     * @return Outcome per transfer
+     */
+    TransferBatchResponse processPendingTransfers(List<UUID> ids);
 }
@@ -0,0 +1,265 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.AllocationPlan;
+import com.pharmacy.inventory.dto.StockLevel;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.BatchAllocationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps one first-expiry-first-out queue per (branch, medicine).
+ * 
+ * A queue is an immutable array of stock rows sorted by batch expiry (undated
+ * batches last, then stock id) that is replaced wholesale on every change, so
+ * planning is a lock-free walk over a handful of entries. Queues are loaded
+ * lazily and kept current from committed {@link StockChangedEvent}s; anything
+ * that cannot be applied as a delta simply drops the queue so the next caller
+ * reloads it.
+ * 
+ * A queue read from the database is only cached if no write to its (branch,
+ * medicine) was committing while it loaded. Writes count themselves in before
+ * their commit and out after it, bumping the key's generation; a load that saw
+ * the count at zero and the generation unchanged from start to finish read data
+ * that every later event still applies to. Other loads are served uncached.
+ */
+@Service
+public class BatchAllocationServiceImpl implements BatchAllocationService {
+
+    private static final Comparator<Entry> FEFO_ORDER = Comparator
+            .comparing(Entry::expiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Entry::stockId);
+
+    private final StockRepository stockRepository;
+    private final Map<LaneKey, Lane> lanes = new ConcurrentHashMap<>();
+    private final Map<LaneKey, Writes> writes = new ConcurrentHashMap<>();
+    /** Bumped whenever queues are dropped wholesale */
+    private final AtomicLong dropGeneration = new AtomicLong();
+
+    @Autowired
+    public BatchAllocationServiceImpl(StockRepository stockRepository) {
+        this.stockRepository = stockRepository;
+    }
+
+    @Override
+    public AllocationPlan allocate(UUID branchId, UUID medicineId, int quantity) {
+        LaneKey key = new LaneKey(branchId, medicineId);
+        Lane lane = lanes.get(key);
+        
+        if (lane == null) {
+            lane = loadAndCache(key);
+        }
+        
+        return lane.plan(branchId, medicineId, quantity, LocalDate.now());
+    }
+
+    @Override
+    public AllocationPlan allocateFromDatabase(UUID branchId, UUID medicineId, int quantity) {
+        return loadLane(branchId, medicineId).plan(branchId, medicineId, quantity, LocalDate.now());
+    }
+
+    @Override
+    public void invalidate(UUID branchId, UUID medicineId) {
+        LaneKey key = new LaneKey(branchId, medicineId);
+        Writes keyWrites = writesOf(key);
+        synchronized (keyWrites) {
+            keyWrites.generation++;
+            lanes.remove(key);
+        }
+    }
+
+    @Override
+    public void invalidateMedicine(UUID medicineId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    removeMedicineLanes(medicineId);
+                }
+            });
+        } else {
+            removeMedicineLanes(medicineId);
+        }
+    }
+
+    /**
+     * Counts a write in before it commits, so queues loaded while it commits are
+     * not cached; it is counted out once the transaction has completed
+     */
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT)
+    public void onStockChanging(StockChangedEvent event) {
+        if (event.getBranchId() == null || event.getMedicineId() == null) {
+            return;
+        }
+        Writes keyWrites = writesOf(new LaneKey(event.getBranchId(), event.getMedicineId()));
+        synchronized (keyWrites) {
+            keyWrites.inFlight++;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                synchronized (keyWrites) {
+                    keyWrites.inFlight--;
+                    keyWrites.generation++;
+                }
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        if (event.getBranchId() == null || event.getMedicineId() == null) {
+            if (event.getMedicineId() != null) {
+                removeMedicineLanes(event.getMedicineId());
+            } else {
+                dropGeneration.incrementAndGet();
+                lanes.clear();
+            }
+            return;
+        }
+        
+        LaneKey key = new LaneKey(event.getBranchId(), event.getMedicineId());
+        Writes keyWrites = writesOf(key);
+        synchronized (keyWrites) {
+            if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+                // Published outside a transaction, so never counted in
+                keyWrites.generation++;
+            }
+            if (event.getChangeType() == StockChangedEvent.ChangeType.ADJUSTED && event.getQuantityDelta() != null) {
+                // Returning null from the remapping function drops the queue
+                lanes.computeIfPresent(key, (k, lane) -> lane.adjust(event.getStockId(), event.getQuantityDelta()));
+            } else {
+                lanes.remove(key);
+            }
+        }
+    }
+
+    private void removeMedicineLanes(UUID medicineId) {
+        dropGeneration.incrementAndGet();
+        lanes.keySet().removeIf(key -> key.medicineId().equals(medicineId));
+    }
+
+    private Lane loadAndCache(LaneKey key) {
+        Writes keyWrites = writesOf(key);
+        long drops = dropGeneration.get();
+        long generation;
+        synchronized (keyWrites) {
+            if (keyWrites.inFlight > 0) {
+                return loadLane(key.branchId(), key.medicineId());
+            }
+            generation = keyWrites.generation;
+        }
+        
+        Lane lane = loadLane(key.branchId(), key.medicineId());
+        synchronized (keyWrites) {
+            if (keyWrites.inFlight > 0 || keyWrites.generation != generation || dropGeneration.get() != drops) {
+                return lane;
+            }
+            Lane existing = lanes.putIfAbsent(key, lane);
+            return existing != null ? existing : lane;
+        }
+    }
+
+    private Writes writesOf(LaneKey key) {
+        return writes.computeIfAbsent(key, k -> new Writes());
+    }
+
+    private Lane loadLane(UUID branchId, UUID medicineId) {
+        List<StockLevel> levels = stockRepository.findAvailableStockLevels(branchId, medicineId, LocalDate.now());
+        Entry[] entries = new Entry[levels.size()];
+        for (int i = 0; i < entries.length; i++) {
+            StockLevel level = levels.get(i);
+            entries[i] = new Entry(level.getStockId(), level.getBatchId(), level.getBatchNumber(),
+                    level.getExpiryDate(), level.getQuantity());
+        }
+        Arrays.sort(entries, FEFO_ORDER);
+        return new Lane(entries);
+    }
+
+    private record LaneKey(UUID branchId, UUID medicineId) {
+    }
+
+    /**
+     * Writes to one (branch, medicine); guarded by its own monitor
+     */
+    private static final class Writes {
+        private int inFlight;
+        private long generation;
+    }
+
+    private record Entry(UUID stockId, UUID batchId, String batchNumber, LocalDate expiryDate, int quantity) {
+    }
+
+    private static final class Lane {
+        private final Entry[] entries;
+
+        private Lane(Entry[] entries) {
+            this.entries = entries;
+        }
+
+        private AllocationPlan plan(UUID branchId, UUID medicineId, int quantity, LocalDate today) {
+            List<AllocationPlan.Line> lines = new ArrayList<>();
+            int remaining = quantity;
+            
+            for (Entry entry : entries) {
+                if (remaining == 0) {
+                    break;
+                }
+                if (entry.expiryDate() != null && entry.expiryDate().isBefore(today)) {
+                    continue;
+                }
+                
+                int take = Math.min(entry.quantity(), remaining);
+                lines.add(new AllocationPlan.Line(entry.stockId(), entry.batchId(), entry.batchNumber(),
+                        entry.expiryDate(), take));
+                remaining -= take;
+            }
+            
+            return new AllocationPlan(branchId, medicineId, quantity, quantity - remaining, lines);
+        }
+
+        /**
+         * Copy of this queue with one row's quantity changed, or null when the row
+         * is unknown and the queue has to be reloaded
+         */
+        private Lane adjust(UUID stockId, int delta) {
+            for (int i = 0; i < entries.length; i++) {
+                Entry entry = entries[i];
+                if (!entry.stockId().equals(stockId)) {
+                    continue;
+                }
+                
+                int quantity = entry.quantity() + delta;
+                if (quantity > 0) {
+                    Entry[] copy = entries.clone();
+                    copy[i] = new Entry(entry.stockId(), entry.batchId(), entry.batchNumber(),
+                            entry.expiryDate(), quantity);
+                    return new Lane(copy);
+                }
+                
+                Entry[] copy = new Entry[entries.length - 1];
+                System.arraycopy(entries, 0, copy, 0, i);
+                System.arraycopy(entries, i + 1, copy, i, entries.length - i - 1);
+                return new Lane(copy);
+            }
+            
+            // A row that was empty or unknown gained stock
+            return delta > 0 ? null : this;
+        }
+    }
+}
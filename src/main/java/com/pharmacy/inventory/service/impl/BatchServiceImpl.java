@@ -1,10 +1,14 @@
 package com.pharmacy.inventory.service.impl;
 
+import com.pharmacy.inventory.config.OptimisticRetryTemplate;
+import com.pharmacy.inventory.exception.VersionConflictException;
 import com.pharmacy.inventory.model.Batch;
 import com.pharmacy.inventory.model.Medicine;
 import com.pharmacy.inventory.repository.BatchRepository;
 import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.service.BatchAllocationService;
 import com.pharmacy.inventory.service.BatchService;
+import com.pharmacy.inventory.service.ScanService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,11 +23,19 @@ public class BatchServiceImpl implements BatchService {
 
     private final BatchRepository batchRepository;
     private final MedicineRepository medicineRepository;
+    private final BatchAllocationService batchAllocationService;
+    private final OptimisticRetryTemplate optimisticRetryTemplate;
+    private final ScanService scanService;
 
     @Autowired
-    public BatchServiceImpl(BatchRepository batchRepository, MedicineRepository medicineRepository) {
+    public BatchServiceImpl(BatchRepository batchRepository, MedicineRepository medicineRepository,
+                            BatchAllocationService batchAllocationService,
+                            OptimisticRetryTemplate optimisticRetryTemplate, ScanService scanService) {
         this.batchRepository = batchRepository;
         this.medicineRepository = medicineRepository;
+        this.batchAllocationService = batchAllocationService;
+        this.optimisticRetryTemplate = optimisticRetryTemplate;
+        this.scanService = scanService;
     }
 
     @Override
@@ -65,31 +77,55 @@ public class BatchServiceImpl implements BatchService {
     @Override
     @Transactional
     public Batch addBatch(Batch batch) {
-        return batchRepository.save(batch);
+        Batch savedBatch = batchRepository.save(batch);
+        scanService.batchSaved(savedBatch);
+        return savedBatch;
     }
 
     @Override
-    @Transactional
-    public Batch updateBatch(UUID id, Batch updatedBatch) {
-        Optional<Batch> existingBatch = batchRepository.findById(id);
-        
-        if (existingBatch.isPresent()) {
-            Batch batch = existingBatch.get();
-            batch.setBatchNumber(updatedBatch.getBatchNumber());
-            batch.setMedicine(updatedBatch.getMedicine());
-            batch.setManufactureDate(updatedBatch.getManufactureDate());
-            batch.setExpiryDate(updatedBatch.getExpiryDate());
-            batch.setQuantity(updatedBatch.getQuantity());
+    public Batch updateBatch(UUID id, Batch updatedBatch, Long expectedVersion) {
+        // Sets absolute values: a write based on the client's version reports a conflict
+        // when run again, an unconditional one is applied to the batch as it is by then
+        return optimisticRetryTemplate.execute("updateBatch", () -> {
+            Optional<Batch> existingBatch = batchRepository.findById(id);
             
-            return batchRepository.save(batch);
-        }
-        
-        return null;
+            if (existingBatch.isPresent()) {
+                Batch batch = existingBatch.get();
+                if (expectedVersion != null && !expectedVersion.equals(batch.getVersion())) {
+                    throw new VersionConflictException("Batch", id, expectedVersion, batch.getVersion());
+                }
+                // Expiry drives allocation order, so queues of the old and new medicine are rebuilt
+                invalidateAllocation(batch);
+                invalidateAllocation(updatedBatch);
+                batch.setBatchNumber(updatedBatch.getBatchNumber());
+                batch.setMedicine(updatedBatch.getMedicine());
+                batch.setManufactureDate(updatedBatch.getManufactureDate());
+                batch.setExpiryDate(updatedBatch.getExpiryDate());
+                batch.setQuantity(updatedBatch.getQuantity());
+                
+                Batch savedBatch = batchRepository.saveAndFlush(batch);
+                scanService.batchSaved(savedBatch);
+                return savedBatch;
+            }
+            
+            return null;
+        });
     }
 
     @Override
-    @Transactional
     public void deleteBatch(UUID id) {
-        batchRepository.deleteById(id);
+        optimisticRetryTemplate.executeWithoutResult("deleteBatch", () -> {
+            batchRepository.findById(id).ifPresent(batch -> {
+                invalidateAllocation(batch);
+                batchRepository.delete(batch);
+                scanService.batchDeleted(id);
+            });
+        });
+    }
+    
+    private void invalidateAllocation(Batch batch) {
+        if (batch.getMedicine() != null && batch.getMedicine().getId() != null) {
+            batchAllocationService.invalidateMedicine(batch.getMedicine().getId());
+        }
     }
 }
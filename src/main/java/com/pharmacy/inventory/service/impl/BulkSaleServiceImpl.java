@@ -0,0 +1,305 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.request.BulkSaleRequest;
+import com.pharmacy.inventory.dto.request.SaleRequest;
+import com.pharmacy.inventory.dto.response.BulkSaleResponse;
+import com.pharmacy.inventory.exception.ServiceBusyException;
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.Sale;
+import com.pharmacy.inventory.model.SaleItem;
+import com.pharmacy.inventory.model.User;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.SaleRepository;
+import com.pharmacy.inventory.repository.UserRepository;
+import com.pharmacy.inventory.service.BulkSaleService;
+import com.pharmacy.inventory.service.MedicineCacheService;
+import com.pharmacy.inventory.service.NameSearchService;
+import com.pharmacy.inventory.service.OutboxService;
+import com.pharmacy.inventory.service.SalesRollupService;
+import com.pharmacy.inventory.service.StockCheckoutService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Bulk sale ingestion.
+ * 
+ * All users, branches and medicines referenced by the request are fetched up
+ * front with one findAllById each, sales are validated in memory, and the valid
+ * ones are written in chunks, each chunk in its own transaction so inserts go
+ * out as JDBC batches. A sale that is short on stock is compensated and skipped
+ * without affecting the rest of its chunk; if a chunk fails for any other reason
+ * its sales are retried one by one. Only a few uploads may run at a time so a
+ * burst of terminals reconnecting at once is turned away with a Retry-After
+ * instead of exhausting the connection pool.
+ */
+@Service
+public class BulkSaleServiceImpl implements BulkSaleService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkSaleServiceImpl.class);
+
+    private final SaleRepository saleRepository;
+    private final UserRepository userRepository;
+    private final BranchRepository branchRepository;
+    private final MedicineCacheService medicineCacheService;
+    private final StockCheckoutService stockCheckoutService;
+    private final SalesRollupService salesRollupService;
+    private final NameSearchService nameSearchService;
+    private final OutboxService outboxService;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore uploadPermits;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Value("${app.sales.bulk.max-sales:5000}")
+    private int maxSales;
+    
+    @Value("${app.sales.bulk.chunk-size:200}")
+    private int chunkSize;
+    
+    @Value("${app.sales.bulk.retry-after-seconds:10}")
+    private int retryAfterSeconds;
+
+    @Autowired
+    public BulkSaleServiceImpl(SaleRepository saleRepository, UserRepository userRepository,
+                               BranchRepository branchRepository, MedicineCacheService medicineCacheService,
+                               StockCheckoutService stockCheckoutService, SalesRollupService salesRollupService,
+                               NameSearchService nameSearchService, OutboxService outboxService,
+                               PlatformTransactionManager transactionManager,
+                               @Value("${app.sales.bulk.max-concurrent:2}") int maxConcurrent) {
+        this.saleRepository = saleRepository;
+        this.userRepository = userRepository;
+        this.branchRepository = branchRepository;
+        this.medicineCacheService = medicineCacheService;
+        this.stockCheckoutService = stockCheckoutService;
+        this.salesRollupService = salesRollupService;
+        this.nameSearchService = nameSearchService;
+        this.outboxService = outboxService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.uploadPermits = new Semaphore(maxConcurrent);
+    }
+
+    @Override
+    public BulkSaleResponse createSales(BulkSaleRequest request) {
+        List<BulkSaleRequest.BulkSaleEntry> entries = request.getSales();
+        if (entries.size() > maxSales) {
+            throw new IllegalArgumentException("A bulk upload may contain at most " + maxSales + " sales");
+        }
+        
+        if (!uploadPermits.tryAcquire()) {
+            // Spread the retries out so reconnecting terminals do not come back in lockstep
+            int retryAfter = retryAfterSeconds + ThreadLocalRandom.current().nextInt(retryAfterSeconds + 1);
+            throw new ServiceBusyException("Too many bulk sale uploads in progress, please retry later", retryAfter);
+        }
+        
+        try {
+            return new BulkSaleResponse(process(entries));
+        } finally {
+            uploadPermits.release();
+        }
+    }
+
+    private List<BulkSaleResponse.SaleResult> process(List<BulkSaleRequest.BulkSaleEntry> entries) {
+        // Resolve every referenced row with one query per table
+        Set<UUID> userIds = new HashSet<>();
+        Set<UUID> branchIds = new HashSet<>();
+        Set<UUID> medicineIds = new HashSet<>();
+        for (BulkSaleRequest.BulkSaleEntry entry : entries) {
+            if (entry == null) {
+                continue;
+            }
+            addIfPresent(userIds, entry.getUser_id());
+            addIfPresent(branchIds, entry.getBranch_id());
+            if (entry.getSale_items() != null) {
+                for (SaleRequest.SaleItemRequest item : entry.getSale_items()) {
+                    if (item != null) {
+                        addIfPresent(medicineIds, item.getMedicine_id());
+                    }
+                }
+            }
+        }
+        
+        Map<UUID, User> users = new HashMap<>();
+        userRepository.findAllById(userIds).forEach(user -> users.put(user.getId(), user));
+        Map<UUID, Branch> branches = new HashMap<>();
+        branchRepository.findAllById(branchIds).forEach(branch -> branches.put(branch.getId(), branch));
+        Map<UUID, Medicine> medicines = medicineCacheService.getAll(medicineIds);
+        
+        BulkSaleResponse.SaleResult[] results = new BulkSaleResponse.SaleResult[entries.size()];
+        List<PendingSale> pending = new ArrayList<>();
+        LocalDateTime receivedAt = LocalDateTime.now();
+        
+        for (int i = 0; i < entries.size(); i++) {
+            BulkSaleRequest.BulkSaleEntry entry = entries.get(i);
+            String error = validate(entry, users, branches, medicines);
+            if (error != null) {
+                results[i] = new BulkSaleResponse.SaleResult(i, entry != null ? entry.getClient_reference() : null,
+                        BulkSaleResponse.Status.INVALID, null, error);
+            } else {
+                pending.add(new PendingSale(i, entry.getClient_reference(),
+                        toSale(entry, users, branches, medicines, receivedAt)));
+            }
+        }
+        
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            processChunk(pending.subList(from, Math.min(from + chunkSize, pending.size())), results);
+        }
+        
+        return Arrays.asList(results);
+    }
+
+    private void processChunk(List<PendingSale> chunk, BulkSaleResponse.SaleResult[] results) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> saveChunk(chunk, results));
+        } catch (RuntimeException e) {
+            logger.warn("Bulk sale chunk of {} failed, retrying sales individually: {}", chunk.size(), e.getMessage());
+            
+            for (PendingSale pendingSale : chunk) {
+                // Ids handed out by the rolled back attempt must not be reused
+                pendingSale.sale.setId(null);
+                pendingSale.sale.getSaleItems().forEach(item -> item.setId(null));
+                try {
+                    transactionTemplate.executeWithoutResult(status -> saveChunk(List.of(pendingSale), results));
+                } catch (RuntimeException saleFailure) {
+                    results[pendingSale.index] = new BulkSaleResponse.SaleResult(pendingSale.index,
+                            pendingSale.clientReference, BulkSaleResponse.Status.FAILED, null,
+                            "Failed to create sale: " + saleFailure.getMessage());
+                }
+            }
+        }
+    }
+
+    private void saveChunk(List<PendingSale> chunk, BulkSaleResponse.SaleResult[] results) {
+        // Every row the chunk may touch, locked in id order before the first sale takes any,
+        // so the chunk does not collect row locks in sale order
+        List<Sale> chunkSales = new ArrayList<>(chunk.size());
+        chunk.forEach(pendingSale -> chunkSales.add(pendingSale.sale));
+        stockCheckoutService.lockForCheckout(chunkSales);
+        
+        List<PendingSale> covered = new ArrayList<>();
+        for (PendingSale pendingSale : chunk) {
+            if (stockCheckoutService.tryCheckout(pendingSale.sale).isPresent()) {
+                covered.add(pendingSale);
+            } else {
+                results[pendingSale.index] = new BulkSaleResponse.SaleResult(pendingSale.index,
+                        pendingSale.clientReference, BulkSaleResponse.Status.INSUFFICIENT_STOCK, null,
+                        "Insufficient stock for one or more items");
+            }
+        }
+        
+        // Persist last so all sale and item inserts of the chunk are flushed together in batches
+        List<Sale> sales = new ArrayList<>(covered.size());
+        covered.forEach(pendingSale -> sales.add(pendingSale.sale));
+        saleRepository.saveAll(sales);
+        salesRollupService.recordSales(sales);
+        for (Sale sale : sales) {
+            nameSearchService.nameChanged(NameSearchService.Field.CUSTOMER_NAME, null, sale.getCustomerName());
+            outboxService.publishSale(OutboxService.SALE_CREATED, sale);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        
+        for (PendingSale pendingSale : covered) {
+            results[pendingSale.index] = new BulkSaleResponse.SaleResult(pendingSale.index,
+                    pendingSale.clientReference, BulkSaleResponse.Status.CREATED, pendingSale.sale.getId(), null);
+        }
+    }
+
+    private String validate(BulkSaleRequest.BulkSaleEntry entry, Map<UUID, User> users,
+                            Map<UUID, Branch> branches, Map<UUID, Medicine> medicines) {
+        if (entry == null) {
+            return "Sale entry is empty";
+        }
+        if (entry.getUser_id() == null || !users.containsKey(entry.getUser_id())) {
+            return "User not found";
+        }
+        if (entry.getBranch_id() == null || !branches.containsKey(entry.getBranch_id())) {
+            return "Branch not found";
+        }
+        if (entry.getTotal_amount() == null || entry.getTotal_amount().compareTo(BigDecimal.ZERO) <= 0) {
+            return "Total amount must be positive";
+        }
+        if (entry.getCustomer_name() != null && entry.getCustomer_name().length() > 100) {
+            return "Customer name cannot exceed 100 characters";
+        }
+        if (entry.getSale_items() == null || entry.getSale_items().isEmpty()) {
+            return "Sale must have at least one item";
+        }
+        
+        for (SaleRequest.SaleItemRequest item : entry.getSale_items()) {
+            if (item == null || item.getMedicine_id() == null || !medicines.containsKey(item.getMedicine_id())) {
+                return "Medicine not found with ID: " + (item != null ? item.getMedicine_id() : null);
+            }
+            if (item.getQuantity() == null || item.getQuantity() <= 0) {
+                return "Quantity must be positive for medicine: " + medicines.get(item.getMedicine_id()).getName();
+            }
+            if (item.getTotal_price() == null || item.getTotal_price().compareTo(BigDecimal.ZERO) <= 0) {
+                return "Total price must be positive for medicine: " + medicines.get(item.getMedicine_id()).getName();
+            }
+        }
+        
+        return null;
+    }
+
+    private Sale toSale(BulkSaleRequest.BulkSaleEntry entry, Map<UUID, User> users, Map<UUID, Branch> branches,
+                        Map<UUID, Medicine> medicines, LocalDateTime receivedAt) {
+        Sale sale = new Sale();
+        sale.setUser(users.get(entry.getUser_id()));
+        sale.setBranch(branches.get(entry.getBranch_id()));
+        sale.setTotalAmount(entry.getTotal_amount().doubleValue());
+        sale.setCustomerName(entry.getCustomer_name());
+        sale.setSaleDate(entry.getSale_date() != null ? entry.getSale_date() : receivedAt);
+        
+        List<SaleItem> saleItems = new ArrayList<>();
+        for (SaleRequest.SaleItemRequest itemRequest : entry.getSale_items()) {
+            SaleItem saleItem = new SaleItem();
+            saleItem.setSale(sale);
+            saleItem.setMedicine(medicines.get(itemRequest.getMedicine_id()));
+            saleItem.setQuantity(itemRequest.getQuantity());
+            saleItem.setTotalPrice(itemRequest.getTotal_price().doubleValue());
+            saleItems.add(saleItem);
+        }
+        sale.setSaleItems(saleItems);
+        
+        return sale;
+    }
+
+    private static void addIfPresent(Set<UUID> ids, UUID id) {
+        if (id != null) {
+            ids.add(id);
+        }
+    }
+
+    private static final class PendingSale {
+        private final int index;
+        private final String clientReference;
+        private final Sale sale;
+
+        private PendingSale(int index, String clientReference, Sale sale) {
+            this.index = index;
+            this.clientReference = clientReference;
+            this.sale = sale;
+        }
+    }
+}
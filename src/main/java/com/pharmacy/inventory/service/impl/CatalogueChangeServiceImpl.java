@@ -0,0 +1,111 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.response.CatalogueChanges;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.SupplierRepository;
+import com.pharmacy.inventory.service.CatalogueChangeService;
+import com.pharmacy.inventory.service.DataVersionService;
+import com.pharmacy.inventory.service.DataVersionService.Changes;
+import com.pharmacy.inventory.service.DataVersionService.DataSet;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Optional;
+
+/**
+ * Builds the feed from the catalogue change history kept by {@link DataVersionService}.
+ * The version handed to clients is "epoch.medicines.branches.suppliers".
+ *
+ * Versions are read before the rows, so a response may already contain rows
+ * changed after its version; those come again on the next poll, which is harmless
+ * as clients apply changes by ID.
+ */
+@Service
+public class CatalogueChangeServiceImpl implements CatalogueChangeService {
+
+    private final DataVersionService dataVersionService;
+    private final MedicineRepository medicineRepository;
+    private final BranchRepository branchRepository;
+    private final SupplierRepository supplierRepository;
+
+    @Autowired
+    public CatalogueChangeServiceImpl(DataVersionService dataVersionService,
+                                      MedicineRepository medicineRepository,
+                                      BranchRepository branchRepository,
+                                      SupplierRepository supplierRepository) {
+        this.dataVersionService = dataVersionService;
+        this.medicineRepository = medicineRepository;
+        this.branchRepository = branchRepository;
+        this.supplierRepository = supplierRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CatalogueChanges getChangesSince(String since) {
+        long[] from = parse(since);
+        if (from == null) {
+            return everything();
+        }
+        Optional<Changes> medicines = dataVersionService.getChangesSince(DataSet.MEDICINES, from[0]);
+        Optional<Changes> branches = dataVersionService.getChangesSince(DataSet.BRANCHES, from[1]);
+        Optional<Changes> suppliers = dataVersionService.getChangesSince(DataSet.SUPPLIERS, from[2]);
+        if (medicines.isEmpty() || branches.isEmpty() || suppliers.isEmpty()) {
+            return everything();
+        }
+
+        CatalogueChanges changes = new CatalogueChanges();
+        changes.setVersion(version(medicines.get().version(), branches.get().version(), suppliers.get().version()));
+        changes.setReset(false);
+        changes.setMedicines(medicines.get().changed().isEmpty()
+                ? new ArrayList<>() : medicineRepository.findAllById(medicines.get().changed()));
+        changes.setBranches(branches.get().changed().isEmpty()
+                ? new ArrayList<>() : branchRepository.findAllById(branches.get().changed()));
+        changes.setSuppliers(suppliers.get().changed().isEmpty()
+                ? new ArrayList<>() : supplierRepository.findAllById(suppliers.get().changed()));
+        changes.setDeleted_medicines(new ArrayList<>(medicines.get().deleted()));
+        changes.setDeleted_branches(new ArrayList<>(branches.get().deleted()));
+        changes.setDeleted_suppliers(new ArrayList<>(suppliers.get().deleted()));
+        return changes;
+    }
+
+    private CatalogueChanges everything() {
+        CatalogueChanges changes = new CatalogueChanges();
+        changes.setVersion(version(dataVersionService.getVersion(DataSet.MEDICINES),
+                dataVersionService.getVersion(DataSet.BRANCHES),
+                dataVersionService.getVersion(DataSet.SUPPLIERS)));
+        changes.setReset(true);
+        changes.setMedicines(medicineRepository.findAll());
+        changes.setBranches(branchRepository.findAll());
+        changes.setSuppliers(supplierRepository.findAll());
+        changes.setDeleted_medicines(new ArrayList<>());
+        changes.setDeleted_branches(new ArrayList<>());
+        changes.setDeleted_suppliers(new ArrayList<>());
+        return changes;
+    }
+
+    private String version(long medicines, long branches, long suppliers) {
+        return dataVersionService.getEpoch() + "." + medicines + "." + branches + "." + suppliers;
+    }
+
+    /**
+     * @return Medicine, branch and supplier versions, or null if since is not a
+     *         version from this database
+     */
+    private long[] parse(String since) {
+        if (since == null) {
+            return null;
+        }
+        String[] parts = since.trim().split("\\.");
+        if (parts.length != 4 || !parts[0].equals(dataVersionService.getEpoch())) {
+            return null;
+        }
+        try {
+            return new long[] {Long.parseLong(parts[1]), Long.parseLong(parts[2]), Long.parseLong(parts[3])};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,264 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.service.DataVersionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Version counters in the data_versions table, seeded by data.sql.
+ *
+ * The catalogue data sets take their new version inside the writing transaction
+ * and record each changed row in catalogue_changes under it, so the version row
+ * stays locked until commit and versions become visible in the order they were
+ * taken. All three catalogue rows are locked together, in name order, on a
+ * transaction's first catalogue write, so writers that touch several of them
+ * cannot deadlock; catalogue writes are rare enough for that to cost nothing.
+ *
+ * The other data sets change with every sale and stock movement. Holding their row
+ * until commit would serialise all of those writers, so their versions are moved
+ * once per transaction, in a short transaction of their own after it commits. A
+ * reader can therefore never pick up a new version while the data behind it is
+ * still uncommitted.
+ */
+@Service
+public class DataVersionServiceImpl implements DataVersionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DataVersionServiceImpl.class);
+
+    private static final Set<DataSet> LOGGED = EnumSet.of(DataSet.MEDICINES, DataSet.BRANCHES, DataSet.SUPPLIERS);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransaction;
+    private final int tombstoneRetentionDays;
+    private volatile String epoch;
+
+    @Autowired
+    public DataVersionServiceImpl(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+                                  @Value("${app.catalogue.changes.tombstone-retention-days:30}") int tombstoneRetentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.tombstoneRetentionDays = tombstoneRetentionDays;
+    }
+
+    @Override
+    public String getEpoch() {
+        String current = epoch;
+        if (current == null) {
+            // Fixed when data.sql seeds the table, so it can be kept once read
+            current = jdbcTemplate.queryForObject("SELECT min(epoch) FROM data_versions", String.class);
+            epoch = current;
+        }
+        return current;
+    }
+
+    @Override
+    public long getVersion(DataSet dataSet) {
+        return versionRow(dataSet).version();
+    }
+
+    @Override
+    public Map<DataSet, Long> getVersions() {
+        Map<DataSet, Long> versions = new EnumMap<>(DataSet.class);
+        jdbcTemplate.query("SELECT data_set, version FROM data_versions",
+                rs -> {
+                    versions.put(DataSet.valueOf(rs.getString(1)), rs.getLong(2));
+                });
+        return versions;
+    }
+
+    @Override
+    public String getETag(DataSet dataSet) {
+        return "\"" + getEpoch() + "-" + getVersion(dataSet) + "\"";
+    }
+
+    @Override
+    public Instant getLastModified(DataSet dataSet) {
+        return versionRow(dataSet).updatedAt();
+    }
+
+    @Override
+    public void markChanged(DataSet dataSet) {
+        record(dataSet, null, false);
+    }
+
+    @Override
+    public void markChanged(DataSet dataSet, UUID id, boolean deleted) {
+        record(dataSet, LOGGED.contains(dataSet) ? id : null, deleted);
+    }
+
+    @Override
+    public Optional<Changes> getChangesSince(DataSet dataSet, long version) {
+        if (!LOGGED.contains(dataSet)) {
+            throw new IllegalArgumentException("No change history is kept for " + dataSet);
+        }
+        VersionRow current = versionRow(dataSet);
+        if (version > current.version() || version < current.purgedThrough()) {
+            return Optional.empty();
+        }
+
+        // Each row holds only its latest change; rows changed after the version read
+        // above come again on the next call, which is harmless as callers apply by ID
+        Set<UUID> changed = new HashSet<>();
+        Set<UUID> deleted = new HashSet<>();
+        jdbcTemplate.query("SELECT row_id, deleted FROM catalogue_changes WHERE data_set = ? AND version > ?",
+                rs -> {
+                    (rs.getBoolean(2) ? deleted : changed).add(rs.getObject(1, UUID.class));
+                }, dataSet.name(), version);
+        return Optional.of(new Changes(current.version(), changed, deleted));
+    }
+
+    /**
+     * Stock quantities are mostly changed with bulk updates that bypass entity
+     * callbacks; those writes announce themselves with a StockChangedEvent instead
+     */
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        markChanged(DataSet.STOCK);
+    }
+
+    /**
+     * Tombstones of deleted catalogue rows are dropped after the retention period;
+     * clients that last synced before the newest dropped one have to reload
+     */
+    @Scheduled(cron = "${app.catalogue.changes.purge-cron:0 15 3 * * *}")
+    public void purgeTombstones() {
+        Timestamp before = Timestamp.valueOf(LocalDateTime.now().minusDays(tombstoneRetentionDays));
+        for (DataSet dataSet : LOGGED) {
+            jdbcTemplate.update(
+                    "WITH purged AS (DELETE FROM catalogue_changes WHERE data_set = ? AND deleted AND changed_at < ? " +
+                    "RETURNING version) " +
+                    "UPDATE data_versions SET purged_through = GREATEST(purged_through, (SELECT max(version) FROM purged)) " +
+                    "WHERE data_set = ? AND EXISTS (SELECT 1 FROM purged)",
+                    dataSet.name(), before, dataSet.name());
+        }
+    }
+
+    private void record(DataSet dataSet, UUID id, boolean deleted) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            if (LOGGED.contains(dataSet)) {
+                transactionTemplate.executeWithoutResult(status -> writeCatalogueChange(dataSet, takeVersion(dataSet), id, deleted));
+            } else {
+                bump(EnumSet.of(dataSet));
+            }
+            return;
+        }
+
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            PendingChanges changes = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, changes);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(DataVersionServiceImpl.this);
+                    if (status == STATUS_COMMITTED && !changes.dataSets.isEmpty()) {
+                        bump(changes.dataSets);
+                    }
+                }
+            });
+            pending = changes;
+        }
+
+        if (!LOGGED.contains(dataSet)) {
+            pending.dataSets.add(dataSet);
+            return;
+        }
+        if (pending.catalogueVersions.isEmpty()) {
+            jdbcTemplate.queryForList("SELECT data_set FROM data_versions WHERE data_set IN (?, ?, ?) " +
+                    "ORDER BY data_set FOR UPDATE", String.class,
+                    DataSet.BRANCHES.name(), DataSet.MEDICINES.name(), DataSet.SUPPLIERS.name());
+        }
+        Long version = pending.catalogueVersions.get(dataSet);
+        if (version == null) {
+            version = takeVersion(dataSet);
+            pending.catalogueVersions.put(dataSet, version);
+        }
+        if (id != null) {
+            Map<UUID, Boolean> rows = pending.rows.computeIfAbsent(dataSet, key -> new HashMap<>());
+            if (!Boolean.valueOf(deleted).equals(rows.put(id, deleted))) {
+                writeCatalogueChange(dataSet, version, id, deleted);
+            }
+        }
+    }
+
+    private long takeVersion(DataSet dataSet) {
+        return jdbcTemplate.queryForObject("UPDATE data_versions SET version = version + 1, updated_at = clock_timestamp() " +
+                "WHERE data_set = ? RETURNING version", Long.class, dataSet.name());
+    }
+
+    private void writeCatalogueChange(DataSet dataSet, long version, UUID id, boolean deleted) {
+        if (id == null) {
+            return;
+        }
+        jdbcTemplate.update("INSERT INTO catalogue_changes (data_set, row_id, version, deleted, changed_at) " +
+                "VALUES (?, ?, ?, ?, clock_timestamp()) " +
+                "ON CONFLICT (data_set, row_id) DO UPDATE SET version = EXCLUDED.version, " +
+                "deleted = EXCLUDED.deleted, changed_at = EXCLUDED.changed_at",
+                dataSet.name(), id, version, deleted);
+    }
+
+    /**
+     * Moves the versions of committed writes. One row at a time in enum order, so
+     * concurrent bumps lock rows in the same order.
+     */
+    private void bump(Set<DataSet> dataSets) {
+        try {
+            newTransaction.executeWithoutResult(status -> {
+                for (DataSet dataSet : EnumSet.copyOf(dataSets)) {
+                    jdbcTemplate.update("UPDATE data_versions SET version = version + 1, updated_at = clock_timestamp() " +
+                            "WHERE data_set = ?", dataSet.name());
+                }
+            });
+        } catch (RuntimeException e) {
+            // The write itself has committed; derived data stays stale until the next one
+            logger.warn("Could not move the versions of {}: {}", dataSets, e.getMessage());
+        }
+    }
+
+    private VersionRow versionRow(DataSet dataSet) {
+        try {
+            return jdbcTemplate.queryForObject("SELECT version, purged_through, updated_at FROM data_versions " +
+                    "WHERE data_set = ?", (rs, rowNum) -> new VersionRow(rs.getLong(1), rs.getLong(2),
+                    rs.getTimestamp(3).toInstant()), dataSet.name());
+        } catch (EmptyResultDataAccessException e) {
+            throw new IllegalStateException("data_versions has no row for " + dataSet + "; data.sql has not run", e);
+        }
+    }
+
+    private record VersionRow(long version, long purgedThrough, Instant updatedAt) {}
+
+    private static final class PendingChanges {
+        private final Set<DataSet> dataSets = EnumSet.noneOf(DataSet.class);
+        private final Map<DataSet, Long> catalogueVersions = new EnumMap<>(DataSet.class);
+        private final Map<DataSet, Map<UUID, Boolean>> rows = new EnumMap<>(DataSet.class);
+    }
+}
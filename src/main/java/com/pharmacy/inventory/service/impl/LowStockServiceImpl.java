@@ -0,0 +1,315 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.LowStockItem;
+import com.pharmacy.inventory.dto.ReorderPointDTO;
+import com.pharmacy.inventory.dto.request.ReorderPointRequest;
+import com.pharmacy.inventory.event.StockLevelChangedEvent;
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.ReorderPoint;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.ReorderPointRepository;
+import com.pharmacy.inventory.service.LowStockService;
+import com.pharmacy.inventory.service.StockLedgerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Low-stock index over the stock ledger.
+ *
+ * Reorder levels are cached in memory. The index is built from the ledger's totals
+ * once at startup and afterwards touched only by {@link StockLevelChangedEvent}s and
+ * reorder point changes, each of which re-checks a single pair. The check re-reads
+ * the ledger total inside the per-pair compute, so whichever event is handled last
+ * leaves the index on the latest quantity. A pair entering the set is queued for
+ * alerting; one that recovers before the queue is drained is dropped from it.
+ */
+@Service
+public class LowStockServiceImpl implements LowStockService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LowStockServiceImpl.class);
+
+    private final StockLedgerService stockLedgerService;
+    private final ReorderPointRepository reorderPointRepository;
+    private final MedicineRepository medicineRepository;
+    private final BranchRepository branchRepository;
+    private final TransactionTemplate readOnlyTransaction;
+
+    private final Map<PairKey, Integer> branchLevels = new ConcurrentHashMap<>();
+    private final Map<UUID, Integer> medicineLevels = new ConcurrentHashMap<>();
+    private final Map<PairKey, Long> lowItems = new ConcurrentHashMap<>();
+    private final Set<PairKey> newlyLow = ConcurrentHashMap.newKeySet();
+    private final Set<PairKey> changedWhileLoading = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    @Value("${app.stock.low-stock.default-level:10}")
+    private int defaultLevel;
+
+    @Autowired
+    public LowStockServiceImpl(StockLedgerService stockLedgerService, ReorderPointRepository reorderPointRepository,
+                               MedicineRepository medicineRepository, BranchRepository branchRepository,
+                               PlatformTransactionManager transactionManager) {
+        this.stockLedgerService = stockLedgerService;
+        this.reorderPointRepository = reorderPointRepository;
+        this.medicineRepository = medicineRepository;
+        this.branchRepository = branchRepository;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // Runs right after the stock ledger has loaded
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE + 1)
+    public void load() {
+        List<ReorderPointDTO> points = readOnlyTransaction.execute(status -> reorderPointRepository.findAllDTOs());
+        for (ReorderPointDTO point : points) {
+            putLevel(point.getMedicineId(), point.getBranchId(), point.getReorderLevel());
+        }
+
+        // Items already low at startup are listed but not alerted again
+        for (StockLedgerService.MedicineTotal total : stockLedgerService.getMedicineTotals()) {
+            evaluate(new PairKey(total.branchId(), total.medicineId()), false);
+        }
+        ready = true;
+
+        for (PairKey key : changedWhileLoading) {
+            changedWhileLoading.remove(key);
+            evaluate(key, true);
+        }
+        logger.info("Low stock index loaded: {} reorder points, {} items low", points.size(), lowItems.size());
+    }
+
+    @EventListener
+    public void onStockLevelChanged(StockLevelChangedEvent event) {
+        if (event.getBranchId() == null || event.getMedicineId() == null) {
+            return;
+        }
+        PairKey key = new PairKey(event.getBranchId(), event.getMedicineId());
+        if (!ready) {
+            changedWhileLoading.add(key);
+            // Loading finished in the meantime and may have drained the set already
+            if (!ready) {
+                return;
+            }
+        }
+        evaluate(key, true);
+    }
+
+    @Override
+    public List<LowStockItem> getLowStockItems(UUID branchId) {
+        List<PairKey> keys = new ArrayList<>();
+        for (PairKey key : lowItems.keySet()) {
+            if (branchId == null || key.branchId().equals(branchId)) {
+                keys.add(key);
+            }
+        }
+        return toItems(keys);
+    }
+
+    @Override
+    public List<LowStockItem> drainNewlyLow() {
+        List<PairKey> keys = new ArrayList<>();
+        for (PairKey key : newlyLow) {
+            if (newlyLow.remove(key) && lowItems.containsKey(key)) {
+                keys.add(key);
+            }
+        }
+        if (!keys.isEmpty() && TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        // Alerts were not recorded; hand them out again on the next drain,
+                        // which skips any that have recovered by then
+                        newlyLow.addAll(keys);
+                    }
+                }
+            });
+        }
+        return toItems(keys);
+    }
+
+    @Override
+    public int getReorderLevel(UUID branchId, UUID medicineId) {
+        return levelFor(new PairKey(branchId, medicineId));
+    }
+
+    @Override
+    public List<ReorderPointDTO> getReorderPoints() {
+        return reorderPointRepository.findAllDTOs();
+    }
+
+    @Override
+    @Transactional
+    public ReorderPointDTO setReorderPoint(ReorderPointRequest request) {
+        Medicine medicine = medicineRepository.findById(request.getMedicineId())
+                .orElseThrow(() -> new ResourceNotFoundException("Medicine not found with id " + request.getMedicineId()));
+        Branch branch = null;
+        if (request.getBranchId() != null) {
+            branch = branchRepository.findById(request.getBranchId())
+                    .orElseThrow(() -> new ResourceNotFoundException("Branch not found with id " + request.getBranchId()));
+        }
+
+        ReorderPoint reorderPoint = (branch != null
+                ? reorderPointRepository.findByMedicineIdAndBranchId(medicine.getId(), branch.getId())
+                : reorderPointRepository.findByMedicineIdAndBranchIsNull(medicine.getId()))
+                .orElseGet(ReorderPoint::new);
+        reorderPoint.setMedicine(medicine);
+        reorderPoint.setBranch(branch);
+        reorderPoint.setReorderLevel(request.getReorderLevel());
+        ReorderPoint saved = reorderPointRepository.save(reorderPoint);
+
+        UUID medicineId = medicine.getId();
+        UUID branchId = request.getBranchId();
+        int level = request.getReorderLevel();
+        afterCommit(() -> {
+            putLevel(medicineId, branchId, level);
+            reevaluate(medicineId, branchId);
+        });
+        return reorderPointRepository.findDTOById(saved.getId()).orElseThrow();
+    }
+
+    @Override
+    @Transactional
+    public void deleteReorderPoint(UUID id) {
+        ReorderPoint reorderPoint = reorderPointRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Reorder point not found with id " + id));
+        UUID medicineId = reorderPoint.getMedicine().getId();
+        UUID branchId = reorderPoint.getBranch() != null ? reorderPoint.getBranch().getId() : null;
+        reorderPointRepository.delete(reorderPoint);
+
+        afterCommit(() -> {
+            if (branchId != null) {
+                branchLevels.remove(new PairKey(branchId, medicineId));
+            } else {
+                medicineLevels.remove(medicineId);
+            }
+            reevaluate(medicineId, branchId);
+        });
+    }
+
+    /**
+     * Re-check a pair against its level; the quantity is read inside the compute so the
+     * last check of a pair always sees the latest ledger total
+     */
+    private void evaluate(PairKey key, boolean alert) {
+        lowItems.compute(key, (k, previous) -> {
+            long quantity = stockLedgerService.getAvailable(k.branchId(), k.medicineId());
+            if (quantity <= levelFor(k)) {
+                if (previous == null && alert) {
+                    newlyLow.add(k);
+                }
+                return quantity;
+            }
+            newlyLow.remove(k);
+            return null;
+        });
+    }
+
+    /**
+     * Re-check the pairs a reorder point applies to: one branch, or every branch of the medicine
+     */
+    private void reevaluate(UUID medicineId, UUID branchId) {
+        if (!ready) {
+            return;
+        }
+        if (branchId != null) {
+            evaluate(new PairKey(branchId, medicineId), true);
+            return;
+        }
+        for (StockLedgerService.MedicineTotal total : stockLedgerService.getMedicineTotals()) {
+            if (medicineId.equals(total.medicineId()) && total.branchId() != null) {
+                evaluate(new PairKey(total.branchId(), medicineId), true);
+            }
+        }
+    }
+
+    private int levelFor(PairKey key) {
+        Integer level = branchLevels.get(key);
+        if (level == null) {
+            level = medicineLevels.get(key.medicineId());
+        }
+        return level != null ? level : defaultLevel;
+    }
+
+    private void putLevel(UUID medicineId, UUID branchId, int level) {
+        if (branchId != null) {
+            branchLevels.put(new PairKey(branchId, medicineId), level);
+        } else {
+            medicineLevels.put(medicineId, level);
+        }
+    }
+
+    private List<LowStockItem> toItems(List<PairKey> keys) {
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        Set<UUID> medicineIds = new HashSet<>();
+        Set<UUID> branchIds = new HashSet<>();
+        for (PairKey key : keys) {
+            medicineIds.add(key.medicineId());
+            branchIds.add(key.branchId());
+        }
+        Map<UUID, String> medicineNames = new HashMap<>();
+        for (Medicine medicine : medicineRepository.findAllById(medicineIds)) {
+            medicineNames.put(medicine.getId(), medicine.getName());
+        }
+        Map<UUID, String> branchNames = new HashMap<>();
+        for (Branch branch : branchRepository.findAllById(branchIds)) {
+            branchNames.put(branch.getId(), branch.getName());
+        }
+
+        List<LowStockItem> items = new ArrayList<>(keys.size());
+        for (PairKey key : keys) {
+            Long quantity = lowItems.get(key);
+            if (quantity == null) {
+                continue;
+            }
+            items.add(new LowStockItem(key.branchId(), branchNames.get(key.branchId()), key.medicineId(),
+                    medicineNames.get(key.medicineId()), quantity, levelFor(key)));
+        }
+        items.sort(Comparator.comparing(LowStockItem::getBranchName, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(LowStockItem::getMedicineName, Comparator.nullsLast(Comparator.naturalOrder())));
+        return items;
+    }
+
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    private record PairKey(UUID branchId, UUID medicineId) {
+    }
+}
@@ -0,0 +1,88 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.service.MedicineCacheService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Caffeine cache bounded by entry count, with entries expiring a fixed time after
+ * they were loaded. Writes through MedicineService invalidate their entry; the
+ * expiry bounds how long a change made any other way can go unseen.
+ */
+@Service
+public class MedicineCacheServiceImpl implements MedicineCacheService {
+
+    private final LoadingCache<UUID, Medicine> cache;
+
+    @Autowired
+    public MedicineCacheServiceImpl(MedicineRepository medicineRepository, MeterRegistry meterRegistry,
+                                    @Value("${app.medicines.cache.max-size:10000}") long maxSize,
+                                    @Value("${app.medicines.cache.expire-after-write-seconds:600}") long expireAfterWriteSeconds) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(expireAfterWriteSeconds))
+                .recordStats()
+                .build(new CacheLoader<UUID, Medicine>() {
+                    @Override
+                    public Medicine load(UUID id) {
+                        return medicineRepository.findById(id).orElse(null);
+                    }
+
+                    @Override
+                    public Map<UUID, Medicine> loadAll(Set<? extends UUID> ids) {
+                        Map<UUID, Medicine> loaded = new HashMap<>();
+                        medicineRepository.findAllById(new HashSet<UUID>(ids)).forEach(medicine -> loaded.put(medicine.getId(), medicine));
+                        return loaded;
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "medicines");
+    }
+
+    @Override
+    public Optional<Medicine> get(UUID id) {
+        return id != null ? Optional.ofNullable(cache.get(id)) : Optional.empty();
+    }
+
+    @Override
+    public Map<UUID, Medicine> getAll(Collection<UUID> ids) {
+        Set<UUID> keys = new HashSet<>(ids);
+        keys.remove(null);
+        // Copied so callers can look up a null or missing ID without an exception
+        return keys.isEmpty() ? new HashMap<>() : new HashMap<>(cache.getAll(keys));
+    }
+
+    @Override
+    public void invalidate(UUID id) {
+        if (id == null) {
+            return;
+        }
+        cache.invalidate(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(id);
+                }
+            });
+        }
+    }
+}
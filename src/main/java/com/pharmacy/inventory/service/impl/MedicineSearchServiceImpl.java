@@ -0,0 +1,517 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.service.MedicineSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Character trie over the words of every medicine's name, category and manufacturer.
+ *
+ * A node lists the medicines having its word in some field, with a bit per field,
+ * and counts the postings below it. Each query word is resolved to the nodes it
+ * can complete from: its prefix node and, if that holds fewer postings than were
+ * asked for, the nodes found by walking the trie with a row of the Levenshtein
+ * table, which stops descending once every cell is over the edit budget. The
+ * subtrees of the word with the fewest postings are then walked breadth first,
+ * scoring each medicine against all query words, until enough match or a fixed
+ * number have been looked at, so the work per keystroke does not grow with the
+ * catalogue.
+ *
+ * The index is filled once the application is up. Changes that commit while it
+ * loads are queued and replayed afterwards; until then search returns null and
+ * the caller falls back to the database.
+ */
+@Service
+public class MedicineSearchServiceImpl implements MedicineSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(MedicineSearchServiceImpl.class);
+
+    private static final int NAME = 1;
+    private static final int CATEGORY = 2;
+    private static final int MANUFACTURER = 4;
+
+    // Words shorter than this are only matched as typed
+    private static final int MIN_FUZZY_LENGTH = 4;
+
+    private final MedicineRepository medicineRepository;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<UUID, Entry> entries = new HashMap<>();
+    private List<Runnable> pending = new ArrayList<>();
+
+    @Value("${app.search.medicines.max-candidates:100}")
+    private int maxCandidates;
+
+    @Value("${app.search.medicines.max-scanned:20000}")
+    private int maxScanned;
+
+    @Autowired
+    public MedicineSearchServiceImpl(MedicineRepository medicineRepository) {
+        this.medicineRepository = medicineRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Medicine> medicines = medicineRepository.findAll();
+        lock.writeLock().lock();
+        try {
+            for (Medicine medicine : medicines) {
+                put(copyOf(medicine));
+            }
+            pending.forEach(Runnable::run);
+            pending = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("Indexed {} medicine(s) for typeahead search", medicines.size());
+    }
+
+    @Override
+    public List<Medicine> search(String query, int limit) {
+        String[] words = words(query);
+        if (words.length == 0 || limit < 1) {
+            return new ArrayList<>();
+        }
+
+        lock.readLock().lock();
+        try {
+            if (pending != null) {
+                return null;
+            }
+
+            // Walk the word that matches the fewest postings; the others are checked by scoring
+            List<Node> start = null;
+            int smallest = Integer.MAX_VALUE;
+            for (String word : words) {
+                List<Node> nodes = matchingNodes(word, limit);
+                int postings = 0;
+                for (Node node : nodes) {
+                    postings += node.count;
+                }
+                if (postings < smallest) {
+                    smallest = postings;
+                    start = nodes;
+                }
+            }
+
+            Candidates candidates = new Candidates(words, Math.max(maxCandidates, limit), maxScanned);
+            for (Node node : start) {
+                if (!candidates.visit(node)) {
+                    break;
+                }
+            }
+            List<Scored> scored = candidates.matches;
+            scored.sort(Comparator.comparingInt((Scored s) -> -s.score)
+                    .thenComparingInt(s -> s.medicine.getName().length())
+                    .thenComparing(s -> s.medicine.getName(), String.CASE_INSENSITIVE_ORDER));
+
+            List<Medicine> results = new ArrayList<>();
+            for (int i = 0; i < scored.size() && i < limit; i++) {
+                results.add(scored.get(i).medicine);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void medicineSaved(Medicine medicine) {
+        Medicine copy = copyOf(medicine);
+        afterCommit(() -> put(copy));
+    }
+
+    @Override
+    public void medicineDeleted(UUID id) {
+        afterCommit(() -> remove(id));
+    }
+
+    private void afterCommit(Runnable change) {
+        Runnable apply = () -> {
+            lock.writeLock().lock();
+            try {
+                if (pending != null) {
+                    pending.add(change);
+                } else {
+                    change.run();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply.run();
+            }
+        });
+    }
+
+    // Callers hold the write lock
+    private void put(Medicine medicine) {
+        remove(medicine.getId());
+        Entry entry = new Entry(medicine, words(medicine.getName()), words(medicine.getCategory()),
+                words(medicine.getManufacturer()));
+        entries.put(medicine.getId(), entry);
+        entry.forEachWord((word, field) -> root.add(word, 0, medicine.getId(), field));
+    }
+
+    // Callers hold the write lock
+    private void remove(UUID id) {
+        Entry entry = entries.remove(id);
+        if (entry != null) {
+            entry.forEachWord((word, field) -> root.remove(word, 0, id, field));
+        }
+    }
+
+    /**
+     * Nodes whose subtrees hold the words a query word can complete to: its prefix
+     * node and, when that has fewer postings than were asked for, the nodes found
+     * by the fuzzy walk. The fuzzy walk keeps the first letter as typed, which is
+     * rarely the mistyped one and spares walking the whole top of the trie.
+     */
+    private List<Node> matchingNodes(String word, int limit) {
+        List<Node> nodes = new ArrayList<>();
+        Node prefixNode = root.find(word);
+        if (prefixNode != null) {
+            nodes.add(prefixNode);
+        }
+        Node first = root.child(word.charAt(0));
+        if ((prefixNode == null || prefixNode.count < limit) && word.length() >= MIN_FUZZY_LENGTH && first != null) {
+            int[] row = new int[word.length() + 1];
+            for (int i = 0; i < row.length; i++) {
+                row[i] = i;
+            }
+            fuzzyNodes(first, word, nextRow(row, word, word.charAt(0)), maxEdits(word), nodes);
+        }
+        return nodes;
+    }
+
+    /**
+     * Walk the trie with one Levenshtein row per node; a node whose last cell is
+     * within budget is a word the query could be a mistyped prefix of
+     */
+    private static void fuzzyNodes(Node node, String word, int[] previous, int maxEdits, List<Node> nodes) {
+        for (int c = 0; c < node.size; c++) {
+            int[] row = nextRow(previous, word, node.keys[c]);
+            if (row[row.length - 1] <= maxEdits) {
+                nodes.add(node.children[c]);
+            } else if (min(row) <= maxEdits) {
+                fuzzyNodes(node.children[c], word, row, maxEdits, nodes);
+            }
+        }
+    }
+
+    private static int[] nextRow(int[] previous, String word, char ch) {
+        int[] row = new int[previous.length];
+        row[0] = previous[0] + 1;
+        for (int i = 1; i < row.length; i++) {
+            int substitution = previous[i - 1] + (word.charAt(i - 1) == ch ? 0 : 1);
+            row[i] = Math.min(substitution, Math.min(previous[i] + 1, row[i - 1] + 1));
+        }
+        return row;
+    }
+
+    private static int min(int[] row) {
+        int min = row[0];
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    /**
+     * Score a medicine against every query word, or -1 if some word matches nothing.
+     * Edit distances are only worked out for words that match nothing as typed.
+     */
+    private static int score(Entry entry, String[] words) {
+        int total = 0;
+        for (String word : words) {
+            int best = Math.max(fieldScore(entry.nameWords, word, 3, false),
+                    Math.max(fieldScore(entry.categoryWords, word, 1, false),
+                            fieldScore(entry.manufacturerWords, word, 1, false)));
+            if (best < 0 && word.length() >= MIN_FUZZY_LENGTH) {
+                best = Math.max(fieldScore(entry.nameWords, word, 3, true),
+                        Math.max(fieldScore(entry.categoryWords, word, 1, true),
+                                fieldScore(entry.manufacturerWords, word, 1, true)));
+            }
+            if (best < 0) {
+                return -1;
+            }
+            if (entry.nameWords.length > 0 && entry.nameWords[0].startsWith(word)) {
+                best += 2;
+            }
+            total += best;
+        }
+        return total;
+    }
+
+    private static int fieldScore(String[] fieldWords, String word, int weight, boolean fuzzy) {
+        int best = -1;
+        for (String candidate : fieldWords) {
+            int match = -1;
+            if (!fuzzy && candidate.equals(word)) {
+                match = 10;
+            } else if (!fuzzy && candidate.startsWith(word)) {
+                match = 6;
+            } else if (fuzzy) {
+                int edits = prefixDistance(word, candidate, maxEdits(word));
+                match = edits >= 0 ? 3 - edits : -1;
+            }
+            if (match >= 0) {
+                best = Math.max(best, match * weight);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Fewest edits turning the word into some prefix of the candidate, or -1 if over
+     * budget; like the trie walk, the first letter has to match
+     */
+    private static int prefixDistance(String word, String candidate, int maxEdits) {
+        if (candidate.isEmpty() || candidate.charAt(0) != word.charAt(0)) {
+            return -1;
+        }
+        int[] row = new int[word.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+        int best = Integer.MAX_VALUE;
+        for (int j = 0; j < candidate.length(); j++) {
+            row = nextRow(row, word, candidate.charAt(j));
+            best = Math.min(best, row[word.length()]);
+            if (min(row) > maxEdits) {
+                break;
+            }
+        }
+        return best <= maxEdits ? best : -1;
+    }
+
+    private static int maxEdits(String word) {
+        return word.length() >= 8 ? 2 : 1;
+    }
+
+    private static String[] words(String value) {
+        if (value == null || value.isBlank()) {
+            return new String[0];
+        }
+        return Arrays.stream(value.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .toArray(String[]::new);
+    }
+
+    private static Medicine copyOf(Medicine medicine) {
+        Medicine copy = new Medicine();
+        copy.setId(medicine.getId());
+        copy.setName(medicine.getName());
+        copy.setCategory(medicine.getCategory());
+        copy.setManufacturer(medicine.getManufacturer());
+        copy.setUnitPrice(medicine.getUnitPrice());
+        copy.setPrescriptionRequired(medicine.getPrescriptionRequired());
+        copy.setGtin(medicine.getGtin());
+        return copy;
+    }
+
+    private record Scored(Medicine medicine, int score) {
+    }
+
+    /**
+     * Medicines met while walking subtrees breadth first, so shorter completions
+     * come first, scored as they are met. The walk stops once enough of them
+     * match every query word, or after a fixed number of postings
+     */
+    private final class Candidates {
+        private final String[] words;
+        private final int maxMatches;
+        private final int maxVisits;
+        private final Set<UUID> seen = new HashSet<>();
+        private final List<Scored> matches = new ArrayList<>();
+        private int visits;
+
+        private Candidates(String[] words, int maxMatches, int maxVisits) {
+            this.words = words;
+            this.maxMatches = maxMatches;
+            this.maxVisits = maxVisits;
+        }
+
+        /**
+         * @return Whether to go on to the next subtree
+         */
+        boolean visit(Node start) {
+            ArrayDeque<Node> queue = new ArrayDeque<>();
+            queue.add(start);
+            while (!queue.isEmpty()) {
+                Node node = queue.poll();
+                if (node.postings != null) {
+                    for (UUID id : node.postings.keySet()) {
+                        if (!seen.add(id)) {
+                            continue;
+                        }
+                        Entry entry = entries.get(id);
+                        int score = score(entry, words);
+                        if (score >= 0) {
+                            matches.add(new Scored(entry.medicine, score));
+                        }
+                        if (matches.size() >= maxMatches || ++visits >= maxVisits) {
+                            return false;
+                        }
+                    }
+                }
+                for (int i = 0; i < node.size; i++) {
+                    queue.add(node.children[i]);
+                }
+            }
+            return true;
+        }
+    }
+
+    private record Entry(Medicine medicine, String[] nameWords, String[] categoryWords, String[] manufacturerWords) {
+
+        void forEachWord(WordConsumer consumer) {
+            for (String word : nameWords) {
+                consumer.accept(word, NAME);
+            }
+            for (String word : categoryWords) {
+                consumer.accept(word, CATEGORY);
+            }
+            for (String word : manufacturerWords) {
+                consumer.accept(word, MANUFACTURER);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface WordConsumer {
+        void accept(String word, int field);
+    }
+
+    /**
+     * Trie node with its children in small parallel arrays, which for the narrow
+     * fan-out of real words is both smaller and faster than a map per node
+     */
+    private static final class Node {
+        private char[] keys = new char[0];
+        private Node[] children = new Node[0];
+        private int size;
+        // Medicine ID to the fields holding this node's word
+        private Map<UUID, Integer> postings;
+        // Postings in this subtree, which tells how selective a prefix is
+        private int count;
+
+        Node child(char key) {
+            for (int i = 0; i < size; i++) {
+                if (keys[i] == key) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node find(String word) {
+            Node node = this;
+            for (int i = 0; i < word.length() && node != null; i++) {
+                node = node.child(word.charAt(i));
+            }
+            return node;
+        }
+
+        /**
+         * @return Whether a new posting was added rather than a field added to one
+         */
+        boolean add(String word, int depth, UUID id, int field) {
+            boolean added;
+            if (depth == word.length()) {
+                if (postings == null) {
+                    postings = new HashMap<>(4);
+                }
+                Integer fields = postings.get(id);
+                postings.put(id, fields != null ? fields | field : field);
+                added = fields == null;
+            } else {
+                char key = word.charAt(depth);
+                Node next = child(key);
+                if (next == null) {
+                    if (size == keys.length) {
+                        int capacity = Math.max(2, size * 2);
+                        keys = Arrays.copyOf(keys, capacity);
+                        children = Arrays.copyOf(children, capacity);
+                    }
+                    next = new Node();
+                    keys[size] = key;
+                    children[size] = next;
+                    size++;
+                }
+                added = next.add(word, depth + 1, id, field);
+            }
+            if (added) {
+                count++;
+            }
+            return added;
+        }
+
+        /**
+         * @return Whether a posting was dropped rather than a field taken off one
+         */
+        boolean remove(String word, int depth, UUID id, int field) {
+            boolean removed = false;
+            if (depth == word.length()) {
+                Integer fields = postings != null ? postings.get(id) : null;
+                if (fields != null && (fields & ~field) != 0) {
+                    postings.put(id, fields & ~field);
+                } else if (fields != null) {
+                    postings.remove(id);
+                    removed = true;
+                    if (postings.isEmpty()) {
+                        postings = null;
+                    }
+                }
+            } else {
+                char key = word.charAt(depth);
+                for (int i = 0; i < size; i++) {
+                    if (keys[i] == key) {
+                        removed = children[i].remove(word, depth + 1, id, field);
+                        if (children[i].count == 0) {
+                            size--;
+                            keys[i] = keys[size];
+                            children[i] = children[size];
+                            children[size] = null;
+                        }
+                        break;
+                    }
+                }
+            }
+            if (removed) {
+                count--;
+            }
+            return removed;
+        }
+    }
+}
@@ -2,23 +2,38 @@ package com.pharmacy.inventory.service.impl;
 
 import com.pharmacy.inventory.model.Medicine;
 import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.service.MedicineCacheService;
+import com.pharmacy.inventory.service.MedicineSearchService;
 import com.pharmacy.inventory.service.MedicineService;
+import com.pharmacy.inventory.service.ScanService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service
 public class MedicineServiceImpl implements MedicineService {
 
     private final MedicineRepository medicineRepository;
+    private final MedicineCacheService medicineCacheService;
+    private final MedicineSearchService medicineSearchService;
+    private final ScanService scanService;
+
+    @Value("${app.search.medicines.max-results:100}")
+    private int maxSearchResults;
     
     @Autowired
-    public MedicineServiceImpl(MedicineRepository medicineRepository) {
+    public MedicineServiceImpl(MedicineRepository medicineRepository, MedicineCacheService medicineCacheService,
+                               MedicineSearchService medicineSearchService, ScanService scanService) {
         this.medicineRepository = medicineRepository;
+        this.medicineCacheService = medicineCacheService;
+        this.medicineSearchService = medicineSearchService;
+        this.scanService = scanService;
     }
 
     @Override
@@ -32,8 +47,16 @@ public class MedicineServiceImpl implements MedicineService {
     }
 
     @Override
-    public List<Medicine> findMedicinesByName(String name) {
-        return medicineRepository.findByNameContainingIgnoreCase(name);
+    public List<Medicine> searchMedicines(String query, int limit) {
+        int size = Math.max(1, Math.min(limit, maxSearchResults));
+        List<Medicine> results = medicineSearchService.search(query, size);
+        if (results == null) {
+            // Index still loading
+            results = medicineRepository.findByNameContainingIgnoreCase(query != null ? query.trim() : "").stream()
+                    .limit(size)
+                    .collect(Collectors.toList());
+        }
+        return results;
     }
 
     @Override
@@ -54,7 +77,10 @@ public class MedicineServiceImpl implements MedicineService {
     @Override
     @Transactional
     public Medicine addMedicine(Medicine medicine) {
-        return medicineRepository.save(medicine);
+        Medicine savedMedicine = medicineRepository.save(medicine);
+        medicineSearchService.medicineSaved(savedMedicine);
+        scanService.medicineSaved(savedMedicine);
+        return savedMedicine;
     }
 
     @Override
@@ -69,8 +95,13 @@ public class MedicineServiceImpl implements MedicineService {
             medicine.setManufacturer(updatedMedicine.getManufacturer());
             medicine.setUnitPrice(updatedMedicine.getUnitPrice());
             medicine.setPrescriptionRequired(updatedMedicine.getPrescriptionRequired());
+            medicine.setGtin(updatedMedicine.getGtin());
             
-            return medicineRepository.save(medicine);
+            medicineCacheService.invalidate(id);
+            Medicine savedMedicine = medicineRepository.save(medicine);
+            medicineSearchService.medicineSaved(savedMedicine);
+            scanService.medicineSaved(savedMedicine);
+            return savedMedicine;
         }
         
         return null;
@@ -80,5 +111,8 @@ public class MedicineServiceImpl implements MedicineService {
     @Transactional
     public void deleteMedicine(UUID id) {
         medicineRepository.deleteById(id);
+        medicineCacheService.invalidate(id);
+        medicineSearchService.medicineDeleted(id);
+        scanService.medicineDeleted(id);
     }
 }
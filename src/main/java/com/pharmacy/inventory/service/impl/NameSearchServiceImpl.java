@@ -0,0 +1,214 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.repository.PrescriptionRepository;
+import com.pharmacy.inventory.repository.SaleRepository;
+import com.pharmacy.inventory.service.NameSearchService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over distinct names, one per name field.
+ *
+ * Each distinct lower-cased name is split into its three-character substrings and
+ * listed under each of them. A term of three or more characters can only occur in
+ * names listed under every one of its trigrams, so candidates come from
+ * intersecting those lists, smallest first, and are then checked with contains().
+ * Shorter terms are checked against every name. Names carry a row count so one is
+ * dropped only once the last row using it is gone.
+ *
+ * The index is filled from grouped queries once the application is up. Writes
+ * that commit while it loads are queued and replayed afterwards, so none are lost;
+ * a write counted twice only leaves a stale name behind, which the database lookup
+ * that follows simply does not match.
+ */
+@Service
+public class NameSearchServiceImpl implements NameSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NameSearchServiceImpl.class);
+
+    private final SaleRepository saleRepository;
+    private final PrescriptionRepository prescriptionRepository;
+    private final Map<Field, FieldIndex> indexes = new EnumMap<>(Field.class);
+
+    @Value("${app.search.names.max-matches:500}")
+    private int maxMatches;
+
+    @Autowired
+    public NameSearchServiceImpl(SaleRepository saleRepository, PrescriptionRepository prescriptionRepository) {
+        this.saleRepository = saleRepository;
+        this.prescriptionRepository = prescriptionRepository;
+        for (Field field : Field.values()) {
+            indexes.put(field, new FieldIndex());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadIndexes() {
+        load(Field.CUSTOMER_NAME, saleRepository.countRowsByLowerCustomerName());
+        load(Field.PATIENT_NAME, prescriptionRepository.countRowsByLowerPatientName());
+    }
+
+    @Override
+    public List<String> findMatchingNames(Field field, String term) {
+        return indexes.get(field).find(term, maxMatches);
+    }
+
+    @Override
+    public void nameChanged(Field field, String oldName, String newName) {
+        String removed = NameSearchService.normalize(oldName);
+        String added = NameSearchService.normalize(newName);
+        if (removed == null ? added == null : removed.equals(added)) {
+            return;
+        }
+
+        FieldIndex index = indexes.get(field);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    index.change(removed, added);
+                }
+            });
+        } else {
+            index.change(removed, added);
+        }
+    }
+
+    private void load(Field field, List<Object[]> counts) {
+        Map<String, Integer> names = new HashMap<>();
+        for (Object[] row : counts) {
+            if (row[0] != null && !((String) row[0]).isBlank()) {
+                names.put((String) row[0], ((Number) row[1]).intValue());
+            }
+        }
+        indexes.get(field).load(names);
+        logger.info("Indexed {} distinct {} value(s) for substring search", names.size(), field);
+    }
+
+    /**
+     * Index of one field plus the writes queued while it loads
+     */
+    private static final class FieldIndex {
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<String, Integer> names = new HashMap<>();
+        private final Map<String, Set<String>> postings = new HashMap<>();
+        private List<String[]> pending = new ArrayList<>();
+
+        List<String> find(String term, int limit) {
+            lock.readLock().lock();
+            try {
+                if (pending != null) {
+                    return null;
+                }
+                Set<String> candidates = term.length() < 3 ? names.keySet() : candidates(term);
+                List<String> matches = new ArrayList<>();
+                for (String name : candidates) {
+                    if (name.contains(term)) {
+                        if (matches.size() == limit) {
+                            return null;
+                        }
+                        matches.add(name);
+                    }
+                }
+                return matches;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        void change(String removed, String added) {
+            lock.writeLock().lock();
+            try {
+                if (pending != null) {
+                    pending.add(new String[]{removed, added});
+                    return;
+                }
+                apply(removed, added);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void load(Map<String, Integer> counts) {
+            lock.writeLock().lock();
+            try {
+                names.clear();
+                postings.clear();
+                counts.forEach((name, count) -> {
+                    names.put(name, count);
+                    trigrams(name).forEach(trigram -> postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(name));
+                });
+                for (String[] change : pending) {
+                    apply(change[0], change[1]);
+                }
+                pending = null;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private Set<String> candidates(String term) {
+            List<Set<String>> lists = new ArrayList<>();
+            for (String trigram : trigrams(term)) {
+                Set<String> list = postings.get(trigram);
+                if (list == null) {
+                    return Collections.emptySet();
+                }
+                lists.add(list);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size(), b.size()));
+
+            Set<String> candidates = new HashSet<>(lists.get(0));
+            for (int i = 1; i < lists.size() && !candidates.isEmpty(); i++) {
+                candidates.retainAll(lists.get(i));
+            }
+            return candidates;
+        }
+
+        private void apply(String removed, String added) {
+            if (removed != null) {
+                Integer count = names.get(removed);
+                if (count != null && count > 1) {
+                    names.put(removed, count - 1);
+                } else if (count != null) {
+                    names.remove(removed);
+                    for (String trigram : trigrams(removed)) {
+                        Set<String> list = postings.get(trigram);
+                        if (list != null && list.remove(removed) && list.isEmpty()) {
+                            postings.remove(trigram);
+                        }
+                    }
+                }
+            }
+            if (added != null && names.merge(added, 1, Integer::sum) == 1) {
+                trigrams(added).forEach(trigram -> postings.computeIfAbsent(trigram, key -> new HashSet<>()).add(added));
+            }
+        }
+
+        private static Set<String> trigrams(String value) {
+            Set<String> trigrams = new HashSet<>();
+            for (int i = 0; i + 3 <= value.length(); i++) {
+                trigrams.add(value.substring(i, i + 3));
+            }
+            return trigrams;
+        }
+    }
+}
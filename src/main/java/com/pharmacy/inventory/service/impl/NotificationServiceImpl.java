@@ -1,16 +1,19 @@
 package com.pharmacy.inventory.service.impl;
 
+import com.pharmacy.inventory.dto.LowStockItem;
+import com.pharmacy.inventory.dto.PageCursor;
+import com.pharmacy.inventory.dto.response.CursorPage;
 import com.pharmacy.inventory.model.Batch;
 import com.pharmacy.inventory.model.Notification;
-import com.pharmacy.inventory.model.Stock;
 import com.pharmacy.inventory.model.User;
 import com.pharmacy.inventory.repository.NotificationRepository;
 import com.pharmacy.inventory.repository.StockRepository;
 import com.pharmacy.inventory.repository.UserRepository;
 import com.pharmacy.inventory.service.BatchService;
+import com.pharmacy.inventory.service.LowStockService;
 import com.pharmacy.inventory.service.NotificationService;
-import com.pharmacy.inventory.service.StockService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -24,19 +27,19 @@ public class NotificationServiceImpl implements NotificationService {
 
     private final NotificationRepository notificationRepository;
     private final UserRepository userRepository;
-    private final StockService stockService;
+    private final LowStockService lowStockService;
     private final BatchService batchService;
     private final StockRepository stockRepository;
     
     @Autowired
     public NotificationServiceImpl(NotificationRepository notificationRepository,
                                 UserRepository userRepository,
-                                StockService stockService,
+                                LowStockService lowStockService,
                                 BatchService batchService,
                                 StockRepository stockRepository) {
         this.notificationRepository = notificationRepository;
         this.userRepository = userRepository;
-        this.stockService = stockService;
+        this.lowStockService = lowStockService;
         this.batchService = batchService;
         this.stockRepository = stockRepository;
     }
@@ -46,6 +49,13 @@ public class NotificationServiceImpl implements NotificationService {
         return notificationRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Notification> getNotificationsPage(String cursor, int size) {
+        return CursorPage.fetch(cursor, size, notificationRepository::findFirstPage, notificationRepository::findPageAfter,
+                notification -> new PageCursor(notification.getCreatedAt(), notification.getId()));
+    }
+
     @Override
     public Optional<Notification> getNotificationById(UUID id) {
         return notificationRepository.findById(id);
@@ -137,10 +147,15 @@ public class NotificationServiceImpl implements NotificationService {
         return 0;
     }
 
+    // Only items that crossed their reorder level since the last run are alerted
     @Override
     @Transactional
+    @Scheduled(fixedDelayString = "${app.stock.low-stock.alert-interval-ms:30000}")
     public void generateLowStockNotifications() {
-        List<Stock> lowStockItems = stockService.getLowStockItems();
+        List<LowStockItem> lowStockItems = lowStockService.drainNewlyLow();
+        if (lowStockItems.isEmpty()) {
+            return;
+        }
         List<User> adminUsers = userRepository.findAll().stream()
                 .filter(user -> user.getRoles().stream()
                         .anyMatch(role -> role.getName().name().equals("ROLE_ADMIN") || 
@@ -148,9 +163,9 @@ public class NotificationServiceImpl implements NotificationService {
                                           role.getName().name().equals("ROLE_MANAGER")))
                 .toList();
         
-        for (Stock stock : lowStockItems) {
-            String message = "Low stock alert for medicine: " + stock.getMedicine().getName() + 
-                            ". Current quantity: " + stock.getCurrentQuantity();
+        for (LowStockItem item : lowStockItems) {
+            String message = "Low stock alert for medicine: " + item.getMedicineName() + 
+                            ". Current quantity: " + item.getQuantity();
             
             for (User user : adminUsers) {
                 Notification notification = new Notification();
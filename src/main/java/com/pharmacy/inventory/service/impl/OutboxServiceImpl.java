@@ -0,0 +1,104 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.inventory.event.OutboxDispatcher;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.model.OutboxEvent;
+import com.pharmacy.inventory.model.Sale;
+import com.pharmacy.inventory.model.SaleItem;
+import com.pharmacy.inventory.repository.OutboxEventRepository;
+import com.pharmacy.inventory.service.OutboxService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Service
+public class OutboxServiceImpl implements OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+    private final OutboxDispatcher outboxDispatcher;
+
+    // Lazy: handlers may themselves depend on services that publish events
+    @Autowired
+    public OutboxServiceImpl(OutboxEventRepository outboxEventRepository, ObjectMapper objectMapper,
+                             @Lazy OutboxDispatcher outboxDispatcher) {
+        this.outboxEventRepository = outboxEventRepository;
+        this.objectMapper = objectMapper;
+        this.outboxDispatcher = outboxDispatcher;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publish(String aggregateType, UUID aggregateId, String eventType, Map<String, Object> payload) {
+        if (!outboxDispatcher.hasHandlers(eventType)) {
+            return;
+        }
+        OutboxEvent event = new OutboxEvent();
+        event.setAggregateType(aggregateType);
+        event.setAggregateId(aggregateId);
+        event.setEventType(eventType);
+        try {
+            event.setPayload(objectMapper.writeValueAsString(payload));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Event payload cannot be serialized: " + e.getMessage(), e);
+        }
+        outboxEventRepository.save(event);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void publishSale(String eventType, Sale sale) {
+        if (!outboxDispatcher.hasHandlers(eventType)) {
+            return;
+        }
+        List<Map<String, Object>> items = new ArrayList<>();
+        for (SaleItem item : sale.getSaleItems()) {
+            Map<String, Object> line = new LinkedHashMap<>();
+            line.put("medicine_id", item.getMedicine().getId());
+            line.put("quantity", item.getQuantity());
+            line.put("total_price", item.getTotalPrice());
+            items.add(line);
+        }
+
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("sale_id", sale.getId());
+        payload.put("branch_id", sale.getBranch() != null ? sale.getBranch().getId() : null);
+        payload.put("user_id", sale.getUser() != null ? sale.getUser().getId() : null);
+        payload.put("sale_date", sale.getSaleDate());
+        payload.put("total_amount", sale.getTotalAmount());
+        payload.put("items", items);
+        publish(SALE, sale.getId(), eventType, payload);
+    }
+
+    /**
+     * Stock writes already announce themselves in-process; record them in the outbox
+     * while their transaction is still open
+     */
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive() || event.getStockId() == null
+                || !outboxDispatcher.hasHandlers(STOCK_CHANGED)) {
+            return;
+        }
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("stock_id", event.getStockId());
+        payload.put("branch_id", event.getBranchId());
+        payload.put("medicine_id", event.getMedicineId());
+        payload.put("batch_id", event.getBatchId());
+        payload.put("quantity_delta", event.getQuantityDelta());
+        payload.put("change_type", event.getChangeType());
+        publish(STOCK, event.getStockId(), STOCK_CHANGED, payload);
+    }
+}
@@ -1,16 +1,24 @@
 package com.pharmacy.inventory.service.impl;
 
+import com.pharmacy.inventory.dto.PageCursor;
 import com.pharmacy.inventory.dto.PrescriptionDTO;
 import com.pharmacy.inventory.dto.PrescriptionItemDTO;
+import com.pharmacy.inventory.dto.response.CursorPage;
+import com.pharmacy.inventory.dto.response.SearchPage;
 import com.pharmacy.inventory.exception.ResourceNotFoundException;
 import com.pharmacy.inventory.model.*;
-import com.pharmacy.inventory.repository.MedicineRepository;
 import com.pharmacy.inventory.repository.PrescriptionItemRepository;
 import com.pharmacy.inventory.repository.PrescriptionRepository;
 import com.pharmacy.inventory.repository.UserRepository;
+import com.pharmacy.inventory.service.MedicineCacheService;
+import com.pharmacy.inventory.service.NameSearchService;
 import com.pharmacy.inventory.service.PrescriptionService;
+import com.pharmacy.inventory.service.StockCheckoutService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -30,8 +38,10 @@ public class PrescriptionServiceImpl implements PrescriptionService {
 
     private final PrescriptionRepository prescriptionRepository;
     private final PrescriptionItemRepository prescriptionItemRepository;
-    private final MedicineRepository medicineRepository;
+    private final MedicineCacheService medicineCacheService;
     private final UserRepository userRepository;
+    private final StockCheckoutService stockCheckoutService;
+    private final NameSearchService nameSearchService;
     
     @Value("${pharmacy.prescriptions.images-path}")
     private String prescriptionImagesPath;
@@ -39,12 +49,16 @@ public class PrescriptionServiceImpl implements PrescriptionService {
     @Autowired
     public PrescriptionServiceImpl(PrescriptionRepository prescriptionRepository,
                                  PrescriptionItemRepository prescriptionItemRepository,
-                                 MedicineRepository medicineRepository,
-                                 UserRepository userRepository) {
+                                 MedicineCacheService medicineCacheService,
+                                 UserRepository userRepository,
+                                 StockCheckoutService stockCheckoutService,
+                                 NameSearchService nameSearchService) {
         this.prescriptionRepository = prescriptionRepository;
         this.prescriptionItemRepository = prescriptionItemRepository;
-        this.medicineRepository = medicineRepository;
+        this.medicineCacheService = medicineCacheService;
         this.userRepository = userRepository;
+        this.stockCheckoutService = stockCheckoutService;
+        this.nameSearchService = nameSearchService;
     }
 
     @Override
@@ -65,7 +79,9 @@ public class PrescriptionServiceImpl implements PrescriptionService {
                 .ifPresent(prescription::setDoctor);
         }
         
-        return prescriptionRepository.save(prescription);
+        Prescription saved = prescriptionRepository.save(prescription);
+        nameSearchService.nameChanged(NameSearchService.Field.PATIENT_NAME, null, saved.getPatientName());
+        return saved;
     }
 
     @Override
@@ -75,7 +91,7 @@ public class PrescriptionServiceImpl implements PrescriptionService {
             throw new ResourceNotFoundException("Prescription not found with id " + prescriptionId);
         }
         
-        Optional<Medicine> medicineOptional = medicineRepository.findById(prescriptionItemDTO.getMedicine().getId());
+        Optional<Medicine> medicineOptional = medicineCacheService.get(prescriptionItemDTO.getMedicine().getId());
         if (!medicineOptional.isPresent()) {
             throw new ResourceNotFoundException("Medicine not found with id " + prescriptionItemDTO.getMedicine().getId());
         }
@@ -98,6 +114,13 @@ public class PrescriptionServiceImpl implements PrescriptionService {
         return prescriptionRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<Prescription> getPrescriptionsPage(String cursor, int size) {
+        return CursorPage.fetch(cursor, size, prescriptionRepository::findFirstPage, prescriptionRepository::findPageAfter,
+                prescription -> new PageCursor(prescription.getCreatedAt(), prescription.getId()));
+    }
+
     @Override
     @Transactional
     public Prescription getPrescriptionById(UUID id) {
@@ -145,6 +168,13 @@ public class PrescriptionServiceImpl implements PrescriptionService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id " + userId));
         
+        // Take only the newly dispensed quantity off the prescription branch's stock
+        int previouslyDispensed = item.getDispensedQuantity() != null ? item.getDispensedQuantity() : 0;
+        Branch branch = item.getPrescription() != null ? item.getPrescription().getBranch() : null;
+        if (branch != null && item.getMedicine() != null && quantity != null && quantity > previouslyDispensed) {
+            stockCheckoutService.deduct(branch.getId(), item.getMedicine().getId(), quantity - previouslyDispensed);
+        }
+        
         item.setDispensedBy(user);
         item.setDispensedQuantity(quantity);
         item.setIsDispensed(true);
@@ -158,6 +188,28 @@ public class PrescriptionServiceImpl implements PrescriptionService {
         return prescriptionRepository.findByPatientNameContainingIgnoreCase(patientName);
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public SearchPage<Prescription> searchPrescriptionsByPatientName(String query, int page, int size) {
+        String term = NameSearchService.normalize(query != null ? query.trim() : null);
+        if (term == null) {
+            throw new IllegalArgumentException("Search term must not be empty");
+        }
+        int pageNumber = Math.max(page, 0);
+        Pageable pageable = PageRequest.of(pageNumber, SearchPage.clampSize(size));
+        String escaped = NameSearchService.escapeLike(term);
+        
+        List<String> names = nameSearchService.findMatchingNames(NameSearchService.Field.PATIENT_NAME, term);
+        if (names != null && names.isEmpty()) {
+            return SearchPage.empty(pageNumber);
+        }
+        Slice<Prescription> slice = names != null
+                ? prescriptionRepository.searchByPatientNames(names, term, escaped + "%", "% " + escaped + "%", pageable)
+                : prescriptionRepository.searchByPatientNameLike("%" + escaped + "%", term, escaped + "%",
+                        "% " + escaped + "%", pageable);
+        return SearchPage.of(slice);
+    }
+
     @Override
     @Transactional
     public List<Prescription> getPrescriptionsByDateRange(LocalDateTime startDate, LocalDateTime endDate) {
@@ -171,6 +223,7 @@ public class PrescriptionServiceImpl implements PrescriptionService {
         
         if (existingPrescription.isPresent()) {
             Prescription prescription = existingPrescription.get();
+            String previousPatientName = prescription.getPatientName();
             
             prescription.setPatientName(updatedPrescription.getPatientName());
             prescription.setPatientContact(updatedPrescription.getPatientContact());
@@ -183,7 +236,10 @@ public class PrescriptionServiceImpl implements PrescriptionService {
                     .ifPresent(prescription::setDoctor);
             }
             
-            return prescriptionRepository.save(prescription);
+            Prescription saved = prescriptionRepository.save(prescription);
+            nameSearchService.nameChanged(NameSearchService.Field.PATIENT_NAME, previousPatientName,
+                    saved.getPatientName());
+            return saved;
         }
         
         return null;
@@ -204,7 +260,7 @@ public class PrescriptionServiceImpl implements PrescriptionService {
             existingItem.setQuantity(updatedItem.getQuantity());
             
             if (updatedItem.getMedicine() != null && updatedItem.getMedicine().getId() != null) {
-                medicineRepository.findById(updatedItem.getMedicine().getId())
+                medicineCacheService.get(updatedItem.getMedicine().getId())
                     .ifPresent(existingItem::setMedicine);
             }
             
@@ -217,8 +273,10 @@ public class PrescriptionServiceImpl implements PrescriptionService {
     @Override
     @Transactional
     public boolean deletePrescription(UUID id) {
-        if (prescriptionRepository.existsById(id)) {
-            prescriptionRepository.deleteById(id);
+        Optional<Prescription> prescription = prescriptionRepository.findById(id);
+        if (prescription.isPresent()) {
+            prescriptionRepository.delete(prescription.get());
+            nameSearchService.nameChanged(NameSearchService.Field.PATIENT_NAME, prescription.get().getPatientName(), null);
             return true;
         }
         return false;
@@ -0,0 +1,229 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.ReportSpec;
+import com.pharmacy.inventory.service.DataVersionService;
+import com.pharmacy.inventory.service.DataVersionService.DataSet;
+import com.pharmacy.inventory.service.ReportCacheService;
+import com.pharmacy.inventory.service.ReportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * LRU cache of rendered report bytes.
+ *
+ * The key is the report type, format and the parameters that type uses, plus
+ * today's date (reports show days-to-expiry and a generation date) and the version
+ * of every table the report reads. The versions are read before rendering starts,
+ * so a write that commits mid-render leaves the entry under a key nobody will look
+ * up again rather than serving stale data. Entries whose versions have moved on are
+ * purged on the next insert; beyond that the cache is bounded by total bytes, and
+ * reports larger than the per-entry limit are streamed through without being kept.
+ */
+@Service
+public class ReportCacheServiceImpl implements ReportCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportCacheServiceImpl.class);
+
+    // Tables each report type reads
+    private static final Map<ReportSpec.Type, Set<DataSet>> DEPENDENCIES = new EnumMap<>(ReportSpec.Type.class);
+
+    static {
+        DEPENDENCIES.put(ReportSpec.Type.SALES, EnumSet.of(DataSet.SALES, DataSet.BRANCHES, DataSet.USERS));
+        DEPENDENCIES.put(ReportSpec.Type.INVENTORY,
+                EnumSet.of(DataSet.STOCK, DataSet.BATCHES, DataSet.MEDICINES, DataSet.BRANCHES));
+        DEPENDENCIES.put(ReportSpec.Type.EXPIRY,
+                EnumSet.of(DataSet.STOCK, DataSet.BATCHES, DataSet.MEDICINES, DataSet.BRANCHES));
+        DEPENDENCIES.put(ReportSpec.Type.SUPPLIER_PERFORMANCE, EnumSet.of(DataSet.PURCHASE_ORDERS, DataSet.SUPPLIERS));
+        DEPENDENCIES.put(ReportSpec.Type.PURCHASE_ORDERS,
+                EnumSet.of(DataSet.PURCHASE_ORDERS, DataSet.SUPPLIERS, DataSet.BRANCHES));
+        DEPENDENCIES.put(ReportSpec.Type.PROFIT_LOSS,
+                EnumSet.of(DataSet.SALES, DataSet.PURCHASE_ORDERS, DataSet.BRANCHES));
+    }
+
+    private final ReportService reportService;
+    private final DataVersionService dataVersionService;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+
+    // Guarded by this; access order makes iteration run least recently used first
+    private final LinkedHashMap<String, CachedReport> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    @Autowired
+    public ReportCacheServiceImpl(ReportService reportService, DataVersionService dataVersionService,
+                                  @Value("${app.reports.cache.max-bytes:67108864}") long maxBytes,
+                                  @Value("${app.reports.cache.max-entry-bytes:8388608}") long maxEntryBytes) {
+        this.reportService = reportService;
+        this.dataVersionService = dataVersionService;
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = Math.min(maxEntryBytes, maxBytes);
+    }
+
+    @Override
+    public void render(ReportSpec spec, OutputStream outputStream) throws IOException {
+        LocalDate today = LocalDate.now();
+        Map<DataSet, Long> versions = currentVersions(spec.getType());
+        String key = cacheKey(spec, today, versions);
+
+        byte[] cached = get(key);
+        if (cached != null) {
+            logger.debug("Report cache hit for {}", key);
+            outputStream.write(cached);
+            return;
+        }
+
+        CapturingOutputStream capture = new CapturingOutputStream(outputStream, maxEntryBytes);
+        reportService.generateReport(spec, capture);
+        capture.flush();
+
+        byte[] rendered = capture.getCaptured();
+        if (rendered != null) {
+            put(key, new CachedReport(rendered, today, versions));
+        }
+    }
+
+    private Map<DataSet, Long> currentVersions(ReportSpec.Type type) {
+        Map<DataSet, Long> all = dataVersionService.getVersions();
+        Map<DataSet, Long> versions = new EnumMap<>(DataSet.class);
+        for (DataSet dataSet : DEPENDENCIES.get(type)) {
+            versions.put(dataSet, all.get(dataSet));
+        }
+        return versions;
+    }
+
+    /**
+     * Only the parameters a report type actually uses go into its key, so e.g. an
+     * inventory report is not cached twice because a client also sent a date range
+     */
+    private static String cacheKey(ReportSpec spec, LocalDate today, Map<DataSet, Long> versions) {
+        StringBuilder key = new StringBuilder()
+                .append(spec.getType()).append('|').append(spec.getFormat()).append('|').append(today);
+        switch (spec.getType()) {
+            case INVENTORY:
+                key.append("|zero=").append(spec.isIncludeZeroStock());
+                break;
+            case EXPIRY:
+                key.append("|days=").append(spec.getDays());
+                break;
+            default:
+                key.append('|').append(spec.getStartDate()).append("..").append(spec.getEndDate());
+                break;
+        }
+        if (spec.getType() != ReportSpec.Type.SUPPLIER_PERFORMANCE) {
+            key.append("|branch=").append(spec.getBranchId());
+        }
+        key.append('|').append(versions);
+        return key.toString();
+    }
+
+    private synchronized byte[] get(String key) {
+        CachedReport entry = entries.get(key);
+        return entry != null ? entry.bytes : null;
+    }
+
+    private void put(String key, CachedReport entry) {
+        // Read once up front rather than per entry under the lock
+        Map<DataSet, Long> current = dataVersionService.getVersions();
+        put(key, entry, current);
+    }
+
+    private synchronized void put(String key, CachedReport entry, Map<DataSet, Long> current) {
+        CachedReport previous = entries.put(key, entry);
+        totalBytes += entry.bytes.length - (previous != null ? previous.bytes.length : 0);
+
+        Iterator<CachedReport> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            CachedReport candidate = iterator.next();
+            if (totalBytes > maxBytes || isStale(candidate, current)) {
+                iterator.remove();
+                totalBytes -= candidate.bytes.length;
+            }
+        }
+    }
+
+    private static boolean isStale(CachedReport entry, Map<DataSet, Long> current) {
+        if (!entry.date.equals(LocalDate.now())) {
+            return true;
+        }
+        for (Map.Entry<DataSet, Long> version : entry.versions.entrySet()) {
+            if (!version.getValue().equals(current.get(version.getKey()))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class CachedReport {
+        private final byte[] bytes;
+        private final LocalDate date;
+        private final Map<DataSet, Long> versions;
+
+        CachedReport(byte[] bytes, LocalDate date, Map<DataSet, Long> versions) {
+            this.bytes = bytes;
+            this.date = date;
+            this.versions = versions;
+        }
+    }
+
+    /**
+     * Passes everything through to the client and keeps a copy, until the copy
+     * would exceed the limit; from then on it only passes through
+     */
+    private static final class CapturingOutputStream extends FilterOutputStream {
+        private final long limit;
+        private ByteArrayOutputStream copy = new ByteArrayOutputStream();
+
+        CapturingOutputStream(OutputStream out, long limit) {
+            super(out);
+            this.limit = limit;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            if (keep(1)) {
+                copy.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            if (keep(len)) {
+                copy.write(b, off, len);
+            }
+        }
+
+        // Generators close the stream when done; the caller owns it, so only flush
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+
+        byte[] getCaptured() {
+            return copy != null ? copy.toByteArray() : null;
+        }
+
+        private boolean keep(int len) {
+            if (copy != null && copy.size() + (long) len > limit) {
+                copy = null;
+            }
+            return copy != null;
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.ReportSpec;
+import com.pharmacy.inventory.dto.response.ReportJobResponse;
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
+import com.pharmacy.inventory.exception.ServiceBusyException;
+import com.pharmacy.inventory.model.TimeOrderedUuidGenerator;
+import com.pharmacy.inventory.service.ReportCacheService;
+import com.pharmacy.inventory.service.ReportJobService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Background report generation.
+ *
+ * Jobs run on the bounded report executor and write to a ".part" file under the
+ * report temp directory, renamed into place once the report is complete, so a
+ * download never sees a half-written file. Progress is the number of bytes written
+ * so far. Finished and failed jobs are kept for the configured TTL and then
+ * removed together with their files; files left behind by a previous run are swept
+ * on the same schedule.
+ */
+@Service
+public class ReportJobServiceImpl implements ReportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReportJobServiceImpl.class);
+
+    // Report types that carry financial figures; the rest are open to pharmacists too
+    private static final Set<ReportSpec.Type> MANAGER_ONLY = Set.of(ReportSpec.Type.SALES,
+            ReportSpec.Type.SUPPLIER_PERFORMANCE, ReportSpec.Type.PURCHASE_ORDERS, ReportSpec.Type.PROFIT_LOSS);
+
+    private final ReportCacheService reportCacheService;
+    private final ThreadPoolTaskExecutor reportExecutor;
+    private final Path jobDirectory;
+    private final Duration ttl;
+    private final Map<UUID, ReportJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${app.reports.jobs.retry-after-seconds:30}")
+    private int retryAfterSeconds;
+
+    @Autowired
+    public ReportJobServiceImpl(ReportCacheService reportCacheService,
+                                @Qualifier("reportExecutor") ThreadPoolTaskExecutor reportExecutor,
+                                @Value("${app.reports.temp.path}") String reportTempPath,
+                                @Value("${app.reports.jobs.ttl-minutes:60}") long ttlMinutes) {
+        this.reportCacheService = reportCacheService;
+        this.reportExecutor = reportExecutor;
+        this.jobDirectory = Paths.get(reportTempPath, "jobs");
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    @Override
+    public ReportJobResponse submit(ReportSpec spec) {
+        spec.validate();
+        if (MANAGER_ONLY.contains(spec.getType()) && !hasAnyRole("ROLE_ADMIN", "ROLE_MANAGER")) {
+            throw new AccessDeniedException("Only administrators and managers may run " + spec.getType() + " reports");
+        }
+
+        ReportJob job = new ReportJob(TimeOrderedUuidGenerator.generate(), currentUser(), spec);
+        jobs.put(job.id, job);
+        try {
+            job.future = reportExecutor.submit(() -> run(job));
+        } catch (TaskRejectedException e) {
+            jobs.remove(job.id);
+            throw new ServiceBusyException("Too many reports queued, please retry later", retryAfterSeconds);
+        }
+        return job.toResponse();
+    }
+
+    @Override
+    public ReportJobResponse getJob(UUID jobId) {
+        return findVisibleJob(jobId).toResponse();
+    }
+
+    @Override
+    public Path getResultFile(UUID jobId) {
+        ReportJob job = findVisibleJob(jobId);
+        if (job.status != ReportJobResponse.Status.COMPLETED || job.file == null || !Files.exists(job.file)) {
+            throw new IllegalStateException("Report job " + jobId + " is " + job.status.name().toLowerCase());
+        }
+        return job.file;
+    }
+
+    @Override
+    public ReportSpec getSpec(UUID jobId) {
+        return findVisibleJob(jobId).spec;
+    }
+
+    @Override
+    public void deleteJob(UUID jobId) {
+        ReportJob job = findVisibleJob(jobId);
+        jobs.remove(jobId);
+        discard(job);
+    }
+
+    /**
+     * Drop jobs past their TTL, and any file in the job directory older than the TTL
+     * that no job refers to (e.g. left behind by a restart)
+     */
+    @Scheduled(fixedDelayString = "${app.reports.jobs.cleanup-interval-ms:60000}")
+    public void removeExpiredJobs() {
+        LocalDateTime now = LocalDateTime.now();
+        for (ReportJob job : jobs.values()) {
+            if (job.expiresAt != null && job.expiresAt.isBefore(now) && jobs.remove(job.id, job)) {
+                discard(job);
+            }
+        }
+
+        if (!Files.isDirectory(jobDirectory)) {
+            return;
+        }
+        FileTime cutoff = FileTime.from(Instant.now().minus(ttl));
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(jobDirectory)) {
+            for (Path file : files) {
+                if (!isTracked(file) && Files.getLastModifiedTime(file).compareTo(cutoff) < 0) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to sweep report job directory {}: {}", jobDirectory, e.getMessage());
+        }
+    }
+
+    private void run(ReportJob job) {
+        job.status = ReportJobResponse.Status.RUNNING;
+        job.startedAt = LocalDateTime.now();
+
+        Path partFile = jobDirectory.resolve(job.id + ".part");
+        Path file = jobDirectory.resolve(job.id + job.spec.getFormat().getExtension());
+        try {
+            Files.createDirectories(jobDirectory);
+            try (OutputStream out = new CountingOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(partFile)), job.bytesWritten)) {
+                reportCacheService.render(job.spec, out);
+            }
+            Files.move(partFile, file, StandardCopyOption.REPLACE_EXISTING);
+
+            job.file = file;
+            job.finish(ReportJobResponse.Status.COMPLETED, null, ttl);
+            // Deleted while running: nothing will hand this file out any more
+            if (!jobs.containsKey(job.id)) {
+                discard(job);
+            }
+        } catch (Exception e) {
+            logger.error("Report job {} ({} {}) failed", job.id, job.spec.getType(), job.spec.getFormat(), e);
+            deleteQuietly(partFile);
+            job.finish(ReportJobResponse.Status.FAILED, e.getMessage(), ttl);
+        }
+    }
+
+    private ReportJob findVisibleJob(UUID jobId) {
+        ReportJob job = jobs.get(jobId);
+        if (job == null || !(job.owner.equals(currentUser()) || hasAnyRole("ROLE_ADMIN"))) {
+            throw new ResourceNotFoundException("Report job not found with id " + jobId);
+        }
+        return job;
+    }
+
+    private boolean isTracked(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.indexOf('.');
+        try {
+            return dot > 0 && jobs.containsKey(UUID.fromString(name.substring(0, dot)));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private void discard(ReportJob job) {
+        Future<?> future = job.future;
+        if (future != null && !future.isDone()) {
+            future.cancel(true);
+        }
+        if (job.file != null) {
+            deleteQuietly(job.file);
+        }
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to delete report file {}: {}", file, e.getMessage());
+        }
+    }
+
+    private String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null ? authentication.getName() : "";
+    }
+
+    private boolean hasAnyRole(String... roles) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            for (String role : roles) {
+                if (role.equals(authority.getAuthority())) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * State of one job; written by the worker thread and read by status requests
+     */
+    private static final class ReportJob {
+        private final UUID id;
+        private final String owner;
+        private final ReportSpec spec;
+        private final LocalDateTime createdAt = LocalDateTime.now();
+        private final AtomicLong bytesWritten = new AtomicLong();
+        private volatile ReportJobResponse.Status status = ReportJobResponse.Status.QUEUED;
+        private volatile LocalDateTime startedAt;
+        private volatile LocalDateTime finishedAt;
+        private volatile LocalDateTime expiresAt;
+        private volatile String error;
+        private volatile Path file;
+        private volatile Future<?> future;
+
+        ReportJob(UUID id, String owner, ReportSpec spec) {
+            this.id = id;
+            this.owner = owner;
+            this.spec = spec;
+        }
+
+        void finish(ReportJobResponse.Status finalStatus, String message, Duration ttl) {
+            finishedAt = LocalDateTime.now();
+            expiresAt = finishedAt.plus(ttl);
+            error = message;
+            status = finalStatus;
+        }
+
+        ReportJobResponse toResponse() {
+            return new ReportJobResponse(id, spec.getType(), spec.getFormat(), status, bytesWritten.get(),
+                    spec.getFileName(), error, createdAt, startedAt, finishedAt, expiresAt);
+        }
+    }
+
+    /**
+     * Counts bytes on their way to the file so pollers can watch a job progress
+     */
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private final AtomicLong count;
+
+        CountingOutputStream(OutputStream out, AtomicLong count) {
+            super(out);
+            this.count = count;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count.addAndGet(len);
+        }
+    }
+}
@@ -5,47 +5,97 @@ import com.itextpdf.text.Font;
 import com.itextpdf.text.pdf.PdfPCell;
 import com.itextpdf.text.pdf.PdfPTable;
 import com.itextpdf.text.pdf.PdfWriter;
-import com.pharmacy.inventory.model.*;
+import com.pharmacy.inventory.dto.ReportSpec;
+import com.pharmacy.inventory.dto.SaleDTO;
+import com.pharmacy.inventory.dto.StockDTO;
+import com.pharmacy.inventory.dto.report.ExpiryReportRow;
+import com.pharmacy.inventory.dto.report.PurchaseOrderReportRow;
+import com.pharmacy.inventory.dto.report.ReportTotals;
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.PurchaseOrder;
 import com.pharmacy.inventory.repository.*;
 import com.pharmacy.inventory.service.ReportService;
+import com.pharmacy.inventory.service.SalesRollupService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.apache.poi.ss.SpreadsheetVersion;
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
 
+/**
+ * Report rendering that keeps heap use independent of the size of the report.
+ *
+ * Detail rows are read from database cursors as constructor projections (never
+ * managed entities) and written out as they arrive: PDF tables are flushed to the
+ * document every few hundred rows and Excel sheets use a streaming workbook that
+ * keeps only a small window of rows in memory. Summary figures come from aggregate
+ * queries run before the detail rows are read.
+ *
+ * The independent lookups of a report (branch name, summary aggregates, the sales
+ * and purchase sides of P&L) are started together on the report fetch executor,
+ * each in its own read-only transaction, and joined just before they are rendered.
+ * The calling thread holds no connection while it waits, so a report never needs
+ * more than one connection per running query.
+ */
 @Service
 public class ReportServiceImpl implements ReportService {
 
     private final SaleRepository saleRepository;
-    private final MedicineRepository medicineRepository;
+    private final SalesRollupService salesRollupService;
     private final StockRepository stockRepository;
     private final BatchRepository batchRepository;
-    private final SupplierRepository supplierRepository;
     private final PurchaseOrderRepository purchaseOrderRepository;
     private final BranchRepository branchRepository;
+    private final ExecutorService fetchExecutor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final Semaphore fetchPermits;
 
     @Autowired
-    public ReportServiceImpl(SaleRepository saleRepository, MedicineRepository medicineRepository,
+    public ReportServiceImpl(SaleRepository saleRepository, SalesRollupService salesRollupService,
                            StockRepository stockRepository, BatchRepository batchRepository,
-                           SupplierRepository supplierRepository, PurchaseOrderRepository purchaseOrderRepository,
-                           BranchRepository branchRepository) {
+                           PurchaseOrderRepository purchaseOrderRepository, BranchRepository branchRepository,
+                           @Qualifier("reportFetchExecutor") ExecutorService fetchExecutor,
+                           PlatformTransactionManager transactionManager,
+                           @Value("${app.reports.fetch.max-concurrent:4}") int maxConcurrentFetches) {
         this.saleRepository = saleRepository;
-        this.medicineRepository = medicineRepository;
+        this.salesRollupService = salesRollupService;
         this.stockRepository = stockRepository;
         this.batchRepository = batchRepository;
-        this.supplierRepository = supplierRepository;
         this.purchaseOrderRepository = purchaseOrderRepository;
         this.branchRepository = branchRepository;
+        this.fetchExecutor = fetchExecutor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.fetchPermits = new Semaphore(maxConcurrentFetches);
     }
 
     private static final Font HEADER_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, BaseColor.WHITE);
@@ -53,25 +103,37 @@ public class ReportServiceImpl implements ReportService {
     private static final Font NORMAL_FONT = FontFactory.getFont(FontFactory.HELVETICA, 10, BaseColor.BLACK);
     private static final Font SUBTITLE_FONT = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12, BaseColor.BLACK);
 
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+    private static final DateTimeFormatter DATE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Rows buffered in a PDF table before it is written out and emptied
+    private static final int PDF_FLUSH_ROWS = 250;
+
+    // Rows an Excel sheet keeps in memory; older rows are flushed to a temp file
+    private static final int EXCEL_ROW_WINDOW = 100;
+
+    private static final int EXCEL_LAST_ROW = SpreadsheetVersion.EXCEL2007.getLastRowIndex();
+
     @Override
     public void generateSalesReport(LocalDate startDate, LocalDate endDate, UUID branchId, OutputStream outputStream) {
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        CompletableFuture<ReportTotals> totals = fetchSalesTotals(startDate, endDate, branchId);
         try {
             Document document = new Document(PageSize.A4);
             PdfWriter.getInstance(document, outputStream);
             document.open();
-            
+
             // Add title
-            addReportTitle(document, "Sales Report", startDate, endDate, branchId);
-            
-            // Get sales data
-            List<Sale> sales = getSalesByDateRangeAndBranch(startDate, endDate, branchId);
-            
+            addReportTitle(document, "Sales Report", startDate, endDate, join(branchName));
+
             // Summary section
-            addSalesSummarySection(document, sales);
-            
+            addSummaryTable(document, "Summary", salesSummary(join(totals)));
+
             // Sales details table
-            addSalesDetailsTable(document, sales);
-            
+            addStreamingTable(document, new float[]{3, 4, 3, 3, 3, 2},
+                    new String[]{"Date", "Sale ID", "Customer", "Cashier", "Branch", "Amount"},
+                    () -> streamSales(startDate, endDate, branchId), this::saleCells);
+
             document.close();
         } catch (DocumentException e) {
             throw new RuntimeException("Failed to generate sales report", e);
@@ -80,70 +142,44 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public void generateSalesReportExcel(LocalDate startDate, LocalDate endDate, UUID branchId, OutputStream outputStream) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            // Create sheet
-            Sheet sheet = workbook.createSheet("Sales Report");
-            
-            // Create header row
-            createExcelHeaderRow(sheet, "Sales Report", startDate, endDate, branchId);
-            
-            // Get sales data
-            List<Sale> sales = getSalesByDateRangeAndBranch(startDate, endDate, branchId);
-            
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        CompletableFuture<ReportTotals> totals = fetchSalesTotals(startDate, endDate, branchId);
+        writeExcel(outputStream, "Failed to generate sales report Excel", workbook -> {
+            SheetWriter sheet = new SheetWriter(workbook, "Sales Report");
+            sheet.setColumnWidths(20, 38, 25, 25, 25, 14);
+
+            // Create header rows
+            createExcelHeaderRow(sheet, "Sales Report", startDate, endDate, join(branchName));
+
             // Create sales summary
-            createSalesSummaryExcel(sheet, sales, 3);
-            
+            sheet.writeFigures("Summary", salesSummary(join(totals)));
+
             // Create sales details table
-            createSalesDetailsExcel(sheet, sales, 8);
-            
-            // Auto size columns
-            for (int i = 0; i < 7; i++) {
-                sheet.autoSizeColumn(i);
-            }
-            
-            workbook.write(outputStream);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to generate sales report Excel", e);
-        }
+            sheet.writeColumnHeaders("Date", "Sale ID", "Customer", "Cashier", "Branch", "Amount");
+            forEachRow(() -> streamSales(startDate, endDate, branchId), sale -> sheet.writeRow(saleCells(sale)));
+        });
     }
 
     @Override
     public void generateInventoryReport(boolean includeZeroStock, UUID branchId, OutputStream outputStream) {
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        CompletableFuture<ReportTotals> totals = fetchInventoryTotals(includeZeroStock, branchId);
         try {
             Document document = new Document(PageSize.A4.rotate());
             PdfWriter.getInstance(document, outputStream);
             document.open();
-            
+
             // Add title
-            Paragraph title = new Paragraph("Inventory Status Report", TITLE_FONT);
-            title.setAlignment(Element.ALIGN_CENTER);
-            document.add(title);
-            
-            Paragraph dateInfo = new Paragraph("Generated on: " + 
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")), NORMAL_FONT);
-            dateInfo.setAlignment(Element.ALIGN_CENTER);
-            document.add(dateInfo);
-            
-            if (branchId != null) {
-                Branch branch = branchRepository.findById(branchId).orElse(null);
-                if (branch != null) {
-                    Paragraph branchInfo = new Paragraph("Branch: " + branch.getName(), NORMAL_FONT);
-                    branchInfo.setAlignment(Element.ALIGN_CENTER);
-                    document.add(branchInfo);
-                }
-            }
-            
-            document.add(Chunk.NEWLINE);
-            
-            // Get inventory data
-            List<Stock> stockItems = getStockByBranch(branchId, includeZeroStock);
-            
+            addReportTitle(document, "Inventory Status Report", null, null, join(branchName));
+
             // Inventory summary section
-            addInventorySummarySection(document, stockItems);
-            
+            addSummaryTable(document, "Summary", inventorySummary(join(totals)));
+
             // Inventory details table
-            addInventoryDetailsTable(document, stockItems);
-            
+            addStreamingTable(document, new float[]{5, 3, 2, 3, 2, 3},
+                    new String[]{"Medicine", "Batch", "Expiry Date", "Branch", "Quantity", "Last Updated"},
+                    () -> streamStock(includeZeroStock, branchId), this::stockCells);
+
             document.close();
         } catch (DocumentException e) {
             throw new RuntimeException("Failed to generate inventory report", e);
@@ -152,94 +188,46 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public void generateInventoryReportExcel(boolean includeZeroStock, UUID branchId, OutputStream outputStream) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            // Create sheet
-            Sheet sheet = workbook.createSheet("Inventory Report");
-            
-            // Create styles
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            CellStyle normalStyle = createNormalStyle(workbook);
-            
-            // Create header
-            Row titleRow = sheet.createRow(0);
-            Cell titleCell = titleRow.createCell(0);
-            titleCell.setCellValue("Inventory Status Report");
-            titleCell.setCellStyle(headerStyle);
-            
-            Row dateRow = sheet.createRow(1);
-            Cell dateCell = dateRow.createCell(0);
-            dateCell.setCellValue("Generated on: " + 
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")));
-            dateCell.setCellStyle(normalStyle);
-            
-            if (branchId != null) {
-                Branch branch = branchRepository.findById(branchId).orElse(null);
-                if (branch != null) {
-                    Row branchRow = sheet.createRow(2);
-                    Cell branchCell = branchRow.createCell(0);
-                    branchCell.setCellValue("Branch: " + branch.getName());
-                    branchCell.setCellStyle(normalStyle);
-                }
-            }
-            
-            // Get inventory data
-            List<Stock> stockItems = getStockByBranch(branchId, includeZeroStock);
-            
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        CompletableFuture<ReportTotals> totals = fetchInventoryTotals(includeZeroStock, branchId);
+        writeExcel(outputStream, "Failed to generate inventory report Excel", workbook -> {
+            SheetWriter sheet = new SheetWriter(workbook, "Inventory Report");
+            sheet.setColumnWidths(35, 20, 14, 25, 12, 20);
+
+            // Create header rows
+            createExcelHeaderRow(sheet, "Inventory Status Report", null, null, join(branchName));
+
             // Create inventory summary
-            createInventorySummaryExcel(sheet, stockItems, 4);
-            
+            sheet.writeFigures("Summary", inventorySummary(join(totals)));
+
             // Create inventory details table
-            createInventoryDetailsExcel(sheet, stockItems, 9);
-            
-            // Auto size columns
-            for (int i = 0; i < 8; i++) {
-                sheet.autoSizeColumn(i);
-            }
-            
-            workbook.write(outputStream);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to generate inventory report Excel", e);
-        }
+            sheet.writeColumnHeaders("Medicine", "Batch", "Expiry Date", "Branch", "Quantity", "Last Updated");
+            forEachRow(() -> streamStock(includeZeroStock, branchId), stock -> sheet.writeRow(stockCells(stock)));
+        });
     }
 
     @Override
     public void generateExpiryReport(int days, UUID branchId, OutputStream outputStream) {
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
         try {
             Document document = new Document(PageSize.A4);
             PdfWriter.getInstance(document, outputStream);
             document.open();
-            
+
             // Add title
-            Paragraph title = new Paragraph("Medicine Expiry Report", TITLE_FONT);
-            title.setAlignment(Element.ALIGN_CENTER);
-            document.add(title);
-            
+            addReportTitle(document, "Medicine Expiry Report", null, null, join(branchName));
+
             Paragraph subtitle = new Paragraph("Medicines expiring within " + days + " days", SUBTITLE_FONT);
             subtitle.setAlignment(Element.ALIGN_CENTER);
             document.add(subtitle);
-            
-            Paragraph dateInfo = new Paragraph("Generated on: " + 
-                    LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")), NORMAL_FONT);
-            dateInfo.setAlignment(Element.ALIGN_CENTER);
-            document.add(dateInfo);
-            
-            if (branchId != null) {
-                Branch branch = branchRepository.findById(branchId).orElse(null);
-                if (branch != null) {
-                    Paragraph branchInfo = new Paragraph("Branch: " + branch.getName(), NORMAL_FONT);
-                    branchInfo.setAlignment(Element.ALIGN_CENTER);
-                    document.add(branchInfo);
-                }
-            }
-            
             document.add(Chunk.NEWLINE);
-            
-            // Get expiring batches
-            List<Batch> expiringBatches = getExpiringBatches(days, branchId);
-            
+
             // Add expiry details table
-            addExpiryDetailsTable(document, expiringBatches);
-            
+            LocalDate today = LocalDate.now();
+            addStreamingTable(document, new float[]{4, 3, 3, 2, 2, 2},
+                    new String[]{"Medicine", "Manufacturer", "Batch", "Expiry Date", "Days Left", "Quantity"},
+                    () -> streamExpiringBatches(today.plusDays(days), branchId), row -> expiryCells(row, today));
+
             document.close();
         } catch (DocumentException e) {
             throw new RuntimeException("Failed to generate expiry report", e);
@@ -248,57 +236,40 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public void generateExpiryReportExcel(int days, UUID branchId, OutputStream outputStream) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Expiry Report");
-            
-            // Create styles
-            CellStyle headerStyle = createHeaderStyle(workbook);
-            CellStyle normalStyle = createNormalStyle(workbook);
-            
-            // Create header
-            Row titleRow = sheet.createRow(0);
-            Cell titleCell = titleRow.createCell(0);
-            titleCell.setCellValue("Medicine Expiry Report");
-            titleCell.setCellStyle(headerStyle);
-            
-            Row subtitleRow = sheet.createRow(1);
-            Cell subtitleCell = subtitleRow.createCell(0);
-            subtitleCell.setCellValue("Medicines expiring within " + days + " days");
-            subtitleCell.setCellStyle(normalStyle);
-            
-            // Get expiring batches
-            List<Batch> expiringBatches = getExpiringBatches(days, branchId);
-            
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        writeExcel(outputStream, "Failed to generate expiry report Excel", workbook -> {
+            SheetWriter sheet = new SheetWriter(workbook, "Expiry Report");
+            sheet.setColumnWidths(35, 25, 20, 14, 12, 12);
+
+            // Create header rows
+            createExcelHeaderRow(sheet, "Medicine Expiry Report", null, null, join(branchName));
+            sheet.writeLine("Medicines expiring within " + days + " days");
+            sheet.skipRow();
+
             // Create expiry details table
-            createExpiryDetailsExcel(sheet, expiringBatches, 3);
-            
-            // Auto size columns
-            for (int i = 0; i < 6; i++) {
-                sheet.autoSizeColumn(i);
-            }
-            
-            workbook.write(outputStream);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to generate expiry report Excel", e);
-        }
+            LocalDate today = LocalDate.now();
+            sheet.writeColumnHeaders("Medicine", "Manufacturer", "Batch", "Expiry Date", "Days Left", "Quantity");
+            forEachRow(() -> streamExpiringBatches(today.plusDays(days), branchId),
+                    row -> sheet.writeRow(expiryCells(row, today)));
+        });
     }
 
     @Override
     public void generateSupplierPerformanceReport(LocalDate startDate, LocalDate endDate, OutputStream outputStream) {
+        CompletableFuture<List<SupplierPerformance>> suppliers = fetch(() -> supplierPerformance(startDate, endDate));
         try {
             Document document = new Document(PageSize.A4);
             PdfWriter.getInstance(document, outputStream);
             document.open();
-            
+
             // Add title
             addReportTitle(document, "Supplier Performance Report", startDate, endDate, null);
-            
-            // Get purchase orders for the period
-            List<PurchaseOrder> purchaseOrders = getPurchaseOrdersByDateRange(startDate, endDate);
-            
+
             // Add supplier performance table
-            addSupplierPerformanceTable(document, purchaseOrders, startDate, endDate);
-            
+            addStreamingTable(document, new float[]{5, 2, 2, 2, 2, 3, 3},
+                    new String[]{"Supplier", "Orders", "Completed", "Cancelled", "Completion %", "Total Value", "Avg. Order"},
+                    () -> join(suppliers).stream(), SupplierPerformance::cells);
+
             document.close();
         } catch (DocumentException e) {
             throw new RuntimeException("Failed to generate supplier performance report", e);
@@ -307,48 +278,43 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public void generateSupplierPerformanceReportExcel(LocalDate startDate, LocalDate endDate, OutputStream outputStream) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Supplier Performance");
-            
-            // Create header
+        CompletableFuture<List<SupplierPerformance>> suppliers = fetch(() -> supplierPerformance(startDate, endDate));
+        writeExcel(outputStream, "Failed to generate supplier performance report Excel", workbook -> {
+            SheetWriter sheet = new SheetWriter(workbook, "Supplier Performance");
+            sheet.setColumnWidths(35, 10, 12, 12, 14, 16, 16);
+
+            // Create header rows
             createExcelHeaderRow(sheet, "Supplier Performance Report", startDate, endDate, null);
-            
-            // Get purchase orders for the period
-            List<PurchaseOrder> purchaseOrders = getPurchaseOrdersByDateRange(startDate, endDate);
-            
+
             // Create supplier performance table
-            createSupplierPerformanceExcel(sheet, purchaseOrders, 3);
-            
-            // Auto size columns
-            for (int i = 0; i < 7; i++) {
-                sheet.autoSizeColumn(i);
+            sheet.writeColumnHeaders("Supplier", "Orders", "Completed", "Cancelled", "Completion %", "Total Value", "Avg. Order");
+            for (SupplierPerformance supplier : join(suppliers)) {
+                sheet.writeRow(supplier.cells());
             }
-            
-            workbook.write(outputStream);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to generate supplier performance report Excel", e);
-        }
+        });
     }
 
     @Override
     public void generatePurchaseOrderReport(LocalDate startDate, LocalDate endDate, UUID branchId, OutputStream outputStream) {
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        CompletableFuture<Map<PurchaseOrder.PurchaseStatus, ReportTotals>> totals =
+                fetchPurchaseTotals(startDate, endDate, branchId);
         try {
             Document document = new Document(PageSize.A4.rotate());
             PdfWriter.getInstance(document, outputStream);
             document.open();
-            
+
             // Add title
-            addReportTitle(document, "Purchase Order Report", startDate, endDate, branchId);
-            
-            // Get purchase orders
-            List<PurchaseOrder> purchaseOrders = getPurchaseOrdersByDateRangeAndBranch(startDate, endDate, branchId);
-            
+            addReportTitle(document, "Purchase Order Report", startDate, endDate, join(branchName));
+
             // Add purchase order summary
-            addPurchaseOrderSummary(document, purchaseOrders);
-            
+            addSummaryTable(document, "Summary", purchaseOrderSummary(join(totals)));
+
             // Add purchase order details table
-            addPurchaseOrderDetailsTable(document, purchaseOrders);
-            
+            addStreamingTable(document, new float[]{3, 5, 4, 3, 2, 1, 2},
+                    new String[]{"Order Date", "Order ID", "Supplier", "Branch", "Status", "Items", "Value"},
+                    () -> streamPurchaseOrders(startDate, endDate, branchId), this::purchaseOrderCells);
+
             document.close();
         } catch (DocumentException e) {
             throw new RuntimeException("Failed to generate purchase order report", e);
@@ -357,49 +323,43 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public void generatePurchaseOrderReportExcel(LocalDate startDate, LocalDate endDate, UUID branchId, OutputStream outputStream) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Purchase Orders");
-            
-            // Create header
-            createExcelHeaderRow(sheet, "Purchase Order Report", startDate, endDate, branchId);
-            
-            // Get purchase orders
-            List<PurchaseOrder> purchaseOrders = getPurchaseOrdersByDateRangeAndBranch(startDate, endDate, branchId);
-            
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        CompletableFuture<Map<PurchaseOrder.PurchaseStatus, ReportTotals>> totals =
+                fetchPurchaseTotals(startDate, endDate, branchId);
+        writeExcel(outputStream, "Failed to generate purchase order report Excel", workbook -> {
+            SheetWriter sheet = new SheetWriter(workbook, "Purchase Orders");
+            sheet.setColumnWidths(20, 38, 30, 25, 12, 8, 14);
+
+            // Create header rows
+            createExcelHeaderRow(sheet, "Purchase Order Report", startDate, endDate, join(branchName));
+
             // Create purchase order summary
-            createPurchaseOrderSummaryExcel(sheet, purchaseOrders, 3);
-            
+            sheet.writeFigures("Summary", purchaseOrderSummary(join(totals)));
+
             // Create purchase order details table
-            createPurchaseOrderDetailsExcel(sheet, purchaseOrders, 8);
-            
-            // Auto size columns
-            for (int i = 0; i < 7; i++) {
-                sheet.autoSizeColumn(i);
-            }
-            
-            workbook.write(outputStream);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to generate purchase order report Excel", e);
-        }
+            sheet.writeColumnHeaders("Order Date", "Order ID", "Supplier", "Branch", "Status", "Items", "Value");
+            forEachRow(() -> streamPurchaseOrders(startDate, endDate, branchId),
+                    order -> sheet.writeRow(purchaseOrderCells(order)));
+        });
     }
 
     @Override
     public void generateProfitLossReport(LocalDate startDate, LocalDate endDate, UUID branchId, OutputStream outputStream) {
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        CompletableFuture<ReportTotals> sales = fetchSalesTotals(startDate, endDate, branchId);
+        CompletableFuture<Map<PurchaseOrder.PurchaseStatus, ReportTotals>> purchases =
+                fetchPurchaseTotals(startDate, endDate, branchId);
         try {
             Document document = new Document(PageSize.A4);
             PdfWriter.getInstance(document, outputStream);
             document.open();
-            
+
             // Add title
-            addReportTitle(document, "Profit & Loss Report", startDate, endDate, branchId);
-            
-            // Get sales and purchase data
-            List<Sale> sales = getSalesByDateRangeAndBranch(startDate, endDate, branchId);
-            List<PurchaseOrder> purchases = getPurchaseOrdersByDateRangeAndBranch(startDate, endDate, branchId);
-            
+            addReportTitle(document, "Profit & Loss Report", startDate, endDate, join(branchName));
+
             // Add profit & loss summary
-            addProfitLossSummary(document, sales, purchases);
-            
+            addSummaryTable(document, "Profit & Loss", profitLossSummary(join(sales), join(purchases)));
+
             document.close();
         } catch (DocumentException e) {
             throw new RuntimeException("Failed to generate profit & loss report", e);
@@ -408,190 +368,447 @@ public class ReportServiceImpl implements ReportService {
 
     @Override
     public void generateProfitLossReportExcel(LocalDate startDate, LocalDate endDate, UUID branchId, OutputStream outputStream) {
-        try (Workbook workbook = new XSSFWorkbook()) {
-            Sheet sheet = workbook.createSheet("Profit & Loss");
-            
-            // Create header
-            createExcelHeaderRow(sheet, "Profit & Loss Report", startDate, endDate, branchId);
-            
-            // Get sales and purchase data
-            List<Sale> sales = getSalesByDateRangeAndBranch(startDate, endDate, branchId);
-            List<PurchaseOrder> purchases = getPurchaseOrdersByDateRangeAndBranch(startDate, endDate, branchId);
-            
+        CompletableFuture<String> branchName = fetchBranchName(branchId);
+        CompletableFuture<ReportTotals> sales = fetchSalesTotals(startDate, endDate, branchId);
+        CompletableFuture<Map<PurchaseOrder.PurchaseStatus, ReportTotals>> purchases =
+                fetchPurchaseTotals(startDate, endDate, branchId);
+        writeExcel(outputStream, "Failed to generate profit & loss report Excel", workbook -> {
+            SheetWriter sheet = new SheetWriter(workbook, "Profit & Loss");
+            sheet.setColumnWidths(30, 18);
+
+            // Create header rows
+            createExcelHeaderRow(sheet, "Profit & Loss Report", startDate, endDate, join(branchName));
+
             // Create profit & loss summary
-            createProfitLossSummaryExcel(sheet, sales, purchases, 3);
-            
-            // Auto size columns
-            for (int i = 0; i < 4; i++) {
-                sheet.autoSizeColumn(i);
+            sheet.writeFigures("Profit & Loss", profitLossSummary(join(sales), join(purchases)));
+        });
+    }
+
+    @Override
+    public void generateReport(ReportSpec spec, OutputStream outputStream) {
+        boolean pdf = spec.getFormat() == ReportSpec.Format.PDF;
+        switch (spec.getType()) {
+            case SALES:
+                if (pdf) {
+                    generateSalesReport(spec.getStartDate(), spec.getEndDate(), spec.getBranchId(), outputStream);
+                } else {
+                    generateSalesReportExcel(spec.getStartDate(), spec.getEndDate(), spec.getBranchId(), outputStream);
+                }
+                break;
+            case INVENTORY:
+                if (pdf) {
+                    generateInventoryReport(spec.isIncludeZeroStock(), spec.getBranchId(), outputStream);
+                } else {
+                    generateInventoryReportExcel(spec.isIncludeZeroStock(), spec.getBranchId(), outputStream);
+                }
+                break;
+            case EXPIRY:
+                if (pdf) {
+                    generateExpiryReport(spec.getDays(), spec.getBranchId(), outputStream);
+                } else {
+                    generateExpiryReportExcel(spec.getDays(), spec.getBranchId(), outputStream);
+                }
+                break;
+            case SUPPLIER_PERFORMANCE:
+                if (pdf) {
+                    generateSupplierPerformanceReport(spec.getStartDate(), spec.getEndDate(), outputStream);
+                } else {
+                    generateSupplierPerformanceReportExcel(spec.getStartDate(), spec.getEndDate(), outputStream);
+                }
+                break;
+            case PURCHASE_ORDERS:
+                if (pdf) {
+                    generatePurchaseOrderReport(spec.getStartDate(), spec.getEndDate(), spec.getBranchId(), outputStream);
+                } else {
+                    generatePurchaseOrderReportExcel(spec.getStartDate(), spec.getEndDate(), spec.getBranchId(), outputStream);
+                }
+                break;
+            case PROFIT_LOSS:
+                if (pdf) {
+                    generateProfitLossReport(spec.getStartDate(), spec.getEndDate(), spec.getBranchId(), outputStream);
+                } else {
+                    generateProfitLossReportExcel(spec.getStartDate(), spec.getEndDate(), spec.getBranchId(), outputStream);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported report type: " + spec.getType());
+        }
+    }
+
+    // Concurrent fetching
+
+    /**
+     * Run a query on the fetch executor in its own read-only transaction. Permits cap
+     * how many report queries run at once, whatever kind of threads the executor uses.
+     */
+    private <T> CompletableFuture<T> fetch(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            fetchPermits.acquireUninterruptibly();
+            try {
+                return readOnlyTransaction.execute(status -> query.get());
+            } finally {
+                fetchPermits.release();
             }
-            
-            workbook.write(outputStream);
-        } catch (IOException e) {
-            throw new RuntimeException("Failed to generate profit & loss report Excel", e);
+        }, fetchExecutor);
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 
-    // Helper methods for data retrieval
-    
-    private List<Sale> getSalesByDateRangeAndBranch(LocalDate startDate, LocalDate endDate, UUID branchId) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
+    /**
+     * Consume a row stream inside a read-only transaction on the calling thread;
+     * the cursor behind it is only usable while that transaction is open
+     */
+    private <T> void forEachRow(Supplier<Stream<T>> source, Consumer<T> action) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<T> rows = source.get()) {
+                rows.forEach(action);
+            }
+        });
+    }
+
+    private CompletableFuture<String> fetchBranchName(UUID branchId) {
+        if (branchId == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return fetch(() -> branchRepository.findById(branchId).map(Branch::getName).orElse(null));
+    }
+
+    private CompletableFuture<ReportTotals> fetchSalesTotals(LocalDate startDate, LocalDate endDate, UUID branchId) {
+        // Report ranges are whole days, so these come straight from the daily rollups
+        return fetch(() -> salesRollupService.summarize(startDate.atStartOfDay(),
+                endDate.plusDays(1).atStartOfDay(), branchId));
+    }
+
+    private CompletableFuture<ReportTotals> fetchInventoryTotals(boolean includeZeroStock, UUID branchId) {
+        int minQuantity = includeZeroStock ? 0 : 1;
+        return fetch(() -> branchId != null
+                ? stockRepository.summarizeForReportByBranch(minQuantity, branchId)
+                : stockRepository.summarizeForReport(minQuantity));
+    }
+
+    private CompletableFuture<Map<PurchaseOrder.PurchaseStatus, ReportTotals>> fetchPurchaseTotals(
+            LocalDate startDate, LocalDate endDate, UUID branchId) {
+        return fetch(() -> purchaseTotalsByStatus(startDate, endDate, branchId));
+    }
+
+    // Helper methods for data retrieval; date ranges run from the start of startDate
+    // up to, but not including, the day after endDate
+
+    private Stream<SaleDTO> streamSales(LocalDate startDate, LocalDate endDate, UUID branchId) {
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+
         if (branchId != null) {
-            return saleRepository.findByCreatedAtBetweenAndBranchId(startDateTime, endDateTime, branchId);
+            return saleRepository.streamSaleDTOsForReportByBranch(from, to, branchId);
         } else {
-            return saleRepository.findByCreatedAtBetween(startDateTime, endDateTime);
+            return saleRepository.streamSaleDTOsForReport(from, to);
         }
     }
-    
-    private List<Stock> getStockByBranch(UUID branchId, boolean includeZeroStock) {
+
+    private Stream<StockDTO> streamStock(boolean includeZeroStock, UUID branchId) {
+        int minQuantity = includeZeroStock ? 0 : 1;
+
         if (branchId != null) {
-            if (includeZeroStock) {
-                return stockRepository.findByBranchId(branchId);
-            } else {
-                return stockRepository.findByBranchIdAndCurrentQuantityGreaterThan(branchId, 0);
-            }
+            return stockRepository.streamStockDTOsForReportByBranch(minQuantity, branchId);
         } else {
-            if (includeZeroStock) {
-                return stockRepository.findAll();
-            } else {
-                return stockRepository.findByCurrentQuantityGreaterThan(0);
-            }
+            return stockRepository.streamStockDTOsForReport(minQuantity);
         }
     }
-    
-    private List<Batch> getExpiringBatches(int days, UUID branchId) {
-        LocalDate expiryLimit = LocalDate.now().plusDays(days);
-        
+
+    private Stream<ExpiryReportRow> streamExpiringBatches(LocalDate expiryLimit, UUID branchId) {
         if (branchId != null) {
-            return batchRepository.findExpiringBatchesByBranchId(expiryLimit, branchId);
+            return batchRepository.streamExpiryRowsForReportByBranch(expiryLimit, branchId);
         } else {
-            return batchRepository.findByExpiryDateLessThanEqual(expiryLimit);
+            return batchRepository.streamExpiryRowsForReport(expiryLimit);
         }
     }
-    
-    private List<PurchaseOrder> getPurchaseOrdersByDateRange(LocalDate startDate, LocalDate endDate) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
-        return purchaseOrderRepository.findByOrderDateBetween(startDateTime, endDateTime);
-    }
-    
-    private List<PurchaseOrder> getPurchaseOrdersByDateRangeAndBranch(LocalDate startDate, LocalDate endDate, UUID branchId) {
-        LocalDateTime startDateTime = startDate.atStartOfDay();
-        LocalDateTime endDateTime = endDate.plusDays(1).atStartOfDay();
-        
+
+    private Stream<PurchaseOrderReportRow> streamPurchaseOrders(LocalDate startDate, LocalDate endDate, UUID branchId) {
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+
         if (branchId != null) {
-            return purchaseOrderRepository.findByOrderDateBetweenAndBranchId(startDateTime, endDateTime, branchId);
+            return purchaseOrderRepository.streamRowsForReportByBranch(from, to, branchId);
         } else {
-            return purchaseOrderRepository.findByOrderDateBetween(startDateTime, endDateTime);
+            return purchaseOrderRepository.streamRowsForReport(from, to);
         }
     }
 
-    // Helper methods for PDF report generation
-    
-    private void addReportTitle(Document document, String reportTitle, LocalDate startDate, LocalDate endDate, UUID branchId) throws DocumentException {
-        Paragraph title = new Paragraph(reportTitle, TITLE_FONT);
-        title.setAlignment(Element.ALIGN_CENTER);
-        document.add(title);
-        
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
-        Paragraph dateRange = new Paragraph("Period: " + startDate.format(formatter) + " to " + endDate.format(formatter), NORMAL_FONT);
-        dateRange.setAlignment(Element.ALIGN_CENTER);
-        document.add(dateRange);
-        
-        Paragraph generatedOn = new Paragraph("Generated on: " + 
-                LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")), NORMAL_FONT);
-        generatedOn.setAlignment(Element.ALIGN_CENTER);
-        document.add(generatedOn);
-        
-        if (branchId != null) {
-            Branch branch = branchRepository.findById(branchId).orElse(null);
-            if (branch != null) {
-                Paragraph branchInfo = new Paragraph("Branch: " + branch.getName(), NORMAL_FONT);
-                branchInfo.setAlignment(Element.ALIGN_CENTER);
-                document.add(branchInfo);
+    private Map<PurchaseOrder.PurchaseStatus, ReportTotals> purchaseTotalsByStatus(LocalDate startDate, LocalDate endDate,
+                                                                                  UUID branchId) {
+        LocalDateTime from = startDate.atStartOfDay();
+        LocalDateTime to = endDate.plusDays(1).atStartOfDay();
+        List<Object[]> rows = branchId != null
+                ? purchaseOrderRepository.summarizeByStatusForReportByBranch(from, to, branchId)
+                : purchaseOrderRepository.summarizeByStatusForReport(from, to);
+
+        Map<PurchaseOrder.PurchaseStatus, ReportTotals> totals = new EnumMap<>(PurchaseOrder.PurchaseStatus.class);
+        for (PurchaseOrder.PurchaseStatus status : PurchaseOrder.PurchaseStatus.values()) {
+            totals.put(status, new ReportTotals(0L, BigDecimal.ZERO));
+        }
+        for (Object[] row : rows) {
+            if (row[0] != null) {
+                totals.put((PurchaseOrder.PurchaseStatus) row[0], new ReportTotals((Number) row[1], (Number) row[2]));
             }
         }
-        
-        document.add(Chunk.NEWLINE);
+        return totals;
     }
-    
-    // Additional helper methods that will be implemented later
-    
-    private void addSalesSummarySection(Document document, List<Sale> sales) throws DocumentException {
-        // Implementation will be added later
-    }
-    
-    private void addSalesDetailsTable(Document document, List<Sale> sales) throws DocumentException {
-        // Implementation will be added later
+
+    /**
+     * Fold the purchase order stream into one line per supplier; only the
+     * per-supplier accumulators are held, however many orders there are
+     */
+    private List<SupplierPerformance> supplierPerformance(LocalDate startDate, LocalDate endDate) {
+        Map<UUID, SupplierPerformance> suppliers = new HashMap<>();
+        try (Stream<PurchaseOrderReportRow> orders = streamPurchaseOrders(startDate, endDate, null)) {
+            orders.forEach(order -> suppliers
+                    .computeIfAbsent(order.getSupplierId(), id -> new SupplierPerformance(order.getSupplierName()))
+                    .add(order));
+        }
+
+        List<SupplierPerformance> result = new ArrayList<>(suppliers.values());
+        result.sort(Comparator.comparing(SupplierPerformance::getName, String.CASE_INSENSITIVE_ORDER));
+        return result;
     }
-    
-    private void addInventorySummarySection(Document document, List<Stock> stockItems) throws DocumentException {
-        // Implementation will be added later
+
+    // Summary figures, shared by the PDF and Excel variants
+
+    private Map<String, Object> salesSummary(ReportTotals totals) {
+        Map<String, Object> figures = new LinkedHashMap<>();
+        figures.put("Number of sales", totals.getCount());
+        figures.put("Units sold", totals.getQuantity());
+        figures.put("Total revenue", totals.getAmount());
+        figures.put("Average sale value", average(totals.getAmount(), totals.getCount()));
+        return figures;
     }
-    
-    private void addInventoryDetailsTable(Document document, List<Stock> stockItems) throws DocumentException {
-        // Implementation will be added later
+
+    private Map<String, Object> inventorySummary(ReportTotals totals) {
+        Map<String, Object> figures = new LinkedHashMap<>();
+        figures.put("Stock lines", totals.getCount());
+        figures.put("Total units", totals.getQuantity());
+        figures.put("Stock value (at unit price)", totals.getAmount());
+        return figures;
     }
-    
-    private void addExpiryDetailsTable(Document document, List<Batch> expiringBatches) throws DocumentException {
-        // Implementation will be added later
+
+    private Map<String, Object> purchaseOrderSummary(Map<PurchaseOrder.PurchaseStatus, ReportTotals> byStatus) {
+        long orders = 0;
+        BigDecimal value = BigDecimal.ZERO;
+
+        Map<String, Object> figures = new LinkedHashMap<>();
+        for (Map.Entry<PurchaseOrder.PurchaseStatus, ReportTotals> entry : byStatus.entrySet()) {
+            orders += entry.getValue().getCount();
+            value = value.add(entry.getValue().getAmount());
+            figures.put(statusLabel(entry.getKey()) + " orders", entry.getValue().getCount());
+        }
+        figures.put("Total orders", orders);
+        figures.put("Total order value", value);
+        figures.put("Average order value", average(value, orders));
+        return figures;
     }
-    
-    private void addSupplierPerformanceTable(Document document, List<PurchaseOrder> purchaseOrders, LocalDate startDate, LocalDate endDate) throws DocumentException {
-        // Implementation will be added later
+
+    private Map<String, Object> profitLossSummary(ReportTotals sales,
+                                                  Map<PurchaseOrder.PurchaseStatus, ReportTotals> purchases) {
+        // Only completed orders count as cost; pending ones are shown as commitments
+        BigDecimal revenue = sales.getAmount();
+        BigDecimal cost = purchases.get(PurchaseOrder.PurchaseStatus.COMPLETED).getAmount();
+        BigDecimal grossProfit = revenue.subtract(cost);
+
+        Map<String, Object> figures = new LinkedHashMap<>();
+        figures.put("Sales revenue", revenue);
+        figures.put("Number of sales", sales.getCount());
+        figures.put("Purchases (completed orders)", cost);
+        figures.put("Gross profit", grossProfit);
+        figures.put("Gross margin %", revenue.signum() == 0 ? BigDecimal.ZERO
+                : grossProfit.multiply(BigDecimal.valueOf(100)).divide(revenue, 2, RoundingMode.HALF_UP));
+        figures.put("Pending purchase commitments", purchases.get(PurchaseOrder.PurchaseStatus.PENDING).getAmount());
+        return figures;
     }
-    
-    private void addPurchaseOrderSummary(Document document, List<PurchaseOrder> purchaseOrders) throws DocumentException {
-        // Implementation will be added later
+
+    private static BigDecimal average(BigDecimal amount, long count) {
+        return count == 0 ? BigDecimal.ZERO : amount.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP);
     }
-    
-    private void addPurchaseOrderDetailsTable(Document document, List<PurchaseOrder> purchaseOrders) throws DocumentException {
-        // Implementation will be added later
+
+    private static String statusLabel(PurchaseOrder.PurchaseStatus status) {
+        String name = status.name();
+        return name.charAt(0) + name.substring(1).toLowerCase();
     }
-    
-    private void addProfitLossSummary(Document document, List<Sale> sales, List<PurchaseOrder> purchases) throws DocumentException {
-        // Implementation will be added later
+
+    // Row mappers, shared by the PDF and Excel variants
+
+    private Object[] saleCells(SaleDTO sale) {
+        return new Object[]{sale.getSaleDate(), sale.getId(), sale.getCustomerName(), sale.getUserName(),
+                sale.getBranchName(), sale.getTotalAmount()};
     }
-    
-    private void createSalesSummaryExcel(Sheet sheet, List<Sale> sales, int startRow) {
-        // Implementation will be added later
+
+    private Object[] stockCells(StockDTO stock) {
+        return new Object[]{stock.getMedicineName(), stock.getBatchNumber(), stock.getExpiryDate(),
+                stock.getBranchName(), stock.getCurrentQuantity(), stock.getLastUpdated()};
     }
-    
-    private void createSalesDetailsExcel(Sheet sheet, List<Sale> sales, int startRow) {
-        // Implementation will be added later
+
+    private Object[] expiryCells(ExpiryReportRow row, LocalDate today) {
+        Object daysLeft = null;
+        if (row.getExpiryDate() != null) {
+            long days = ChronoUnit.DAYS.between(today, row.getExpiryDate());
+            daysLeft = days < 0 ? "Expired" : days;
+        }
+        return new Object[]{row.getMedicineName(), row.getManufacturer(), row.getBatchNumber(),
+                row.getExpiryDate(), daysLeft, row.getQuantity()};
     }
-    
-    private void createInventorySummaryExcel(Sheet sheet, List<Stock> stockItems, int startRow) {
-        // Implementation will be added later
+
+    private Object[] purchaseOrderCells(PurchaseOrderReportRow order) {
+        return new Object[]{order.getOrderDate(), order.getId(), order.getSupplierName(), order.getBranchName(),
+                order.getStatus() != null ? statusLabel(order.getStatus()) : null,
+                order.getItemCount(), order.getTotalValue()};
     }
-    
-    private void createInventoryDetailsExcel(Sheet sheet, List<Stock> stockItems, int startRow) {
-        // Implementation will be added later
+
+    private static String formatValue(Object value) {
+        if (value == null) {
+            return "-";
+        } else if (value instanceof BigDecimal) {
+            return ((BigDecimal) value).setScale(2, RoundingMode.HALF_UP).toPlainString();
+        } else if (value instanceof Double || value instanceof Float) {
+            return String.format("%.2f", ((Number) value).doubleValue());
+        } else if (value instanceof LocalDateTime) {
+            return ((LocalDateTime) value).format(DATE_TIME_FORMAT);
+        } else if (value instanceof LocalDate) {
+            return ((LocalDate) value).format(DATE_FORMAT);
+        }
+        return value.toString();
     }
-    
-    private void createExpiryDetailsExcel(Sheet sheet, List<Batch> expiringBatches, int startRow) {
-        // Implementation will be added later
+
+    // Helper methods for PDF report generation
+
+    private void addReportTitle(Document document, String reportTitle, LocalDate startDate, LocalDate endDate, String branchName) throws DocumentException {
+        Paragraph title = new Paragraph(reportTitle, TITLE_FONT);
+        title.setAlignment(Element.ALIGN_CENTER);
+        document.add(title);
+
+        if (startDate != null && endDate != null) {
+            Paragraph dateRange = new Paragraph("Period: " + startDate.format(DATE_FORMAT) + " to " + endDate.format(DATE_FORMAT), NORMAL_FONT);
+            dateRange.setAlignment(Element.ALIGN_CENTER);
+            document.add(dateRange);
+        }
+
+        Paragraph generatedOn = new Paragraph("Generated on: " + LocalDateTime.now().format(DATE_TIME_FORMAT), NORMAL_FONT);
+        generatedOn.setAlignment(Element.ALIGN_CENTER);
+        document.add(generatedOn);
+
+        if (branchName != null) {
+            Paragraph branchInfo = new Paragraph("Branch: " + branchName, NORMAL_FONT);
+            branchInfo.setAlignment(Element.ALIGN_CENTER);
+            document.add(branchInfo);
+        }
+
+        document.add(Chunk.NEWLINE);
     }
-    
-    private void createSupplierPerformanceExcel(Sheet sheet, List<PurchaseOrder> purchaseOrders, int startRow) {
-        // Implementation will be added later
+
+    private void addSummaryTable(Document document, String heading, Map<String, Object> figures) throws DocumentException {
+        document.add(new Paragraph(heading, SUBTITLE_FONT));
+
+        PdfPTable table = new PdfPTable(new float[]{3, 2});
+        table.setWidthPercentage(60);
+        table.setHorizontalAlignment(Element.ALIGN_LEFT);
+        table.setSpacingBefore(5);
+        for (Map.Entry<String, Object> figure : figures.entrySet()) {
+            table.addCell(new PdfPCell(new Phrase(figure.getKey(), NORMAL_FONT)));
+            table.addCell(new PdfPCell(new Phrase(formatValue(figure.getValue()), NORMAL_FONT)));
+        }
+        document.add(table);
+        document.add(Chunk.NEWLINE);
     }
-    
-    private void createPurchaseOrderSummaryExcel(Sheet sheet, List<PurchaseOrder> purchaseOrders, int startRow) {
-        // Implementation will be added later
+
+    /**
+     * Write rows into a table that is added to the document in slices. A table marked
+     * incomplete is rendered and emptied on every document.add, keeping its header
+     * row, so at most PDF_FLUSH_ROWS rows are held at any time.
+     */
+    private <T> void addStreamingTable(Document document, float[] widths, String[] headers,
+                                       Supplier<Stream<T>> rows, Function<T, Object[]> cells) throws DocumentException {
+        PdfPTable table = new PdfPTable(widths);
+        table.setWidthPercentage(100);
+        table.setHeaderRows(1);
+        table.setComplete(false);
+
+        for (String header : headers) {
+            PdfPCell cell = new PdfPCell(new Phrase(header, HEADER_FONT));
+            cell.setBackgroundColor(BaseColor.DARK_GRAY);
+            table.addCell(cell);
+        }
+
+        long[] count = {0};
+        try {
+            forEachRow(rows, row -> {
+                for (Object value : cells.apply(row)) {
+                    table.addCell(new PdfPCell(new Phrase(formatValue(value), NORMAL_FONT)));
+                }
+                if (++count[0] % PDF_FLUSH_ROWS == 0) {
+                    try {
+                        document.add(table);
+                    } catch (DocumentException e) {
+                        throw new ExceptionConverter(e);
+                    }
+                }
+            });
+        } catch (ExceptionConverter e) {
+            if (e.getException() instanceof DocumentException) {
+                throw (DocumentException) e.getException();
+            }
+            throw e;
+        }
+
+        if (count[0] == 0) {
+            PdfPCell empty = new PdfPCell(new Phrase("No records found", NORMAL_FONT));
+            empty.setColspan(headers.length);
+            table.addCell(empty);
+        }
+
+        table.setComplete(true);
+        document.add(table);
     }
-    
-    private void createPurchaseOrderDetailsExcel(Sheet sheet, List<PurchaseOrder> purchaseOrders, int startRow) {
-        // Implementation will be added later
+
+    // Helper methods for Excel report generation
+
+    private void writeExcel(OutputStream outputStream, String errorMessage, Consumer<SXSSFWorkbook> body) {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(EXCEL_ROW_WINDOW);
+        workbook.setCompressTempFiles(true);
+        try {
+            body.accept(workbook);
+            workbook.write(outputStream);
+        } catch (IOException e) {
+            throw new RuntimeException(errorMessage, e);
+        } finally {
+            // Delete the temp files holding the flushed rows
+            workbook.dispose();
+            try {
+                workbook.close();
+            } catch (IOException ignored) {
+                // Nothing left to release
+            }
+        }
     }
-    
-    private void createProfitLossSummaryExcel(Sheet sheet, List<Sale> sales, List<PurchaseOrder> purchases, int startRow) {
-        // Implementation will be added later
+
+    private void createExcelHeaderRow(SheetWriter sheet, String title, LocalDate startDate, LocalDate endDate, String branchName) {
+        sheet.writeTitle(title);
+        if (startDate != null && endDate != null) {
+            sheet.writeLine("Period: " + startDate.format(DATE_FORMAT) + " to " + endDate.format(DATE_FORMAT));
+        }
+        sheet.writeLine("Generated on: " + LocalDateTime.now().format(DATE_TIME_FORMAT));
+
+        if (branchName != null) {
+            sheet.writeLine("Branch: " + branchName);
+        }
+        sheet.skipRow();
     }
-    
+
     private CellStyle createHeaderStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         org.apache.poi.ss.usermodel.Font font = workbook.createFont();
@@ -605,7 +822,7 @@ public class ReportServiceImpl implements ReportService {
         style.setBorderRight(BorderStyle.THIN);
         return style;
     }
-    
+
     private CellStyle createNormalStyle(Workbook workbook) {
         CellStyle style = workbook.createCellStyle();
         style.setBorderBottom(BorderStyle.THIN);
@@ -614,9 +831,143 @@ public class ReportServiceImpl implements ReportService {
         style.setBorderRight(BorderStyle.THIN);
         return style;
     }
-    
-    // This is a placeholder - actual implementation would be added as needed for each report type
-    private void createExcelHeaderRow(Sheet sheet, String title, LocalDate startDate, LocalDate endDate, UUID branchId) {
-        // Implementation will be added later
+
+    /**
+     * Appends rows to a streaming workbook. Styles are created once per workbook, and a
+     * continuation sheet with the same column headers is started when a sheet reaches
+     * the row limit of the format.
+     */
+    private final class SheetWriter {
+        private final Workbook workbook;
+        private final String name;
+        private final CellStyle headerStyle;
+        private final CellStyle normalStyle;
+        private final CellStyle amountStyle;
+        private Sheet sheet;
+        private int sheetCount = 1;
+        private int rowIndex = 0;
+        private int[] columnWidths = new int[0];
+        private String[] columnHeaders;
+
+        SheetWriter(Workbook workbook, String name) {
+            this.workbook = workbook;
+            this.name = name;
+            this.headerStyle = createHeaderStyle(workbook);
+            this.normalStyle = createNormalStyle(workbook);
+            this.amountStyle = createNormalStyle(workbook);
+            this.amountStyle.setDataFormat(workbook.createDataFormat().getFormat("#,##0.00"));
+            this.sheet = workbook.createSheet(name);
+        }
+
+        // Fixed widths in characters; autoSizeColumn would have to measure every row
+        void setColumnWidths(int... widths) {
+            this.columnWidths = widths;
+            applyColumnWidths();
+        }
+
+        void writeTitle(String text) {
+            Cell cell = sheet.createRow(rowIndex++).createCell(0);
+            cell.setCellValue(text);
+            cell.setCellStyle(headerStyle);
+        }
+
+        void writeLine(String text) {
+            sheet.createRow(rowIndex++).createCell(0).setCellValue(text);
+        }
+
+        void skipRow() {
+            rowIndex++;
+        }
+
+        void writeFigures(String heading, Map<String, Object> figures) {
+            writeTitle(heading);
+            for (Map.Entry<String, Object> figure : figures.entrySet()) {
+                Row row = sheet.createRow(rowIndex++);
+                setCell(row, 0, figure.getKey());
+                setCell(row, 1, figure.getValue());
+            }
+            skipRow();
+        }
+
+        void writeColumnHeaders(String... headers) {
+            this.columnHeaders = headers;
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < headers.length; i++) {
+                Cell cell = row.createCell(i);
+                cell.setCellValue(headers[i]);
+                cell.setCellStyle(headerStyle);
+            }
+        }
+
+        void writeRow(Object... values) {
+            if (rowIndex > EXCEL_LAST_ROW) {
+                sheet = workbook.createSheet(name + " (" + (++sheetCount) + ")");
+                rowIndex = 0;
+                applyColumnWidths();
+                if (columnHeaders != null) {
+                    writeColumnHeaders(columnHeaders);
+                }
+            }
+
+            Row row = sheet.createRow(rowIndex++);
+            for (int i = 0; i < values.length; i++) {
+                setCell(row, i, values[i]);
+            }
+        }
+
+        private void setCell(Row row, int column, Object value) {
+            Cell cell = row.createCell(column);
+            if (value instanceof BigDecimal || value instanceof Double || value instanceof Float) {
+                cell.setCellValue(((Number) value).doubleValue());
+                cell.setCellStyle(amountStyle);
+            } else if (value instanceof Number) {
+                cell.setCellValue(((Number) value).doubleValue());
+                cell.setCellStyle(normalStyle);
+            } else {
+                cell.setCellValue(value == null ? "" : formatValue(value));
+                cell.setCellStyle(normalStyle);
+            }
+        }
+
+        private void applyColumnWidths() {
+            for (int i = 0; i < columnWidths.length; i++) {
+                sheet.setColumnWidth(i, columnWidths[i] * 256);
+            }
+        }
+    }
+
+    /**
+     * Running totals for one supplier in the supplier performance report
+     */
+    private static final class SupplierPerformance {
+        private final String name;
+        private long orders;
+        private long completed;
+        private long cancelled;
+        private BigDecimal totalValue = BigDecimal.ZERO;
+
+        SupplierPerformance(String name) {
+            this.name = name != null ? name : "Unknown supplier";
+        }
+
+        void add(PurchaseOrderReportRow order) {
+            orders++;
+            if (order.getStatus() == PurchaseOrder.PurchaseStatus.COMPLETED) {
+                completed++;
+            } else if (order.getStatus() == PurchaseOrder.PurchaseStatus.CANCELLED) {
+                cancelled++;
+            }
+            totalValue = totalValue.add(order.getTotalValue());
+        }
+
+        String getName() {
+            return name;
+        }
+
+        Object[] cells() {
+            BigDecimal completionRate = orders == 0 ? BigDecimal.ZERO
+                    : BigDecimal.valueOf(completed * 100).divide(BigDecimal.valueOf(orders), 2, RoundingMode.HALF_UP);
+            return new Object[]{name, orders, completed, cancelled, completionRate, totalValue, average(totalValue, orders)};
+        }
     }
 }
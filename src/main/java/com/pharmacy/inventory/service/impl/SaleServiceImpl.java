@@ -1,34 +1,74 @@
 package com.pharmacy.inventory.service.impl;
 
+import com.pharmacy.inventory.dto.PageCursor;
+import com.pharmacy.inventory.dto.SaleDTO;
+import com.pharmacy.inventory.dto.SaleItemDTO;
+import com.pharmacy.inventory.dto.report.ReportTotals;
+import com.pharmacy.inventory.dto.response.CursorPage;
+import com.pharmacy.inventory.dto.response.SearchPage;
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
 import com.pharmacy.inventory.model.Sale;
-import com.pharmacy.inventory.model.User;
+import com.pharmacy.inventory.model.SaleItem;
+import com.pharmacy.inventory.repository.SaleItemRepository;
 import com.pharmacy.inventory.repository.SaleRepository;
-import com.pharmacy.inventory.repository.UserRepository;
+import com.pharmacy.inventory.service.NameSearchService;
+import com.pharmacy.inventory.service.OutboxService;
 import com.pharmacy.inventory.service.SaleService;
+import com.pharmacy.inventory.service.SalesRollupService;
+import com.pharmacy.inventory.service.StockCheckoutService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
 @Service
 public class SaleServiceImpl implements SaleService {
 
+    // Keeps the IN list of a sale line query well below the driver's bind parameter limit
+    private static final int ITEM_FETCH_CHUNK = 1000;
+
     private final SaleRepository saleRepository;
-    private final UserRepository userRepository;
+    private final SaleItemRepository saleItemRepository;
+    private final StockCheckoutService stockCheckoutService;
+    private final SalesRollupService salesRollupService;
+    private final NameSearchService nameSearchService;
+    private final OutboxService outboxService;
 
     @Autowired
-    public SaleServiceImpl(SaleRepository saleRepository, UserRepository userRepository) {
+    public SaleServiceImpl(SaleRepository saleRepository, SaleItemRepository saleItemRepository,
+                          StockCheckoutService stockCheckoutService, SalesRollupService salesRollupService,
+                          NameSearchService nameSearchService, OutboxService outboxService) {
         this.saleRepository = saleRepository;
-        this.userRepository = userRepository;
+        this.saleItemRepository = saleItemRepository;
+        this.stockCheckoutService = stockCheckoutService;
+        this.salesRollupService = salesRollupService;
+        this.nameSearchService = nameSearchService;
+        this.outboxService = outboxService;
+    }
+
+    @Override
+    public List<SaleDTO> getAllSales() {
+        return withItems(saleRepository.findAllSaleDTOs());
     }
 
     @Override
-    public List<Sale> getAllSales() {
-        return saleRepository.findAll();
+    @Transactional(readOnly = true)
+    public CursorPage<SaleDTO> getSalesPage(String cursor, int size) {
+        CursorPage<SaleDTO> page = CursorPage.fetch(cursor, size, saleRepository::findFirstPage, saleRepository::findPageAfter,
+                sale -> new PageCursor(sale.getCreatedAt(), sale.getId()));
+        withItems(page.getItems());
+        return page;
     }
 
     @Override
@@ -37,58 +77,151 @@ public class SaleServiceImpl implements SaleService {
     }
 
     @Override
-    public List<Sale> getSalesByUserId(UUID userId) {
-        Optional<User> user = userRepository.findById(userId);
-        return user.map(saleRepository::findByUser).orElse(List.of());
+    public List<SaleDTO> getSalesByUserId(UUID userId) {
+        return withItems(saleRepository.findSaleDTOsByUserId(userId));
+    }
+
+    @Override
+    public List<SaleDTO> getSalesInDateRange(LocalDateTime startDate, LocalDateTime endDate) {
+        return withItems(saleRepository.findSaleDTOsInDateRange(startDate, endDate));
     }
 
     @Override
-    public List<Sale> getSalesInDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return saleRepository.findSalesInDateRange(startDate, endDate);
+    public List<SaleDTO> getSalesByCustomerName(String customerName) {
+        return withItems(saleRepository.findSaleDTOsByCustomerName(customerName));
     }
 
     @Override
-    public List<Sale> getSalesByCustomerName(String customerName) {
-        return saleRepository.findByCustomerNameContainingIgnoreCase(customerName);
+    public SearchPage<SaleDTO> searchSalesByCustomerName(String query, int page, int size) {
+        String term = NameSearchService.normalize(query != null ? query.trim() : null);
+        if (term == null) {
+            throw new IllegalArgumentException("Search term must not be empty");
+        }
+        int pageNumber = Math.max(page, 0);
+        Pageable pageable = PageRequest.of(pageNumber, SearchPage.clampSize(size));
+        String escaped = NameSearchService.escapeLike(term);
+        
+        // Resolve the term to the matching names in memory when we can, so the database
+        // does an index lookup on known names instead of a pattern match
+        List<String> names = nameSearchService.findMatchingNames(NameSearchService.Field.CUSTOMER_NAME, term);
+        if (names != null && names.isEmpty()) {
+            return SearchPage.empty(pageNumber);
+        }
+        Slice<SaleDTO> slice = names != null
+                ? saleRepository.searchByCustomerNames(names, term, escaped + "%", "% " + escaped + "%", pageable)
+                : saleRepository.searchByCustomerNameLike("%" + escaped + "%", term, escaped + "%",
+                        "% " + escaped + "%", pageable);
+        
+        SearchPage<SaleDTO> result = SearchPage.of(slice);
+        withItems(result.getItems());
+        return result;
     }
 
     @Override
     public Double getSalesTotalInDateRange(LocalDateTime startDate, LocalDateTime endDate) {
-        return saleRepository.getSalesTotalInDateRange(startDate, endDate);
+        return getSalesSummary(startDate, endDate, null).getAmount().doubleValue();
+    }
+
+    @Override
+    public ReportTotals getSalesSummary(LocalDateTime startDate, LocalDateTime endDate, UUID branchId) {
+        // The range is inclusive of endDate; timestamps are stored to the microsecond
+        return salesRollupService.summarize(startDate, endDate.plus(1, ChronoUnit.MICROS), branchId);
     }
 
     @Override
     @Transactional
     public Sale createSale(Sale sale) {
-        return saleRepository.save(sale);
+        // Take the sold quantities off the branch stock in the same transaction as the sale insert
+        stockCheckoutService.checkout(sale);
+        Sale saved = saleRepository.save(sale);
+        salesRollupService.recordSales(List.of(saved));
+        nameSearchService.nameChanged(NameSearchService.Field.CUSTOMER_NAME, null, saved.getCustomerName());
+        // Anything else a sale triggers runs off the outbox, after checkout has returned
+        outboxService.publishSale(OutboxService.SALE_CREATED, saved);
+        return saved;
     }
 
     @Override
     @Transactional
     public Sale updateSale(Sale updatedSale) {
         UUID id = updatedSale.getId();
-        Optional<Sale> existingSale = saleRepository.findById(id);
+        Sale sale = saleRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Sale not found with id " + id));
         
-        if (existingSale.isPresent()) {
-            Sale sale = existingSale.get();
-            sale.setUser(updatedSale.getUser());
-            sale.setTotalAmount(updatedSale.getTotalAmount());
-            sale.setCustomerName(updatedSale.getCustomerName());
-            sale.setBranch(updatedSale.getBranch());
-            
-            // Clear and add all items from the updated sale
-            sale.getSaleItems().clear();
-            sale.getSaleItems().addAll(updatedSale.getSaleItems());
-            
-            return saleRepository.save(sale);
+        // Rows of the old and the new branch are locked together, in id order, before
+        // the edit takes or puts back any stock
+        stockCheckoutService.lockForCheckout(List.of(sale, updatedSale));
+        Map<UUID, Map<UUID, Integer>> deltas = new HashMap<>();
+        addQuantities(deltas, sale, -1);
+        addQuantities(deltas, updatedSale, 1);
+        deltas.forEach(stockCheckoutService::adjust);
+        
+        salesRollupService.reverseSale(sale);
+        String previousCustomerName = sale.getCustomerName();
+        sale.setUser(updatedSale.getUser());
+        sale.setTotalAmount(updatedSale.getTotalAmount());
+        sale.setCustomerName(updatedSale.getCustomerName());
+        sale.setBranch(updatedSale.getBranch());
+        
+        // Clear and add all items from the updated sale
+        sale.getSaleItems().clear();
+        for (SaleItem item : updatedSale.getSaleItems()) {
+            item.setSale(sale);
+            sale.getSaleItems().add(item);
         }
         
-        return saleRepository.save(updatedSale); // If not found, create a new one
+        Sale saved = saleRepository.save(sale);
+        salesRollupService.recordSales(List.of(saved));
+        nameSearchService.nameChanged(NameSearchService.Field.CUSTOMER_NAME, previousCustomerName,
+                saved.getCustomerName());
+        outboxService.publishSale(OutboxService.SALE_UPDATED, saved);
+        return saved;
     }
 
     @Override
     @Transactional
     public void deleteSale(UUID id) {
-        saleRepository.deleteById(id);
+        saleRepository.findById(id).ifPresent(sale -> {
+            // Everything the sale took goes back on the shelf before its record disappears
+            stockCheckoutService.lockForCheckout(List.of(sale));
+            Map<UUID, Map<UUID, Integer>> deltas = new HashMap<>();
+            addQuantities(deltas, sale, -1);
+            deltas.forEach(stockCheckoutService::adjust);
+            
+            salesRollupService.reverseSale(sale);
+            saleRepository.delete(sale);
+            nameSearchService.nameChanged(NameSearchService.Field.CUSTOMER_NAME, sale.getCustomerName(), null);
+            outboxService.publishSale(OutboxService.SALE_DELETED, sale);
+        });
+    }
+
+    /**
+     * Add a sale's quantities, times sign, to per-branch, per-medicine stock deltas
+     */
+    private static void addQuantities(Map<UUID, Map<UUID, Integer>> deltas, Sale sale, int sign) {
+        if (sale.getBranch() == null) {
+            return;
+        }
+        Map<UUID, Integer> branchDeltas = deltas.computeIfAbsent(sale.getBranch().getId(), branchId -> new HashMap<>());
+        for (SaleItem item : sale.getSaleItems()) {
+            branchDeltas.merge(item.getMedicine().getId(), sign * item.getQuantity(), Integer::sum);
+        }
+    }
+
+    /**
+     * Load the lines of the given sales with chunked IN queries and attach them
+     */
+    private List<SaleDTO> withItems(List<SaleDTO> sales) {
+        Map<UUID, SaleDTO> salesById = new HashMap<>();
+        sales.forEach(sale -> salesById.put(sale.getId(), sale));
+        
+        List<UUID> saleIds = new ArrayList<>(salesById.keySet());
+        for (int from = 0; from < saleIds.size(); from += ITEM_FETCH_CHUNK) {
+            List<UUID> chunk = saleIds.subList(from, Math.min(from + ITEM_FETCH_CHUNK, saleIds.size()));
+            for (SaleItemDTO item : saleItemRepository.findDTOsBySaleIds(chunk)) {
+                salesById.get(item.getSaleId()).getItems().add(item);
+            }
+        }
+        return sales;
     }
 }
@@ -0,0 +1,176 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.report.ReportTotals;
+import com.pharmacy.inventory.model.DailyMedicineSales;
+import com.pharmacy.inventory.model.DailySalesSummary;
+import com.pharmacy.inventory.model.Sale;
+import com.pharmacy.inventory.model.SaleItem;
+import com.pharmacy.inventory.repository.DailyMedicineSalesRepository;
+import com.pharmacy.inventory.repository.DailySalesSummaryRepository;
+import com.pharmacy.inventory.repository.SaleItemRepository;
+import com.pharmacy.inventory.repository.SaleRepository;
+import com.pharmacy.inventory.service.SalesRollupService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rollup maintenance. Deltas of all sales in a write are folded per day and key in
+ * memory first, so a bulk upload issues one upsert per branch-day and per
+ * branch-day-medicine rather than one per sale line. Each day is rebuilt in its own
+ * transaction by deleting its rows and re-inserting them from a grouped select.
+ */
+@Service
+public class SalesRollupServiceImpl implements SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupServiceImpl.class);
+
+    private final DailySalesSummaryRepository summaryRepository;
+    private final DailyMedicineSalesRepository medicineSalesRepository;
+    private final SaleRepository saleRepository;
+    private final SaleItemRepository saleItemRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @Value("${app.sales.rollup.rebuild-days:3}")
+    private int rebuildDays;
+
+    @Autowired
+    public SalesRollupServiceImpl(DailySalesSummaryRepository summaryRepository,
+                                  DailyMedicineSalesRepository medicineSalesRepository,
+                                  SaleRepository saleRepository, SaleItemRepository saleItemRepository,
+                                  PlatformTransactionManager transactionManager) {
+        this.summaryRepository = summaryRepository;
+        this.medicineSalesRepository = medicineSalesRepository;
+        this.saleRepository = saleRepository;
+        this.saleItemRepository = saleItemRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    @Transactional
+    public void recordSales(Collection<Sale> sales) {
+        apply(sales, 1);
+    }
+
+    @Override
+    @Transactional
+    public void reverseSale(Sale sale) {
+        apply(List.of(sale), -1);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public ReportTotals summarize(LocalDateTime start, LocalDateTime end, UUID branchId) {
+        LocalDate firstFullDay = start.toLocalTime().equals(LocalTime.MIDNIGHT)
+                ? start.toLocalDate() : start.toLocalDate().plusDays(1);
+        LocalDate endOfFullDays = end.toLocalDate();
+        if (!firstFullDay.isBefore(endOfFullDays)) {
+            // Less than a whole day in range
+            return summarizeSales(start, end, branchId);
+        }
+
+        ReportTotals totals = branchId != null
+                ? summaryRepository.summarizeDaysByBranch(firstFullDay, endOfFullDays, branchId)
+                : summaryRepository.summarizeDays(firstFullDay, endOfFullDays);
+        totals.setQuantity(branchId != null
+                ? medicineSalesRepository.sumQuantityByBranch(firstFullDay, endOfFullDays, branchId)
+                : medicineSalesRepository.sumQuantity(firstFullDay, endOfFullDays));
+
+        LocalDateTime fullDaysStart = firstFullDay.atStartOfDay();
+        LocalDateTime fullDaysEnd = endOfFullDays.atStartOfDay();
+        if (start.isBefore(fullDaysStart)) {
+            totals.add(summarizeSales(start, fullDaysStart, branchId));
+        }
+        if (fullDaysEnd.isBefore(end)) {
+            totals.add(summarizeSales(fullDaysEnd, end, branchId));
+        }
+        return totals;
+    }
+
+    @Override
+    public int rebuild(LocalDate startDate, LocalDate endDate) {
+        if (endDate.isBefore(startDate)) {
+            throw new IllegalArgumentException("End date must not be before start date");
+        }
+
+        int days = 0;
+        for (LocalDate day = startDate; !day.isAfter(endDate); day = day.plusDays(1)) {
+            LocalDate rebuiltDay = day;
+            transactionTemplate.executeWithoutResult(status -> rebuildDay(rebuiltDay));
+            days++;
+        }
+        logger.info("Rebuilt sales rollups for {} day(s) from {} to {}", days, startDate, endDate);
+        return days;
+    }
+
+    /**
+     * Recompute the last few days each night, picking up sales replayed from offline
+     * terminals and anything written around a failed rollup update
+     */
+    @Scheduled(cron = "${app.sales.rollup.rebuild-cron:0 30 2 * * *}")
+    public void rebuildRecentDays() {
+        LocalDate today = LocalDate.now();
+        rebuild(today.minusDays(rebuildDays), today.minusDays(1));
+    }
+
+    private void rebuildDay(LocalDate day) {
+        LocalDate nextDay = day.plusDays(1);
+        summaryRepository.deleteDays(day, nextDay);
+        medicineSalesRepository.deleteDays(day, nextDay);
+        summaryRepository.insertFromSales(day.atStartOfDay(), nextDay.atStartOfDay(), DailySalesSummary.NO_BRANCH);
+        medicineSalesRepository.insertFromSales(day.atStartOfDay(), nextDay.atStartOfDay(), DailySalesSummary.NO_BRANCH);
+    }
+
+    private ReportTotals summarizeSales(LocalDateTime start, LocalDateTime end, UUID branchId) {
+        ReportTotals totals = branchId != null
+                ? saleRepository.summarizeForReportByBranch(start, end, branchId)
+                : saleRepository.summarizeForReport(start, end);
+        Long quantity = branchId != null
+                ? saleItemRepository.sumQuantityForReportByBranch(start, end, branchId)
+                : saleItemRepository.sumQuantityForReport(start, end);
+        totals.setQuantity(quantity != null ? quantity : 0L);
+        return totals;
+    }
+
+    private void apply(Collection<Sale> sales, int sign) {
+        Map<DailySalesSummary.Key, double[]> dayDeltas = new HashMap<>();
+        Map<DailyMedicineSales.Key, double[]> medicineDeltas = new HashMap<>();
+
+        for (Sale sale : sales) {
+            LocalDate day = sale.getSaleDate().toLocalDate();
+            UUID branchId = sale.getBranch() != null ? sale.getBranch().getId() : DailySalesSummary.NO_BRANCH;
+
+            double[] dayDelta = dayDeltas.computeIfAbsent(new DailySalesSummary.Key(day, branchId), key -> new double[2]);
+            dayDelta[0] += sign;
+            dayDelta[1] += sign * sale.getTotalAmount();
+
+            for (SaleItem item : sale.getSaleItems()) {
+                double[] medicineDelta = medicineDeltas.computeIfAbsent(
+                        new DailyMedicineSales.Key(day, branchId, item.getMedicine().getId()), key -> new double[2]);
+                medicineDelta[0] += sign * item.getQuantity();
+                medicineDelta[1] += sign * item.getTotalPrice();
+            }
+        }
+
+        dayDeltas.forEach((key, delta) ->
+                summaryRepository.addToDay(key.getSaleDay(), key.getBranchId(), (long) delta[0], delta[1]));
+        medicineDeltas.forEach((key, delta) ->
+                medicineSalesRepository.addToDay(key.getSaleDay(), key.getBranchId(), key.getMedicineId(),
+                        (long) delta[0], delta[1]));
+    }
+}
@@ -0,0 +1,417 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.response.ScanResult;
+import com.pharmacy.inventory.model.Batch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.repository.BatchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.service.ScanService;
+import com.pharmacy.inventory.service.StockLedgerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Hash index of everything a barcode can name: medicines by ID and GTIN, batches by
+ * ID and batch number. A scan is a handful of map lookups plus the stock ledger's
+ * in-memory total, with no database round trip.
+ *
+ * Lookups read the concurrent maps without locking. Changes are applied after
+ * commit under the monitor of this service, and those that commit while the index
+ * is loading are queued and replayed once it is loaded.
+ */
+@Service
+public class ScanServiceImpl implements ScanService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanServiceImpl.class);
+
+    private static final String MEDICINE_LABEL = "MED-";
+    private static final String BATCH_LABEL = "BATCH-";
+
+    private static final char GROUP_SEPARATOR = '\u001D';
+    private static final Pattern BRACKETED_AI = Pattern.compile("\\((\\d{2,4})\\)([^(]*)");
+
+    // Fixed lengths of the data following the two-digit GS1 application identifiers this reads
+    private static final Map<String, Integer> FIXED_AI_LENGTHS = Map.of(
+            "00", 18, "01", 14, "02", 14, "11", 6, "12", 6, "13", 6, "15", 6, "16", 6, "17", 6, "20", 2);
+
+    private final MedicineRepository medicineRepository;
+    private final BatchRepository batchRepository;
+    private final StockLedgerService stockLedgerService;
+
+    private final Map<UUID, Medicine> medicines = new ConcurrentHashMap<>();
+    private final Map<UUID, BatchEntry> batches = new ConcurrentHashMap<>();
+    private final Map<String, UUID> medicinesByGtin = new ConcurrentHashMap<>();
+    private final Map<String, UUID> batchesByNumber = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private List<Runnable> pending = new ArrayList<>();
+    private volatile boolean ready;
+
+    @Autowired
+    public ScanServiceImpl(MedicineRepository medicineRepository, BatchRepository batchRepository,
+                           StockLedgerService stockLedgerService) {
+        this.medicineRepository = medicineRepository;
+        this.batchRepository = batchRepository;
+        this.stockLedgerService = stockLedgerService;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Medicine> allMedicines = medicineRepository.findAll();
+        List<Batch> allBatches = batchRepository.findAll();
+        synchronized (this) {
+            allMedicines.forEach(medicine -> putMedicine(copyOf(medicine)));
+            allBatches.forEach(batch -> putBatch(BatchEntry.of(batch)));
+            pending.forEach(Runnable::run);
+            pending = null;
+            ready = true;
+        }
+        logger.info("Indexed {} medicine(s) and {} batch(es) for barcode scans", allMedicines.size(), allBatches.size());
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public Optional<ScanResult> resolve(String payload, UUID branchId) {
+        if (!ready || payload == null || payload.isBlank()) {
+            return Optional.empty();
+        }
+        String code = payload.trim();
+        String upper = code.toUpperCase(Locale.ROOT);
+
+        if (upper.startsWith(MEDICINE_LABEL)) {
+            Medicine medicine = parseId(code.substring(MEDICINE_LABEL.length()), medicines);
+            if (medicine != null) {
+                return Optional.of(result(code, "MEDICINE_LABEL", medicine, null, null, branchId));
+            }
+        }
+        if (upper.startsWith(BATCH_LABEL)) {
+            BatchEntry batch = parseId(code.substring(BATCH_LABEL.length()), batches);
+            Medicine medicine = medicineOf(batch);
+            if (medicine != null) {
+                return Optional.of(result(code, "BATCH_LABEL", medicine, batch, null, branchId));
+            }
+        }
+
+        Map<String, String> gs1 = parseGs1(code);
+        if (gs1 != null && gs1.containsKey("01")) {
+            Optional<ScanResult> result = resolveGs1(code, gs1, branchId);
+            if (result.isPresent()) {
+                return result;
+            }
+        }
+
+        String gtin = normalizeGtin(code);
+        UUID medicineId = gtin != null ? medicinesByGtin.get(gtin) : null;
+        Medicine byGtin = medicineId != null ? medicines.get(medicineId) : null;
+        if (byGtin != null) {
+            return Optional.of(result(code, "GTIN", byGtin, null, null, branchId));
+        }
+
+        UUID batchId = batchesByNumber.get(upper);
+        BatchEntry batch = batchId != null ? batches.get(batchId) : null;
+        Medicine medicine = medicineOf(batch);
+        if (medicine != null) {
+            return Optional.of(result(code, "BATCH_NUMBER", medicine, batch, null, branchId));
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public void medicineSaved(Medicine medicine) {
+        Medicine copy = copyOf(medicine);
+        afterCommit(() -> putMedicine(copy));
+    }
+
+    @Override
+    public void medicineDeleted(UUID id) {
+        afterCommit(() -> {
+            Medicine removed = medicines.remove(id);
+            if (removed != null) {
+                removeKey(medicinesByGtin, normalizeGtin(removed.getGtin()), id);
+            }
+        });
+    }
+
+    @Override
+    public void batchSaved(Batch batch) {
+        BatchEntry entry = BatchEntry.of(batch);
+        afterCommit(() -> putBatch(entry));
+    }
+
+    @Override
+    public void batchDeleted(UUID id) {
+        afterCommit(() -> {
+            BatchEntry removed = batches.remove(id);
+            if (removed != null) {
+                removeKey(batchesByNumber, removed.key(), id);
+            }
+        });
+    }
+
+    /**
+     * A GS1 string names the product by GTIN; a batch (10) it carries is used when it
+     * is a batch of that product, and otherwise its expiry date (17) is reported
+     */
+    private Optional<ScanResult> resolveGs1(String code, Map<String, String> gs1, UUID branchId) {
+        String gtin = normalizeGtin(gs1.get("01"));
+        UUID medicineId = gtin != null ? medicinesByGtin.get(gtin) : null;
+        String lot = gs1.get("10");
+        UUID batchId = lot != null ? batchesByNumber.get(lot.trim().toUpperCase(Locale.ROOT)) : null;
+        BatchEntry batch = batchId != null ? batches.get(batchId) : null;
+
+        Medicine medicine = medicineId != null ? medicines.get(medicineId) : medicineOf(batch);
+        if (medicine == null) {
+            return Optional.empty();
+        }
+        if (batch != null && !medicine.getId().equals(batch.medicineId)) {
+            batch = null;
+        }
+        return Optional.of(result(code, "GS1", medicine, batch, parseGs1Date(gs1.get("17")), branchId));
+    }
+
+    private Medicine medicineOf(BatchEntry batch) {
+        return batch != null && batch.medicineId != null ? medicines.get(batch.medicineId) : null;
+    }
+
+    private ScanResult result(String payload, String matchedBy, Medicine medicine, BatchEntry batch,
+                              LocalDate printedExpiry, UUID branchId) {
+        ScanResult result = new ScanResult();
+        result.setPayload(payload);
+        result.setMatched_by(matchedBy);
+        result.setMedicine_id(medicine.getId());
+        result.setMedicine_name(medicine.getName());
+        result.setCategory(medicine.getCategory());
+        result.setManufacturer(medicine.getManufacturer());
+        result.setGtin(medicine.getGtin());
+        result.setUnit_price(medicine.getUnitPrice());
+        result.setPrescription_required(medicine.getPrescriptionRequired());
+
+        LocalDate expiry = printedExpiry;
+        if (batch != null) {
+            result.setBatch_id(batch.id);
+            result.setBatch_number(batch.batchNumber);
+            expiry = batch.expiryDate != null ? batch.expiryDate : printedExpiry;
+        }
+        result.setExpiry_date(expiry);
+        result.setExpired(expiry != null && expiry.isBefore(LocalDate.now()));
+
+        if (branchId != null) {
+            result.setBranch_id(branchId);
+            result.setOn_hand(batch != null
+                    ? stockLedgerService.getAvailable(branchId, medicine.getId(), batch.id)
+                    : stockLedgerService.getAvailable(branchId, medicine.getId()));
+        }
+        return result;
+    }
+
+    private void afterCommit(Runnable change) {
+        Runnable apply = () -> {
+            synchronized (this) {
+                if (pending != null) {
+                    pending.add(change);
+                } else {
+                    change.run();
+                }
+            }
+        };
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply.run();
+            }
+        });
+    }
+
+    // Callers hold the monitor
+    private void putMedicine(Medicine medicine) {
+        Medicine previous = medicines.put(medicine.getId(), medicine);
+        if (previous != null) {
+            removeKey(medicinesByGtin, normalizeGtin(previous.getGtin()), medicine.getId());
+        }
+        String gtin = normalizeGtin(medicine.getGtin());
+        if (gtin != null) {
+            medicinesByGtin.put(gtin, medicine.getId());
+        }
+    }
+
+    // Callers hold the monitor
+    private void putBatch(BatchEntry batch) {
+        BatchEntry previous = batches.put(batch.id, batch);
+        if (previous != null) {
+            removeKey(batchesByNumber, previous.key(), batch.id);
+        }
+        if (batch.key() != null) {
+            batchesByNumber.put(batch.key(), batch.id);
+        }
+    }
+
+    private static void removeKey(Map<String, UUID> index, String key, UUID id) {
+        if (key != null) {
+            index.remove(key, id);
+        }
+    }
+
+    private static <T> T parseId(String value, Map<UUID, T> index) {
+        try {
+            return index.get(UUID.fromString(value.trim()));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Read the application identifiers of a GS1 element string
+     *
+     * @return Data by application identifier, or null if the payload is not GS1
+     */
+    private static Map<String, String> parseGs1(String payload) {
+        String code = payload;
+        // Symbology identifiers a scanner may prefix: GS1 DataMatrix, GS1-128, GS1 QR
+        if (code.startsWith("]d2") || code.startsWith("]C1") || code.startsWith("]Q3")) {
+            code = code.substring(3);
+        }
+
+        Map<String, String> values = new HashMap<>();
+        if (code.startsWith("(")) {
+            Matcher matcher = BRACKETED_AI.matcher(code);
+            int end = 0;
+            while (matcher.find() && matcher.start() == end) {
+                values.put(matcher.group(1), matcher.group(2).trim());
+                end = matcher.end();
+            }
+            return end == code.length() && !values.isEmpty() ? values : null;
+        }
+
+        // Raw element strings are only recognised by their leading GTIN
+        if (code.length() < 16 || !code.startsWith("01") || !isDigits(code.substring(2, 16))) {
+            return null;
+        }
+        int position = 0;
+        while (position < code.length()) {
+            if (code.charAt(position) == GROUP_SEPARATOR) {
+                position++;
+                continue;
+            }
+            if (position + 2 > code.length()) {
+                break;
+            }
+            String ai = code.substring(position, position + 2);
+            position += 2;
+            Integer length = FIXED_AI_LENGTHS.get(ai);
+            if (length != null) {
+                if (position + length > code.length()) {
+                    break;
+                }
+                values.put(ai, code.substring(position, position + length));
+                position += length;
+            } else if (ai.equals("10") || ai.equals("21")) {
+                int end = code.indexOf(GROUP_SEPARATOR, position);
+                end = end < 0 ? code.length() : end;
+                values.put(ai, code.substring(position, end));
+                position = end;
+            } else {
+                // Identifiers this does not know the length of end the parse; what came before still counts
+                break;
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Pad a GTIN to 14 digits, the form GS1 strings carry it in
+     *
+     * @return GTIN-14, or null if the value is not a GTIN with a valid check digit
+     */
+    private static String normalizeGtin(String value) {
+        if (value == null) {
+            return null;
+        }
+        String digits = value.trim();
+        int length = digits.length();
+        if ((length != 8 && length != 12 && length != 13 && length != 14) || !isDigits(digits)) {
+            return null;
+        }
+        String gtin = "0".repeat(14 - length) + digits;
+        int sum = 0;
+        for (int i = 0; i < 13; i++) {
+            int digit = gtin.charAt(i) - '0';
+            sum += i % 2 == 0 ? digit * 3 : digit;
+        }
+        return (10 - sum % 10) % 10 == gtin.charAt(13) - '0' ? gtin : null;
+    }
+
+    private static LocalDate parseGs1Date(String value) {
+        if (value == null || value.length() != 6 || !isDigits(value)) {
+            return null;
+        }
+        int year = 2000 + Integer.parseInt(value.substring(0, 2));
+        int month = Integer.parseInt(value.substring(2, 4));
+        int day = Integer.parseInt(value.substring(4, 6));
+        try {
+            // Day 00 means the last day of the month
+            LocalDate first = LocalDate.of(year, month, 1);
+            return day == 0 ? first.withDayOfMonth(first.lengthOfMonth()) : first.withDayOfMonth(day);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private static boolean isDigits(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) < '0' || value.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return !value.isEmpty();
+    }
+
+    private static Medicine copyOf(Medicine medicine) {
+        Medicine copy = new Medicine();
+        copy.setId(medicine.getId());
+        copy.setName(medicine.getName());
+        copy.setCategory(medicine.getCategory());
+        copy.setManufacturer(medicine.getManufacturer());
+        copy.setUnitPrice(medicine.getUnitPrice());
+        copy.setPrescriptionRequired(medicine.getPrescriptionRequired());
+        copy.setGtin(medicine.getGtin());
+        return copy;
+    }
+
+    private record BatchEntry(UUID id, UUID medicineId, String batchNumber, LocalDate expiryDate) {
+
+        static BatchEntry of(Batch batch) {
+            return new BatchEntry(batch.getId(), batch.getMedicine() != null ? batch.getMedicine().getId() : null,
+                    batch.getBatchNumber(), batch.getExpiryDate());
+        }
+
+        String key() {
+            return batchNumber != null ? batchNumber.trim().toUpperCase(Locale.ROOT) : null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.StockDTO;
+import com.pharmacy.inventory.dto.response.StockChanges;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.model.Stock;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.DataVersionService;
+import com.pharmacy.inventory.service.StockChangeFeedService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Change feed on the stock_changes table, so every instance serves the same feed.
+ *
+ * Stock writes announce themselves in-process; the rows a transaction touched are
+ * upserted into stock_changes just before it commits, stamped by the database
+ * clock. The version handed to clients is "epoch.millis", the database epoch from
+ * {@link DataVersionService} and the database time the response was read at.
+ *
+ * A stamp is taken a moment before its commit makes it visible, so each poll
+ * reaches back a settle window before the client's version; a change committed
+ * more than that after its stamp could be missed. Rows within the window come
+ * again on the next poll, which is harmless as clients apply changes by ID.
+ */
+@Service
+public class StockChangeFeedServiceImpl implements StockChangeFeedService {
+
+    // Bind parameters per statement stay well below PostgreSQL's limit of 32767
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private static final int PURGE_BATCH_SIZE = 10000;
+
+    private final StockRepository stockRepository;
+    private final DataVersionService dataVersionService;
+    private final JdbcTemplate jdbcTemplate;
+    private final long settleMs;
+    private final int retentionDays;
+
+    @Autowired
+    public StockChangeFeedServiceImpl(StockRepository stockRepository, DataVersionService dataVersionService,
+                                      JdbcTemplate jdbcTemplate,
+                                      @Value("${app.stock.changes.settle-ms:10000}") long settleMs,
+                                      @Value("${app.stock.changes.retention-days:7}") int retentionDays) {
+        this.stockRepository = stockRepository;
+        this.dataVersionService = dataVersionService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.settleMs = settleMs;
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Collect the rows a transaction changes, to be written just before it commits
+     */
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        if (event.getStockId() == null || event.getBranchId() == null) {
+            return;
+        }
+        boolean deleted = event.getChangeType() == StockChangedEvent.ChangeType.DELETED;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            writeChanges(Map.of(event.getStockId(), new Change(event.getBranchId(), deleted)));
+            return;
+        }
+        pendingChanges().changes.put(event.getStockId(), new Change(event.getBranchId(), deleted));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public StockChanges getChangesSince(UUID branchId, String since) {
+        long from = parse(since);
+        // Read before the rows, so nothing committed after it is lost
+        long now = jdbcTemplate.queryForObject("SELECT clock_timestamp()", Timestamp.class).getTime();
+        boolean reset = from < 0 || from > now || from < now - retentionDays * 86_400_000L;
+
+        StockChanges changes = new StockChanges();
+        changes.setVersion(dataVersionService.getEpoch() + "." + now);
+        changes.setReset(reset);
+        if (reset) {
+            changes.setStock(toDTOs(stockRepository.findByBranchId(branchId)));
+            changes.setDeleted(new ArrayList<>());
+            return changes;
+        }
+
+        Set<UUID> changed = new HashSet<>();
+        Set<UUID> deleted = new HashSet<>();
+        jdbcTemplate.query("SELECT stock_id, deleted FROM stock_changes WHERE branch_id = ? AND changed_at > ?",
+                rs -> {
+                    (rs.getBoolean(2) ? deleted : changed).add(rs.getObject(1, UUID.class));
+                }, branchId, new Timestamp(from - settleMs));
+
+        List<Stock> rows = new ArrayList<>(changed.size());
+        List<UUID> ids = new ArrayList<>(changed);
+        for (int start = 0; start < ids.size(); start += MAX_IDS_PER_QUERY) {
+            rows.addAll(stockRepository.findByBranchIdAndIdIn(branchId,
+                    ids.subList(start, Math.min(start + MAX_IDS_PER_QUERY, ids.size()))));
+        }
+        // Rows removed by writes that did not announce a deletion
+        for (Stock row : rows) {
+            changed.remove(row.getId());
+        }
+        deleted.addAll(changed);
+
+        changes.setStock(toDTOs(rows));
+        changes.setDeleted(new ArrayList<>(deleted));
+        return changes;
+    }
+
+    /**
+     * Entries older than the retention period are dropped; clients that last polled
+     * before then get a reset instead
+     */
+    @Scheduled(cron = "${app.stock.changes.purge-cron:0 45 3 * * *}")
+    public void purgeChanges() {
+        Timestamp before = new Timestamp(System.currentTimeMillis() - retentionDays * 86_400_000L);
+        int purged;
+        do {
+            purged = jdbcTemplate.update("DELETE FROM stock_changes WHERE stock_id IN " +
+                    "(SELECT stock_id FROM stock_changes WHERE changed_at < ? LIMIT ?)", before, PURGE_BATCH_SIZE);
+        } while (purged == PURGE_BATCH_SIZE);
+    }
+
+    /**
+     * @return Database time in milliseconds, or -1 if since is not a version from this database
+     */
+    private long parse(String since) {
+        if (since == null) {
+            return -1;
+        }
+        String[] parts = since.trim().split("\\.");
+        if (parts.length != 2 || !parts[0].equals(dataVersionService.getEpoch())) {
+            return -1;
+        }
+        try {
+            long millis = Long.parseLong(parts[1]);
+            return millis >= 0 ? millis : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Upsert changes, in stock ID order so concurrent writers lock entries in the same order
+     */
+    private void writeChanges(Map<UUID, Change> changes) {
+        List<Map.Entry<UUID, Change>> rows = new ArrayList<>(new TreeMap<>(changes).entrySet());
+        for (int from = 0; from < rows.size(); from += MAX_IDS_PER_QUERY) {
+            List<Map.Entry<UUID, Change>> chunk = rows.subList(from, Math.min(from + MAX_IDS_PER_QUERY, rows.size()));
+            StringBuilder sql = new StringBuilder("INSERT INTO stock_changes (stock_id, branch_id, deleted, changed_at) VALUES ");
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, clock_timestamp())");
+                args.add(chunk.get(i).getKey());
+                args.add(chunk.get(i).getValue().branchId());
+                args.add(chunk.get(i).getValue().deleted());
+            }
+            sql.append(" ON CONFLICT (stock_id) DO UPDATE SET branch_id = EXCLUDED.branch_id, " +
+                    "deleted = EXCLUDED.deleted, changed_at = EXCLUDED.changed_at");
+            jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+    }
+
+    private PendingChanges pendingChanges() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingChanges pending) {
+                return pending;
+            }
+        }
+        PendingChanges pending = new PendingChanges();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    private static List<StockDTO> toDTOs(List<Stock> stock) {
+        List<StockDTO> dtos = new ArrayList<>(stock.size());
+        stock.forEach(row -> dtos.add(StockDTO.from(row)));
+        return dtos;
+    }
+
+    private record Change(UUID branchId, boolean deleted) {}
+
+    /**
+     * Latest change per stock row in one transaction, written just before it commits
+     */
+    private final class PendingChanges implements TransactionSynchronization {
+        private final Map<UUID, Change> changes = new TreeMap<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            writeChanges(changes);
+            changes.clear();
+        }
+    }
+}
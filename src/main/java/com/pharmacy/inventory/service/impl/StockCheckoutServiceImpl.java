@@ -0,0 +1,257 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.AllocationPlan;
+import com.pharmacy.inventory.dto.StockDeduction;
+import com.pharmacy.inventory.dto.StockLevel;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.exception.InsufficientStockException;
+import com.pharmacy.inventory.model.Sale;
+import com.pharmacy.inventory.model.SaleItem;
+import com.pharmacy.inventory.model.StockMovement;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.BatchAllocationService;
+import com.pharmacy.inventory.service.StockCheckoutService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Checkout engine built on conditional, set-based stock updates.
+ * 
+ * Before anything is deducted, every stock row of the basket's medicines at the
+ * branch is locked in id order, the same order transfers lock in, so a sale and
+ * a transfer or another sale touching the same rows queue instead of
+ * deadlocking. Rows are then drawn first-expiry-first-out following the plan
+ * from {@link BatchAllocationService}, each decremented with
+ * "current_quantity >= ?" in the WHERE clause so a row can never go negative.
+ * Callers batching several sales lock all of their rows up front with
+ * {@link #lockForCheckout(Collection)}, so the per-sale locks find them held.
+ * Stock a sale no longer takes goes back on the earliest batch still sellable,
+ * the row checkout would have drawn it from.
+ */
+@Service
+public class StockCheckoutServiceImpl implements StockCheckoutService {
+
+    private final StockRepository stockRepository;
+    private final BatchAllocationService batchAllocationService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public StockCheckoutServiceImpl(StockRepository stockRepository,
+                                    BatchAllocationService batchAllocationService,
+                                    ApplicationEventPublisher eventPublisher) {
+        this.stockRepository = stockRepository;
+        this.batchAllocationService = batchAllocationService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<StockDeduction> checkout(Sale sale) {
+        if (sale.getBranch() == null || sale.getBranch().getId() == null) {
+            throw new IllegalArgumentException("Sale must belong to a branch to be checked out");
+        }
+        
+        Map<UUID, Integer> quantities = quantitiesByMedicine(sale);
+        stockRepository.lockByBranchAndMedicines(sale.getBranch().getId(), quantities.keySet());
+        List<StockDeduction> deductions = new ArrayList<>();
+        for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+            deductInto(sale.getBranch().getId(), entry.getKey(), entry.getValue(), StockMovement.MovementType.SALE,
+                    deductions);
+        }
+        return deductions;
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Optional<List<StockDeduction>> tryCheckout(Sale sale) {
+        if (sale.getBranch() == null || sale.getBranch().getId() == null) {
+            return Optional.empty();
+        }
+        
+        Map<UUID, Integer> quantities = quantitiesByMedicine(sale);
+        stockRepository.lockByBranchAndMedicines(sale.getBranch().getId(), quantities.keySet());
+        List<StockDeduction> deductions = new ArrayList<>();
+        try {
+            for (Map.Entry<UUID, Integer> entry : quantities.entrySet()) {
+                deductInto(sale.getBranch().getId(), entry.getKey(), entry.getValue(), StockMovement.MovementType.SALE,
+                        deductions);
+            }
+            return Optional.of(deductions);
+        } catch (InsufficientStockException e) {
+            // Compensate instead of rolling back so the caller's transaction stays usable
+            LocalDateTime now = LocalDateTime.now();
+            for (StockDeduction deduction : deductions) {
+                Long version = stockRepository.incrementQuantity(deduction.getStockId(), deduction.getQuantity(), now);
+                eventPublisher.publishEvent(new StockChangedEvent(deduction.getStockId(), sale.getBranch().getId(),
+                        deduction.getMedicineId(), deduction.getBatchId(), deduction.getQuantity(),
+                        StockChangedEvent.ChangeType.ADJUSTED, StockMovement.MovementType.SALE, version));
+            }
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void lockForCheckout(Collection<Sale> sales) {
+        Set<PairKey> pairs = new LinkedHashSet<>();
+        for (Sale sale : sales) {
+            if (sale.getBranch() == null || sale.getBranch().getId() == null) {
+                continue;
+            }
+            for (SaleItem item : sale.getSaleItems()) {
+                if (item.getMedicine() != null && item.getMedicine().getId() != null) {
+                    pairs.add(new PairKey(sale.getBranch().getId(), item.getMedicine().getId()));
+                }
+            }
+        }
+        if (pairs.isEmpty()) {
+            return;
+        }
+        
+        // One statement, like the transfer lock, so the order is global across all branches
+        StringBuilder sql = new StringBuilder("SELECT s.id FROM stock s WHERE (s.branch_id, s.medicine_id) IN (");
+        for (int i = 0; i < pairs.size(); i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        sql.append(") ORDER BY s.id FOR UPDATE");
+        
+        Query query = entityManager.createNativeQuery(sql.toString());
+        int position = 1;
+        for (PairKey pair : pairs) {
+            query.setParameter(position++, pair.branchId());
+            query.setParameter(position++, pair.medicineId());
+        }
+        query.getResultList();
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void adjust(UUID branchId, Map<UUID, Integer> deltas) {
+        Map<UUID, Integer> changed = new TreeMap<>();
+        deltas.forEach((medicineId, delta) -> {
+            if (delta != null && delta != 0) {
+                changed.put(medicineId, delta);
+            }
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+        
+        stockRepository.lockByBranchAndMedicines(branchId, changed.keySet());
+        List<StockDeduction> deductions = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<UUID, Integer> entry : changed.entrySet()) {
+            if (entry.getValue() > 0) {
+                deductInto(branchId, entry.getKey(), entry.getValue(), StockMovement.MovementType.SALE, deductions);
+            } else {
+                putBack(branchId, entry.getKey(), -entry.getValue(), now);
+            }
+        }
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<StockDeduction> deduct(UUID branchId, UUID medicineId, int quantity) {
+        stockRepository.lockByBranchAndMedicines(branchId, List.of(medicineId));
+        List<StockDeduction> deductions = new ArrayList<>();
+        deductInto(branchId, medicineId, quantity, StockMovement.MovementType.DISPENSE, deductions);
+        return deductions;
+    }
+    
+    /**
+     * Merge repeated lines for the same medicine
+     */
+    private Map<UUID, Integer> quantitiesByMedicine(Sale sale) {
+        Map<UUID, Integer> quantities = new TreeMap<>();
+        for (SaleItem item : sale.getSaleItems()) {
+            quantities.merge(item.getMedicine().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+    
+    /**
+     * Apply deductions for one medicine, recording each as soon as it is applied so a
+     * caller can still put them back if a later step comes up short
+     */
+    private void deductInto(UUID branchId, UUID medicineId, int quantity, StockMovement.MovementType movementType,
+                            List<StockDeduction> deductions) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity to deduct must be positive");
+        }
+        
+        int remaining = quantity;
+        LocalDateTime now = LocalDateTime.now();
+        AllocationPlan plan = batchAllocationService.allocate(branchId, medicineId, remaining);
+        boolean fromDatabase = false;
+        
+        while (true) {
+            for (AllocationPlan.Line line : plan.getLines()) {
+                Long version = stockRepository.decrementQuantity(line.getStockId(), line.getQuantity(), now);
+                if (version != null) {
+                    deductions.add(new StockDeduction(line.getStockId(), line.getBatchId(), medicineId, line.getQuantity()));
+                    eventPublisher.publishEvent(new StockChangedEvent(line.getStockId(), branchId, medicineId,
+                            line.getBatchId(), -line.getQuantity(), StockChangedEvent.ChangeType.ADJUSTED, movementType,
+                            version));
+                    remaining -= line.getQuantity();
+                }
+            }
+            
+            if (remaining == 0) {
+                return;
+            }
+            if (fromDatabase && !plan.isFullyAllocated()) {
+                throw new InsufficientStockException(medicineId, quantity, quantity - remaining + plan.getAllocatedQuantity());
+            }
+            
+            // The cached queue was stale or another till got there first;
+            // drop it and plan what is left from the rows as they are now
+            batchAllocationService.invalidate(branchId, medicineId);
+            plan = batchAllocationService.allocateFromDatabase(branchId, medicineId, remaining);
+            fromDatabase = true;
+        }
+    }
+
+    /**
+     * Return sold units to the earliest batch still sellable, or to the latest one if
+     * every batch of the medicine has expired
+     */
+    private void putBack(UUID branchId, UUID medicineId, int quantity, LocalDateTime now) {
+        List<StockLevel> rows = stockRepository.findStockLevels(branchId, medicineId);
+        if (rows.isEmpty()) {
+            throw new IllegalStateException("No stock row of medicine " + medicineId + " at the branch to return it to");
+        }
+        
+        LocalDate today = now.toLocalDate();
+        StockLevel row = rows.stream()
+                .filter(level -> level.getExpiryDate() == null || !level.getExpiryDate().isBefore(today))
+                .findFirst()
+                .orElse(rows.get(rows.size() - 1));
+        Long version = stockRepository.incrementQuantity(row.getStockId(), quantity, now);
+        eventPublisher.publishEvent(new StockChangedEvent(row.getStockId(), branchId, medicineId, row.getBatchId(),
+                quantity, StockChangedEvent.ChangeType.ADJUSTED, StockMovement.MovementType.SALE, version));
+    }
+
+    private record PairKey(UUID branchId, UUID medicineId) {
+    }
+}
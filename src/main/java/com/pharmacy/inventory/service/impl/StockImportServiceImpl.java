@@ -0,0 +1,575 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.response.StockImportResponse;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
+import com.pharmacy.inventory.exception.ServiceBusyException;
+import com.pharmacy.inventory.model.Batch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.StockMovement;
+import com.pharmacy.inventory.model.TimeOrderedUuidGenerator;
+import com.pharmacy.inventory.repository.BatchRepository;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.MedicineCacheService;
+import com.pharmacy.inventory.service.MedicineSearchService;
+import com.pharmacy.inventory.service.NameSearchService;
+import com.pharmacy.inventory.service.ScanService;
+import com.pharmacy.inventory.service.StockImportService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Streaming stock import.
+ *
+ * Rows are parsed and validated as the file is read and handed on in chunks, so
+ * only one chunk is held in memory however long the file is. Each chunk resolves
+ * its medicines and batches with one query each, inserts new ones as JDBC batches
+ * and adds the received quantities to stock with a single upsert, all in one
+ * transaction. If a chunk fails as a whole its rows are retried one by one, so a
+ * bad row only rejects itself. Only one import runs at a time.
+ */
+@Service
+public class StockImportServiceImpl implements StockImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockImportServiceImpl.class);
+
+    private static final List<String> REQUIRED_COLUMNS = List.of("medicine_name", "batch_number", "expiry_date", "quantity");
+
+    // Bind parameters per statement stay well below PostgreSQL's limit of 32767
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private final MedicineRepository medicineRepository;
+    private final BatchRepository batchRepository;
+    private final BranchRepository branchRepository;
+    private final StockRepository stockRepository;
+    private final MedicineCacheService medicineCacheService;
+    private final MedicineSearchService medicineSearchService;
+    private final ScanService scanService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Semaphore importPermits;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.stock.import.max-rows:500000}")
+    private int maxRows;
+
+    @Value("${app.stock.import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${app.stock.import.max-errors:1000}")
+    private int maxErrors;
+
+    @Value("${app.stock.import.retry-after-seconds:30}")
+    private int retryAfterSeconds;
+
+    @Autowired
+    public StockImportServiceImpl(MedicineRepository medicineRepository, BatchRepository batchRepository,
+                                  BranchRepository branchRepository, StockRepository stockRepository,
+                                  MedicineCacheService medicineCacheService,
+                                  MedicineSearchService medicineSearchService, ScanService scanService,
+                                  ApplicationEventPublisher eventPublisher, PlatformTransactionManager transactionManager,
+                                  @Value("${app.stock.import.max-concurrent:1}") int maxConcurrent) {
+        this.medicineRepository = medicineRepository;
+        this.batchRepository = batchRepository;
+        this.branchRepository = branchRepository;
+        this.stockRepository = stockRepository;
+        this.medicineCacheService = medicineCacheService;
+        this.medicineSearchService = medicineSearchService;
+        this.scanService = scanService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.importPermits = new Semaphore(maxConcurrent);
+    }
+
+    @Override
+    public StockImportResponse importStock(UUID branchId, MultipartFile file) throws IOException {
+        String filename = file.getOriginalFilename() != null ? file.getOriginalFilename().toLowerCase(Locale.ROOT) : "";
+        if (!filename.endsWith(".csv") && !filename.endsWith(".xlsx")) {
+            throw new IllegalArgumentException("Only .csv and .xlsx files can be imported");
+        }
+        if (!branchRepository.existsById(branchId)) {
+            throw new ResourceNotFoundException("Branch not found with id " + branchId);
+        }
+
+        if (!importPermits.tryAcquire()) {
+            int retryAfter = retryAfterSeconds + ThreadLocalRandom.current().nextInt(retryAfterSeconds + 1);
+            throw new ServiceBusyException("A stock import is already running, please retry later", retryAfter);
+        }
+
+        long started = System.nanoTime();
+        ImportSession session = new ImportSession(branchId, new StockImportResponse(maxErrors));
+        try {
+            if (filename.endsWith(".csv")) {
+                try (InputStream in = file.getInputStream()) {
+                    TabularFileReader.readCsv(in, session::row);
+                }
+            } else {
+                // The XLSX reader needs random access to the zip entries, so the upload goes to disk first
+                Path workbook = Files.createTempFile("stock-import-", ".xlsx");
+                try {
+                    file.transferTo(workbook);
+                    TabularFileReader.readXlsx(workbook.toFile(), session::row);
+                } finally {
+                    Files.deleteIfExists(workbook);
+                }
+            }
+            session.finish();
+        } catch (RowLimitReached e) {
+            session.response.reject(e.rowNumber, "Row limit of " + maxRows
+                    + " reached; this row and the rest of the file were not imported");
+            session.finish();
+        } finally {
+            // Only once the last chunk is written, so imports never interleave
+            importPermits.release();
+        }
+
+        StockImportResponse response = session.response;
+        logger.info("Stock import into branch {}: {} rows read, {} imported, {} rejected in {} ms", branchId,
+                response.getRows_read(), response.getRows_imported(), response.getRows_rejected(),
+                (System.nanoTime() - started) / 1_000_000);
+        return response;
+    }
+
+    /**
+     * Write one chunk in its own transaction; if it fails as a whole, write its rows one at a time
+     */
+    private void importChunk(UUID branchId, List<ImportRow> rows, StockImportResponse response) {
+        ChunkResult result;
+        try {
+            result = transactionTemplate.execute(status -> writeChunk(branchId, rows));
+        } catch (RuntimeException e) {
+            if (rows.size() == 1) {
+                response.reject(rows.get(0).rowNumber(), "Failed to import row: " + rootMessage(e));
+                return;
+            }
+            logger.warn("Stock import chunk of {} rows failed, retrying row by row: {}", rows.size(), rootMessage(e));
+            for (ImportRow row : rows) {
+                importChunk(branchId, List.of(row), response);
+            }
+            return;
+        }
+
+        for (Map.Entry<Integer, String> rejection : result.rejections.entrySet()) {
+            response.reject(rejection.getKey(), rejection.getValue());
+        }
+        response.setRows_imported(response.getRows_imported() + result.imported);
+        response.setMedicines_created(response.getMedicines_created() + result.medicinesCreated);
+        response.setMedicines_updated(response.getMedicines_updated() + result.medicinesUpdated);
+        response.setBatches_created(response.getBatches_created() + result.batchesCreated);
+        response.setStock_rows_created(response.getStock_rows_created() + result.stockRowsCreated);
+        response.setStock_rows_updated(response.getStock_rows_updated() + result.stockRowsUpdated);
+    }
+
+    private ChunkResult writeChunk(UUID branchId, List<ImportRow> rows) {
+        ChunkResult result = new ChunkResult();
+
+        Set<String> names = new HashSet<>();
+        Set<String> batchNumbers = new HashSet<>();
+        for (ImportRow row : rows) {
+            names.add(NameSearchService.normalize(row.medicineName()));
+            batchNumbers.add(row.batchNumber());
+        }
+        Map<String, List<Medicine>> medicinesByName = new HashMap<>();
+        for (Medicine medicine : medicineRepository.findByLowerNameIn(names)) {
+            medicinesByName.computeIfAbsent(NameSearchService.normalize(medicine.getName()), key -> new ArrayList<>())
+                    .add(medicine);
+        }
+        Map<String, Batch> batchesByNumber = new HashMap<>();
+        for (Batch batch : batchRepository.findByBatchNumberIn(batchNumbers)) {
+            batchesByNumber.put(batch.getBatchNumber(), batch);
+        }
+
+        List<Medicine> newMedicines = new ArrayList<>();
+        List<Batch> newBatches = new ArrayList<>();
+        Set<Medicine> updatedMedicines = Collections.newSetFromMap(new IdentityHashMap<>());
+        Map<Batch, Integer> received = new IdentityHashMap<>();
+
+        for (ImportRow row : rows) {
+            String name = NameSearchService.normalize(row.medicineName());
+            List<Medicine> candidates = medicinesByName.getOrDefault(name, List.of());
+            if (candidates.size() > 1) {
+                result.rejections.put(row.rowNumber(), "Medicine name '" + row.medicineName() + "' matches "
+                        + candidates.size() + " medicines");
+                continue;
+            }
+            Medicine medicine = candidates.isEmpty() ? null : candidates.get(0);
+            if (medicine == null && row.unitPrice() == null) {
+                result.rejections.put(row.rowNumber(), "unit_price is required for a new medicine");
+                continue;
+            }
+
+            Batch batch = batchesByNumber.get(row.batchNumber());
+            if (batch != null) {
+                if (medicine == null || batch.getMedicine() != medicine) {
+                    result.rejections.put(row.rowNumber(), "Batch " + row.batchNumber() + " belongs to medicine '"
+                            + batch.getMedicine().getName() + "'");
+                    continue;
+                }
+                if (batch.getExpiryDate() != null && !batch.getExpiryDate().equals(row.expiryDate())) {
+                    result.rejections.put(row.rowNumber(), "Batch " + row.batchNumber() + " is recorded as expiring on "
+                            + batch.getExpiryDate());
+                    continue;
+                }
+            }
+
+            // The row is valid from here on
+            if (medicine == null) {
+                medicine = new Medicine();
+                medicine.setName(row.medicineName());
+                medicine.setPrescriptionRequired(false);
+                applyCatalogue(medicine, row);
+                newMedicines.add(medicine);
+                medicinesByName.put(name, new ArrayList<>(List.of(medicine)));
+            } else if (applyCatalogue(medicine, row) && !newMedicines.contains(medicine)) {
+                updatedMedicines.add(medicine);
+            }
+
+            if (batch == null) {
+                batch = new Batch();
+                batch.setMedicine(medicine);
+                batch.setBatchNumber(row.batchNumber());
+                batch.setManufactureDate(row.manufactureDate());
+                batch.setExpiryDate(row.expiryDate());
+                batch.setQuantity(0);
+                newBatches.add(batch);
+                batchesByNumber.put(row.batchNumber(), batch);
+            } else if (batch.getExpiryDate() == null) {
+                batch.setExpiryDate(row.expiryDate());
+            }
+            batch.setQuantity((batch.getQuantity() != null ? batch.getQuantity() : 0) + row.quantity());
+            received.merge(batch, row.quantity(), Integer::sum);
+            result.imported++;
+        }
+
+        // Inserts go out in JDBC batches on flush; existing rows are updated by dirty checking
+        medicineRepository.saveAll(newMedicines);
+        batchRepository.saveAll(newBatches);
+        entityManager.flush();
+        result.medicinesCreated = newMedicines.size();
+        result.medicinesUpdated = updatedMedicines.size();
+        updatedMedicines.forEach(medicine -> medicineCacheService.invalidate(medicine.getId()));
+        newMedicines.forEach(medicineSearchService::medicineSaved);
+        updatedMedicines.forEach(medicineSearchService::medicineSaved);
+        newMedicines.forEach(scanService::medicineSaved);
+        updatedMedicines.forEach(scanService::medicineSaved);
+        received.keySet().forEach(scanService::batchSaved);
+        result.batchesCreated = newBatches.size();
+
+        upsertStock(branchId, new ArrayList<>(received.entrySet()), result);
+        return result;
+    }
+
+    /**
+     * Overwrite the catalogue fields the row fills in
+     *
+     * @return Whether anything changed
+     */
+    private boolean applyCatalogue(Medicine medicine, ImportRow row) {
+        boolean changed = false;
+        if (row.category() != null && !row.category().equals(medicine.getCategory())) {
+            medicine.setCategory(row.category());
+            changed = true;
+        }
+        if (row.manufacturer() != null && !row.manufacturer().equals(medicine.getManufacturer())) {
+            medicine.setManufacturer(row.manufacturer());
+            changed = true;
+        }
+        if (row.unitPrice() != null && (medicine.getUnitPrice() == null || row.unitPrice().compareTo(medicine.getUnitPrice()) != 0)) {
+            medicine.setUnitPrice(row.unitPrice());
+            changed = true;
+        }
+        if (row.prescriptionRequired() != null && !row.prescriptionRequired().equals(medicine.getPrescriptionRequired())) {
+            medicine.setPrescriptionRequired(row.prescriptionRequired());
+            changed = true;
+        }
+        return changed;
+    }
+
+    /**
+     * Add received quantities to the branch's stock rows, creating rows for batches it did not hold
+     */
+    @SuppressWarnings("unchecked")
+    private void upsertStock(UUID branchId, List<Map.Entry<Batch, Integer>> received, ChunkResult result) {
+        if (received.isEmpty()) {
+            return;
+        }
+        // Existing rows are locked in id order up front like every other multi-row stock writer;
+        // the upsert below then only waits on rows this transaction already holds
+        List<UUID> batchIds = new ArrayList<>(received.size());
+        for (Map.Entry<Batch, Integer> entry : received) {
+            batchIds.add(entry.getKey().getId());
+        }
+        stockRepository.lockByBranchAndBatches(branchId, batchIds);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int from = 0; from < received.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<Batch, Integer>> chunk = received.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, received.size()));
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO stock (id, branch_id, medicine_id, batch_id, current_quantity, created_at, last_updated, " +
+                    "version) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, 0)");
+            }
+            sql.append(" ON CONFLICT (branch_id, batch_id) DO UPDATE SET " +
+                    "current_quantity = stock.current_quantity + EXCLUDED.current_quantity, " +
+                    "last_updated = EXCLUDED.last_updated, version = stock.version + 1 " +
+                    "RETURNING id, batch_id, (xmax = 0), version");
+
+            Query query = entityManager.createNativeQuery(sql.toString());
+            int position = 1;
+            Map<UUID, Map.Entry<Batch, Integer>> byBatch = new HashMap<>();
+            for (Map.Entry<Batch, Integer> entry : chunk) {
+                Batch batch = entry.getKey();
+                query.setParameter(position++, TimeOrderedUuidGenerator.generate());
+                query.setParameter(position++, branchId);
+                query.setParameter(position++, batch.getMedicine().getId());
+                query.setParameter(position++, batch.getId());
+                query.setParameter(position++, entry.getValue());
+                query.setParameter(position++, now);
+                query.setParameter(position++, now);
+                byBatch.put(batch.getId(), entry);
+            }
+
+            for (Object[] row : (List<Object[]>) query.getResultList()) {
+                Map.Entry<Batch, Integer> entry = byBatch.get((UUID) row[1]);
+                boolean inserted = Boolean.TRUE.equals(row[2]);
+                if (inserted) {
+                    result.stockRowsCreated++;
+                } else {
+                    result.stockRowsUpdated++;
+                }
+                eventPublisher.publishEvent(new StockChangedEvent((UUID) row[0], branchId,
+                        entry.getKey().getMedicine().getId(), entry.getKey().getId(), entry.getValue(),
+                        inserted ? StockChangedEvent.ChangeType.CREATED : StockChangedEvent.ChangeType.ADJUSTED,
+                        StockMovement.MovementType.RECEIPT, ((Number) row[3]).longValue()));
+            }
+        }
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+    }
+
+    /**
+     * State of one import while its file is being read
+     */
+    private final class ImportSession {
+        private final UUID branchId;
+        private final StockImportResponse response;
+        private final List<ImportRow> pending = new ArrayList<>();
+        private Map<String, Integer> columns;
+
+        private ImportSession(UUID branchId, StockImportResponse response) {
+            this.branchId = branchId;
+            this.response = response;
+        }
+
+        private void row(int rowNumber, List<String> cells) {
+            if (columns == null) {
+                columns = readHeader(cells);
+                return;
+            }
+            if (response.getRows_read() >= maxRows) {
+                throw new RowLimitReached(rowNumber);
+            }
+            response.setRows_read(response.getRows_read() + 1);
+
+            try {
+                pending.add(parseRow(rowNumber, cells));
+            } catch (IllegalArgumentException e) {
+                response.reject(rowNumber, e.getMessage());
+            }
+            if (pending.size() >= chunkSize) {
+                flush();
+            }
+        }
+
+        private void finish() {
+            if (columns == null) {
+                throw new IllegalArgumentException("The file has no header row");
+            }
+            flush();
+        }
+
+        private void flush() {
+            if (!pending.isEmpty()) {
+                importChunk(branchId, new ArrayList<>(pending), response);
+                pending.clear();
+            }
+        }
+
+        private Map<String, Integer> readHeader(List<String> cells) {
+            Map<String, Integer> header = new LinkedHashMap<>();
+            for (int i = 0; i < cells.size(); i++) {
+                String column = cells.get(i) == null ? "" : cells.get(i).trim().toLowerCase(Locale.ROOT)
+                        .replace(' ', '_').replace('-', '_');
+                if (!column.isEmpty()) {
+                    header.putIfAbsent(column, i);
+                }
+            }
+            List<String> missing = new ArrayList<>();
+            for (String column : REQUIRED_COLUMNS) {
+                if (!header.containsKey(column)) {
+                    missing.add(column);
+                }
+            }
+            if (!missing.isEmpty()) {
+                throw new IllegalArgumentException("The header row is missing columns: " + String.join(", ", missing));
+            }
+            return header;
+        }
+
+        private ImportRow parseRow(int rowNumber, List<String> cells) {
+            String medicineName = text(cells, "medicine_name", 150);
+            String batchNumber = text(cells, "batch_number", 50);
+            if (medicineName == null) {
+                throw new IllegalArgumentException("medicine_name is required");
+            }
+            if (batchNumber == null) {
+                throw new IllegalArgumentException("batch_number is required");
+            }
+
+            LocalDate expiryDate = date(cells, "expiry_date");
+            if (expiryDate == null) {
+                throw new IllegalArgumentException("expiry_date is required");
+            }
+            LocalDate manufactureDate = date(cells, "manufacture_date");
+            if (manufactureDate != null && manufactureDate.isAfter(expiryDate)) {
+                throw new IllegalArgumentException("manufacture_date is after expiry_date");
+            }
+
+            String quantityValue = cell(cells, "quantity");
+            int quantity;
+            try {
+                quantity = quantityValue != null ? new BigDecimal(quantityValue).intValueExact() : 0;
+            } catch (NumberFormatException | ArithmeticException e) {
+                quantity = 0;
+            }
+            if (quantity < 1) {
+                throw new IllegalArgumentException("quantity must be a whole number of at least 1");
+            }
+
+            BigDecimal unitPrice = null;
+            String priceValue = cell(cells, "unit_price");
+            if (priceValue != null) {
+                try {
+                    unitPrice = new BigDecimal(priceValue).setScale(2, RoundingMode.HALF_UP);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("unit_price must be a number");
+                }
+                if (unitPrice.signum() < 0 || unitPrice.precision() > 10) {
+                    throw new IllegalArgumentException("unit_price is out of range");
+                }
+            }
+
+            return new ImportRow(rowNumber, medicineName, text(cells, "category", 100), text(cells, "manufacturer", 100),
+                    unitPrice, flag(cells, "prescription_required"), batchNumber, manufactureDate, expiryDate, quantity);
+        }
+
+        private String cell(List<String> cells, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= cells.size() || cells.get(index) == null) {
+                return null;
+            }
+            String value = cells.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        private String text(List<String> cells, String column, int maxLength) {
+            String value = cell(cells, column);
+            if (value != null && value.length() > maxLength) {
+                throw new IllegalArgumentException(column + " is longer than " + maxLength + " characters");
+            }
+            return value;
+        }
+
+        private LocalDate date(List<String> cells, String column) {
+            String value = cell(cells, column);
+            try {
+                return value != null ? LocalDate.parse(value) : null;
+            } catch (DateTimeParseException e) {
+                throw new IllegalArgumentException(column + " must be a date as yyyy-MM-dd");
+            }
+        }
+
+        private Boolean flag(List<String> cells, String column) {
+            String value = cell(cells, column);
+            if (value == null) {
+                return null;
+            }
+            switch (value.toLowerCase(Locale.ROOT)) {
+                case "true", "yes", "y", "1":
+                    return Boolean.TRUE;
+                case "false", "no", "n", "0":
+                    return Boolean.FALSE;
+                default:
+                    throw new IllegalArgumentException(column + " must be true or false");
+            }
+        }
+    }
+
+    private record ImportRow(int rowNumber, String medicineName, String category, String manufacturer,
+                             BigDecimal unitPrice, Boolean prescriptionRequired, String batchNumber,
+                             LocalDate manufactureDate, LocalDate expiryDate, int quantity) {
+    }
+
+    private static final class ChunkResult {
+        private final Map<Integer, String> rejections = new LinkedHashMap<>();
+        private int imported;
+        private int medicinesCreated;
+        private int medicinesUpdated;
+        private int batchesCreated;
+        private int stockRowsCreated;
+        private int stockRowsUpdated;
+    }
+
+    private static final class RowLimitReached extends RuntimeException {
+        private final int rowNumber;
+
+        private RowLimitReached(int rowNumber) {
+            super(null, null, false, false);
+            this.rowNumber = rowNumber;
+        }
+    }
+}
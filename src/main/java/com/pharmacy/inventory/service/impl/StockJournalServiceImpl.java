@@ -0,0 +1,320 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.StockBalance;
+import com.pharmacy.inventory.dto.StockPosition;
+import com.pharmacy.inventory.dto.response.StockAsOfReport;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.model.Batch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.StockMovement;
+import com.pharmacy.inventory.model.StockSnapshot;
+import com.pharmacy.inventory.model.TimeOrderedUuidGenerator;
+import com.pharmacy.inventory.repository.BatchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.repository.StockSnapshotRepository;
+import com.pharmacy.inventory.service.StockJournalService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * Movement journal and snapshots on PostgreSQL.
+ *
+ * Movements announced during a transaction are collected per stock row and
+ * movement type, so a row touched several times contributes its net change, and
+ * written with one multi-row INSERT just before the transaction commits. They are
+ * all stamped with that moment, which is when they become visible.
+ *
+ * Snapshots are folded from the previous snapshot and the movements since, never
+ * from the stock table, so a snapshot and the journal always agree. When the
+ * journal is empty at startup the current stock is recorded as opening balances.
+ */
+@Service
+public class StockJournalServiceImpl implements StockJournalService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockJournalServiceImpl.class);
+
+    // Bind parameters per statement stay well below PostgreSQL's limit of 32767
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private final StockRepository stockRepository;
+    private final StockSnapshotRepository stockSnapshotRepository;
+    private final MedicineRepository medicineRepository;
+    private final BatchRepository batchRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Value("${app.stock.journal.snapshot-settle-ms:60000}")
+    private long snapshotSettleMs;
+
+    @Autowired
+    public StockJournalServiceImpl(StockRepository stockRepository, StockSnapshotRepository stockSnapshotRepository,
+                                   MedicineRepository medicineRepository, BatchRepository batchRepository,
+                                   PlatformTransactionManager transactionManager) {
+        this.stockRepository = stockRepository;
+        this.stockSnapshotRepository = stockSnapshotRepository;
+        this.medicineRepository = medicineRepository;
+        this.batchRepository = batchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recordOpeningBalances() {
+        Integer recorded = transactionTemplate.execute(status -> {
+            // Holds off stock writes so nothing is both in the opening balance and journaled
+            entityManager.createNativeQuery("LOCK TABLE stock IN SHARE MODE").executeUpdate();
+            if (!entityManager.createNativeQuery("SELECT 1 FROM stock_movements LIMIT 1").getResultList().isEmpty()) {
+                return 0;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Map<MovementKey, Integer> opening = new LinkedHashMap<>();
+            int count = 0;
+            try (Stream<StockBalance> balances = stockRepository.streamStockBalances()) {
+                for (StockBalance balance : (Iterable<StockBalance>) balances::iterator) {
+                    if (balance.getQuantity() == null || balance.getQuantity() == 0 || balance.getBranchId() == null
+                            || balance.getMedicineId() == null || balance.getBatchId() == null) {
+                        continue;
+                    }
+                    opening.put(new MovementKey(balance.getStockId(), balance.getBranchId(), balance.getMedicineId(),
+                            balance.getBatchId(), StockMovement.MovementType.OPENING), balance.getQuantity());
+                    if (opening.size() == MAX_ROWS_PER_STATEMENT) {
+                        count += writeMovements(opening, now);
+                        opening.clear();
+                    }
+                }
+            }
+            return count + writeMovements(opening, now);
+        });
+        if (recorded != null && recorded > 0) {
+            logger.info("Stock journal started with {} opening balances", recorded);
+        }
+    }
+
+    /**
+     * Stock writes announce themselves in-process; collect them for the journal while
+     * their transaction is still open
+     */
+    @EventListener
+    public void onStockChanged(StockChangedEvent event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || !TransactionSynchronizationManager.isActualTransactionActive()
+                || event.getMovementType() == null || event.getQuantityDelta() == null || event.getQuantityDelta() == 0
+                || event.getStockId() == null || event.getBranchId() == null || event.getMedicineId() == null
+                || event.getBatchId() == null) {
+            return;
+        }
+        pendingMovements().add(new MovementKey(event.getStockId(), event.getBranchId(), event.getMedicineId(),
+                event.getBatchId(), event.getMovementType()), event.getQuantityDelta());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public StockAsOfReport getStockAsOf(UUID branchId, LocalDateTime at) {
+        StockSnapshot snapshot = stockSnapshotRepository.findFirstByTakenAtLessThanEqualOrderByTakenAtDesc(at).orElse(null);
+
+        Query query;
+        if (snapshot != null) {
+            query = entityManager.createNativeQuery(
+                    "SELECT t.medicine_id, t.batch_id, SUM(t.quantity) FROM (" +
+                    "SELECT medicine_id, batch_id, quantity FROM stock_snapshot_lines WHERE snapshot_id = ? AND branch_id = ? " +
+                    "UNION ALL " +
+                    "SELECT medicine_id, batch_id, quantity FROM stock_movements " +
+                    "WHERE branch_id = ? AND occurred_at > ? AND occurred_at <= ?" +
+                    ") t GROUP BY t.medicine_id, t.batch_id HAVING SUM(t.quantity) <> 0");
+            query.setParameter(1, snapshot.getId());
+            query.setParameter(2, branchId);
+            query.setParameter(3, branchId);
+            query.setParameter(4, snapshot.getTakenAt());
+            query.setParameter(5, at);
+        } else {
+            query = entityManager.createNativeQuery(
+                    "SELECT medicine_id, batch_id, SUM(quantity) FROM stock_movements " +
+                    "WHERE branch_id = ? AND occurred_at <= ? " +
+                    "GROUP BY medicine_id, batch_id HAVING SUM(quantity) <> 0");
+            query.setParameter(1, branchId);
+            query.setParameter(2, at);
+        }
+        List<Object[]> rows = query.getResultList();
+
+        Set<UUID> medicineIds = new HashSet<>();
+        Set<UUID> batchIds = new HashSet<>();
+        for (Object[] row : rows) {
+            medicineIds.add((UUID) row[0]);
+            batchIds.add((UUID) row[1]);
+        }
+        Map<UUID, String> medicineNames = new HashMap<>();
+        for (Medicine medicine : medicineRepository.findAllById(medicineIds)) {
+            medicineNames.put(medicine.getId(), medicine.getName());
+        }
+        Map<UUID, Batch> batches = new HashMap<>();
+        for (Batch batch : batchRepository.findAllById(batchIds)) {
+            batches.put(batch.getId(), batch);
+        }
+
+        List<StockPosition> positions = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Batch batch = batches.get((UUID) row[1]);
+            positions.add(new StockPosition((UUID) row[0], medicineNames.get((UUID) row[0]), (UUID) row[1],
+                    batch != null ? batch.getBatchNumber() : null, batch != null ? batch.getExpiryDate() : null,
+                    ((Number) row[2]).longValue()));
+        }
+        positions.sort(Comparator.comparing(StockPosition::getMedicineName, Comparator.nullsLast(Comparator.<String>naturalOrder()))
+                .thenComparing(StockPosition::getExpiryDate, Comparator.nullsLast(Comparator.<LocalDate>naturalOrder())));
+        return new StockAsOfReport(branchId, at, snapshot != null ? snapshot.getTakenAt() : null, positions);
+    }
+
+    @Override
+    public StockSnapshot takeSnapshot() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime takenAt = LocalDateTime.now().minusNanos(snapshotSettleMs * 1_000_000);
+            StockSnapshot previous = stockSnapshotRepository.findFirstByOrderByTakenAtDesc().orElse(null);
+            if (previous != null && !previous.getTakenAt().isBefore(takenAt)) {
+                return previous;
+            }
+
+            StockSnapshot snapshot = new StockSnapshot();
+            snapshot.setTakenAt(takenAt);
+            snapshot = stockSnapshotRepository.saveAndFlush(snapshot);
+
+            Query query;
+            if (previous != null) {
+                query = entityManager.createNativeQuery(
+                        "INSERT INTO stock_snapshot_lines (snapshot_id, branch_id, medicine_id, batch_id, quantity) " +
+                        "SELECT CAST(? AS uuid), t.branch_id, t.medicine_id, t.batch_id, SUM(t.quantity) FROM (" +
+                        "SELECT branch_id, medicine_id, batch_id, quantity FROM stock_snapshot_lines WHERE snapshot_id = ? " +
+                        "UNION ALL " +
+                        "SELECT branch_id, medicine_id, batch_id, quantity FROM stock_movements " +
+                        "WHERE occurred_at > ? AND occurred_at <= ?" +
+                        ") t GROUP BY t.branch_id, t.medicine_id, t.batch_id HAVING SUM(t.quantity) <> 0");
+                query.setParameter(1, snapshot.getId());
+                query.setParameter(2, previous.getId());
+                query.setParameter(3, previous.getTakenAt());
+                query.setParameter(4, takenAt);
+            } else {
+                query = entityManager.createNativeQuery(
+                        "INSERT INTO stock_snapshot_lines (snapshot_id, branch_id, medicine_id, batch_id, quantity) " +
+                        "SELECT CAST(? AS uuid), branch_id, medicine_id, batch_id, SUM(quantity) FROM stock_movements " +
+                        "WHERE occurred_at <= ? " +
+                        "GROUP BY branch_id, medicine_id, batch_id HAVING SUM(quantity) <> 0");
+                query.setParameter(1, snapshot.getId());
+                query.setParameter(2, takenAt);
+            }
+            snapshot.setLineCount(query.executeUpdate());
+            logger.info("Stock snapshot taken as of {} with {} lines", takenAt, snapshot.getLineCount());
+            return stockSnapshotRepository.save(snapshot);
+        });
+    }
+
+    @Scheduled(cron = "${app.stock.journal.snapshot-cron:0 0 1 * * *}")
+    public void snapshotOnSchedule() {
+        takeSnapshot();
+    }
+
+    /**
+     * Movements collected so far in the current transaction, registering the hook that
+     * writes them out on first use
+     */
+    private PendingMovements pendingMovements() {
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingMovements pending) {
+                return pending;
+            }
+        }
+        PendingMovements pending = new PendingMovements();
+        TransactionSynchronizationManager.registerSynchronization(pending);
+        return pending;
+    }
+
+    /**
+     * Insert movements stamped with one time, chunked as one INSERT per chunk
+     *
+     * @return Number of movements written
+     */
+    private int writeMovements(Map<MovementKey, Integer> movements, LocalDateTime occurredAt) {
+        List<Map.Entry<MovementKey, Integer>> rows = new ArrayList<>();
+        for (Map.Entry<MovementKey, Integer> movement : movements.entrySet()) {
+            if (movement.getValue() != 0) {
+                rows.add(movement);
+            }
+        }
+
+        for (int from = 0; from < rows.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Map.Entry<MovementKey, Integer>> chunk = rows.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, rows.size()));
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO stock_movements (id, stock_id, branch_id, medicine_id, batch_id, movement_type, " +
+                    "quantity, occurred_at) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, ?)");
+            }
+
+            Query query = entityManager.createNativeQuery(sql.toString());
+            int position = 1;
+            for (Map.Entry<MovementKey, Integer> row : chunk) {
+                MovementKey key = row.getKey();
+                query.setParameter(position++, TimeOrderedUuidGenerator.generate());
+                query.setParameter(position++, key.stockId());
+                query.setParameter(position++, key.branchId());
+                query.setParameter(position++, key.medicineId());
+                query.setParameter(position++, key.batchId());
+                query.setParameter(position++, key.movementType().name());
+                query.setParameter(position++, row.getValue());
+                query.setParameter(position++, occurredAt);
+            }
+            query.executeUpdate();
+        }
+        return rows.size();
+    }
+
+    private record MovementKey(UUID stockId, UUID branchId, UUID medicineId, UUID batchId,
+                               StockMovement.MovementType movementType) {
+    }
+
+    /**
+     * Net movements of one transaction, written just before it commits. Changes that
+     * cancel out, such as a sale put back within the same transaction, leave nothing.
+     */
+    private final class PendingMovements implements TransactionSynchronization {
+        private final Map<MovementKey, Integer> movements = new LinkedHashMap<>();
+
+        private void add(MovementKey key, int quantity) {
+            movements.merge(key, quantity, Integer::sum);
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            writeMovements(movements, LocalDateTime.now());
+            movements.clear();
+        }
+    }
+}
@@ -0,0 +1,371 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.StockBalance;
+import com.pharmacy.inventory.dto.response.StockLedgerReport;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.event.StockLevelChangedEvent;
+import com.pharmacy.inventory.model.Stock;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.StockLedgerService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Ledger of stock rows by id, with running totals per (branch, medicine) and per
+ * (branch, medicine, batch).
+ *
+ * Lookups read the totals without locking. Writers take the lock of the stripe the
+ * stock id hashes to, so a row and the totals it contributes to always move
+ * together. Deltas from committed {@link StockChangedEvent}s are applied in memory;
+ * any other change reloads the row from the database in a transaction of its own.
+ * Events arriving while the ledger is still warming are remembered and their rows
+ * reloaded once the initial load is done.
+ *
+ * Every row carries the stock version it reflects. A delta is applied only when it
+ * is the next version of the row; one the row already includes, because a reload
+ * picked it up first, is dropped, and one that skips a version reloads the row. A
+ * reload only replaces a row with a newer version, so a slow read cannot undo later
+ * deltas. The scheduled reconciliation catches anything else.
+ */
+@Service
+public class StockLedgerServiceImpl implements StockLedgerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockLedgerServiceImpl.class);
+
+    private static final int STRIPES = 64;
+
+    private final StockRepository stockRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TransactionTemplate reloadTransaction;
+    private final Map<UUID, Row> rows = new ConcurrentHashMap<>();
+    private final Map<MedicineKey, AtomicLong> medicineTotals = new ConcurrentHashMap<>();
+    private final Map<BatchKey, AtomicLong> batchTotals = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final Set<UUID> changedWhileWarming = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    @Value("${app.stock.ledger.repair-on-reconcile:true}")
+    private boolean repairOnReconcile;
+
+    @Autowired
+    public StockLedgerServiceImpl(StockRepository stockRepository, ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager) {
+        this.stockRepository = stockRepository;
+        this.eventPublisher = eventPublisher;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        // Reloads run from after-commit listeners, where the finished transaction is still bound
+        this.reloadTransaction = new TransactionTemplate(transactionManager);
+        this.reloadTransaction.setReadOnly(true);
+        this.reloadTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // Ahead of other startup listeners, which may read the ledger
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void warm() {
+        long started = System.nanoTime();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<StockBalance> balances = stockRepository.streamStockBalances()) {
+                balances.forEach(this::put);
+            }
+        });
+        ready = true;
+
+        for (UUID stockId : changedWhileWarming) {
+            changedWhileWarming.remove(stockId);
+            reload(stockId);
+        }
+        logger.info("Stock ledger loaded {} rows in {} ms", rows.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Override
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public long getAvailable(UUID branchId, UUID medicineId) {
+        if (!ready) {
+            return stockRepository.sumQuantity(branchId, medicineId);
+        }
+        AtomicLong total = medicineTotals.get(new MedicineKey(branchId, medicineId));
+        return total != null ? total.get() : 0L;
+    }
+
+    @Override
+    public long getAvailable(UUID branchId, UUID medicineId, UUID batchId) {
+        if (!ready) {
+            return stockRepository.findFirstByBranchIdAndBatchId(branchId, batchId)
+                    .filter(stock -> stock.getMedicine() != null && stock.getMedicine().getId().equals(medicineId))
+                    .map(Stock::getCurrentQuantity)
+                    .orElse(0);
+        }
+        AtomicLong total = batchTotals.get(new BatchKey(branchId, medicineId, batchId));
+        return total != null ? total.get() : 0L;
+    }
+
+    @Override
+    public boolean isInStock(UUID branchId, UUID medicineId, int quantity) {
+        return getAvailable(branchId, medicineId) >= quantity;
+    }
+
+    @Override
+    public List<MedicineTotal> getMedicineTotals() {
+        List<MedicineTotal> totals = new ArrayList<>();
+        if (!ready) {
+            return totals;
+        }
+        medicineTotals.forEach((key, total) ->
+                totals.add(new MedicineTotal(key.branchId(), key.medicineId(), total.get())));
+        return totals;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onStockChanged(StockChangedEvent event) {
+        UUID stockId = event.getStockId();
+        if (stockId == null) {
+            return;
+        }
+        if (!ready) {
+            changedWhileWarming.add(stockId);
+            // Warm-up finished in the meantime and may have drained the set already
+            if (!ready) {
+                return;
+            }
+        }
+
+        if (event.getChangeType() == StockChangedEvent.ChangeType.ADJUSTED && event.getQuantityDelta() != null
+                && event.getVersion() != null) {
+            adjust(stockId, event.getQuantityDelta(), event.getVersion());
+        } else {
+            reload(stockId);
+        }
+    }
+
+    @Override
+    public StockLedgerReport reconcile(boolean repair) {
+        StockLedgerReport report = new StockLedgerReport(LocalDateTime.now(), repair);
+        if (!ready) {
+            return report;
+        }
+
+        Set<UUID> seen = new HashSet<>();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<StockBalance> balances = stockRepository.streamStockBalances()) {
+                balances.forEach(balance -> {
+                    seen.add(balance.getStockId());
+                    report.incrementRowsChecked();
+                    Row row = rows.get(balance.getStockId());
+                    if (row == null || !row.matches(balance)) {
+                        verify(balance.getStockId(), report, repair);
+                    }
+                });
+            }
+        });
+
+        // Rows the ledger holds that the database did not return
+        for (UUID stockId : rows.keySet()) {
+            if (!seen.contains(stockId)) {
+                verify(stockId, report, repair);
+            }
+        }
+        return report;
+    }
+
+    @Scheduled(fixedDelayString = "${app.stock.ledger.reconcile-interval-ms:900000}",
+               initialDelayString = "${app.stock.ledger.reconcile-interval-ms:900000}")
+    public void reconcileOnSchedule() {
+        if (!ready) {
+            return;
+        }
+        StockLedgerReport report = reconcile(repairOnReconcile);
+        if (report.hasDrift()) {
+            logger.warn("Stock ledger drift: {} mismatched, {} missing, {} extra of {} rows checked{}",
+                    report.getMismatched_rows(), report.getMissing_rows(), report.getExtra_rows(),
+                    report.getRows_checked(), repairOnReconcile ? "; repaired" : "");
+        }
+    }
+
+    /**
+     * Re-read a row that looked different during the scan; writes committed since the
+     * scan started are not drift, so only a difference that survives the re-read counts
+     */
+    private void verify(UUID stockId, StockLedgerReport report, boolean repair) {
+        ReentrantLock lock = lockFor(stockId);
+        lock.lock();
+        try {
+            Optional<StockBalance> current = findBalance(stockId);
+            Row row = rows.get(stockId);
+            if (current.isPresent() && row != null && row.matches(current.get())) {
+                return;
+            }
+            if (current.isEmpty() && row == null) {
+                return;
+            }
+
+            report.addDrift(stockId, row != null ? row.quantity : null,
+                    current.map(StockBalance::getQuantity).orElse(null));
+            if (repair) {
+                replace(stockId, current.orElse(null));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void adjust(UUID stockId, int delta, long version) {
+        ReentrantLock lock = lockFor(stockId);
+        lock.lock();
+        try {
+            Row row = rows.get(stockId);
+            if (row != null && version <= row.version) {
+                // Already counted by a reload that read the row after this change
+                return;
+            }
+            if (row == null || version != row.version + 1) {
+                // An earlier change has not arrived yet; the database has them all
+                replaceIfNewer(stockId, findBalance(stockId).orElse(null));
+                return;
+            }
+            row.quantity += delta;
+            row.version = version;
+            addToTotals(row, delta);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void reload(UUID stockId) {
+        ReentrantLock lock = lockFor(stockId);
+        lock.lock();
+        try {
+            replaceIfNewer(stockId, findBalance(stockId).orElse(null));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(StockBalance balance) {
+        ReentrantLock lock = lockFor(balance.getStockId());
+        lock.lock();
+        try {
+            replaceIfNewer(balance.getStockId(), balance);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Swap a row for a database read unless the ledger already holds the same or a later
+     * version of it. Callers hold the row's stripe lock.
+     */
+    private void replaceIfNewer(UUID stockId, StockBalance balance) {
+        Row row = rows.get(stockId);
+        if (row != null && balance != null && versionOf(balance) <= row.version) {
+            return;
+        }
+        replace(stockId, balance);
+    }
+
+    /**
+     * Swap a row for its current database state, or drop it when the balance is null.
+     * Callers hold the row's stripe lock.
+     */
+    private void replace(UUID stockId, StockBalance balance) {
+        Row row = balance != null ? new Row(balance) : null;
+        Row previous = row != null ? rows.put(stockId, row) : rows.remove(stockId);
+        if (previous != null) {
+            addToTotals(previous, -previous.quantity);
+        }
+        if (row != null) {
+            addToTotals(row, row.quantity);
+        }
+    }
+
+    private void addToTotals(Row row, long delta) {
+        medicineTotals.computeIfAbsent(new MedicineKey(row.branchId, row.medicineId), key -> new AtomicLong())
+                .addAndGet(delta);
+        batchTotals.computeIfAbsent(new BatchKey(row.branchId, row.medicineId, row.batchId), key -> new AtomicLong())
+                .addAndGet(delta);
+        // Listeners build their own state from the full ledger once it is ready
+        if (ready && delta != 0) {
+            eventPublisher.publishEvent(new StockLevelChangedEvent(row.branchId, row.medicineId));
+        }
+    }
+
+    private Optional<StockBalance> findBalance(UUID stockId) {
+        return reloadTransaction.execute(status -> stockRepository.findStockBalance(stockId));
+    }
+
+    private static long versionOf(StockBalance balance) {
+        return balance.getVersion() != null ? balance.getVersion() : 0L;
+    }
+
+    private ReentrantLock lockFor(UUID stockId) {
+        return locks[(stockId.hashCode() & Integer.MAX_VALUE) % STRIPES];
+    }
+
+    private record MedicineKey(UUID branchId, UUID medicineId) {
+    }
+
+    private record BatchKey(UUID branchId, UUID medicineId, UUID batchId) {
+    }
+
+    /**
+     * One stock row; quantity and version are only written under the row's stripe lock
+     */
+    private static final class Row {
+        private final UUID branchId;
+        private final UUID medicineId;
+        private final UUID batchId;
+        private volatile int quantity;
+        private volatile long version;
+
+        private Row(StockBalance balance) {
+            this.branchId = balance.getBranchId();
+            this.medicineId = balance.getMedicineId();
+            this.batchId = balance.getBatchId();
+            this.quantity = balance.getQuantity() != null ? balance.getQuantity() : 0;
+            this.version = versionOf(balance);
+        }
+
+        private boolean matches(StockBalance balance) {
+            return quantity == (balance.getQuantity() != null ? balance.getQuantity() : 0)
+                    && Objects.equals(branchId, balance.getBranchId())
+                    && Objects.equals(medicineId, balance.getMedicineId())
+                    && Objects.equals(batchId, balance.getBatchId());
+        }
+    }
+}
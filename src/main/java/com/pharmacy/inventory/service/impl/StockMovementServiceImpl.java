@@ -0,0 +1,395 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.StockDeduction;
+import com.pharmacy.inventory.dto.TransferOutcome;
+import com.pharmacy.inventory.dto.request.StockTransferRequest;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.model.StockMovement;
+import com.pharmacy.inventory.model.TimeOrderedUuidGenerator;
+import com.pharmacy.inventory.service.StockMovementService;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * Set-based transfer execution on PostgreSQL.
+ *
+ * Every stock row of the source and destination (branch, medicine) pairs is read
+ * with SELECT ... FOR UPDATE ordered by id. The transfers are then played against
+ * those rows in memory, which leaves one net delta per existing row and one
+ * quantity per destination batch that has no row yet. Both are written with a
+ * single statement each (chunked for very large batches), and each changed row is
+ * announced with a {@link StockChangedEvent}.
+ */
+@Service
+public class StockMovementServiceImpl implements StockMovementService {
+
+    // Bind parameters per statement stay well below PostgreSQL's limit of 32767
+    private static final int MAX_ROWS_PER_STATEMENT = 1000;
+
+    private static final Comparator<Lot> FEFO_ORDER = Comparator
+            .comparing((Lot lot) -> lot.expiryDate, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(lot -> lot.stockId);
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public StockMovementServiceImpl(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public List<TransferOutcome> transfer(List<StockTransferRequest> requests) {
+        List<TransferOutcome> outcomes = new ArrayList<>(requests.size());
+        if (requests.isEmpty()) {
+            return outcomes;
+        }
+
+        Set<UUID> knownBranches = existingBranchIds(branchIdsOf(requests));
+        Map<PairKey, List<Lot>> lots = lockLots(pairsOf(requests, knownBranches));
+        Map<LotKey, Lot> newLots = new TreeMap<>();
+        LocalDate today = LocalDate.now();
+
+        for (StockTransferRequest request : requests) {
+            String problem = validate(request, knownBranches);
+            if (problem != null) {
+                outcomes.add(TransferOutcome.invalid(problem));
+                continue;
+            }
+
+            List<Lot> sources = lots.getOrDefault(new PairKey(request.getFromBranchId(), request.getMedicineId()), List.of());
+            long available = 0;
+            for (Lot lot : sources) {
+                if (lot.isSellable(today)) {
+                    available += lot.quantity;
+                }
+            }
+            if (available < request.getQuantity()) {
+                outcomes.add(TransferOutcome.insufficientStock("Insufficient stock at source branch: "
+                        + available + " available, " + request.getQuantity() + " requested"));
+                continue;
+            }
+
+            List<StockDeduction> deductions = new ArrayList<>();
+            int remaining = request.getQuantity();
+            for (Lot source : sources) {
+                if (remaining == 0) {
+                    break;
+                }
+                if (!source.isSellable(today) || source.quantity == 0) {
+                    continue;
+                }
+                int take = Math.min(source.quantity, remaining);
+                source.quantity -= take;
+                remaining -= take;
+                deductions.add(new StockDeduction(source.stockId, source.batchId, request.getMedicineId(), take));
+                credit(lots, newLots, request.getToBranchId(), request.getMedicineId(), source, take);
+            }
+            outcomes.add(TransferOutcome.moved(deductions));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        updateExistingLots(lots, now);
+        insertNewLots(newLots.values(), now);
+        return outcomes;
+    }
+
+    private String validate(StockTransferRequest request, Set<UUID> knownBranches) {
+        if (request.getFromBranchId() == null || request.getToBranchId() == null
+                || request.getMedicineId() == null || request.getQuantity() == null) {
+            return "Source branch, destination branch, medicine and quantity are required";
+        }
+        if (request.getQuantity() <= 0) {
+            return "Quantity must be at least 1";
+        }
+        if (request.getFromBranchId().equals(request.getToBranchId())) {
+            return "Source and destination branch must differ";
+        }
+        if (!knownBranches.contains(request.getFromBranchId())) {
+            return "Source branch not found: " + request.getFromBranchId();
+        }
+        if (!knownBranches.contains(request.getToBranchId())) {
+            return "Destination branch not found: " + request.getToBranchId();
+        }
+        return null;
+    }
+
+    /**
+     * Put a quantity of one batch on the destination's row for it, creating the row in memory
+     * if the destination does not hold that batch yet
+     */
+    private void credit(Map<PairKey, List<Lot>> lots, Map<LotKey, Lot> newLots, UUID branchId, UUID medicineId,
+                        Lot source, int quantity) {
+        List<Lot> destination = lots.computeIfAbsent(new PairKey(branchId, medicineId), key -> new ArrayList<>());
+        for (Lot lot : destination) {
+            if (lot.batchId.equals(source.batchId)) {
+                lot.quantity += quantity;
+                return;
+            }
+        }
+
+        Lot lot = new Lot(TimeOrderedUuidGenerator.generate(), branchId, medicineId, source.batchId,
+                source.expiryDate, 0);
+        lot.created = true;
+        lot.quantity = quantity;
+        destination.add(lot);
+        destination.sort(FEFO_ORDER);
+        newLots.put(new LotKey(branchId, source.batchId), lot);
+    }
+
+    private Set<UUID> branchIdsOf(List<StockTransferRequest> requests) {
+        Set<UUID> branchIds = new HashSet<>();
+        for (StockTransferRequest request : requests) {
+            if (request.getFromBranchId() != null) {
+                branchIds.add(request.getFromBranchId());
+            }
+            if (request.getToBranchId() != null) {
+                branchIds.add(request.getToBranchId());
+            }
+        }
+        return branchIds;
+    }
+
+    /**
+     * Which of the given branch ids exist
+     */
+    @SuppressWarnings("unchecked")
+    private Set<UUID> existingBranchIds(Set<UUID> ids) {
+        Set<UUID> existing = new HashSet<>();
+        if (ids.isEmpty()) {
+            return existing;
+        }
+        Query query = entityManager.createNativeQuery("SELECT id FROM branches WHERE id IN (:ids)");
+        query.setParameter("ids", ids);
+        for (Object id : query.getResultList()) {
+            existing.add((UUID) id);
+        }
+        return existing;
+    }
+
+    private List<PairKey> pairsOf(List<StockTransferRequest> requests, Set<UUID> knownBranches) {
+        Map<PairKey, Boolean> pairs = new LinkedHashMap<>();
+        for (StockTransferRequest request : requests) {
+            if (validate(request, knownBranches) == null) {
+                pairs.put(new PairKey(request.getFromBranchId(), request.getMedicineId()), Boolean.TRUE);
+                pairs.put(new PairKey(request.getToBranchId(), request.getMedicineId()), Boolean.TRUE);
+            }
+        }
+        return new ArrayList<>(pairs.keySet());
+    }
+
+    /**
+     * Lock every stock row of the given pairs, in id order, and group them per pair
+     * first-expiry-first-out. A single statement keeps the lock order global across all pairs.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<PairKey, List<Lot>> lockLots(List<PairKey> pairs) {
+        Map<PairKey, List<Lot>> lots = new HashMap<>();
+        if (pairs.isEmpty()) {
+            return lots;
+        }
+
+        StringBuilder sql = new StringBuilder(
+                "SELECT s.id, s.branch_id, s.medicine_id, s.batch_id, s.current_quantity, b.expiry_date " +
+                "FROM stock s JOIN batches b ON b.id = s.batch_id WHERE (s.branch_id, s.medicine_id) IN (");
+        for (int i = 0; i < pairs.size(); i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        sql.append(") ORDER BY s.id FOR UPDATE OF s");
+
+        Query query = entityManager.createNativeQuery(sql.toString());
+        int position = 1;
+        for (PairKey pair : pairs) {
+            query.setParameter(position++, pair.branchId());
+            query.setParameter(position++, pair.medicineId());
+        }
+
+        for (Object[] row : (List<Object[]>) query.getResultList()) {
+            Lot lot = new Lot((UUID) row[0], (UUID) row[1], (UUID) row[2], (UUID) row[3],
+                    toLocalDate(row[5]), ((Number) row[4]).intValue());
+            lots.computeIfAbsent(new PairKey(lot.branchId, lot.medicineId), key -> new ArrayList<>()).add(lot);
+        }
+        for (List<Lot> pairLots : lots.values()) {
+            pairLots.sort(FEFO_ORDER);
+        }
+        return lots;
+    }
+
+    /**
+     * Apply the net change of every locked row that moved, as UPDATE ... FROM (VALUES ...)
+     */
+    @SuppressWarnings("unchecked")
+    private void updateExistingLots(Map<PairKey, List<Lot>> lots, LocalDateTime now) {
+        List<Lot> changed = new ArrayList<>();
+        for (List<Lot> pairLots : lots.values()) {
+            for (Lot lot : pairLots) {
+                if (!lot.created && lot.delta() != 0) {
+                    changed.add(lot);
+                }
+            }
+        }
+        changed.sort(Comparator.comparing(lot -> lot.stockId));
+        Map<UUID, Long> versions = new HashMap<>();
+
+        for (int from = 0; from < changed.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Lot> chunk = changed.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, changed.size()));
+            StringBuilder sql = new StringBuilder(
+                    "UPDATE stock s SET current_quantity = s.current_quantity + v.delta, last_updated = ?, " +
+                    "version = s.version + 1 FROM (VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("(CAST(? AS uuid), CAST(? AS integer))");
+            }
+            sql.append(") AS v(id, delta) WHERE s.id = v.id AND s.current_quantity + v.delta >= 0 " +
+                    "RETURNING s.id, s.version");
+
+            Query query = entityManager.createNativeQuery(sql.toString());
+            int position = 1;
+            query.setParameter(position++, now);
+            for (Lot lot : chunk) {
+                query.setParameter(position++, lot.stockId);
+                query.setParameter(position++, lot.delta());
+            }
+            List<Object[]> updated = query.getResultList();
+            // The rows are locked, so anything short of a full match means the plan was wrong
+            if (updated.size() != chunk.size()) {
+                throw new IllegalStateException("Stock rows changed while a transfer was being applied");
+            }
+            for (Object[] row : updated) {
+                versions.put((UUID) row[0], ((Number) row[1]).longValue());
+            }
+        }
+
+        for (Lot lot : changed) {
+            // A row both given and drawn from within one batch is journaled by its net change
+            eventPublisher.publishEvent(new StockChangedEvent(lot.stockId, lot.branchId, lot.medicineId, lot.batchId,
+                    lot.delta(), StockChangedEvent.ChangeType.ADJUSTED,
+                    lot.delta() > 0 ? StockMovement.MovementType.TRANSFER_IN : StockMovement.MovementType.TRANSFER_OUT,
+                    versions.get(lot.stockId)));
+        }
+    }
+
+    /**
+     * Create destination rows for batches the branch did not hold. A row inserted by someone
+     * else since the lock was taken is topped up instead of failing the whole batch.
+     */
+    @SuppressWarnings("unchecked")
+    private void insertNewLots(Collection<Lot> newLots, LocalDateTime now) {
+        List<Lot> inserts = new ArrayList<>();
+        for (Lot lot : newLots) {
+            if (lot.quantity > 0) {
+                inserts.add(lot);
+            }
+        }
+
+        for (int from = 0; from < inserts.size(); from += MAX_ROWS_PER_STATEMENT) {
+            List<Lot> chunk = inserts.subList(from, Math.min(from + MAX_ROWS_PER_STATEMENT, inserts.size()));
+            StringBuilder sql = new StringBuilder(
+                    "INSERT INTO stock (id, branch_id, medicine_id, batch_id, current_quantity, created_at, last_updated, " +
+                    "version) VALUES ");
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "" : ", ").append("(?, ?, ?, ?, ?, ?, ?, 0)");
+            }
+            sql.append(" ON CONFLICT (branch_id, batch_id) DO UPDATE SET " +
+                    "current_quantity = stock.current_quantity + EXCLUDED.current_quantity, " +
+                    "last_updated = EXCLUDED.last_updated, version = stock.version + 1 " +
+                    "RETURNING id, branch_id, batch_id, (xmax = 0), version");
+
+            Query query = entityManager.createNativeQuery(sql.toString());
+            int position = 1;
+            for (Lot lot : chunk) {
+                query.setParameter(position++, lot.stockId);
+                query.setParameter(position++, lot.branchId);
+                query.setParameter(position++, lot.medicineId);
+                query.setParameter(position++, lot.batchId);
+                query.setParameter(position++, lot.quantity);
+                query.setParameter(position++, now);
+                query.setParameter(position++, now);
+            }
+
+            Map<LotKey, Lot> byKey = new HashMap<>();
+            for (Lot lot : chunk) {
+                byKey.put(new LotKey(lot.branchId, lot.batchId), lot);
+            }
+            for (Object[] row : (List<Object[]>) query.getResultList()) {
+                Lot lot = byKey.get(new LotKey((UUID) row[1], (UUID) row[2]));
+                boolean inserted = Boolean.TRUE.equals(row[3]);
+                eventPublisher.publishEvent(new StockChangedEvent((UUID) row[0], lot.branchId, lot.medicineId,
+                        lot.batchId, lot.quantity,
+                        inserted ? StockChangedEvent.ChangeType.CREATED : StockChangedEvent.ChangeType.ADJUSTED,
+                        StockMovement.MovementType.TRANSFER_IN, ((Number) row[4]).longValue()));
+            }
+        }
+    }
+
+    private static LocalDate toLocalDate(Object value) {
+        if (value instanceof java.sql.Date date) {
+            return date.toLocalDate();
+        }
+        return (LocalDate) value;
+    }
+
+    private record PairKey(UUID branchId, UUID medicineId) {
+    }
+
+    private record LotKey(UUID branchId, UUID batchId) implements Comparable<LotKey> {
+        @Override
+        public int compareTo(LotKey other) {
+            int byBranch = branchId.compareTo(other.branchId);
+            return byBranch != 0 ? byBranch : batchId.compareTo(other.batchId);
+        }
+    }
+
+    /**
+     * One stock row as locked, with its quantity as the transfers leave it
+     */
+    private static final class Lot {
+        private final UUID stockId;
+        private final UUID branchId;
+        private final UUID medicineId;
+        private final UUID batchId;
+        private final LocalDate expiryDate;
+        private final int originalQuantity;
+        private int quantity;
+        private boolean created;
+
+        private Lot(UUID stockId, UUID branchId, UUID medicineId, UUID batchId, LocalDate expiryDate, int quantity) {
+            this.stockId = stockId;
+            this.branchId = branchId;
+            this.medicineId = medicineId;
+            this.batchId = batchId;
+            this.expiryDate = expiryDate;
+            this.originalQuantity = quantity;
+            this.quantity = quantity;
+        }
+
+        private boolean isSellable(LocalDate today) {
+            return expiryDate == null || !expiryDate.isBefore(today);
+        }
+
+        private int delta() {
+            return quantity - originalQuantity;
+        }
+    }
+}
@@ -1,16 +1,26 @@
 package com.pharmacy.inventory.service.impl;
 
+import com.pharmacy.inventory.config.OptimisticRetryTemplate;
+import com.pharmacy.inventory.dto.PageCursor;
+import com.pharmacy.inventory.dto.StockDTO;
 import com.pharmacy.inventory.dto.request.StockTransferRequest;
+import com.pharmacy.inventory.dto.response.CursorPage;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.exception.VersionConflictException;
 import com.pharmacy.inventory.model.Batch;
 import com.pharmacy.inventory.model.Branch;
 import com.pharmacy.inventory.model.Medicine;
 import com.pharmacy.inventory.model.Stock;
+import com.pharmacy.inventory.model.StockMovement;
 import com.pharmacy.inventory.repository.BatchRepository;
 import com.pharmacy.inventory.repository.BranchRepository;
 import com.pharmacy.inventory.repository.MedicineRepository;
 import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.StockLedgerService;
+import com.pharmacy.inventory.service.StockMovementService;
 import com.pharmacy.inventory.service.StockService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -25,19 +35,37 @@ public class StockServiceImpl implements StockService {
     private final MedicineRepository medicineRepository;
     private final BatchRepository batchRepository;
     private final BranchRepository branchRepository;
+    private final StockLedgerService stockLedgerService;
+    private final StockMovementService stockMovementService;
+    private final OptimisticRetryTemplate optimisticRetryTemplate;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Autowired
     public StockServiceImpl(StockRepository stockRepository, MedicineRepository medicineRepository, 
-                           BatchRepository batchRepository, BranchRepository branchRepository) {
+                           BatchRepository batchRepository, BranchRepository branchRepository,
+                           StockLedgerService stockLedgerService, StockMovementService stockMovementService,
+                           OptimisticRetryTemplate optimisticRetryTemplate, ApplicationEventPublisher eventPublisher) {
         this.stockRepository = stockRepository;
         this.medicineRepository = medicineRepository;
         this.batchRepository = batchRepository;
         this.branchRepository = branchRepository;
+        this.stockLedgerService = stockLedgerService;
+        this.stockMovementService = stockMovementService;
+        this.optimisticRetryTemplate = optimisticRetryTemplate;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
     public List<Stock> getAllStock() {
-        return stockRepository.findAll();
+        return stockRepository.findAllWithDetails();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<StockDTO> getStockPage(String cursor, int size) {
+        return CursorPage.fetch(cursor, size, stockRepository::findFirstPage, stockRepository::findPageAfter,
+                stock -> new PageCursor(stock.getCreatedAt(), stock.getId()))
+                .map(StockDTO::from);
     }
 
     @Override
@@ -62,11 +90,6 @@ public class StockServiceImpl implements StockService {
         return stockRepository.findByBranchId(branchId);
     }
 
-    @Override
-    public List<Stock> getLowStockItems() {
-        return stockRepository.findLowStockItems();
-    }
-
     @Override
     public List<Stock> getStockByMedicineCategory(String category) {
         return stockRepository.findStockByMedicineCategory(category);
@@ -80,51 +103,81 @@ public class StockServiceImpl implements StockService {
     @Override
     @Transactional
     public Stock addStock(Stock stock) {
-        return stockRepository.save(stock);
+        Stock savedStock = stockRepository.save(stock);
+        publishStockChanged(savedStock, quantityOf(savedStock), StockChangedEvent.ChangeType.CREATED,
+                StockMovement.MovementType.RECEIPT);
+        return savedStock;
     }
 
     @Override
-    @Transactional
-    public Stock updateStock(UUID id, Stock updatedStock) {
-        Optional<Stock> existingStock = stockRepository.findById(id);
-        
-        if (existingStock.isPresent()) {
-            Stock stock = existingStock.get();
-            stock.setMedicine(updatedStock.getMedicine());
-            stock.setBatch(updatedStock.getBatch());
-            stock.setCurrentQuantity(updatedStock.getCurrentQuantity());
+    public Stock updateStock(UUID id, Stock updatedStock, Long expectedVersion) {
+        // Sets absolute values: a write based on the client's version reports a conflict
+        // when run again, an unconditional one is applied to the row as it is by then
+        return optimisticRetryTemplate.execute("updateStock", () -> {
+            Optional<Stock> existingStock = stockRepository.findById(id);
             
-            return stockRepository.save(stock);
-        }
-        
-        return null;
+            if (existingStock.isPresent()) {
+                Stock stock = existingStock.get();
+                checkVersion(stock, expectedVersion);
+                // The row may move to another medicine, so the old queue is dropped as well
+                // and the journal takes the old quantity off where it was held
+                publishStockChanged(stock, -quantityOf(stock), StockChangedEvent.ChangeType.UPDATED,
+                        StockMovement.MovementType.ADJUSTMENT);
+                stock.setMedicine(updatedStock.getMedicine());
+                stock.setBatch(updatedStock.getBatch());
+                stock.setCurrentQuantity(updatedStock.getCurrentQuantity());
+                
+                Stock savedStock = stockRepository.saveAndFlush(stock);
+                publishStockChanged(savedStock, quantityOf(savedStock), StockChangedEvent.ChangeType.UPDATED,
+                        StockMovement.MovementType.ADJUSTMENT);
+                return savedStock;
+            }
+            
+            return null;
+        });
     }
 
     @Override
-    @Transactional
     public void deleteStock(UUID id) {
-        stockRepository.deleteById(id);
+        optimisticRetryTemplate.executeWithoutResult("deleteStock", () ->
+                stockRepository.findById(id).ifPresent(stock -> {
+                    publishStockChanged(stock, -quantityOf(stock), StockChangedEvent.ChangeType.DELETED,
+                            StockMovement.MovementType.ADJUSTMENT);
+                    stockRepository.delete(stock);
+                }));
     }
 
     @Override
-    @Transactional
-    public boolean updateStockQuantity(UUID stockId, int quantity) {
-        Optional<Stock> stockOptional = stockRepository.findById(stockId);
-        
-        if (stockOptional.isPresent()) {
-            Stock stock = stockOptional.get();
-            stock.setCurrentQuantity(quantity);
-            stockRepository.save(stock);
-            return true;
-        }
-        
-        return false;
+    public Stock updateStockQuantity(UUID stockId, int quantity, Long expectedVersion) {
+        return optimisticRetryTemplate.execute("updateStockQuantity", () -> {
+            Optional<Stock> stockOptional = stockRepository.findById(stockId);
+            
+            if (stockOptional.isPresent()) {
+                Stock stock = stockOptional.get();
+                checkVersion(stock, expectedVersion);
+                int previousQuantity = quantityOf(stock);
+                stock.setCurrentQuantity(quantity);
+                Stock savedStock = stockRepository.saveAndFlush(stock);
+                publishStockChanged(savedStock, quantity - previousQuantity, StockChangedEvent.ChangeType.UPDATED,
+                        StockMovement.MovementType.ADJUSTMENT);
+                return savedStock;
+            }
+            
+            return null;
+        });
     }
     
     @Override
-    @Transactional
     public boolean transferStock(StockTransferRequest transferRequest) {
-        try {
+        // Nothing to do in the database if the source branch plainly does not hold enough
+        if (!stockLedgerService.isInStock(transferRequest.getFromBranchId(), transferRequest.getMedicineId(),
+                transferRequest.getQuantity())) {
+            return false;
+        }
+        
+        // Relative and all-or-nothing, so a lost race can safely be run again. A transfer that is
+        // invalid or short of stock reports it in its outcome; anything thrown is a real failure
+        return optimisticRetryTemplate.execute("transferStock", () -> {
             // Verify both branches exist
             Optional<Branch> fromBranchOpt = branchRepository.findById(transferRequest.getFromBranchId());
             Optional<Branch> toBranchOpt = branchRepository.findById(transferRequest.getToBranchId());
@@ -134,75 +187,31 @@ public class StockServiceImpl implements StockService {
                 return false;
             }
             
-            Branch fromBranch = fromBranchOpt.get();
-            Branch toBranch = toBranchOpt.get();
-            Medicine medicine = medicineOpt.get();
-            int quantityToTransfer = transferRequest.getQuantity();
-            
-            // Find stock at source branch with enough quantity
-            List<Stock> sourceStocks = stockRepository.findByBranchIdAndCurrentQuantityGreaterThan(
-                    fromBranch.getId(), 0);
-                    
-            int availableQuantity = 0;
-            for (Stock stock : sourceStocks) {
-                if (stock.getMedicine().getId().equals(medicine.getId())) {
-                    availableQuantity += stock.getCurrentQuantity();
-                }
-            }
-            
-            if (availableQuantity < quantityToTransfer) {
-                return false; // Not enough stock available
-            }
-            
-            // Find or create stock at destination branch
-            List<Stock> destinationStocks = stockRepository.findByBranchId(toBranch.getId());
-            Stock destinationStock = null;
-            
-            // Look for existing stock of this medicine at destination
-            for (Stock stock : destinationStocks) {
-                if (stock.getMedicine().getId().equals(medicine.getId())) {
-                    destinationStock = stock;
-                    break;
-                }
-            }
-            
-            int remainingToTransfer = quantityToTransfer;
-            
-            // Reduce stock at source branch
-            for (Stock sourceStock : sourceStocks) {
-                if (sourceStock.getMedicine().getId().equals(medicine.getId()) && remainingToTransfer > 0) {
-                    int currentQuantity = sourceStock.getCurrentQuantity();
-                    int transferFromThisStock = Math.min(currentQuantity, remainingToTransfer);
-                    
-                    sourceStock.setCurrentQuantity(currentQuantity - transferFromThisStock);
-                    stockRepository.save(sourceStock);
-                    
-                    remainingToTransfer -= transferFromThisStock;
-                    
-                    // Use the same batch for destination if no existing stock found
-                    if (destinationStock == null) {
-                        destinationStock = new Stock();
-                        destinationStock.setMedicine(medicine);
-                        destinationStock.setBatch(sourceStock.getBatch());
-                        destinationStock.setBranch(toBranch);
-                        destinationStock.setCurrentQuantity(transferFromThisStock);
-                        stockRepository.save(destinationStock);
-                    } else {
-                        // Add to existing stock at destination
-                        destinationStock.setCurrentQuantity(destinationStock.getCurrentQuantity() + transferFromThisStock);
-                        stockRepository.save(destinationStock);
-                    }
-                    
-                    if (remainingToTransfer == 0) {
-                        break;
-                    }
-                }
-            }
-            
-            return true;
-            
-        } catch (Exception e) {
-            return false;
+            // Locks the rows involved, deducts earliest expiring batches first and upserts the destination
+            return stockMovementService.transfer(List.of(transferRequest)).get(0).isMoved();
+        });
+    }
+    
+    private static void checkVersion(Stock stock, Long expectedVersion) {
+        if (expectedVersion != null && !expectedVersion.equals(stock.getVersion())) {
+            throw new VersionConflictException("Stock", stock.getId(), expectedVersion, stock.getVersion());
         }
     }
+    
+    private static int quantityOf(Stock stock) {
+        return stock.getCurrentQuantity() != null ? stock.getCurrentQuantity() : 0;
+    }
+    
+    private void publishStockChanged(Stock stock, Integer quantityDelta, StockChangedEvent.ChangeType changeType,
+                                     StockMovement.MovementType movementType) {
+        eventPublisher.publishEvent(new StockChangedEvent(
+                stock.getId(),
+                stock.getBranch() != null ? stock.getBranch().getId() : null,
+                stock.getMedicine() != null ? stock.getMedicine().getId() : null,
+                stock.getBatch() != null ? stock.getBatch().getId() : null,
+                quantityDelta,
+                changeType,
+                movementType,
+                stock.getVersion()));
+    }
 }
@@ -1,6 +1,9 @@
 package com.pharmacy.inventory.service.impl;
 
+import com.pharmacy.inventory.dto.StockTransferDTO;
+import com.pharmacy.inventory.dto.TransferOutcome;
 import com.pharmacy.inventory.dto.request.StockTransferRequest;
+import com.pharmacy.inventory.dto.response.TransferBatchResponse;
 import com.pharmacy.inventory.model.Branch;
 import com.pharmacy.inventory.model.Medicine;
 import com.pharmacy.inventory.model.StockTransfer;
@@ -9,15 +12,23 @@ import com.pharmacy.inventory.repository.BranchRepository;
 import com.pharmacy.inventory.repository.MedicineRepository;
 import com.pharmacy.inventory.repository.StockTransferRepository;
 import com.pharmacy.inventory.repository.UserRepository;
+import com.pharmacy.inventory.service.StockMovementService;
 import com.pharmacy.inventory.service.StockTransferService;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -31,22 +42,28 @@ public class StockTransferServiceImpl implements StockTransferService {
     private final BranchRepository branchRepository;
     private final MedicineRepository medicineRepository;
     private final UserRepository userRepository;
+    private final StockMovementService stockMovementService;
+
+    @Value("${app.transfers.batch.max-size:500}")
+    private int maxBatchSize;
 
     @Autowired
     public StockTransferServiceImpl(
             StockTransferRepository stockTransferRepository,
             BranchRepository branchRepository,
             MedicineRepository medicineRepository,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            StockMovementService stockMovementService) {
         this.stockTransferRepository = stockTransferRepository;
         this.branchRepository = branchRepository;
         this.medicineRepository = medicineRepository;
         this.userRepository = userRepository;
+        this.stockMovementService = stockMovementService;
     }
 
     @Override
-    public List<StockTransfer> getAllStockTransfers() {
-        return stockTransferRepository.findAll();
+    public List<StockTransferDTO> getAllStockTransfers() {
+        return stockTransferRepository.findAllDTOs();
     }
 
     @Override
@@ -55,13 +72,13 @@ public class StockTransferServiceImpl implements StockTransferService {
     }
 
     @Override
-    public List<StockTransfer> getStockTransfersBySourceBranchId(UUID branchId) {
-        return stockTransferRepository.findByFromBranchId(branchId);
+    public List<StockTransferDTO> getStockTransfersBySourceBranchId(UUID branchId) {
+        return stockTransferRepository.findDTOsByFromBranchId(branchId);
     }
 
     @Override
-    public List<StockTransfer> getStockTransfersByDestinationBranchId(UUID branchId) {
-        return stockTransferRepository.findByToBranchId(branchId);
+    public List<StockTransferDTO> getStockTransfersByDestinationBranchId(UUID branchId) {
+        return stockTransferRepository.findDTOsByToBranchId(branchId);
     }
 
     @Override
@@ -146,8 +163,16 @@ public class StockTransferServiceImpl implements StockTransferService {
     @Override
     @Transactional
     public StockTransfer processStockTransfer(UUID id, String status) {
-        StockTransfer stockTransfer = stockTransferRepository.findById(id)
-                .orElseThrow(() -> new EntityNotFoundException("Stock transfer not found"));
+        // Same row lock as processPendingTransfers, so a transfer processed here and in a
+        // batch at the same time is only applied by whichever gets the lock first
+        List<StockTransfer> locked = stockTransferRepository.lockPendingByIds(List.of(id));
+        if (locked.isEmpty()) {
+            if (!stockTransferRepository.existsById(id)) {
+                throw new EntityNotFoundException("Stock transfer not found");
+            }
+            throw new IllegalStateException("Stock transfer already processed");
+        }
+        StockTransfer stockTransfer = locked.get(0);
 
         // Check if transfer is already processed
         if (stockTransfer.getStatus() != StockTransfer.TransferStatus.PENDING) {
@@ -161,9 +186,11 @@ public class StockTransferServiceImpl implements StockTransferService {
 
         // Update the transfer status
         if ("COMPLETED".equalsIgnoreCase(status)) {
+            TransferOutcome outcome = stockMovementService.transfer(List.of(toRequest(stockTransfer))).get(0);
+            if (!outcome.isMoved()) {
+                throw new IllegalStateException(outcome.getMessage());
+            }
             stockTransfer.setStatus(StockTransfer.TransferStatus.COMPLETED);
-            // Here you would update the inventory levels in both branches
-            // Implementation depends on your inventory management logic
         } else if ("REJECTED".equalsIgnoreCase(status)) {
             stockTransfer.setStatus(StockTransfer.TransferStatus.REJECTED);
         } else {
@@ -175,4 +202,75 @@ public class StockTransferServiceImpl implements StockTransferService {
 
         return stockTransferRepository.save(stockTransfer);
     }
+
+    @Override
+    @Transactional
+    public TransferBatchResponse processPendingTransfers(List<UUID> ids) {
+        List<StockTransfer> transfers;
+        List<UUID> requestedIds = ids != null ? new ArrayList<>(new LinkedHashSet<>(ids)) : List.of();
+        if (requestedIds.isEmpty()) {
+            transfers = stockTransferRepository.lockPending(PageRequest.of(0, maxBatchSize));
+        } else {
+            if (requestedIds.size() > maxBatchSize) {
+                throw new IllegalArgumentException("At most " + maxBatchSize + " transfers can be processed at once");
+            }
+            transfers = stockTransferRepository.lockPendingByIds(requestedIds);
+        }
+
+        String email = SecurityContextHolder.getContext().getAuthentication().getName();
+        User processingUser = userRepository.findByEmail(email)
+                .orElseThrow(() -> new EntityNotFoundException("User not found"));
+
+        // Locked in id order; applied in the order they were requested
+        transfers.sort(Comparator.comparing(StockTransfer::getRequestDate).thenComparing(StockTransfer::getId));
+        List<StockTransferRequest> requests = new ArrayList<>(transfers.size());
+        for (StockTransfer transfer : transfers) {
+            requests.add(toRequest(transfer));
+        }
+        List<TransferOutcome> outcomes = stockMovementService.transfer(requests);
+
+        LocalDateTime now = LocalDateTime.now();
+        Map<UUID, TransferBatchResponse.TransferResult> resultsById = new HashMap<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            StockTransfer transfer = transfers.get(i);
+            TransferOutcome outcome = outcomes.get(i);
+            if (outcome.isMoved()) {
+                transfer.setStatus(StockTransfer.TransferStatus.COMPLETED);
+                transfer.setCompletionDate(now);
+                transfer.setProcessedBy(processingUser);
+                resultsById.put(transfer.getId(), new TransferBatchResponse.TransferResult(
+                        transfer.getId(), TransferBatchResponse.Status.COMPLETED, null));
+            } else {
+                resultsById.put(transfer.getId(), new TransferBatchResponse.TransferResult(
+                        transfer.getId(), outcome.getFailure() == TransferOutcome.Failure.INVALID
+                                ? TransferBatchResponse.Status.INVALID : TransferBatchResponse.Status.INSUFFICIENT_STOCK,
+                        outcome.getMessage()));
+            }
+        }
+        stockTransferRepository.saveAll(transfers);
+
+        List<TransferBatchResponse.TransferResult> results = new ArrayList<>();
+        if (requestedIds.isEmpty()) {
+            for (StockTransfer transfer : transfers) {
+                results.add(resultsById.get(transfer.getId()));
+            }
+        } else {
+            // Report in the caller's order, including ids that were missing or already processed
+            for (UUID id : requestedIds) {
+                TransferBatchResponse.TransferResult result = resultsById.get(id);
+                results.add(result != null ? result : new TransferBatchResponse.TransferResult(
+                        id, TransferBatchResponse.Status.NOT_PENDING, "Transfer not found or already processed"));
+            }
+        }
+        return new TransferBatchResponse(results);
+    }
+
+    private StockTransferRequest toRequest(StockTransfer transfer) {
+        StockTransferRequest request = new StockTransferRequest();
+        request.setFromBranchId(transfer.getFromBranch().getId());
+        request.setToBranchId(transfer.getToBranch().getId());
+        request.setMedicineId(transfer.getMedicine().getId());
+        request.setQuantity(transfer.getQuantity());
+        return request;
+    }
 }
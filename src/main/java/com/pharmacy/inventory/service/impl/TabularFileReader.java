@@ -0,0 +1,208 @@
+package com.pharmacy.inventory.service.impl;
+
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.ss.usermodel.DataFormatter;
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFComment;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streams the rows of a CSV file or the first sheet of an XLSX workbook to a
+ * callback, one row at a time, so memory use does not grow with the file.
+ *
+ * CSV follows RFC 4180: comma separated, fields optionally in double quotes with
+ * "" for a quote. XLSX is read with POI's SAX event API; numbers come through as
+ * plain decimals and date cells as ISO dates, whatever their display format.
+ */
+final class TabularFileReader {
+
+    // Longer cells are rejected, which also stops an unterminated quote swallowing the file
+    private static final int MAX_CELL_LENGTH = 4096;
+
+    @FunctionalInterface
+    interface RowHandler {
+        /**
+         * @param rowNumber Row number as a spreadsheet shows it, starting at 1
+         * @param cells Cell values; the list is reused for the next row
+         */
+        void row(int rowNumber, List<String> cells);
+    }
+
+    private TabularFileReader() {
+    }
+
+    static void readCsv(InputStream in, RowHandler handler) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        boolean pending = false;
+        int rowNumber = 0;
+
+        int c = reader.read();
+        if (c == '\uFEFF') {
+            c = reader.read();
+        }
+        for (; c != -1; c = reader.read()) {
+            if (quoted) {
+                if (c == '"') {
+                    int next = reader.read();
+                    if (next == '"') {
+                        append(cell, '"', rowNumber + 1);
+                        continue;
+                    }
+                    quoted = false;
+                    c = next;
+                    if (c == -1) {
+                        break;
+                    }
+                } else {
+                    append(cell, (char) c, rowNumber + 1);
+                    continue;
+                }
+            }
+
+            if (c == '"' && cell.length() == 0) {
+                quoted = true;
+                pending = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+                pending = true;
+            } else if (c == '\n') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+                emit(++rowNumber, cells, handler);
+                pending = false;
+            } else if (c != '\r') {
+                append(cell, (char) c, rowNumber + 1);
+                pending = true;
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Row " + (rowNumber + 1) + ": quoted field is never closed");
+        }
+        if (pending || cell.length() > 0) {
+            cells.add(cell.toString());
+            emit(++rowNumber, cells, handler);
+        }
+    }
+
+    static void readXlsx(File file, RowHandler handler) throws IOException {
+        try (OPCPackage pkg = OPCPackage.open(file, PackageAccess.READ)) {
+            XSSFReader reader = new XSSFReader(pkg);
+            ReadOnlySharedStringsTable strings = new ReadOnlySharedStringsTable(pkg);
+            StylesTable styles = reader.getStylesTable();
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new IllegalArgumentException("The workbook has no sheets");
+            }
+
+            try (InputStream sheet = sheets.next()) {
+                XMLReader parser = XMLHelper.newXMLReader();
+                parser.setContentHandler(new XSSFSheetXMLHandler(styles, null, strings,
+                        new SheetRows(handler), new RawValueFormatter(), false));
+                parser.parse(new InputSource(sheet));
+            }
+        } catch (SAXException e) {
+            // Exceptions thrown by the row handler may come back wrapped by the parser
+            if (e.getException() instanceof RuntimeException handlerException) {
+                throw handlerException;
+            }
+            throw new IllegalArgumentException("The file is not a readable XLSX workbook: " + e.getMessage(), e);
+        } catch (OpenXML4JException | ParserConfigurationException e) {
+            throw new IllegalArgumentException("The file is not a readable XLSX workbook: " + e.getMessage(), e);
+        }
+    }
+
+    private static void append(StringBuilder cell, char c, int rowNumber) {
+        if (cell.length() >= MAX_CELL_LENGTH) {
+            throw new IllegalArgumentException("Row " + rowNumber + ": a cell is longer than " + MAX_CELL_LENGTH
+                    + " characters");
+        }
+        cell.append(c);
+    }
+
+    private static void emit(int rowNumber, List<String> cells, RowHandler handler) {
+        if (!isBlank(cells)) {
+            handler.row(rowNumber, cells);
+        }
+        cells.clear();
+    }
+
+    private static boolean isBlank(List<String> cells) {
+        for (String value : cells) {
+            if (value != null && !value.isBlank()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collects the cells of each sheet row, filling the gaps POI leaves for empty cells
+     */
+    private static final class SheetRows implements XSSFSheetXMLHandler.SheetContentsHandler {
+        private final RowHandler handler;
+        private final List<String> cells = new ArrayList<>();
+
+        private SheetRows(RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            cells.clear();
+        }
+
+        @Override
+        public void endRow(int rowNum) {
+            emit(rowNum + 1, cells, handler);
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue, XSSFComment comment) {
+            int column = cellReference != null ? new CellReference(cellReference).getCol() : cells.size();
+            while (cells.size() < column) {
+                cells.add("");
+            }
+            cells.add(formattedValue);
+        }
+    }
+
+    /**
+     * Reports cell values as data rather than as displayed: dates as ISO dates and
+     * numbers without grouping, currency symbols or rounding
+     */
+    private static final class RawValueFormatter extends DataFormatter {
+        @Override
+        public String formatRawCellContents(double value, int formatIndex, String formatString, boolean use1904Windowing) {
+            if (DateUtil.isADateFormat(formatIndex, formatString) && DateUtil.isValidExcelDate(value)) {
+                return DateUtil.getLocalDateTime(value, use1904Windowing).toLocalDate().toString();
+            }
+            return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        }
+    }
+}
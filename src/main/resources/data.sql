@@ -3,3 +3,6 @@ INSERT INTO roles (id, name) VALUES (1, 'ROLE_ADMIN') ON CONFLICT (id) DO NOTHIN
 INSERT INTO roles (id, name) VALUES (2, 'ROLE_PHARMACIST') ON CONFLICT (id) DO NOTHING;
 INSERT INTO roles (id, name) VALUES (3, 'ROLE_SALESPERSON') ON CONFLICT (id) DO NOTHING;
 INSERT INTO roles (id, name) VALUES (4, 'ROLE_MANAGER') ON CONFLICT (id) DO NOTHING;
+
+-- Initialize data set versions; all rows share the epoch of this database
+INSERT INTO data_versions (data_set, version, epoch, purged_through, updated_at) SELECT data_set, 0, to_hex(CAST(EXTRACT(EPOCH FROM now()) * 1000 AS bigint)), 0, now() FROM unnest(ARRAY['SALES', 'STOCK', 'BATCHES', 'MEDICINES', 'BRANCHES', 'PURCHASE_ORDERS', 'SUPPLIERS', 'USERS']) AS data_set ON CONFLICT (data_set) DO NOTHING;
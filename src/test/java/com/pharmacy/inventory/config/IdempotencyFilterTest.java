@@ -0,0 +1,185 @@
+package com.pharmacy.inventory.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IdempotencyFilterTest {
+
+    private static final String PATH = "/api/sales";
+
+    private IdempotencyFilter filter;
+    private AtomicInteger executions;
+
+    @BeforeEach
+    void setUp() {
+        filter = new IdempotencyFilter(new IdempotencyStore(100, Duration.ofMinutes(5)), Set.of(PATH), 1);
+        executions = new AtomicInteger();
+    }
+
+    @Test
+    void replaysTheStoredResponseForTheSameKeyAndBody() throws Exception {
+        MockHttpServletResponse first = send("key-1", "{\"total\":10}", created());
+        MockHttpServletResponse second = send("key-1", "{\"total\":10}", created());
+
+        assertThat(executions).hasValue(1);
+        assertThat(first.getStatus()).isEqualTo(201);
+        assertThat(first.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(second.getStatus()).isEqualTo(201);
+        assertThat(second.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(second.getHeader("Location")).isEqualTo("/api/sales/1");
+        assertThat(second.getContentAsString()).isEqualTo(first.getContentAsString());
+    }
+
+    @Test
+    void rejectsAKeyReusedForADifferentBody() throws Exception {
+        send("key-1", "{\"total\":10}", created());
+        MockHttpServletResponse reused = send("key-1", "{\"total\":11}", created());
+
+        assertThat(executions).hasValue(1);
+        assertThat(reused.getStatus()).isEqualTo(422);
+    }
+
+    @Test
+    void runsAgainAfterAFailedAttempt() throws Exception {
+        MockHttpServletResponse failed = send("key-1", "{}", (request, response) -> {
+            executions.incrementAndGet();
+            ((HttpServletResponse) response).setStatus(500);
+        });
+        MockHttpServletResponse retried = send("key-1", "{}", created());
+
+        assertThat(failed.getStatus()).isEqualTo(500);
+        assertThat(retried.getStatus()).isEqualTo(201);
+        assertThat(retried.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        assertThat(executions).hasValue(2);
+    }
+
+    @Test
+    void differentKeysRunSeparately() throws Exception {
+        send("key-1", "{}", created());
+        MockHttpServletResponse other = send("key-2", "{}", created());
+
+        assertThat(executions).hasValue(2);
+        assertThat(other.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+    }
+
+    @Test
+    void passesTheBodyOnToTheHandler() throws Exception {
+        List<String> seen = new ArrayList<>();
+        send("key-1", "{\"total\":10}", (request, response) -> {
+            seen.add(new String(request.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            seen.add(((HttpServletRequest) request).getReader().readLine());
+            ((HttpServletResponse) response).setStatus(201);
+        });
+
+        assertThat(seen).containsExactly("{\"total\":10}", "{\"total\":10}");
+    }
+
+    @Test
+    void supportsAsyncReadsOfTheCachedBody() throws Exception {
+        ByteArrayOutputStream read = new ByteArrayOutputStream();
+        List<String> callbacks = new ArrayList<>();
+        send("key-1", "{\"total\":10}", (request, response) -> {
+            request.startAsync();
+            ServletInputStream in = request.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    callbacks.add("data");
+                    byte[] buffer = new byte[4];
+                    while (in.isReady() && !in.isFinished()) {
+                        read.write(buffer, 0, in.read(buffer));
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    callbacks.add("done");
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    callbacks.add("error");
+                }
+            });
+            assertThatThrownBy(() -> in.setReadListener(new NoopListener())).isInstanceOf(IllegalStateException.class);
+            ((HttpServletResponse) response).setStatus(201);
+        });
+
+        assertThat(read.toString(StandardCharsets.UTF_8)).isEqualTo("{\"total\":10}");
+        assertThat(callbacks).containsExactly("data", "done");
+    }
+
+    @Test
+    void rejectsReadListenersOutsideAsyncMode() throws Exception {
+        List<Throwable> errors = new ArrayList<>();
+        send("key-1", "{}", (request, response) -> {
+            try {
+                request.getInputStream().setReadListener(new NoopListener());
+            } catch (IllegalStateException e) {
+                errors.add(e);
+            }
+            ((HttpServletResponse) response).setStatus(201);
+        });
+
+        assertThat(errors).hasSize(1);
+    }
+
+    private MockHttpServletResponse send(String key, String body, FilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request(key, body), response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String key, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", PATH);
+        request.addHeader(IdempotencyFilter.HEADER, key);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        request.setAsyncSupported(true);
+        return request;
+    }
+
+    private FilterChain created() {
+        return (request, response) -> {
+            int id = executions.incrementAndGet();
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setStatus(201);
+            http.setHeader("Location", "/api/sales/" + id);
+            http.setContentType("application/json");
+            http.getWriter().write("{\"id\":" + id + "}");
+        };
+    }
+
+    private static final class NoopListener implements ReadListener {
+        @Override
+        public void onDataAvailable() {
+        }
+
+        @Override
+        public void onAllDataRead() {
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.pharmacy.inventory.controller;
+
+import com.pharmacy.inventory.exception.VersionConflictException;
+import com.pharmacy.inventory.model.Batch;
+import com.pharmacy.inventory.service.BatchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class BatchControllerTest {
+
+    private static final UUID BATCH_ID = UUID.fromString("00000000-0000-0000-0000-0000000000c1");
+    private static final String BODY = "{\"batchNumber\": \"LOT-1\", \"quantity\": 10}";
+
+    private BatchService batchService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        batchService = mock(BatchService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new BatchController(batchService)).build();
+    }
+
+    @Test
+    void updateWithoutIfMatchOverwritesWhateverIsCurrent() throws Exception {
+        when(batchService.updateBatch(eq(BATCH_ID), any(Batch.class), isNull())).thenReturn(batch(4L));
+
+        mockMvc.perform(put("/api/batches/{id}", BATCH_ID).contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void updateBasedOnAStaleVersionIsAConflict() throws Exception {
+        when(batchService.updateBatch(eq(BATCH_ID), any(Batch.class), eq(2L)))
+                .thenThrow(new VersionConflictException("Batch", BATCH_ID, 2L, 4L));
+
+        mockMvc.perform(put("/api/batches/{id}", BATCH_ID).header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON).content(BODY))
+                .andExpect(status().isConflict());
+    }
+
+    private static Batch batch(Long version) {
+        Batch batch = new Batch();
+        batch.setId(BATCH_ID);
+        batch.setVersion(version);
+        return batch;
+    }
+}
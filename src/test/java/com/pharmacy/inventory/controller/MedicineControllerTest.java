@@ -0,0 +1,88 @@
+package com.pharmacy.inventory.controller;
+
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.service.DataVersionService;
+import com.pharmacy.inventory.service.DataVersionService.DataSet;
+import com.pharmacy.inventory.service.MedicineService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class MedicineControllerTest {
+
+    private static final String ETAG = "\"18a2b3c4d5e-7\"";
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-03-01T10:15:30Z");
+
+    private MedicineService medicineService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        medicineService = mock(MedicineService.class);
+        DataVersionService dataVersionService = mock(DataVersionService.class);
+        when(dataVersionService.getETag(DataSet.MEDICINES)).thenReturn(ETAG);
+        when(dataVersionService.getLastModified(DataSet.MEDICINES)).thenReturn(LAST_MODIFIED);
+        when(medicineService.getAllMedicines()).thenReturn(List.of(new Medicine()));
+        mockMvc = MockMvcBuilders.standaloneSetup(new MedicineController(medicineService, dataVersionService)).build();
+    }
+
+    @Test
+    void fullListCarriesValidators() throws Exception {
+        mockMvc.perform(get("/api/medicines"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, LAST_MODIFIED.toEpochMilli()))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+    }
+
+    @Test
+    void currentETagIsAnsweredWithNotModified() throws Exception {
+        mockMvc.perform(get("/api/medicines").header(HttpHeaders.IF_NONE_MATCH, ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, ETAG))
+                .andExpect(content().string(""));
+
+        verify(medicineService, never()).getAllMedicines();
+    }
+
+    @Test
+    void staleETagGetsTheList() throws Exception {
+        mockMvc.perform(get("/api/medicines").header(HttpHeaders.IF_NONE_MATCH, "\"18a2b3c4d5e-6\""))
+                .andExpect(status().isOk());
+
+        verify(medicineService).getAllMedicines();
+    }
+
+    @Test
+    void etagFromBeforeTheDatabaseWasRecreatedGetsTheList() throws Exception {
+        // Same version number, different epoch
+        mockMvc.perform(get("/api/medicines").header(HttpHeaders.IF_NONE_MATCH, "\"0000000000-7\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void currentIfModifiedSinceIsAnsweredWithNotModified() throws Exception {
+        String date = DateTimeFormatter.RFC_1123_DATE_TIME.format(LAST_MODIFIED.atOffset(ZoneOffset.UTC));
+
+        mockMvc.perform(get("/api/medicines").header(HttpHeaders.IF_MODIFIED_SINCE, date))
+                .andExpect(status().isNotModified());
+
+        verify(medicineService, never()).getAllMedicines();
+    }
+}
@@ -0,0 +1,146 @@
+package com.pharmacy.inventory.controller;
+
+import com.pharmacy.inventory.exception.GlobalExceptionHandler;
+import com.pharmacy.inventory.exception.VersionConflictException;
+import com.pharmacy.inventory.model.Stock;
+import com.pharmacy.inventory.service.LowStockService;
+import com.pharmacy.inventory.service.StockChangeFeedService;
+import com.pharmacy.inventory.service.StockImportService;
+import com.pharmacy.inventory.service.StockJournalService;
+import com.pharmacy.inventory.service.StockLedgerService;
+import com.pharmacy.inventory.service.StockService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class StockControllerTest {
+
+    private static final UUID STOCK_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private StockService stockService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        stockService = mock(StockService.class);
+        StockController controller = new StockController(stockService, mock(StockLedgerService.class),
+                mock(LowStockService.class), mock(StockJournalService.class), mock(StockImportService.class),
+                mock(StockChangeFeedService.class));
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    void readCarriesTheVersionAsETag() throws Exception {
+        when(stockService.getStockById(STOCK_ID)).thenReturn(Optional.of(stock(3L)));
+
+        mockMvc.perform(get("/api/stock/{id}", STOCK_ID))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""));
+    }
+
+    @Test
+    void writeBasedOnAStaleVersionIsAConflict() throws Exception {
+        when(stockService.updateStock(eq(STOCK_ID), any(Stock.class), eq(2L)))
+                .thenThrow(new VersionConflictException("Stock", STOCK_ID, 2L, 3L));
+
+        mockMvc.perform(put("/api/stock/{id}", STOCK_ID)
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .accept(MediaType.APPLICATION_JSON)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"currentQuantity\": 7}"))
+                .andExpect(status().isConflict())
+                .andExpect(jsonPath("$.message").value(containsString("is at version 3, not 2")));
+    }
+
+    @Test
+    void writeOnTheCurrentVersionReturnsTheNextETag() throws Exception {
+        when(stockService.updateStockQuantity(STOCK_ID, 7, 3L)).thenReturn(stock(4L));
+
+        mockMvc.perform(patch("/api/stock/{id}/quantity/{quantity}", STOCK_ID, 7)
+                        .header(HttpHeaders.IF_MATCH, "\"3\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void wildcardIfMatchOverwritesWhateverIsCurrent() throws Exception {
+        when(stockService.updateStockQuantity(eq(STOCK_ID), eq(7), isNull())).thenReturn(stock(9L));
+
+        mockMvc.perform(patch("/api/stock/{id}/quantity/{quantity}", STOCK_ID, 7)
+                        .header(HttpHeaders.IF_MATCH, "*"))
+                .andExpect(status().isOk());
+
+        verify(stockService).updateStockQuantity(STOCK_ID, 7, null);
+    }
+
+    @Test
+    void writeWithoutIfMatchOverwritesWhateverIsCurrent() throws Exception {
+        when(stockService.updateStockQuantity(eq(STOCK_ID), eq(7), isNull())).thenReturn(stock(5L));
+        when(stockService.updateStock(eq(STOCK_ID), any(Stock.class), isNull())).thenReturn(stock(6L));
+
+        mockMvc.perform(patch("/api/stock/{id}/quantity/{quantity}", STOCK_ID, 7))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"5\""));
+        mockMvc.perform(put("/api/stock/{id}", STOCK_ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"currentQuantity\": 7}"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"6\""));
+
+        verify(stockService).updateStockQuantity(STOCK_ID, 7, null);
+        verify(stockService).updateStock(eq(STOCK_ID), any(Stock.class), isNull());
+    }
+
+    @Test
+    void malformedIfMatchIsABadRequest() throws Exception {
+        mockMvc.perform(patch("/api/stock/{id}/quantity/{quantity}", STOCK_ID, 7)
+                        .header(HttpHeaders.IF_MATCH, "W/\"3\""))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(stockService);
+    }
+
+    @Test
+    void writeLostAtFlushIsAConflict() throws Exception {
+        // Another request committed between the version check and the flush
+        when(stockService.updateStockQuantity(eq(STOCK_ID), anyInt(), eq(3L)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Stock.class, STOCK_ID));
+
+        mockMvc.perform(patch("/api/stock/{id}/quantity/{quantity}", STOCK_ID, 7)
+                        .header(HttpHeaders.IF_MATCH, "\"3\""))
+                .andExpect(status().isConflict());
+    }
+
+    private static Stock stock(Long version) {
+        Stock stock = new Stock();
+        stock.setId(STOCK_ID);
+        stock.setCurrentQuantity(7);
+        stock.setVersion(version);
+        return stock;
+    }
+}
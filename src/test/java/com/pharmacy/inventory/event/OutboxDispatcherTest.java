@@ -0,0 +1,162 @@
+package com.pharmacy.inventory.event;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.inventory.model.OutboxEvent;
+import com.pharmacy.inventory.repository.OutboxEventRepository;
+import com.pharmacy.inventory.support.NoOpTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxDispatcherTest {
+
+    private OutboxEventRepository repository;
+    private NoOpTransactionManager transactionManager;
+    private RecordingHandler handler;
+    private OutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OutboxEventRepository.class);
+        transactionManager = new NoOpTransactionManager();
+        handler = new RecordingHandler("SaleCreated");
+        dispatcher = new OutboxDispatcher(repository, new ObjectMapper(), List.of(handler), transactionManager);
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 2);
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerRun", 5);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 3);
+        ReflectionTestUtils.setField(dispatcher, "retryBaseMillis", 1000L);
+        ReflectionTestUtils.setField(dispatcher, "retryMaxMillis", 60000L);
+        ReflectionTestUtils.setField(dispatcher, "purgeBatchSize", 10);
+    }
+
+    @Test
+    void claimsBatchesWithSkipLocked() throws NoSuchMethodException {
+        Query query = OutboxEventRepository.class
+                .getMethod("lockNextBatch", LocalDateTime.class, int.class).getAnnotation(Query.class);
+
+        assertThat(query.nativeQuery()).isTrue();
+        assertThat(query.value()).contains("status = 'PENDING'").contains("ORDER BY e.id").endsWith("FOR UPDATE SKIP LOCKED");
+    }
+
+    @Test
+    void deliversClaimedEventsAndMarksThemProcessed() {
+        OutboxEvent first = event("SaleCreated", "{\"total\":5}");
+        OutboxEvent second = event("SaleCreated", "{\"total\":7}");
+        when(repository.lockNextBatch(any(), eq(2))).thenReturn(List.of(first, second), List.of());
+
+        dispatcher.dispatch();
+
+        assertThat(handler.payloads).containsExactly(Map.of("total", 5), Map.of("total", 7));
+        assertThat(first.getStatus()).isEqualTo(OutboxEvent.Status.PROCESSED);
+        assertThat(first.getProcessedAt()).isNotNull();
+        assertThat(second.getStatus()).isEqualTo(OutboxEvent.Status.PROCESSED);
+        // A full batch means there may be more, so it claims again until one comes back short
+        verify(repository, times(2)).lockNextBatch(any(), eq(2));
+    }
+
+    @Test
+    void stopsAfterAShortBatch() {
+        when(repository.lockNextBatch(any(), eq(2))).thenReturn(List.of(event("SaleCreated", "{}")));
+
+        dispatcher.dispatch();
+
+        verify(repository, times(1)).lockNextBatch(any(), eq(2));
+    }
+
+    @Test
+    void reschedulesAFailedDeliveryWithBackoff() {
+        handler.failWith = new IllegalStateException("mail server down");
+        OutboxEvent event = event("SaleCreated", "{}");
+        when(repository.lockNextBatch(any(), eq(2))).thenReturn(List.of(event));
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatch();
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEvent.Status.PENDING);
+        assertThat(event.getAttempts()).isEqualTo(1);
+        assertThat(event.getLastError()).isEqualTo("mail server down");
+        assertThat(event.getNextAttemptAt()).isAfter(before.plusNanos(400_000_000L));
+        assertThat(transactionManager.getRollbacks()).isEqualTo(1);
+    }
+
+    @Test
+    void givesUpAfterTheLastAttempt() {
+        handler.failWith = new IllegalStateException("still down");
+        OutboxEvent event = event("SaleCreated", "{}");
+        event.setAttempts(2);
+        when(repository.lockNextBatch(any(), eq(2))).thenReturn(List.of(event));
+
+        dispatcher.dispatch();
+
+        assertThat(event.getStatus()).isEqualTo(OutboxEvent.Status.FAILED);
+        assertThat(event.getAttempts()).isEqualTo(3);
+        assertThat(event.getProcessedAt()).isNotNull();
+    }
+
+    @Test
+    void knowsWhichEventTypesAreConsumed() {
+        assertThat(dispatcher.hasHandlers("SaleCreated")).isTrue();
+        assertThat(dispatcher.hasHandlers("StockChanged")).isFalse();
+    }
+
+    @Test
+    void purgesInBatchesUntilAShortOne() {
+        when(repository.deleteFinishedBefore(eq("PROCESSED"), any(), eq(10))).thenReturn(10, 10, 3);
+        when(repository.deleteFinishedBefore(eq("FAILED"), any(), eq(10))).thenReturn(0);
+
+        dispatcher.purgeProcessed();
+
+        verify(repository, times(3)).deleteFinishedBefore(eq("PROCESSED"), any(), anyInt());
+        verify(repository, times(1)).deleteFinishedBefore(eq("FAILED"), any(), anyInt());
+    }
+
+    private static OutboxEvent event(String type, String payload) {
+        OutboxEvent event = new OutboxEvent();
+        event.setId(UUID.randomUUID());
+        event.setAggregateType("Sale");
+        event.setAggregateId(UUID.randomUUID());
+        event.setEventType(type);
+        event.setPayload(payload);
+        event.setNextAttemptAt(LocalDateTime.now());
+        return event;
+    }
+
+    private static final class RecordingHandler implements OutboxEventHandler {
+        private final String eventType;
+        private final List<Map<String, Object>> payloads = new ArrayList<>();
+        private RuntimeException failWith;
+
+        RecordingHandler(String eventType) {
+            this.eventType = eventType;
+        }
+
+        @Override
+        public String getEventType() {
+            return eventType;
+        }
+
+        @Override
+        public void handle(OutboxEvent event, Map<String, Object> payload) {
+            if (failWith != null) {
+                throw failWith;
+            }
+            payloads.add(payload);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.request.BulkSaleRequest;
+import com.pharmacy.inventory.dto.request.SaleRequest;
+import com.pharmacy.inventory.dto.response.BulkSaleResponse;
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.Sale;
+import com.pharmacy.inventory.model.User;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.SaleRepository;
+import com.pharmacy.inventory.repository.UserRepository;
+import com.pharmacy.inventory.service.MedicineCacheService;
+import com.pharmacy.inventory.service.NameSearchService;
+import com.pharmacy.inventory.service.OutboxService;
+import com.pharmacy.inventory.service.SalesRollupService;
+import com.pharmacy.inventory.service.StockCheckoutService;
+import com.pharmacy.inventory.support.NoOpTransactionManager;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.when;
+
+class BulkSaleServiceImplTest {
+
+    private static final UUID USER = UUID.fromString("00000000-0000-0000-0000-0000000000c1");
+    private static final UUID BRANCH = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+    private static final UUID MEDICINE_A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID MEDICINE_B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    private StockCheckoutService stockCheckoutService;
+    private BulkSaleServiceImpl bulkSaleService;
+
+    @BeforeEach
+    void setUp() {
+        UserRepository userRepository = mock(UserRepository.class);
+        BranchRepository branchRepository = mock(BranchRepository.class);
+        MedicineCacheService medicineCacheService = mock(MedicineCacheService.class);
+        stockCheckoutService = mock(StockCheckoutService.class);
+
+        User user = new User();
+        user.setId(USER);
+        Branch branch = new Branch();
+        branch.setId(BRANCH);
+        when(userRepository.findAllById(any())).thenReturn(List.of(user));
+        when(branchRepository.findAllById(any())).thenReturn(List.of(branch));
+        when(medicineCacheService.getAll(anyCollection()))
+                .thenReturn(Map.of(MEDICINE_A, medicine(MEDICINE_A), MEDICINE_B, medicine(MEDICINE_B)));
+        when(stockCheckoutService.tryCheckout(any())).thenReturn(Optional.of(List.of()));
+
+        bulkSaleService = new BulkSaleServiceImpl(mock(SaleRepository.class), userRepository, branchRepository,
+                medicineCacheService, stockCheckoutService, mock(SalesRollupService.class),
+                mock(NameSearchService.class), mock(OutboxService.class), new NoOpTransactionManager(), 2);
+        ReflectionTestUtils.setField(bulkSaleService, "entityManager", mock(EntityManager.class));
+        ReflectionTestUtils.setField(bulkSaleService, "maxSales", 5000);
+        ReflectionTestUtils.setField(bulkSaleService, "chunkSize", 200);
+        ReflectionTestUtils.setField(bulkSaleService, "retryAfterSeconds", 10);
+    }
+
+    @Test
+    void locksTheWholeChunkBeforeTheFirstSaleIsCheckedOut() {
+        BulkSaleResponse response = bulkSaleService.createSales(request(entry(MEDICINE_B), entry(MEDICINE_A)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<Sale>> locked = ArgumentCaptor.forClass(Collection.class);
+        InOrder order = inOrder(stockCheckoutService);
+        order.verify(stockCheckoutService).lockForCheckout(locked.capture());
+        order.verify(stockCheckoutService, times(2)).tryCheckout(any());
+        assertThat(locked.getValue()).hasSize(2);
+        assertThat(response.getResults()).extracting(BulkSaleResponse.SaleResult::getStatus)
+                .containsOnly(BulkSaleResponse.Status.CREATED);
+    }
+
+    private static Medicine medicine(UUID id) {
+        Medicine medicine = new Medicine();
+        medicine.setId(id);
+        medicine.setName("Medicine " + id);
+        return medicine;
+    }
+
+    private static BulkSaleRequest.BulkSaleEntry entry(UUID medicineId) {
+        SaleRequest.SaleItemRequest item = new SaleRequest.SaleItemRequest();
+        item.setMedicine_id(medicineId);
+        item.setQuantity(1);
+        item.setTotal_price(BigDecimal.TEN);
+        BulkSaleRequest.BulkSaleEntry entry = new BulkSaleRequest.BulkSaleEntry();
+        entry.setUser_id(USER);
+        entry.setBranch_id(BRANCH);
+        entry.setTotal_amount(BigDecimal.TEN);
+        entry.setSale_items(List.of(item));
+        return entry;
+    }
+
+    private static BulkSaleRequest request(BulkSaleRequest.BulkSaleEntry... entries) {
+        BulkSaleRequest request = new BulkSaleRequest();
+        request.setSales(List.of(entries));
+        return request;
+    }
+}
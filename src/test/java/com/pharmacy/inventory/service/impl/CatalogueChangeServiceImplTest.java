@@ -0,0 +1,110 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.response.CatalogueChanges;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.SupplierRepository;
+import com.pharmacy.inventory.service.DataVersionService;
+import com.pharmacy.inventory.service.DataVersionService.Changes;
+import com.pharmacy.inventory.service.DataVersionService.DataSet;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CatalogueChangeServiceImplTest {
+
+    private static final String EPOCH = "18a2b3c4d5e";
+    private static final UUID MEDICINE = UUID.fromString("00000000-0000-0000-0000-0000000000a1");
+    private static final UUID GONE = UUID.fromString("00000000-0000-0000-0000-0000000000a2");
+
+    private DataVersionService dataVersionService;
+    private MedicineRepository medicineRepository;
+    private BranchRepository branchRepository;
+    private SupplierRepository supplierRepository;
+    private CatalogueChangeServiceImpl changeService;
+
+    @BeforeEach
+    void setUp() {
+        dataVersionService = mock(DataVersionService.class);
+        medicineRepository = mock(MedicineRepository.class);
+        branchRepository = mock(BranchRepository.class);
+        supplierRepository = mock(SupplierRepository.class);
+        changeService = new CatalogueChangeServiceImpl(dataVersionService, medicineRepository, branchRepository,
+                supplierRepository);
+        when(dataVersionService.getEpoch()).thenReturn(EPOCH);
+        when(dataVersionService.getVersion(DataSet.MEDICINES)).thenReturn(12L);
+        when(dataVersionService.getVersion(DataSet.BRANCHES)).thenReturn(4L);
+        when(dataVersionService.getVersion(DataSet.SUPPLIERS)).thenReturn(2L);
+    }
+
+    @Test
+    void firstPollGetsEverything() {
+        CatalogueChanges changes = changeService.getChangesSince(null);
+
+        assertThat(changes.isReset()).isTrue();
+        assertThat(changes.getVersion()).isEqualTo(EPOCH + ".12.4.2");
+        verify(medicineRepository).findAll();
+        verify(branchRepository).findAll();
+        verify(supplierRepository).findAll();
+    }
+
+    @Test
+    void versionsThatAreNotFromThisDatabaseGetEverything() {
+        for (String since : List.of("otherepoch.1.1.1", EPOCH + ".1.1", EPOCH + ".a.b.c", "")) {
+            assertThat(changeService.getChangesSince(since).isReset()).as(since).isTrue();
+        }
+        verify(dataVersionService, never()).getChangesSince(any(), anyLong());
+    }
+
+    @Test
+    void pollReturnsOnlyWhatChangedSinceItsVersion() {
+        Medicine medicine = new Medicine();
+        medicine.setId(MEDICINE);
+        when(dataVersionService.getChangesSince(DataSet.MEDICINES, 10L))
+                .thenReturn(Optional.of(new Changes(12L, Set.of(MEDICINE), Set.of(GONE))));
+        when(dataVersionService.getChangesSince(DataSet.BRANCHES, 4L))
+                .thenReturn(Optional.of(new Changes(4L, Set.of(), Set.of())));
+        when(dataVersionService.getChangesSince(DataSet.SUPPLIERS, 2L))
+                .thenReturn(Optional.of(new Changes(2L, Set.of(), Set.of())));
+        when(medicineRepository.findAllById(Set.of(MEDICINE))).thenReturn(List.of(medicine));
+
+        CatalogueChanges changes = changeService.getChangesSince(EPOCH + ".10.4.2");
+
+        assertThat(changes.isReset()).isFalse();
+        assertThat(changes.getVersion()).isEqualTo(EPOCH + ".12.4.2");
+        assertThat(changes.getMedicines()).containsExactly(medicine);
+        assertThat(changes.getDeleted_medicines()).containsExactly(GONE);
+        assertThat(changes.getBranches()).isEmpty();
+        assertThat(changes.getSuppliers()).isEmpty();
+        verify(branchRepository, never()).findAllById(any());
+        verify(supplierRepository, never()).findAllById(any());
+        verify(medicineRepository, never()).findAll();
+    }
+
+    @Test
+    void versionOlderThanTheKeptTombstonesGetsEverything() {
+        when(dataVersionService.getChangesSince(DataSet.MEDICINES, 1L)).thenReturn(Optional.empty());
+        when(dataVersionService.getChangesSince(DataSet.BRANCHES, 4L))
+                .thenReturn(Optional.of(new Changes(4L, Set.of(), Set.of())));
+        when(dataVersionService.getChangesSince(DataSet.SUPPLIERS, 2L))
+                .thenReturn(Optional.of(new Changes(2L, Set.of(), Set.of())));
+
+        CatalogueChanges changes = changeService.getChangesSince(EPOCH + ".1.4.2");
+
+        assertThat(changes.isReset()).isTrue();
+        verify(medicineRepository).findAll();
+    }
+}
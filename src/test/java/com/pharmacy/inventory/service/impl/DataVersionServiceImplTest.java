@@ -0,0 +1,139 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.service.DataVersionService.Changes;
+import com.pharmacy.inventory.service.DataVersionService.DataSet;
+import com.pharmacy.inventory.support.NoOpTransactionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DataVersionServiceImplTest {
+
+    private static final UUID ROW = UUID.fromString("00000000-0000-0000-0000-0000000000a1");
+
+    private JdbcTemplate jdbcTemplate;
+    private DataVersionServiceImpl dataVersionService;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        dataVersionService = new DataVersionServiceImpl(jdbcTemplate, new NoOpTransactionManager(), 30);
+        when(jdbcTemplate.queryForObject(startsWith("UPDATE data_versions"), eq(Long.class), any())).thenReturn(8L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+        TransactionSynchronizationManager.unbindResourceIfPossible(dataVersionService);
+    }
+
+    @Test
+    void versionPastTheKeptTombstonesOrAheadOfTheCurrentOneHasNoDelta() throws Exception {
+        versionRow(10, 4);
+
+        assertThat(dataVersionService.getChangesSince(DataSet.MEDICINES, 3)).isEmpty();
+        assertThat(dataVersionService.getChangesSince(DataSet.MEDICINES, 11)).isEmpty();
+        verify(jdbcTemplate, never()).query(startsWith("SELECT row_id"), any(RowCallbackHandler.class), any(), any());
+    }
+
+    @Test
+    void deltaIsReadFromTheChangeLogAfterTheVersion() throws Exception {
+        versionRow(10, 4);
+
+        Optional<Changes> changes = dataVersionService.getChangesSince(DataSet.MEDICINES, 4);
+
+        assertThat(changes).hasValueSatisfying(delta -> assertThat(delta.version()).isEqualTo(10));
+        verify(jdbcTemplate).query(startsWith("SELECT row_id, deleted FROM catalogue_changes"),
+                any(RowCallbackHandler.class), eq("MEDICINES"), eq(4L));
+    }
+
+    @Test
+    void catalogueWritesLockAllCatalogueRowsOnceAndTakeTheirVersionInTheTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        dataVersionService.markChanged(DataSet.SUPPLIERS, ROW, false);
+        dataVersionService.markChanged(DataSet.MEDICINES, ROW, true);
+        dataVersionService.markChanged(DataSet.MEDICINES, ROW, true);
+
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).queryForList(eq("SELECT data_set FROM data_versions WHERE data_set IN (?, ?, ?) " +
+                "ORDER BY data_set FOR UPDATE"), eq(String.class), eq("BRANCHES"), eq("MEDICINES"), eq("SUPPLIERS"));
+        order.verify(jdbcTemplate).queryForObject(startsWith("UPDATE data_versions"), eq(Long.class), eq("SUPPLIERS"));
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO catalogue_changes"), eq("SUPPLIERS"), eq(ROW), eq(8L), eq(false));
+        order.verify(jdbcTemplate).queryForObject(startsWith("UPDATE data_versions"), eq(Long.class), eq("MEDICINES"));
+        order.verify(jdbcTemplate).update(startsWith("INSERT INTO catalogue_changes"), eq("MEDICINES"), eq(ROW), eq(8L), eq(true));
+        verify(jdbcTemplate, times(1)).queryForList(anyString(), eq(String.class), any(), any(), any());
+        verify(jdbcTemplate, times(2)).update(startsWith("INSERT INTO catalogue_changes"), any(), any(), any(), any());
+    }
+
+    @Test
+    void hotDataSetsMoveOnlyOnceTheirTransactionHasCommitted() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        dataVersionService.markChanged(DataSet.STOCK);
+        dataVersionService.markChanged(DataSet.SALES);
+        dataVersionService.markChanged(DataSet.STOCK);
+        verify(jdbcTemplate, never()).update(startsWith("UPDATE data_versions"), any(Object[].class));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+        }
+
+        // Enum order, so concurrent bumps lock the rows in the same order
+        InOrder order = inOrder(jdbcTemplate);
+        order.verify(jdbcTemplate).update(startsWith("UPDATE data_versions"), eq("SALES"));
+        order.verify(jdbcTemplate).update(startsWith("UPDATE data_versions"), eq("STOCK"));
+        verify(jdbcTemplate, times(2)).update(startsWith("UPDATE data_versions"), any(Object[].class));
+    }
+
+    @Test
+    void hotDataSetsStayPutWhenTheTransactionRollsBack() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        dataVersionService.markChanged(DataSet.STOCK);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        verify(jdbcTemplate, never()).update(startsWith("UPDATE data_versions"), any(Object[].class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void versionRow(long version, long purgedThrough) throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong(1)).thenReturn(version);
+        when(rs.getLong(2)).thenReturn(purgedThrough);
+        when(rs.getTimestamp(3)).thenReturn(new Timestamp(0));
+        when(jdbcTemplate.queryForObject(startsWith("SELECT version, purged_through"), any(RowMapper.class), any()))
+                .thenAnswer(invocation -> ((RowMapper<Object>) invocation.getArgument(1)).mapRow(rs, 0));
+    }
+}
@@ -0,0 +1,57 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pharmacy.inventory.event.OutboxDispatcher;
+import com.pharmacy.inventory.model.OutboxEvent;
+import com.pharmacy.inventory.repository.OutboxEventRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class OutboxServiceImplTest {
+
+    private OutboxEventRepository repository;
+    private OutboxDispatcher dispatcher;
+    private OutboxServiceImpl outboxService;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(OutboxEventRepository.class);
+        dispatcher = mock(OutboxDispatcher.class);
+        outboxService = new OutboxServiceImpl(repository, new ObjectMapper(), dispatcher);
+    }
+
+    @Test
+    void storesEventsThatHaveAConsumer() {
+        when(dispatcher.hasHandlers("SaleCreated")).thenReturn(true);
+        UUID saleId = UUID.randomUUID();
+
+        outboxService.publish("Sale", saleId, "SaleCreated", Map.of("total", 5));
+
+        ArgumentCaptor<OutboxEvent> saved = ArgumentCaptor.forClass(OutboxEvent.class);
+        verify(repository).save(saved.capture());
+        assertThat(saved.getValue().getAggregateId()).isEqualTo(saleId);
+        assertThat(saved.getValue().getEventType()).isEqualTo("SaleCreated");
+        assertThat(saved.getValue().getPayload()).isEqualTo("{\"total\":5}");
+        assertThat(saved.getValue().getStatus()).isEqualTo(OutboxEvent.Status.PENDING);
+    }
+
+    @Test
+    void skipsEventsNobodyConsumes() {
+        when(dispatcher.hasHandlers("StockChanged")).thenReturn(false);
+
+        outboxService.publish("Stock", UUID.randomUUID(), "StockChanged", Map.of("quantity_delta", -1));
+
+        verify(repository, never()).save(any());
+    }
+}
@@ -0,0 +1,134 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.exception.ResourceNotFoundException;
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.Sale;
+import com.pharmacy.inventory.model.SaleItem;
+import com.pharmacy.inventory.repository.SaleItemRepository;
+import com.pharmacy.inventory.repository.SaleRepository;
+import com.pharmacy.inventory.service.NameSearchService;
+import com.pharmacy.inventory.service.OutboxService;
+import com.pharmacy.inventory.service.SalesRollupService;
+import com.pharmacy.inventory.service.StockCheckoutService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SaleServiceImplTest {
+
+    private static final UUID SALE = UUID.fromString("00000000-0000-0000-0000-0000000000d1");
+    private static final UUID BRANCH = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+    private static final UUID OTHER_BRANCH = UUID.fromString("00000000-0000-0000-0000-0000000000b2");
+    private static final UUID MEDICINE_A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID MEDICINE_B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    private SaleRepository saleRepository;
+    private StockCheckoutService stockCheckoutService;
+    private OutboxService outboxService;
+    private SaleServiceImpl saleService;
+
+    @BeforeEach
+    void setUp() {
+        saleRepository = mock(SaleRepository.class);
+        stockCheckoutService = mock(StockCheckoutService.class);
+        outboxService = mock(OutboxService.class);
+        saleService = new SaleServiceImpl(saleRepository, mock(SaleItemRepository.class), stockCheckoutService,
+                mock(SalesRollupService.class), mock(NameSearchService.class), outboxService);
+        when(saleRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void updatingAMissingSaleIsRejectedWithoutWritingAnything() {
+        when(saleRepository.findById(SALE)).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> saleService.updateSale(sale(BRANCH, item(MEDICINE_A, 1))))
+                .isInstanceOf(ResourceNotFoundException.class);
+        verify(saleRepository, never()).save(any());
+        verify(stockCheckoutService, never()).adjust(any(), any());
+        verify(outboxService, never()).publishSale(anyString(), any());
+    }
+
+    @Test
+    void itemEditsMoveOnlyTheDifferenceInStock() {
+        Sale stored = sale(BRANCH, item(MEDICINE_A, 2), item(MEDICINE_B, 1));
+        when(saleRepository.findById(SALE)).thenReturn(Optional.of(stored));
+
+        Sale saved = saleService.updateSale(sale(BRANCH, item(MEDICINE_A, 3)));
+
+        InOrder order = inOrder(stockCheckoutService, saleRepository);
+        order.verify(stockCheckoutService).lockForCheckout(any());
+        order.verify(stockCheckoutService).adjust(BRANCH, Map.of(MEDICINE_A, 1, MEDICINE_B, -1));
+        order.verify(saleRepository).save(stored);
+        assertThat(saved.getSaleItems()).singleElement().satisfies(item -> assertThat(item.getSale()).isSameAs(stored));
+    }
+
+    @Test
+    void movingASaleToAnotherBranchReturnsItsStockAndTakesItThere() {
+        when(saleRepository.findById(SALE)).thenReturn(Optional.of(sale(BRANCH, item(MEDICINE_A, 2))));
+
+        saleService.updateSale(sale(OTHER_BRANCH, item(MEDICINE_A, 2)));
+
+        verify(stockCheckoutService).adjust(BRANCH, Map.of(MEDICINE_A, -2));
+        verify(stockCheckoutService).adjust(OTHER_BRANCH, Map.of(MEDICINE_A, 2));
+    }
+
+    @Test
+    void deletingASaleReturnsItsStock() {
+        Sale stored = sale(BRANCH, item(MEDICINE_A, 2), item(MEDICINE_B, 1), item(MEDICINE_A, 1));
+        when(saleRepository.findById(SALE)).thenReturn(Optional.of(stored));
+
+        saleService.deleteSale(SALE);
+
+        InOrder order = inOrder(stockCheckoutService, saleRepository);
+        order.verify(stockCheckoutService).lockForCheckout(List.of(stored));
+        order.verify(stockCheckoutService).adjust(BRANCH, Map.of(MEDICINE_A, -3, MEDICINE_B, -1));
+        order.verify(saleRepository).delete(stored);
+        verify(outboxService).publishSale(OutboxService.SALE_DELETED, stored);
+    }
+
+    @Test
+    void deletingAMissingSaleTouchesNoStock() {
+        when(saleRepository.findById(SALE)).thenReturn(Optional.empty());
+
+        saleService.deleteSale(SALE);
+
+        verify(stockCheckoutService, never()).adjust(any(), any());
+        verify(saleRepository, never()).delete(any());
+    }
+
+    private static SaleItem item(UUID medicineId, int quantity) {
+        Medicine medicine = new Medicine();
+        medicine.setId(medicineId);
+        SaleItem item = new SaleItem();
+        item.setMedicine(medicine);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static Sale sale(UUID branchId, SaleItem... items) {
+        Branch branch = new Branch();
+        branch.setId(branchId);
+        Sale sale = new Sale();
+        sale.setId(SALE);
+        sale.setBranch(branch);
+        sale.setSaleItems(new ArrayList<>(List.of(items)));
+        return sale;
+    }
+}
@@ -0,0 +1,168 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.StockDTO;
+import com.pharmacy.inventory.dto.response.StockChanges;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.model.Stock;
+import com.pharmacy.inventory.model.StockMovement;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.DataVersionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockChangeFeedServiceImplTest {
+
+    private static final String EPOCH = "18a2b3c4d5e";
+    private static final long NOW = 1_700_000_000_000L;
+    private static final long SETTLE_MS = 10_000;
+    private static final int RETENTION_DAYS = 7;
+    private static final UUID BRANCH = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+    private static final UUID STOCK_1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID STOCK_2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID STOCK_3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    private StockRepository stockRepository;
+    private JdbcTemplate jdbcTemplate;
+    private StockChangeFeedServiceImpl feedService;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository = mock(StockRepository.class);
+        jdbcTemplate = mock(JdbcTemplate.class);
+        DataVersionService dataVersionService = mock(DataVersionService.class);
+        when(dataVersionService.getEpoch()).thenReturn(EPOCH);
+        when(jdbcTemplate.queryForObject("SELECT clock_timestamp()", Timestamp.class)).thenReturn(new Timestamp(NOW));
+        when(stockRepository.findByBranchId(BRANCH)).thenReturn(List.of(stock(STOCK_1), stock(STOCK_2)));
+        feedService = new StockChangeFeedServiceImpl(stockRepository, dataVersionService, jdbcTemplate, SETTLE_MS,
+                RETENTION_DAYS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void versionsThatCannotBeServedFromTheLogGetTheWholeBranch() {
+        long expired = NOW - RETENTION_DAYS * 86_400_000L - 1;
+        for (String since : new String[] {null, "", "otherepoch." + NOW, EPOCH + ".abc", EPOCH + "." + (NOW + 1),
+                EPOCH + "." + expired}) {
+            StockChanges changes = feedService.getChangesSince(BRANCH, since);
+
+            assertThat(changes.isReset()).as(String.valueOf(since)).isTrue();
+            assertThat(changes.getVersion()).isEqualTo(EPOCH + "." + NOW);
+            assertThat(changes.getStock()).extracting(StockDTO::getId).containsExactly(STOCK_1, STOCK_2);
+            assertThat(changes.getDeleted()).isEmpty();
+        }
+        verify(jdbcTemplate, never()).query(startsWith("SELECT stock_id"), any(RowCallbackHandler.class), any(), any());
+    }
+
+    @Test
+    void pollReachesBackASettleWindowAndReturnsChangedAndDeletedRows() throws Exception {
+        long since = NOW - 60_000;
+        changeLog(new Object[] {STOCK_1, false}, new Object[] {STOCK_2, false}, new Object[] {STOCK_3, true});
+        // STOCK_2 was removed by a write that did not announce the deletion
+        when(stockRepository.findByBranchIdAndIdIn(eq(BRANCH), any())).thenReturn(List.of(stock(STOCK_1)));
+
+        StockChanges changes = feedService.getChangesSince(BRANCH, EPOCH + "." + since);
+
+        ArgumentCaptor<Object> from = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).query(startsWith("SELECT stock_id, deleted FROM stock_changes WHERE branch_id = ?"),
+                any(RowCallbackHandler.class), eq(BRANCH), from.capture());
+        assertThat(from.getValue()).isEqualTo(new Timestamp(since - SETTLE_MS));
+        assertThat(changes.isReset()).isFalse();
+        assertThat(changes.getVersion()).isEqualTo(EPOCH + "." + NOW);
+        assertThat(changes.getStock()).extracting(StockDTO::getId).containsExactly(STOCK_1);
+        assertThat(changes.getDeleted()).containsExactlyInAnyOrder(STOCK_2, STOCK_3);
+        verify(stockRepository, never()).findByBranchId(any());
+    }
+
+    @Test
+    void changesOfATransactionAreUpsertedInStockIdOrderJustBeforeItCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        feedService.onStockChanged(event(STOCK_3, StockChangedEvent.ChangeType.ADJUSTED));
+        feedService.onStockChanged(event(STOCK_1, StockChangedEvent.ChangeType.ADJUSTED));
+        feedService.onStockChanged(event(STOCK_3, StockChangedEvent.ChangeType.DELETED));
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO stock_changes"), args.capture());
+        // The latest change per row wins, stamped by the database clock
+        assertThat(args.getValue()).containsExactly(STOCK_1, BRANCH, false, STOCK_3, BRANCH, true);
+    }
+
+    @Test
+    void changesOutsideATransactionAreWrittenStraightAway() {
+        feedService.onStockChanged(event(STOCK_2, StockChangedEvent.ChangeType.CREATED));
+
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).update(startsWith("INSERT INTO stock_changes"), args.capture());
+        assertThat(args.getValue()).containsExactly(STOCK_2, BRANCH, false);
+    }
+
+    @Test
+    void purgeDeletesInBatchesUntilOneComesUpShort() {
+        when(jdbcTemplate.update(startsWith("DELETE FROM stock_changes"), any(), anyInt())).thenReturn(10000, 10000, 42);
+
+        feedService.purgeChanges();
+
+        verify(jdbcTemplate, times(3)).update(startsWith("DELETE FROM stock_changes"), any(), eq(10000));
+    }
+
+    private void changeLog(Object[]... rows) throws Exception {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (Object[] row : rows) {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getObject(1, UUID.class)).thenReturn((UUID) row[0]);
+                when(rs.getBoolean(2)).thenReturn((Boolean) row[1]);
+                handler.processRow(rs);
+            }
+            return null;
+        }).when(jdbcTemplate).query(startsWith("SELECT stock_id"), any(RowCallbackHandler.class), any(), any());
+    }
+
+    private static StockChangedEvent event(UUID stockId, StockChangedEvent.ChangeType type) {
+        return new StockChangedEvent(stockId, BRANCH, UUID.randomUUID(), UUID.randomUUID(), 1, type,
+                StockMovement.MovementType.ADJUSTMENT, 1L);
+    }
+
+    private static Stock stock(UUID id) {
+        Stock stock = new Stock();
+        stock.setId(id);
+        return stock;
+    }
+}
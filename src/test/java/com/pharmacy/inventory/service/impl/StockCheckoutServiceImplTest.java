@@ -0,0 +1,264 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.AllocationPlan;
+import com.pharmacy.inventory.dto.StockDeduction;
+import com.pharmacy.inventory.dto.StockLevel;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.exception.InsufficientStockException;
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.Sale;
+import com.pharmacy.inventory.model.SaleItem;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.BatchAllocationService;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockCheckoutServiceImplTest {
+
+    private static final UUID BRANCH = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+    private static final UUID MEDICINE_A = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID MEDICINE_B = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    private StockRepository stockRepository;
+    private BatchAllocationService allocationService;
+    private ApplicationEventPublisher eventPublisher;
+    private EntityManager entityManager;
+    private StockCheckoutServiceImpl checkoutService;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository = mock(StockRepository.class);
+        allocationService = mock(BatchAllocationService.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        entityManager = mock(EntityManager.class);
+        checkoutService = new StockCheckoutServiceImpl(stockRepository, allocationService, eventPublisher);
+        ReflectionTestUtils.setField(checkoutService, "entityManager", entityManager);
+    }
+
+    @Test
+    void lockQueriesTakeRowsInIdOrder() throws NoSuchMethodException {
+        for (String method : List.of("lockByBranchAndMedicines", "lockByBranchAndBatches")) {
+            Query query = StockRepository.class.getMethod(method, UUID.class, Collection.class).getAnnotation(Query.class);
+            assertThat(query.value()).as(method).endsWith("ORDER BY s.id FOR UPDATE");
+        }
+    }
+
+    @Test
+    void locksEveryPairOfABatchOfSalesInOneStatement() {
+        List<String> statements = new ArrayList<>();
+        List<Object> parameters = new ArrayList<>();
+        jakarta.persistence.Query query = mock(jakarta.persistence.Query.class);
+        doAnswer(invocation -> {
+            parameters.add(invocation.getArgument(1));
+            return query;
+        }).when(query).setParameter(anyInt(), any());
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(invocation -> {
+            statements.add(invocation.getArgument(0));
+            return query;
+        });
+
+        // The second sale repeats medicine A and the third has no branch
+        Sale noBranch = sale(item(MEDICINE_A, 1));
+        noBranch.setBranch(null);
+        checkoutService.lockForCheckout(List.of(sale(item(MEDICINE_A, 1), item(MEDICINE_B, 2)), sale(item(MEDICINE_A, 3)), noBranch));
+
+        assertThat(statements).singleElement().satisfies(sql -> assertThat(sql)
+                .contains("IN ((?, ?), (?, ?))")
+                .endsWith("ORDER BY s.id FOR UPDATE"));
+        assertThat(parameters).containsExactly(BRANCH, MEDICINE_A, BRANCH, MEDICINE_B);
+        verify(query).getResultList();
+    }
+
+    @Test
+    void locksNothingForSalesWithoutStockLines() {
+        checkoutService.lockForCheckout(List.of(sale()));
+
+        verify(entityManager, never()).createNativeQuery(anyString());
+    }
+
+    @Test
+    void locksEveryMedicineOfTheBasketBeforeDeductingAny() {
+        UUID stockA = UUID.randomUUID();
+        UUID stockB = UUID.randomUUID();
+        plan(MEDICINE_A, 2, line(stockA, 2));
+        plan(MEDICINE_B, 3, line(stockB, 3));
+        when(stockRepository.decrementQuantity(any(), anyInt(), any())).thenReturn(1L);
+
+        // Basket lists B before A and A twice
+        List<StockDeduction> deductions = checkoutService.checkout(sale(item(MEDICINE_B, 3), item(MEDICINE_A, 1), item(MEDICINE_A, 1)));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<UUID>> locked = ArgumentCaptor.forClass(Collection.class);
+        InOrder order = inOrder(stockRepository);
+        order.verify(stockRepository).lockByBranchAndMedicines(eq(BRANCH), locked.capture());
+        order.verify(stockRepository).decrementQuantity(eq(stockA), eq(2), any());
+        order.verify(stockRepository).decrementQuantity(eq(stockB), eq(3), any());
+        assertThat(locked.getValue()).containsExactly(MEDICINE_A, MEDICINE_B);
+        assertThat(deductions).extracting(StockDeduction::getStockId).containsExactly(stockA, stockB);
+    }
+
+    @Test
+    void replansFromTheDatabaseWhenTheCachedQueueIsStale() {
+        UUID stale = UUID.randomUUID();
+        UUID fresh = UUID.randomUUID();
+        plan(MEDICINE_A, 2, line(stale, 2));
+        when(stockRepository.decrementQuantity(eq(stale), anyInt(), any())).thenReturn(null);
+        when(stockRepository.decrementQuantity(eq(fresh), anyInt(), any())).thenReturn(1L);
+        when(allocationService.allocateFromDatabase(BRANCH, MEDICINE_A, 2))
+                .thenReturn(new AllocationPlan(BRANCH, MEDICINE_A, 2, 2, List.of(line(fresh, 2))));
+
+        List<StockDeduction> deductions = checkoutService.deduct(BRANCH, MEDICINE_A, 2);
+
+        verify(allocationService).invalidate(BRANCH, MEDICINE_A);
+        assertThat(deductions).extracting(StockDeduction::getStockId).containsExactly(fresh);
+    }
+
+    @Test
+    void failsWhenTheDatabaseCannotCoverTheQuantity() {
+        UUID stock = UUID.randomUUID();
+        plan(MEDICINE_A, 5, line(stock, 2));
+        when(stockRepository.decrementQuantity(any(), anyInt(), any())).thenReturn(1L);
+        when(allocationService.allocateFromDatabase(BRANCH, MEDICINE_A, 3))
+                .thenReturn(new AllocationPlan(BRANCH, MEDICINE_A, 3, 0, List.of()));
+
+        assertThatThrownBy(() -> checkoutService.checkout(sale(item(MEDICINE_A, 5))))
+                .isInstanceOf(InsufficientStockException.class);
+    }
+
+    @Test
+    void tryCheckoutPutsBackWhatItTookWhenALaterLineIsShort() {
+        UUID stockA = UUID.randomUUID();
+        plan(MEDICINE_A, 1, line(stockA, 1));
+        plan(MEDICINE_B, 4, List.of());
+        when(stockRepository.decrementQuantity(any(), anyInt(), any())).thenReturn(1L);
+        when(allocationService.allocateFromDatabase(BRANCH, MEDICINE_B, 4))
+                .thenReturn(new AllocationPlan(BRANCH, MEDICINE_B, 4, 0, List.of()));
+
+        Optional<List<StockDeduction>> result = checkoutService.tryCheckout(sale(item(MEDICINE_A, 1), item(MEDICINE_B, 4)));
+
+        assertThat(result).isEmpty();
+        verify(stockRepository).incrementQuantity(eq(stockA), eq(1), any());
+        ArgumentCaptor<StockChangedEvent> events = ArgumentCaptor.forClass(StockChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(StockChangedEvent::getQuantityDelta).containsExactly(-1, 1);
+    }
+
+    @Test
+    void adjustTakesIncreasesAndPutsDecreasesBackOnTheEarliestSellableBatch() {
+        UUID stockA = UUID.randomUUID();
+        UUID expired = UUID.randomUUID();
+        UUID earliest = UUID.randomUUID();
+        UUID latest = UUID.randomUUID();
+        plan(MEDICINE_A, 2, line(stockA, 2));
+        when(stockRepository.decrementQuantity(any(), anyInt(), any())).thenReturn(1L);
+        LocalDate today = LocalDate.now();
+        when(stockRepository.findStockLevels(BRANCH, MEDICINE_B)).thenReturn(List.of(
+                new StockLevel(expired, UUID.randomUUID(), "OLD", today.minusDays(1), 0),
+                new StockLevel(earliest, UUID.randomUUID(), "NEXT", today.plusDays(30), 0),
+                new StockLevel(latest, UUID.randomUUID(), "LAST", today.plusDays(300), 5)));
+
+        when(stockRepository.incrementQuantity(any(), anyInt(), any())).thenReturn(8L);
+
+        checkoutService.adjust(BRANCH, Map.of(MEDICINE_A, 2, MEDICINE_B, -3));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<UUID>> locked = ArgumentCaptor.forClass(Collection.class);
+        verify(stockRepository).lockByBranchAndMedicines(eq(BRANCH), locked.capture());
+        assertThat(locked.getValue()).containsExactly(MEDICINE_A, MEDICINE_B);
+        verify(stockRepository).decrementQuantity(eq(stockA), eq(2), any());
+        verify(stockRepository).incrementQuantity(eq(earliest), eq(3), any());
+        ArgumentCaptor<StockChangedEvent> events = ArgumentCaptor.forClass(StockChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(StockChangedEvent::getQuantityDelta).containsExactly(-2, 3);
+        assertThat(events.getAllValues()).extracting(StockChangedEvent::getVersion).containsExactly(1L, 8L);
+    }
+
+    @Test
+    void adjustPutsStockBackOnTheLatestBatchWhenEveryBatchHasExpired() {
+        UUID older = UUID.randomUUID();
+        UUID newer = UUID.randomUUID();
+        LocalDate today = LocalDate.now();
+        when(stockRepository.findStockLevels(BRANCH, MEDICINE_A)).thenReturn(List.of(
+                new StockLevel(older, UUID.randomUUID(), "OLD", today.minusDays(60), 0),
+                new StockLevel(newer, UUID.randomUUID(), "NEWER", today.minusDays(2), 0)));
+
+        checkoutService.adjust(BRANCH, Map.of(MEDICINE_A, -1, MEDICINE_B, 0));
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<UUID>> locked = ArgumentCaptor.forClass(Collection.class);
+        verify(stockRepository).lockByBranchAndMedicines(eq(BRANCH), locked.capture());
+        assertThat(locked.getValue()).containsExactly(MEDICINE_A);
+        verify(stockRepository).incrementQuantity(eq(newer), eq(1), any());
+        verify(stockRepository, never()).decrementQuantity(any(), anyInt(), any());
+    }
+
+    @Test
+    void refusesASaleWithoutABranchBeforeLocking() {
+        Sale sale = sale(item(MEDICINE_A, 1));
+        sale.setBranch(null);
+
+        assertThatThrownBy(() -> checkoutService.checkout(sale)).isInstanceOf(IllegalArgumentException.class);
+        verify(stockRepository, never()).lockByBranchAndMedicines(any(), any());
+    }
+
+    private void plan(UUID medicineId, int quantity, AllocationPlan.Line line) {
+        plan(medicineId, quantity, List.of(line));
+    }
+
+    private void plan(UUID medicineId, int quantity, List<AllocationPlan.Line> lines) {
+        int allocated = lines.stream().mapToInt(AllocationPlan.Line::getQuantity).sum();
+        when(allocationService.allocate(BRANCH, medicineId, quantity))
+                .thenReturn(new AllocationPlan(BRANCH, medicineId, quantity, allocated, lines));
+    }
+
+    private static AllocationPlan.Line line(UUID stockId, int quantity) {
+        return new AllocationPlan.Line(stockId, UUID.randomUUID(), "LOT", null, quantity);
+    }
+
+    private static SaleItem item(UUID medicineId, int quantity) {
+        Medicine medicine = new Medicine();
+        medicine.setId(medicineId);
+        SaleItem item = new SaleItem();
+        item.setMedicine(medicine);
+        item.setQuantity(quantity);
+        return item;
+    }
+
+    private static Sale sale(SaleItem... items) {
+        Branch branch = new Branch();
+        branch.setId(BRANCH);
+        Sale sale = new Sale();
+        sale.setBranch(branch);
+        sale.setSaleItems(new ArrayList<>(List.of(items)));
+        return sale;
+    }
+}
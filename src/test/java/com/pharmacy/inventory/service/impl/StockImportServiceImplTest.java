@@ -0,0 +1,148 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.response.StockImportResponse;
+import com.pharmacy.inventory.exception.ServiceBusyException;
+import com.pharmacy.inventory.repository.BatchRepository;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.MedicineCacheService;
+import com.pharmacy.inventory.service.MedicineSearchService;
+import com.pharmacy.inventory.service.ScanService;
+import com.pharmacy.inventory.support.NoOpTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StockImportServiceImplTest {
+
+    private static final UUID BRANCH = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+    private static final String HEADER = "medicine_name,batch_number,expiry_date,quantity\n";
+    private static final int RETRY_AFTER_SECONDS = 30;
+
+    private ChunkTransactionManager transactionManager;
+    private StockImportServiceImpl importService;
+
+    @BeforeEach
+    void setUp() {
+        BranchRepository branchRepository = mock(BranchRepository.class);
+        when(branchRepository.existsById(BRANCH)).thenReturn(true);
+        transactionManager = new ChunkTransactionManager();
+        importService = new StockImportServiceImpl(mock(MedicineRepository.class), mock(BatchRepository.class),
+                branchRepository, mock(StockRepository.class), mock(MedicineCacheService.class),
+                mock(MedicineSearchService.class), mock(ScanService.class), mock(ApplicationEventPublisher.class),
+                transactionManager, 1);
+        ReflectionTestUtils.setField(importService, "maxRows", 500_000);
+        ReflectionTestUtils.setField(importService, "chunkSize", 1000);
+        ReflectionTestUtils.setField(importService, "maxErrors", 1000);
+        ReflectionTestUtils.setField(importService, "retryAfterSeconds", RETRY_AFTER_SECONDS);
+    }
+
+    @Test
+    void secondImportIsTurnedAwayWhileOneIsReading() throws IOException {
+        List<ServiceBusyException> refused = new ArrayList<>();
+        MockMultipartFile file = new MockMultipartFile("file", "stock.csv", "text/csv", new byte[0]) {
+            @Override
+            public InputStream getInputStream() {
+                refused.add(tryImport(csv(HEADER)));
+                return new ByteArrayInputStream(HEADER.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+
+        importService.importStock(BRANCH, file);
+
+        assertThat(refused).singleElement().isNotNull();
+        // Jittered so turned-away clients do not all come back at once
+        assertThat(refused.get(0).getRetryAfterSeconds()).isBetween(RETRY_AFTER_SECONDS, 2 * RETRY_AFTER_SECONDS);
+    }
+
+    @Test
+    void permitIsHeldUntilTheLastChunkIsWritten() throws IOException {
+        transactionManager.onChunk = () -> tryImport(csv(HEADER));
+
+        StockImportResponse response = importService.importStock(BRANCH, csv(HEADER + "Paracetamol,LOT-1,2030-01-31,10\n"));
+
+        assertThat(transactionManager.attempts).isNotEmpty().allMatch(ServiceBusyException.class::isInstance);
+        assertThat(response.getRows_read()).isEqualTo(1);
+        assertThat(tryImport(csv(HEADER))).isNull();
+    }
+
+    @Test
+    void permitIsReleasedWhenAnImportFails() {
+        MockMultipartFile broken = new MockMultipartFile("file", "stock.csv", "text/csv", new byte[0]) {
+            @Override
+            public InputStream getInputStream() throws IOException {
+                throw new IOException("connection reset");
+            }
+        };
+
+        assertThatThrownBy(() -> importService.importStock(BRANCH, broken)).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> importService.importStock(BRANCH, csv("name,quantity\n")))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("missing columns");
+
+        assertThat(tryImport(csv(HEADER))).isNull();
+    }
+
+    @Test
+    void requestsRefusedBeforeTheImportStartsTakeNoPermit() {
+        assertThatThrownBy(() -> importService.importStock(BRANCH, new MockMultipartFile("file", "stock.pdf",
+                "application/pdf", new byte[0]))).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> importService.importStock(UUID.randomUUID(), csv(HEADER)))
+                .hasMessageContaining("Branch not found");
+
+        assertThat(tryImport(csv(HEADER))).isNull();
+    }
+
+    /**
+     * @return The busy refusal, or null if the import ran
+     */
+    private ServiceBusyException tryImport(MockMultipartFile file) {
+        try {
+            importService.importStock(BRANCH, file);
+            return null;
+        } catch (ServiceBusyException e) {
+            return e;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MockMultipartFile csv(String content) {
+        return new MockMultipartFile("file", "stock.csv", "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Runs a probe whenever a chunk transaction starts
+     */
+    private static final class ChunkTransactionManager extends NoOpTransactionManager {
+        private final List<Object> attempts = new ArrayList<>();
+        private Supplier<Object> onChunk;
+
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            if (onChunk != null) {
+                attempts.add(onChunk.get());
+            }
+            return super.getTransaction(definition);
+        }
+    }
+}
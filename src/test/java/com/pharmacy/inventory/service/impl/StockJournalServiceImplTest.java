@@ -0,0 +1,188 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.model.StockMovement;
+import com.pharmacy.inventory.model.StockSnapshot;
+import com.pharmacy.inventory.repository.BatchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.repository.StockSnapshotRepository;
+import com.pharmacy.inventory.support.NoOpTransactionManager;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockJournalServiceImplTest {
+
+    private static final UUID BRANCH = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+    private static final UUID MEDICINE = UUID.fromString("00000000-0000-0000-0000-0000000000a1");
+    private static final UUID BATCH = UUID.fromString("00000000-0000-0000-0000-0000000000c1");
+    private static final UUID STOCK_1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID STOCK_2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final long SETTLE_MS = 60_000;
+
+    private StockSnapshotRepository snapshotRepository;
+    private EntityManager entityManager;
+    private StockJournalServiceImpl journalService;
+    private final List<Statement> statements = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        snapshotRepository = mock(StockSnapshotRepository.class);
+        entityManager = mock(EntityManager.class);
+        journalService = new StockJournalServiceImpl(mock(StockRepository.class), snapshotRepository,
+                mock(MedicineRepository.class), mock(BatchRepository.class), new NoOpTransactionManager());
+        ReflectionTestUtils.setField(journalService, "entityManager", entityManager);
+        ReflectionTestUtils.setField(journalService, "snapshotSettleMs", SETTLE_MS);
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(invocation -> record(invocation.getArgument(0)));
+        when(snapshotRepository.saveAndFlush(any(StockSnapshot.class))).thenAnswer(invocation -> {
+            StockSnapshot snapshot = invocation.getArgument(0);
+            snapshot.setId(UUID.randomUUID());
+            return snapshot;
+        });
+        when(snapshotRepository.save(any(StockSnapshot.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    void firstSnapshotFoldsTheWholeJournal() {
+        when(snapshotRepository.findFirstByOrderByTakenAtDesc()).thenReturn(Optional.empty());
+        LocalDateTime before = LocalDateTime.now().minusNanos(SETTLE_MS * 1_000_000);
+
+        StockSnapshot snapshot = journalService.takeSnapshot();
+
+        Statement insert = single();
+        assertThat(insert.sql).startsWith("INSERT INTO stock_snapshot_lines").doesNotContain("UNION ALL");
+        assertThat(insert.parameters).containsExactly(snapshot.getId(), snapshot.getTakenAt());
+        // Taken a settle window back, so writes still committing are not cut in half
+        assertThat(snapshot.getTakenAt()).isAfterOrEqualTo(before).isBefore(LocalDateTime.now().minusSeconds(59));
+        assertThat(snapshot.getLineCount()).isEqualTo(3);
+    }
+
+    @Test
+    void laterSnapshotFoldsThePreviousOneWithTheMovementsSince() {
+        StockSnapshot previous = snapshot(LocalDateTime.now().minusDays(1));
+        when(snapshotRepository.findFirstByOrderByTakenAtDesc()).thenReturn(Optional.of(previous));
+
+        StockSnapshot snapshot = journalService.takeSnapshot();
+
+        Statement insert = single();
+        assertThat(insert.sql).contains("FROM stock_snapshot_lines WHERE snapshot_id = ?")
+                .contains("UNION ALL")
+                .contains("WHERE occurred_at > ? AND occurred_at <= ?");
+        assertThat(insert.parameters).containsExactly(snapshot.getId(), previous.getId(), previous.getTakenAt(),
+                snapshot.getTakenAt());
+        assertThat(snapshot).isNotSameAs(previous);
+    }
+
+    @Test
+    void snapshotWithinTheSettleWindowOfThePreviousOneIsNotTaken() {
+        StockSnapshot previous = snapshot(LocalDateTime.now().minusSeconds(30));
+        when(snapshotRepository.findFirstByOrderByTakenAtDesc()).thenReturn(Optional.of(previous));
+
+        assertThat(journalService.takeSnapshot()).isSameAs(previous);
+
+        assertThat(statements).isEmpty();
+        verify(snapshotRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void movementsOfATransactionAreWrittenNetJustBeforeItCommits() {
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+
+        journalService.onStockChanged(movement(STOCK_1, -2, StockMovement.MovementType.SALE));
+        journalService.onStockChanged(movement(STOCK_1, -3, StockMovement.MovementType.SALE));
+        journalService.onStockChanged(movement(STOCK_2, -1, StockMovement.MovementType.SALE));
+        // A sale put back within the same transaction leaves nothing for its row
+        journalService.onStockChanged(movement(STOCK_2, 1, StockMovement.MovementType.SALE));
+        journalService.onStockChanged(movement(STOCK_2, 4, StockMovement.MovementType.TRANSFER_IN));
+        assertThat(statements).isEmpty();
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.beforeCommit(false);
+        }
+
+        Statement insert = single();
+        assertThat(insert.sql).startsWith("INSERT INTO stock_movements").containsOnlyOnce("), (");
+        List<Object> first = insert.parameters.subList(1, 7);
+        List<Object> second = insert.parameters.subList(9, 15);
+        assertThat(first).containsExactly(STOCK_1, BRANCH, MEDICINE, BATCH, "SALE", -5);
+        assertThat(second).containsExactly(STOCK_2, BRANCH, MEDICINE, BATCH, "TRANSFER_IN", 4);
+        // One stamp for the whole transaction
+        assertThat(insert.parameters.get(7)).isEqualTo(insert.parameters.get(15));
+    }
+
+    @Test
+    void movementsOutsideATransactionAreNotJournaled() {
+        journalService.onStockChanged(movement(STOCK_1, -2, StockMovement.MovementType.SALE));
+
+        assertThat(statements).isEmpty();
+    }
+
+    private Query record(String sql) {
+        Statement statement = new Statement(sql);
+        statements.add(statement);
+        Query query = mock(Query.class);
+        doAnswer(invocation -> {
+            statement.parameters.add(invocation.getArgument(1));
+            return query;
+        }).when(query).setParameter(anyInt(), any());
+        when(query.executeUpdate()).thenReturn(3);
+        return query;
+    }
+
+    private Statement single() {
+        assertThat(statements).hasSize(1);
+        return statements.get(0);
+    }
+
+    private static StockSnapshot snapshot(LocalDateTime takenAt) {
+        StockSnapshot snapshot = new StockSnapshot();
+        snapshot.setId(UUID.randomUUID());
+        snapshot.setTakenAt(takenAt);
+        return snapshot;
+    }
+
+    private static StockChangedEvent movement(UUID stockId, int delta, StockMovement.MovementType type) {
+        return new StockChangedEvent(stockId, BRANCH, MEDICINE, BATCH, delta, StockChangedEvent.ChangeType.ADJUSTED, type,
+                1L);
+    }
+
+    private static final class Statement {
+        private final String sql;
+        private final List<Object> parameters = new ArrayList<>();
+
+        private Statement(String sql) {
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.StockBalance;
+import com.pharmacy.inventory.dto.response.StockLedgerReport;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.model.StockMovement;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.support.NoOpTransactionManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockLedgerServiceImplTest {
+
+    private static final UUID BRANCH = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+    private static final UUID MEDICINE = UUID.fromString("00000000-0000-0000-0000-0000000000a1");
+    private static final UUID BATCH_1 = UUID.fromString("00000000-0000-0000-0000-0000000000c1");
+    private static final UUID BATCH_2 = UUID.fromString("00000000-0000-0000-0000-0000000000c2");
+    private static final UUID STOCK_1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID STOCK_2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+    private static final UUID STOCK_3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+
+    private StockRepository stockRepository;
+    private StockLedgerServiceImpl ledger;
+    private List<StockBalance> database;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository = mock(StockRepository.class);
+        ledger = new StockLedgerServiceImpl(stockRepository, mock(ApplicationEventPublisher.class),
+                new NoOpTransactionManager());
+        database = new ArrayList<>();
+        when(stockRepository.streamStockBalances()).thenAnswer(invocation -> new ArrayList<>(database).stream());
+        when(stockRepository.findStockBalance(any())).thenAnswer(invocation -> database.stream()
+                .filter(balance -> balance.getStockId().equals(invocation.getArgument(0)))
+                .findFirst());
+    }
+
+    @Test
+    void reconcileBeforeWarmUpChecksNothing() {
+        StockLedgerReport report = ledger.reconcile(true);
+
+        assertThat(report.getRows_checked()).isZero();
+        assertThat(report.hasDrift()).isFalse();
+        verify(stockRepository, never()).streamStockBalances();
+    }
+
+    @Test
+    void cleanLedgerReportsNoDrift() {
+        database.add(balance(STOCK_1, BATCH_1, 5));
+        database.add(balance(STOCK_2, BATCH_2, 3));
+        ledger.warm();
+
+        StockLedgerReport report = ledger.reconcile(false);
+
+        assertThat(report.getRows_checked()).isEqualTo(2);
+        assertThat(report.hasDrift()).isFalse();
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(8);
+    }
+
+    @Test
+    void checkReportsEachKindOfDriftAndLeavesTheLedgerAlone() {
+        database.add(balance(STOCK_1, BATCH_1, 5));
+        database.add(balance(STOCK_2, BATCH_2, 3));
+        ledger.warm();
+        // Writes the ledger never heard of
+        database.set(0, balance(STOCK_1, BATCH_1, 7));
+        database.remove(1);
+        database.add(balance(STOCK_3, BATCH_2, 4));
+
+        StockLedgerReport report = ledger.reconcile(false);
+
+        assertThat(report.getMismatched_rows()).isEqualTo(1);
+        assertThat(report.getExtra_rows()).isEqualTo(1);
+        assertThat(report.getMissing_rows()).isEqualTo(1);
+        assertThat(report.getDrift()).extracting(StockLedgerReport.Drift::getStock_id)
+                .containsExactlyInAnyOrder(STOCK_1, STOCK_2, STOCK_3);
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(8);
+    }
+
+    @Test
+    void repairBringsRowsAndTotalsInLineWithTheDatabase() {
+        database.add(balance(STOCK_1, BATCH_1, 5));
+        database.add(balance(STOCK_2, BATCH_2, 3));
+        ledger.warm();
+        database.set(0, balance(STOCK_1, BATCH_1, 7));
+        database.remove(1);
+        database.add(balance(STOCK_3, BATCH_2, 4));
+
+        assertThat(ledger.reconcile(true).hasDrift()).isTrue();
+
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(11);
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE, BATCH_1)).isEqualTo(7);
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE, BATCH_2)).isEqualTo(4);
+        assertThat(ledger.reconcile(false).hasDrift()).isFalse();
+    }
+
+    @Test
+    void rowChangedSinceTheScanIsNotDrift() {
+        database.add(balance(STOCK_1, BATCH_1, 5));
+        ledger.warm();
+        // The scan still sees the old quantity; the ledger and the re-read agree on the new one
+        when(stockRepository.streamStockBalances()).thenAnswer(invocation -> List.of(balance(STOCK_1, BATCH_1, 5)).stream());
+        database.set(0, balance(STOCK_1, BATCH_1, 2, 1L));
+        ledger.onStockChanged(adjusted(STOCK_1, -3, 1L));
+
+        StockLedgerReport report = ledger.reconcile(true);
+
+        assertThat(report.hasDrift()).isFalse();
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(2);
+    }
+
+    @Test
+    void deltaAlreadyPickedUpByAReloadIsDropped() {
+        database.add(balance(STOCK_1, BATCH_1, 5));
+        ledger.warm();
+        database.set(0, balance(STOCK_1, BATCH_1, 2, 1L));
+        // A reload picked up the sale, then its delta arrived as well
+        ledger.onStockChanged(updated(STOCK_1));
+        ledger.onStockChanged(adjusted(STOCK_1, -3, 1L));
+
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(2);
+        assertThat(ledger.reconcile(false).hasDrift()).isFalse();
+    }
+
+    @Test
+    void deltaThatSkipsAVersionReloadsTheRow() {
+        database.add(balance(STOCK_1, BATCH_1, 5));
+        ledger.warm();
+        database.set(0, balance(STOCK_1, BATCH_1, 1, 2L));
+        // Version 2 is delivered before version 1
+        ledger.onStockChanged(adjusted(STOCK_1, -3, 2L));
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(1);
+        ledger.onStockChanged(adjusted(STOCK_1, -1, 1L));
+
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(1);
+        assertThat(ledger.reconcile(false).hasDrift()).isFalse();
+    }
+
+    @Test
+    void consecutiveDeltasApplyWithoutReadingTheDatabase() {
+        database.add(balance(STOCK_1, BATCH_1, 5));
+        ledger.warm();
+
+        ledger.onStockChanged(adjusted(STOCK_1, -2, 1L));
+        ledger.onStockChanged(adjusted(STOCK_1, 4, 2L));
+
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(7);
+        verify(stockRepository, never()).findStockBalance(any());
+    }
+
+    @Test
+    void reloadOlderThanTheRowIsIgnored() {
+        database.add(balance(STOCK_1, BATCH_1, 5));
+        ledger.warm();
+        ledger.onStockChanged(adjusted(STOCK_1, -2, 1L));
+        // A read that started before the sale committed
+        database.set(0, balance(STOCK_1, BATCH_1, 5, 0L));
+
+        ledger.onStockChanged(updated(STOCK_1));
+
+        assertThat(ledger.getAvailable(BRANCH, MEDICINE)).isEqualTo(3);
+    }
+
+    private static StockChangedEvent adjusted(UUID stockId, int delta, long version) {
+        return new StockChangedEvent(stockId, BRANCH, MEDICINE, BATCH_1, delta,
+                StockChangedEvent.ChangeType.ADJUSTED, StockMovement.MovementType.SALE, version);
+    }
+
+    private static StockChangedEvent updated(UUID stockId) {
+        return new StockChangedEvent(stockId, BRANCH, MEDICINE, BATCH_1, null,
+                StockChangedEvent.ChangeType.UPDATED, StockMovement.MovementType.ADJUSTMENT, null);
+    }
+
+    private static StockBalance balance(UUID stockId, UUID batchId, int quantity) {
+        return balance(stockId, batchId, quantity, 0L);
+    }
+
+    private static StockBalance balance(UUID stockId, UUID batchId, int quantity, long version) {
+        return new StockBalance(stockId, BRANCH, MEDICINE, batchId, quantity, version);
+    }
+}
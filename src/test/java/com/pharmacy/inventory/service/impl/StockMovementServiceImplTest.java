@@ -0,0 +1,187 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.TransferOutcome;
+import com.pharmacy.inventory.dto.request.StockTransferRequest;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.Query;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockMovementServiceImplTest {
+
+    private static final UUID BRANCH_X = UUID.fromString("00000000-0000-0000-0000-0000000000b1");
+    private static final UUID BRANCH_Y = UUID.fromString("00000000-0000-0000-0000-0000000000b2");
+    private static final UUID MEDICINE = UUID.fromString("00000000-0000-0000-0000-0000000000a1");
+    private static final UUID EARLY_BATCH = UUID.fromString("00000000-0000-0000-0000-0000000000c1");
+    private static final UUID LATE_BATCH = UUID.fromString("00000000-0000-0000-0000-0000000000c2");
+
+    // Stock ids deliberately out of step with the branches that hold them
+    private static final UUID STOCK_1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+    private static final UUID STOCK_3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+    private static final UUID STOCK_5 = UUID.fromString("00000000-0000-0000-0000-000000000005");
+    private static final UUID STOCK_9 = UUID.fromString("00000000-0000-0000-0000-000000000009");
+    private static final long UPDATED_VERSION = 6L;
+
+    private EntityManager entityManager;
+    private ApplicationEventPublisher eventPublisher;
+    private StockMovementServiceImpl movementService;
+    private final List<Statement> statements = new ArrayList<>();
+    private List<Object> branches;
+    private List<Object[]> lockedRows;
+
+    @BeforeEach
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        movementService = new StockMovementServiceImpl(eventPublisher);
+        ReflectionTestUtils.setField(movementService, "entityManager", entityManager);
+        branches = List.of(BRANCH_X, BRANCH_Y);
+        lockedRows = new ArrayList<>();
+        when(entityManager.createNativeQuery(anyString())).thenAnswer(invocation -> record(invocation.getArgument(0)));
+    }
+
+    @Test
+    void opposingTransfersLockAllRowsWithOneOrderedStatement() {
+        LocalDate soon = LocalDate.now().plusMonths(1);
+        LocalDate later = LocalDate.now().plusYears(1);
+        lockedRows.add(row(STOCK_1, BRANCH_Y, EARLY_BATCH, 5, soon));
+        lockedRows.add(row(STOCK_3, BRANCH_X, LATE_BATCH, 5, later));
+        lockedRows.add(row(STOCK_5, BRANCH_Y, LATE_BATCH, 5, later));
+        lockedRows.add(row(STOCK_9, BRANCH_X, EARLY_BATCH, 5, soon));
+
+        List<TransferOutcome> outcomes = movementService.transfer(List.of(
+                transfer(BRANCH_X, BRANCH_Y, 3), transfer(BRANCH_Y, BRANCH_X, 1)));
+
+        assertThat(outcomes).allMatch(TransferOutcome::isMoved);
+        List<Statement> locks = statements.stream().filter(s -> s.sql.contains("FOR UPDATE")).toList();
+        assertThat(locks).hasSize(1);
+        assertThat(locks.get(0).sql).endsWith("ORDER BY s.id FOR UPDATE OF s");
+        assertThat(locks.get(0).parameters).containsExactly(BRANCH_X, MEDICINE, BRANCH_Y, MEDICINE);
+
+        // Both sides draw from the earliest batch: X gives 3 of it and takes 1 back
+        Statement update = single("UPDATE stock");
+        assertThat(statements.indexOf(update)).isGreaterThan(statements.indexOf(locks.get(0)));
+        assertThat(update.parameters.subList(1, update.parameters.size()))
+                .containsExactly(STOCK_1, 2, STOCK_9, -2);
+        assertThat(statements).noneMatch(s -> s.sql.startsWith("INSERT"));
+    }
+
+    @Test
+    void creditsABatchTheDestinationDoesNotHoldWithAnInsert() {
+        lockedRows.add(row(STOCK_9, BRANCH_X, EARLY_BATCH, 5, null));
+
+        List<TransferOutcome> outcomes = movementService.transfer(List.of(transfer(BRANCH_X, BRANCH_Y, 2)));
+
+        assertThat(outcomes.get(0).isMoved()).isTrue();
+        assertThat(single("UPDATE stock").parameters.subList(1, 3)).containsExactly(STOCK_9, -2);
+        Statement insert = single("INSERT INTO stock");
+        assertThat(insert.parameters.subList(1, 5)).containsExactly(BRANCH_Y, MEDICINE, EARLY_BATCH, 2);
+        // Each change event carries the version the statement returned for its row
+        ArgumentCaptor<StockChangedEvent> events = ArgumentCaptor.forClass(StockChangedEvent.class);
+        verify(eventPublisher, times(2)).publishEvent(events.capture());
+        assertThat(events.getAllValues()).extracting(StockChangedEvent::getVersion).containsExactly(UPDATED_VERSION, 0L);
+    }
+
+    @Test
+    void reportsUnknownBranchesWithoutLockingForThem() {
+        branches = List.of(BRANCH_X);
+
+        List<TransferOutcome> outcomes = movementService.transfer(List.of(transfer(BRANCH_X, BRANCH_Y, 1)));
+
+        assertThat(outcomes.get(0).getFailure()).isEqualTo(TransferOutcome.Failure.INVALID);
+        assertThat(statements).noneMatch(s -> s.sql.contains("FOR UPDATE"));
+    }
+
+    @Test
+    void leavesStockUntouchedWhenTheSourceIsShort() {
+        lockedRows.add(row(STOCK_9, BRANCH_X, EARLY_BATCH, 5, null));
+        lockedRows.add(row(STOCK_3, BRANCH_X, LATE_BATCH, 4, LocalDate.now().minusDays(1)));
+
+        List<TransferOutcome> outcomes = movementService.transfer(List.of(transfer(BRANCH_X, BRANCH_Y, 6)));
+
+        // The expired lot does not count towards what is available
+        assertThat(outcomes.get(0).getFailure()).isEqualTo(TransferOutcome.Failure.INSUFFICIENT_STOCK);
+        assertThat(statements).noneMatch(s -> s.sql.startsWith("UPDATE") || s.sql.startsWith("INSERT"));
+    }
+
+    private Query record(String sql) {
+        Statement statement = new Statement(sql);
+        statements.add(statement);
+        Query query = mock(Query.class);
+        doAnswer(invocation -> {
+            statement.parameters.add(invocation.getArgument(1));
+            return query;
+        }).when(query).setParameter(anyInt(), any());
+        when(query.getResultList()).thenAnswer(invocation -> {
+            if (sql.startsWith("SELECT id FROM branches")) {
+                return branches;
+            }
+            if (sql.startsWith("UPDATE")) {
+                List<Object[]> returned = new ArrayList<>();
+                for (int i = 1; i < statement.parameters.size(); i += 2) {
+                    returned.add(new Object[]{statement.parameters.get(i), UPDATED_VERSION});
+                }
+                return returned;
+            }
+            if (sql.startsWith("INSERT")) {
+                List<Object[]> returned = new ArrayList<>();
+                for (int i = 0; i < statement.parameters.size(); i += 7) {
+                    returned.add(new Object[]{statement.parameters.get(i), statement.parameters.get(i + 1),
+                            statement.parameters.get(i + 3), true, 0L});
+                }
+                return returned;
+            }
+            return lockedRows;
+        });
+        return query;
+    }
+
+    private Statement single(String prefix) {
+        List<Statement> matching = statements.stream().filter(s -> s.sql.startsWith(prefix)).toList();
+        assertThat(matching).hasSize(1);
+        return matching.get(0);
+    }
+
+    private static Object[] row(UUID stockId, UUID branchId, UUID batchId, int quantity, LocalDate expiryDate) {
+        return new Object[]{stockId, branchId, MEDICINE, batchId, quantity,
+                expiryDate == null ? null : Date.valueOf(expiryDate)};
+    }
+
+    private static StockTransferRequest transfer(UUID from, UUID to, int quantity) {
+        StockTransferRequest request = new StockTransferRequest();
+        request.setFromBranchId(from);
+        request.setToBranchId(to);
+        request.setMedicineId(MEDICINE);
+        request.setQuantity(quantity);
+        return request;
+    }
+
+    private static final class Statement {
+        private final String sql;
+        private final List<Object> parameters = new ArrayList<>();
+
+        private Statement(String sql) {
+            this.sql = sql;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.config.OptimisticRetryTemplate;
+import com.pharmacy.inventory.event.StockChangedEvent;
+import com.pharmacy.inventory.exception.VersionConflictException;
+import com.pharmacy.inventory.model.Stock;
+import com.pharmacy.inventory.repository.BatchRepository;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.StockRepository;
+import com.pharmacy.inventory.service.StockLedgerService;
+import com.pharmacy.inventory.service.StockMovementService;
+import com.pharmacy.inventory.support.NoOpTransactionManager;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockServiceImplTest {
+
+    private static final UUID STOCK_ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private StockRepository stockRepository;
+    private ApplicationEventPublisher eventPublisher;
+    private StockServiceImpl stockService;
+
+    @BeforeEach
+    void setUp() {
+        stockRepository = mock(StockRepository.class);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        stockService = new StockServiceImpl(stockRepository, mock(MedicineRepository.class), mock(BatchRepository.class),
+                mock(BranchRepository.class), mock(StockLedgerService.class), mock(StockMovementService.class),
+                retryTemplate(), eventPublisher);
+        when(stockRepository.saveAndFlush(any(Stock.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void staleVersionIsRejectedBeforeAnythingIsWritten() {
+        when(stockRepository.findById(STOCK_ID)).thenReturn(Optional.of(stock(5, 3L)));
+
+        assertThatThrownBy(() -> stockService.updateStockQuantity(STOCK_ID, 7, 2L))
+                .isInstanceOf(VersionConflictException.class)
+                .satisfies(e -> assertThat(((VersionConflictException) e).getCurrentVersion()).isEqualTo(3L));
+        assertThatThrownBy(() -> stockService.updateStock(STOCK_ID, stock(7, null), 2L))
+                .isInstanceOf(VersionConflictException.class);
+
+        verify(stockRepository, never()).saveAndFlush(any());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void currentVersionIsWrittenAndAnnounced() {
+        when(stockRepository.findById(STOCK_ID)).thenReturn(Optional.of(stock(5, 3L)));
+
+        Stock saved = stockService.updateStockQuantity(STOCK_ID, 7, 3L);
+
+        assertThat(saved.getCurrentQuantity()).isEqualTo(7);
+        verify(stockRepository).saveAndFlush(saved);
+        verify(eventPublisher).publishEvent(any(StockChangedEvent.class));
+    }
+
+    @Test
+    void noExpectedVersionOverwritesWhateverIsCurrent() {
+        when(stockRepository.findById(STOCK_ID)).thenReturn(Optional.of(stock(5, 8L)));
+
+        assertThat(stockService.updateStockQuantity(STOCK_ID, 7, null).getCurrentQuantity()).isEqualTo(7);
+    }
+
+    @Test
+    void unconditionalWriteThatLosesARaceIsRunAgainOnTheCurrentRow() {
+        when(stockRepository.findById(STOCK_ID)).thenReturn(Optional.of(stock(5, 3L)), Optional.of(stock(4, 4L)));
+        when(stockRepository.saveAndFlush(any(Stock.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Stock.class, STOCK_ID))
+                .thenAnswer(invocation -> invocation.getArgument(0));
+
+        Stock saved = stockService.updateStockQuantity(STOCK_ID, 7, null);
+
+        assertThat(saved.getCurrentQuantity()).isEqualTo(7);
+        assertThat(saved.getVersion()).isEqualTo(4L);
+        verify(stockRepository, times(2)).saveAndFlush(any());
+    }
+
+    @Test
+    void conditionalWriteThatLosesARaceAtFlushIsAConflict() {
+        // The version matched when read, but another write committed before the flush
+        when(stockRepository.findById(STOCK_ID)).thenReturn(Optional.of(stock(5, 3L)), Optional.of(stock(4, 4L)));
+        when(stockRepository.saveAndFlush(any(Stock.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Stock.class, STOCK_ID));
+
+        assertThatThrownBy(() -> stockService.updateStock(STOCK_ID, stock(7, null), 3L))
+                .isInstanceOf(VersionConflictException.class);
+        verify(stockRepository, times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    void missingRowIsNotAConflict() {
+        when(stockRepository.findById(STOCK_ID)).thenReturn(Optional.empty());
+
+        assertThat(stockService.updateStockQuantity(STOCK_ID, 7, 2L)).isNull();
+    }
+
+    private static OptimisticRetryTemplate retryTemplate() {
+        OptimisticRetryTemplate retryTemplate = new OptimisticRetryTemplate(new NoOpTransactionManager(),
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(retryTemplate, "maxAttempts", 3);
+        ReflectionTestUtils.setField(retryTemplate, "baseDelayMs", 1L);
+        ReflectionTestUtils.setField(retryTemplate, "maxDelayMs", 1L);
+        return retryTemplate;
+    }
+
+    private static Stock stock(int quantity, Long version) {
+        Stock stock = new Stock();
+        stock.setId(STOCK_ID);
+        stock.setCurrentQuantity(quantity);
+        stock.setVersion(version);
+        return stock;
+    }
+}
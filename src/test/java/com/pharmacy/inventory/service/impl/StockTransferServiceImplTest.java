@@ -0,0 +1,159 @@
+package com.pharmacy.inventory.service.impl;
+
+import com.pharmacy.inventory.dto.TransferOutcome;
+import com.pharmacy.inventory.dto.request.StockTransferRequest;
+import com.pharmacy.inventory.dto.response.TransferBatchResponse;
+import com.pharmacy.inventory.model.Branch;
+import com.pharmacy.inventory.model.Medicine;
+import com.pharmacy.inventory.model.StockTransfer;
+import com.pharmacy.inventory.model.User;
+import com.pharmacy.inventory.repository.BranchRepository;
+import com.pharmacy.inventory.repository.MedicineRepository;
+import com.pharmacy.inventory.repository.StockTransferRepository;
+import com.pharmacy.inventory.repository.UserRepository;
+import com.pharmacy.inventory.service.StockMovementService;
+import jakarta.persistence.EntityNotFoundException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StockTransferServiceImplTest {
+
+    private static final String EMAIL = "manager@pharmacy.test";
+
+    private StockTransferRepository transferRepository;
+    private StockMovementService movementService;
+    private StockTransferServiceImpl transferService;
+    private StockTransfer transfer;
+    private final List<StockTransferRequest> moved = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        transferRepository = mock(StockTransferRepository.class);
+        movementService = mock(StockMovementService.class);
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(EMAIL)).thenReturn(Optional.of(new User()));
+        transferService = new StockTransferServiceImpl(transferRepository, mock(BranchRepository.class),
+                mock(MedicineRepository.class), userRepository, movementService);
+        ReflectionTestUtils.setField(transferService, "maxBatchSize", 500);
+        SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(EMAIL, null));
+
+        transfer = pendingTransfer();
+        // Like the row lock in the database: whoever gets it second sees the status the first left
+        when(transferRepository.lockPendingByIds(any())).thenAnswer(invocation -> {
+            Collection<UUID> ids = invocation.getArgument(0);
+            return ids.contains(transfer.getId()) ? pendingOnly() : new ArrayList<>();
+        });
+        when(transferRepository.lockPending(any())).thenAnswer(invocation -> pendingOnly());
+        when(transferRepository.existsById(transfer.getId())).thenReturn(true);
+        when(transferRepository.save(any(StockTransfer.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(movementService.transfer(anyList())).thenAnswer(invocation -> {
+            List<StockTransferRequest> requests = invocation.getArgument(0);
+            List<TransferOutcome> outcomes = new ArrayList<>();
+            for (StockTransferRequest request : requests) {
+                moved.add(request);
+                outcomes.add(TransferOutcome.moved(List.of()));
+            }
+            return outcomes;
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void transferCompletedByABatchIsNotAppliedAgainByItself() {
+        TransferBatchResponse batch = transferService.processPendingTransfers(List.of(transfer.getId()));
+
+        assertThatThrownBy(() -> transferService.processStockTransfer(transfer.getId(), "COMPLETED"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("already processed");
+        assertThat(batch.getResults()).singleElement()
+                .satisfies(result -> assertThat(result.getStatus()).isEqualTo(TransferBatchResponse.Status.COMPLETED));
+        assertThat(moved).hasSize(1);
+    }
+
+    @Test
+    void transferCompletedByItselfIsSkippedByABatch() {
+        StockTransfer processed = transferService.processStockTransfer(transfer.getId(), "COMPLETED");
+
+        TransferBatchResponse named = transferService.processPendingTransfers(List.of(transfer.getId()));
+        TransferBatchResponse oldest = transferService.processPendingTransfers(null);
+
+        assertThat(processed.getStatus()).isEqualTo(StockTransfer.TransferStatus.COMPLETED);
+        assertThat(named.getResults()).singleElement()
+                .satisfies(result -> assertThat(result.getStatus()).isEqualTo(TransferBatchResponse.Status.NOT_PENDING));
+        assertThat(oldest.getResults()).isEmpty();
+        assertThat(moved).hasSize(1);
+    }
+
+    @Test
+    void transferIsCompletedOnlyOnceWhenProcessedTwice() {
+        transferService.processStockTransfer(transfer.getId(), "COMPLETED");
+
+        assertThatThrownBy(() -> transferService.processStockTransfer(transfer.getId(), "COMPLETED"))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(moved).hasSize(1);
+    }
+
+    @Test
+    void rejectedTransferMovesNothing() {
+        transferService.processStockTransfer(transfer.getId(), "REJECTED");
+
+        assertThat(transfer.getStatus()).isEqualTo(StockTransfer.TransferStatus.REJECTED);
+        verify(movementService, never()).transfer(anyList());
+    }
+
+    @Test
+    void unknownTransferIsNotFound() {
+        assertThatThrownBy(() -> transferService.processStockTransfer(UUID.randomUUID(), "COMPLETED"))
+                .isInstanceOf(EntityNotFoundException.class);
+    }
+
+    private List<StockTransfer> pendingOnly() {
+        List<StockTransfer> locked = new ArrayList<>();
+        if (transfer.getStatus() == StockTransfer.TransferStatus.PENDING) {
+            locked.add(transfer);
+        }
+        return locked;
+    }
+
+    private static StockTransfer pendingTransfer() {
+        Branch from = new Branch();
+        from.setId(UUID.randomUUID());
+        Branch to = new Branch();
+        to.setId(UUID.randomUUID());
+        Medicine medicine = new Medicine();
+        medicine.setId(UUID.randomUUID());
+        StockTransfer transfer = new StockTransfer();
+        transfer.setId(UUID.randomUUID());
+        transfer.setFromBranch(from);
+        transfer.setToBranch(to);
+        transfer.setMedicine(medicine);
+        transfer.setQuantity(3);
+        transfer.setRequestDate(LocalDateTime.now());
+        transfer.setStatus(StockTransfer.TransferStatus.PENDING);
+        return transfer;
+    }
+}
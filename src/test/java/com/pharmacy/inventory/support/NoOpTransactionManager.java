@@ -0,0 +1,39 @@
+package com.pharmacy.inventory.support;
+
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+/**
+ * Transaction manager for unit tests: runs TransactionTemplate callbacks in place
+ * and counts what happened to them
+ */
+public class NoOpTransactionManager implements PlatformTransactionManager {
+
+    private int commits;
+    private int rollbacks;
+
+    @Override
+    public TransactionStatus getTransaction(TransactionDefinition definition) {
+        return new SimpleTransactionStatus();
+    }
+
+    @Override
+    public void commit(TransactionStatus status) {
+        commits++;
+    }
+
+    @Override
+    public void rollback(TransactionStatus status) {
+        rollbacks++;
+    }
+
+    public int getCommits() {
+        return commits;
+    }
+
+    public int getRollbacks() {
+        return rollbacks;
+    }
+}